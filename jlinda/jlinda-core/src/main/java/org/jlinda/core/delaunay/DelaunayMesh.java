@@ -0,0 +1,488 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.jlinda.core.delaunay;
+
+import java.util.Arrays;
+
+/**
+ * Delaunay triangulation of points held in primitive arrays.
+ * <p>
+ * Points are sorted by distance from the circumcentre of a seed triangle and added one by one to a convex hull
+ * that grows outwards (sweep-hull); each new triangle is flipped until the Delaunay property holds. Triangles are
+ * stored as point indices, three per triangle, and each edge knows its opposite half-edge in the neighbouring
+ * triangle, or -1 on the hull. Coincident points are kept once, the first one added.
+ * <p>
+ * All arrays grow as needed and are kept by {@link #reset()}, so that an instance can triangulate tile after
+ * tile without allocating. An instance is not thread safe.
+ */
+public final class DelaunayMesh {
+
+    private int numPoints;
+    private double[] coords = new double[0]; // x, y of each point
+    private int[] ids = new int[0];          // caller's index of each point
+
+    private int[] triangles = new int[0];    // point indices, three per triangle
+    private int[] halfedges = new int[0];    // opposite half-edge of each half-edge, or -1
+    private int trianglesLen;
+
+    // sweep state
+    private int[] order = new int[0];
+    private double[] dists = new double[0];
+    private int[] hullPrev = new int[0], hullNext = new int[0], hullTri = new int[0];
+    private int[] hullHash = new int[0];
+    private int hashSize;
+    private int hullStart;
+    private double cx, cy;
+    private int[] edgeStack = new int[512];
+
+    /**
+     * Remove all points and triangles, keeping the buffers.
+     */
+    public void reset() {
+        numPoints = 0;
+        trianglesLen = 0;
+    }
+
+    /**
+     * Add a point.
+     *
+     * @param x  x coordinate
+     * @param y  y coordinate
+     * @param id index of the point in the caller's data
+     */
+    public void add(final double x, final double y, final int id) {
+        if (numPoints == ids.length) {
+            final int capacity = Math.max(1024, 2 * numPoints);
+            coords = Arrays.copyOf(coords, 2 * capacity);
+            ids = Arrays.copyOf(ids, capacity);
+        }
+        coords[2 * numPoints] = x;
+        coords[2 * numPoints + 1] = y;
+        ids[numPoints++] = id;
+    }
+
+    public int getNumPoints() {
+        return numPoints;
+    }
+
+    public int getNumTriangles() {
+        return trianglesLen / 3;
+    }
+
+    /**
+     * @param t triangle
+     * @param k vertex 0, 1 or 2
+     * @return the point index of a vertex of a triangle
+     */
+    public int getVertex(final int t, final int k) {
+        return triangles[3 * t + k];
+    }
+
+    public double getX(final int p) {
+        return coords[2 * p];
+    }
+
+    public double getY(final int p) {
+        return coords[2 * p + 1];
+    }
+
+    public int getId(final int p) {
+        return ids[p];
+    }
+
+    /**
+     * @param e half-edge, 3 * triangle + vertex of its start
+     * @return the opposite half-edge, or -1 if e is on the convex hull
+     */
+    public int getOpposite(final int e) {
+        return halfedges[e];
+    }
+
+    /**
+     * Triangulate the points added since the last reset.
+     *
+     * @return false if there are fewer than three points not on a line
+     */
+    public boolean triangulate() {
+        trianglesLen = 0;
+        final int n = numPoints;
+        if (n < 3) {
+            return false;
+        }
+        allocate(n);
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            final double x = coords[2 * i];
+            final double y = coords[2 * i + 1];
+            if (x < minX) minX = x;
+            if (y < minY) minY = y;
+            if (x > maxX) maxX = x;
+            if (y > maxY) maxY = y;
+            order[i] = i;
+        }
+        final double midX = (minX + maxX) / 2;
+        final double midY = (minY + maxY) / 2;
+
+        // seed triangle: the point closest to the centre, its nearest neighbour and the point making the
+        // smallest circumcircle with them
+        int i0 = -1, i1 = -1, i2 = -1;
+        double minDist = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            final double d = dist(midX, midY, coords[2 * i], coords[2 * i + 1]);
+            if (d < minDist) {
+                i0 = i;
+                minDist = d;
+            }
+        }
+        final double i0x = coords[2 * i0], i0y = coords[2 * i0 + 1];
+
+        minDist = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            final double d = dist(i0x, i0y, coords[2 * i], coords[2 * i + 1]);
+            if (d > 0 && d < minDist) {
+                i1 = i;
+                minDist = d;
+            }
+        }
+        if (i1 < 0) {
+            return false;
+        }
+        double i1x = coords[2 * i1], i1y = coords[2 * i1 + 1];
+
+        double minRadius = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            if (i == i0 || i == i1) continue;
+            final double r = circumradius(i0x, i0y, i1x, i1y, coords[2 * i], coords[2 * i + 1]);
+            if (r < minRadius) {
+                i2 = i;
+                minRadius = r;
+            }
+        }
+        if (i2 < 0 || minRadius == Double.POSITIVE_INFINITY) {
+            return false; // all points on a line
+        }
+        double i2x = coords[2 * i2], i2y = coords[2 * i2 + 1];
+
+        if (orient(i0x, i0y, i1x, i1y, i2x, i2y)) {
+            final int i = i1;
+            i1 = i2;
+            i2 = i;
+            i1x = coords[2 * i1];
+            i1y = coords[2 * i1 + 1];
+            i2x = coords[2 * i2];
+            i2y = coords[2 * i2 + 1];
+        }
+
+        circumcentre(i0x, i0y, i1x, i1y, i2x, i2y);
+        for (int i = 0; i < n; i++) {
+            dists[i] = dist(coords[2 * i], coords[2 * i + 1], cx, cy);
+        }
+        sort(0, n - 1);
+
+        hashSize = (int) Math.ceil(Math.sqrt(n));
+        if (hullHash.length < hashSize) {
+            hullHash = new int[hashSize];
+        }
+        Arrays.fill(hullHash, 0, hashSize, -1);
+
+        hullStart = i0;
+        hullNext[i0] = hullPrev[i2] = i1;
+        hullNext[i1] = hullPrev[i0] = i2;
+        hullNext[i2] = hullPrev[i1] = i0;
+        hullTri[i0] = 0;
+        hullTri[i1] = 1;
+        hullTri[i2] = 2;
+        hullHash[hashKey(i0x, i0y)] = i0;
+        hullHash[hashKey(i1x, i1y)] = i1;
+        hullHash[hashKey(i2x, i2y)] = i2;
+
+        addTriangle(i0, i1, i2, -1, -1, -1);
+
+        double xp = 0, yp = 0;
+        for (int k = 0; k < n; k++) {
+            final int i = order[k];
+            final double x = coords[2 * i];
+            final double y = coords[2 * i + 1];
+
+            // coincident points are adjacent in the sorted order
+            if (k > 0 && x == xp && y == yp) continue;
+            xp = x;
+            yp = y;
+
+            if (i == i0 || i == i1 || i == i2) continue;
+
+            // find a hull edge visible from the point, starting from the hash bucket of its angle
+            int start = 0;
+            final int key = hashKey(x, y);
+            for (int j = 0; j < hashSize; j++) {
+                start = hullHash[(key + j) % hashSize];
+                if (start != -1 && start != hullNext[start]) break;
+            }
+            start = hullPrev[start];
+            int e = start, q;
+            while (!orient(x, y, coords[2 * e], coords[2 * e + 1],
+                           coords[2 * (q = hullNext[e])], coords[2 * q + 1])) {
+                e = q;
+                if (e == start) {
+                    e = -1;
+                    break;
+                }
+            }
+            if (e == -1) continue; // on the hull or a duplicate within rounding
+
+            int t = addTriangle(e, i, hullNext[e], -1, -1, hullTri[e]);
+            hullTri[i] = legalize(t + 2);
+            hullTri[e] = t;
+
+            // walk forward and backward along the hull adding triangles
+            int next = hullNext[e];
+            while (orient(x, y, coords[2 * next], coords[2 * next + 1],
+                          coords[2 * (q = hullNext[next])], coords[2 * q + 1])) {
+                t = addTriangle(next, i, q, hullTri[i], -1, hullTri[next]);
+                hullTri[i] = legalize(t + 2);
+                hullNext[next] = next; // removed from the hull
+                next = q;
+            }
+            if (e == start) {
+                while (orient(x, y, coords[2 * (q = hullPrev[e])], coords[2 * q + 1],
+                              coords[2 * e], coords[2 * e + 1])) {
+                    t = addTriangle(q, i, e, -1, hullTri[e], hullTri[q]);
+                    legalize(t + 2);
+                    hullTri[q] = t;
+                    hullNext[e] = e;
+                    e = q;
+                }
+            }
+
+            hullStart = hullPrev[i] = e;
+            hullNext[e] = hullPrev[next] = i;
+            hullNext[i] = next;
+
+            hullHash[hashKey(x, y)] = i;
+            hullHash[hashKey(coords[2 * e], coords[2 * e + 1])] = e;
+        }
+        return true;
+    }
+
+    private void allocate(final int n) {
+        final int maxTriangles = Math.max(2 * n - 5, 1);
+        if (triangles.length < 3 * maxTriangles) {
+            triangles = new int[3 * maxTriangles];
+            halfedges = new int[3 * maxTriangles];
+        }
+        if (order.length < n) {
+            order = new int[n];
+            dists = new double[n];
+            hullPrev = new int[n];
+            hullNext = new int[n];
+            hullTri = new int[n];
+        }
+    }
+
+    private int hashKey(final double x, final double y) {
+        return (int) Math.floor(pseudoAngle(x - cx, y - cy) * hashSize) % hashSize;
+    }
+
+    /**
+     * Flip the edge a and the edges behind it until their triangles are Delaunay.
+     *
+     * @return the half-edge following a after the flips
+     */
+    private int legalize(int a) {
+        int i = 0;
+        int ar;
+        while (true) {
+            final int b = halfedges[a];
+            final int a0 = a - a % 3;
+            ar = a0 + (a + 2) % 3;
+
+            if (b == -1) {
+                if (i == 0) break;
+                a = edgeStack[--i];
+                continue;
+            }
+
+            final int b0 = b - b % 3;
+            final int al = a0 + (a + 1) % 3;
+            final int bl = b0 + (b + 2) % 3;
+
+            final int p0 = triangles[ar];
+            final int pr = triangles[a];
+            final int pl = triangles[al];
+            final int p1 = triangles[bl];
+
+            if (inCircle(coords[2 * p0], coords[2 * p0 + 1], coords[2 * pr], coords[2 * pr + 1],
+                         coords[2 * pl], coords[2 * pl + 1], coords[2 * p1], coords[2 * p1 + 1])) {
+                triangles[a] = p1;
+                triangles[b] = p0;
+
+                final int hbl = halfedges[bl];
+                if (hbl == -1) {
+                    // the flipped edge is on the hull, update the hull triangle it points to
+                    int e = hullStart;
+                    do {
+                        if (hullTri[e] == bl) {
+                            hullTri[e] = a;
+                            break;
+                        }
+                        e = hullPrev[e];
+                    } while (e != hullStart);
+                }
+                link(a, hbl);
+                link(b, halfedges[ar]);
+                link(ar, bl);
+
+                final int br = b0 + (b + 1) % 3;
+                if (i == edgeStack.length) {
+                    edgeStack = Arrays.copyOf(edgeStack, 2 * i);
+                }
+                edgeStack[i++] = br;
+            } else {
+                if (i == 0) break;
+                a = edgeStack[--i];
+            }
+        }
+        return ar;
+    }
+
+    private void link(final int a, final int b) {
+        halfedges[a] = b;
+        if (b != -1) halfedges[b] = a;
+    }
+
+    private int addTriangle(final int i0, final int i1, final int i2, final int a, final int b, final int c) {
+        final int t = trianglesLen;
+        triangles[t] = i0;
+        triangles[t + 1] = i1;
+        triangles[t + 2] = i2;
+        link(t, a);
+        link(t + 1, b);
+        link(t + 2, c);
+        trianglesLen += 3;
+        return t;
+    }
+
+    /**
+     * Sort order[left..right] by distance from the seed circumcentre, coincident points together and by index.
+     */
+    private void sort(final int left, final int right) {
+        if (right - left <= 20) {
+            for (int i = left + 1; i <= right; i++) {
+                final int temp = order[i];
+                int j = i - 1;
+                while (j >= left && compare(order[j], temp) > 0) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = temp;
+            }
+            return;
+        }
+
+        final int median = (left + right) >>> 1;
+        int i = left + 1;
+        int j = right;
+        swap(median, i);
+        if (compare(order[left], order[right]) > 0) swap(left, right);
+        if (compare(order[i], order[right]) > 0) swap(i, right);
+        if (compare(order[left], order[i]) > 0) swap(left, i);
+
+        final int temp = order[i];
+        while (true) {
+            do i++; while (compare(order[i], temp) < 0);
+            do j--; while (compare(order[j], temp) > 0);
+            if (j < i) break;
+            swap(i, j);
+        }
+        order[left + 1] = order[j];
+        order[j] = temp;
+
+        if (right - i + 1 >= j - left) {
+            sort(i, right);
+            sort(left, j - 1);
+        } else {
+            sort(left, j - 1);
+            sort(i, right);
+        }
+    }
+
+    private int compare(final int p, final int q) {
+        int c = Double.compare(dists[p], dists[q]);
+        if (c == 0) c = Double.compare(coords[2 * p], coords[2 * q]);
+        if (c == 0) c = Double.compare(coords[2 * p + 1], coords[2 * q + 1]);
+        if (c == 0) c = Integer.compare(p, q);
+        return c;
+    }
+
+    private void swap(final int i, final int j) {
+        final int tmp = order[i];
+        order[i] = order[j];
+        order[j] = tmp;
+    }
+
+    private void circumcentre(final double x0, final double y0, final double x1, final double y1,
+                              final double x2, final double y2) {
+        final double dx = x1 - x0, dy = y1 - y0;
+        final double ex = x2 - x0, ey = y2 - y0;
+        final double bl = dx * dx + dy * dy;
+        final double cl = ex * ex + ey * ey;
+        final double d = 0.5 / (dx * ey - dy * ex);
+        cx = x0 + (ey * bl - dy * cl) * d;
+        cy = y0 + (dx * cl - ex * bl) * d;
+    }
+
+    // monotonic in the angle of (dx, dy), in [0, 1]
+    private static double pseudoAngle(final double dx, final double dy) {
+        final double p = dx / (Math.abs(dx) + Math.abs(dy));
+        return (dy > 0 ? 3 - p : 1 + p) / 4;
+    }
+
+    private static double dist(final double ax, final double ay, final double bx, final double by) {
+        final double dx = ax - bx, dy = ay - by;
+        return dx * dx + dy * dy;
+    }
+
+    // true if r is on the right of p -> q
+    private static boolean orient(final double px, final double py, final double qx, final double qy,
+                                  final double rx, final double ry) {
+        return (qy - py) * (rx - qx) - (qx - px) * (ry - qy) < 0;
+    }
+
+    private static boolean inCircle(final double ax, final double ay, final double bx, final double by,
+                                    final double cx, final double cy, final double px, final double py) {
+        final double dx = ax - px, dy = ay - py;
+        final double ex = bx - px, ey = by - py;
+        final double fx = cx - px, fy = cy - py;
+        final double ap = dx * dx + dy * dy;
+        final double bp = ex * ex + ey * ey;
+        final double cp = fx * fx + fy * fy;
+        return dx * (ey * cp - bp * fy) - dy * (ex * cp - bp * fx) + ap * (ex * fy - ey * fx) < 0;
+    }
+
+    private static double circumradius(final double ax, final double ay, final double bx, final double by,
+                                       final double cx, final double cy) {
+        final double dx = bx - ax, dy = by - ay;
+        final double ex = cx - ax, ey = cy - ay;
+        final double bl = dx * dx + dy * dy;
+        final double cl = ex * ex + ey * ey;
+        final double d = 0.5 / (dx * ey - dy * ex);
+        final double x = (ey * bl - dy * cl) * d;
+        final double y = (dx * cl - ex * bl) * d;
+        return x * x + y * y;
+    }
+}
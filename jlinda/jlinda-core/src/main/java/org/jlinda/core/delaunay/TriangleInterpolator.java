@@ -10,6 +10,9 @@ import java.util.List;
 
 public class TriangleInterpolator {
 
+    // triangulation buffers of each thread, reused from tile to tile
+    private static final ThreadLocal<DelaunayMesh> meshes = ThreadLocal.withInitial(DelaunayMesh::new);
+
     public static class ZData {
         public final double[] z_1d_in;
         public final double[][] z_in;
@@ -33,9 +36,22 @@ public class TriangleInterpolator {
                                       final Window window, final double xyRatio, final int xScale,
                                       final int yScale, final double invalidIndex, final int offset) throws Exception {
 
-        final FastDelaunayTriangulator FDT = triangulate(x_in, y_in, xyRatio, invalidIndex);
-        if(FDT != null) {
-            interpolate(xyRatio, window, xScale, yScale, offset, invalidIndex, FDT, zList);
+        final DelaunayMesh mesh = meshes.get();
+        mesh.reset();
+        final int width = x_in[0].length;
+        for (int i = 0; i < x_in.length; i++) {
+            final double[] x_row = x_in[i];
+            final double[] y_row = y_in[i];
+            for (int j = 0; j < width; j++) {
+                if (x_row[j] == invalidIndex || y_row[j] == invalidIndex) {
+                    continue;
+                }
+                mesh.add(x_row[j], y_row[j] * xyRatio, i * width + j);
+            }
+        }
+
+        if (mesh.triangulate()) {
+            interpolate(xyRatio, window, xScale, yScale, offset, mesh, zList);
         }
     }
 
@@ -43,9 +59,17 @@ public class TriangleInterpolator {
                                       final Window window, final double xyRatio, final int xScale,
                                       final int yScale, final double invalidIndex, final int offset) throws Exception {
 
-        final FastDelaunayTriangulator FDT = triangulate(x_in, y_in, xyRatio, invalidIndex);
-        if(FDT != null) {
-            interpolate(xyRatio, window, xScale, yScale, offset, invalidIndex, FDT, zList);
+        final DelaunayMesh mesh = meshes.get();
+        mesh.reset();
+        for (int i = 0; i < x_in.length; i++) {
+            if (x_in[i] == invalidIndex || y_in[i] == invalidIndex) {
+                continue;
+            }
+            mesh.add(x_in[i], y_in[i] * xyRatio, i);
+        }
+
+        if (mesh.triangulate()) {
+            interpolate(xyRatio, window, xScale, yScale, offset, mesh, zList);
         }
     }
 
@@ -231,6 +255,92 @@ public class TriangleInterpolator {
         //SystemUtils.LOG.info("Data set interpolated in " + (0.001 * (t5 - t4)) + " sec");
     }
 
+    /**
+     * Linear interpolation of the triangles of a mesh onto the grid of a tile. Each triangle is scanned row by
+     * row; the grid points of a row between the edges of the triangle, edges included, take the value of the
+     * plane through its vertices.
+     */
+    public static void interpolate(final double xyRatio, final Window tileWindow,
+                                   final double xScale, final double yScale, final double offset,
+                                   final DelaunayMesh mesh, final ZData[] zList) {
+
+        final double x_min = tileWindow.linelo;
+        final double y_min = tileWindow.pixlo;
+        final int nx = (int) tileWindow.lines();
+        final int ny = (int) tileWindow.pixels();
+
+        final double[] vx = new double[3];
+        final double[] vy = new double[3];
+        final double[] vz = new double[3];
+
+        final int numTriangles = mesh.getNumTriangles();
+        for (int t = 0; t < numTriangles; t++) {
+
+            for (int k = 0; k < 3; k++) {
+                final int p = mesh.getVertex(t, k);
+                vx[k] = mesh.getX(p);
+                vy[k] = mesh.getY(p) / xyRatio;
+                vz[k] = mesh.getId(p);
+            }
+
+            // grid rows the triangle covers
+            final double xMin = Math.min(Math.min(vx[0], vx[1]), vx[2]);
+            final double xMax = Math.max(Math.max(vx[0], vx[1]), vx[2]);
+            final int i_min = Math.max(0, (int) Math.ceil((xMin - x_min - offset) / xScale));
+            final int i_max = Math.min(nx - 1, (int) Math.floor((xMax - x_min - offset) / xScale));
+            if (i_min > i_max) {
+                continue;
+            }
+            final double yMin = Math.min(Math.min(vy[0], vy[1]), vy[2]);
+            final double yMax = Math.max(Math.max(vy[0], vy[1]), vy[2]);
+            if (Math.floor((yMax - y_min - offset) / yScale) < 0 || Math.ceil((yMin - y_min - offset) / yScale) >= ny) {
+                continue;
+            }
+
+            // plane defined by the three vertices of the triangle: z = ax + by + c
+            final double xkj = vx[1] - vx[0];
+            final double ykj = vy[1] - vy[0];
+            final double xlj = vx[2] - vx[0];
+            final double ylj = vy[2] - vy[0];
+            final double f = 1.0 / (xkj * ylj - ykj * xlj);
+            for (ZData data : zList) {
+                getABC(vx, vy, vz, data, f, xkj, ykj, xlj, ylj);
+            }
+
+            for (int i = i_min; i <= i_max; i++) {
+                final double xp = x_min + i * xScale + offset;
+
+                // span of the row inside the triangle
+                double yLo = Double.POSITIVE_INFINITY;
+                double yHi = Double.NEGATIVE_INFINITY;
+                for (int k = 0; k < 3; k++) {
+                    final int l = (k + 1) % 3;
+                    final double x0 = vx[k], x1 = vx[l];
+                    if ((xp < x0 && xp < x1) || (xp > x0 && xp > x1)) {
+                        continue;
+                    }
+                    if (x0 == x1) {
+                        yLo = Math.min(yLo, Math.min(vy[k], vy[l]));
+                        yHi = Math.max(yHi, Math.max(vy[k], vy[l]));
+                    } else {
+                        final double y = vy[k] + (xp - x0) * (vy[l] - vy[k]) / (x1 - x0);
+                        yLo = Math.min(yLo, y);
+                        yHi = Math.max(yHi, y);
+                    }
+                }
+
+                final int j_min = Math.max(0, (int) Math.ceil((yLo - y_min - offset) / yScale));
+                final int j_max = Math.min(ny - 1, (int) Math.floor((yHi - y_min - offset) / yScale));
+                for (int j = j_min; j <= j_max; j++) {
+                    final double yp = y_min + j * yScale + offset;
+                    for (ZData d : zList) {
+                        d.z_out[i][j] = d.a * xp + d.b * yp + d.c;
+                    }
+                }
+            }
+        }
+    }
+
     private static void getABC(
             final double[] vx, final double[] vy, final double[] vz, final ZData data,
             final double f, final double  xkj, final double ykj, final double xlj, final double ylj) {
@@ -33,19 +33,12 @@ public final class FlatBinaryDouble extends FlatBinary {
         setLinesPixels();
 
         data = new double[lines][pixels];
-        for (int i = 0; i < lines; i++) {
-            for (int j = 0; j < pixels; j++) {
-                try {
-                    if (byteOrder == ByteOrder.LITTLE_ENDIAN) {
-                        data[i][j] = ByteSwapper.swap(inStream.readDouble());
-                    } else {
-                        data[i][j] = inStream.readDouble();
-                    }
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-
+        try {
+            for (int i = 0; i < lines; i++) {
+                readLine(pixels * Double.BYTES).asDoubleBuffer().get(data[i]);
             }
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
@@ -33,18 +33,12 @@ public final class FlatBinaryFloat extends FlatBinary {
         setLinesPixels();
 
         data = new float[lines][pixels];
-        for (int i = 0; i < lines; i++) {
-            for (int j = 0; j < pixels; j++) {
-                try {
-                    if (byteOrder == ByteOrder.LITTLE_ENDIAN) {
-                        data[i][j] = ByteSwapper.swap(inStream.readFloat());
-                    } else {
-                        data[i][j] = inStream.readFloat();
-                    }
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+        try {
+            for (int i = 0; i < lines; i++) {
+                readLine(pixels * Float.BYTES).asFloatBuffer().get(data[i]);
             }
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
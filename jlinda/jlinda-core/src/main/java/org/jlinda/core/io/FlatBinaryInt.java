@@ -33,19 +33,12 @@ public final class FlatBinaryInt extends FlatBinary {
         setLinesPixels();
 
         data = new int[lines][pixels];
-        for (int i = 0; i < lines; i++) {
-            for (int j = 0; j < pixels; j++) {
-                try {
-                    if (byteOrder == ByteOrder.LITTLE_ENDIAN) {
-                        data[i][j] = ByteSwapper.swap(inStream.readInt());
-                    } else {
-                        data[i][j] = inStream.readInt();
-                    }
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-
+        try {
+            for (int i = 0; i < lines; i++) {
+                readLine(pixels * Integer.BYTES).asIntBuffer().get(data[i]);
             }
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
@@ -33,19 +33,12 @@ public final class FlatBinaryLong extends FlatBinary {
         setLinesPixels();
 
         data = new long[lines][pixels];
-        for (int i = 0; i < lines; i++) {
-            for (int j = 0; j < pixels; j++) {
-                try {
-                    if (byteOrder == ByteOrder.LITTLE_ENDIAN) {
-                        data[i][j] = ByteSwapper.swap(inStream.readLong());
-                    } else {
-                        data[i][j] = inStream.readLong();
-                    }
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-
+        try {
+            for (int i = 0; i < lines; i++) {
+                readLine(pixels * Long.BYTES).asLongBuffer().get(data[i]);
             }
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
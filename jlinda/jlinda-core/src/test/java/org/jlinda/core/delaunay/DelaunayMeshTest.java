@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.jlinda.core.delaunay;
+
+import org.jlinda.core.Window;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class DelaunayMeshTest {
+
+    private static final double NODATA = -32768;
+
+    @Test
+    public void testRandomPoints() {
+        final Random random = new Random(42);
+        final DelaunayMesh mesh = new DelaunayMesh();
+        for (int n : new int[]{3, 4, 10, 100, 2000}) {
+            mesh.reset();
+            for (int i = 0; i < n; i++) {
+                mesh.add(1000 * random.nextDouble(), 500 * random.nextDouble(), i);
+            }
+            assertTrue(mesh.triangulate());
+            checkMesh(mesh);
+        }
+    }
+
+    @Test
+    public void testRegularGrid() {
+        // every four neighbours are cocircular and every row and column collinear
+        final DelaunayMesh mesh = new DelaunayMesh();
+        final int size = 20;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                mesh.add(i, 2.5 * j, i * size + j);
+            }
+        }
+        assertTrue(mesh.triangulate());
+        assertEquals(2 * (size - 1) * (size - 1), mesh.getNumTriangles());
+        checkMesh(mesh);
+    }
+
+    @Test
+    public void testCollinearPoints() {
+        final DelaunayMesh mesh = new DelaunayMesh();
+        assertFalse(mesh.triangulate());
+        for (int i = 0; i < 10; i++) {
+            mesh.add(i, 2 * i + 1, i);
+        }
+        assertFalse(mesh.triangulate());
+        assertEquals(0, mesh.getNumTriangles());
+
+        // one point off the line makes a fan of triangles over the collinear points on the hull
+        mesh.add(3, 0, 10);
+        assertTrue(mesh.triangulate());
+        assertEquals(9, mesh.getNumTriangles());
+        checkMesh(mesh);
+
+        mesh.reset();
+        mesh.add(0, 0, 0);
+        mesh.add(1, 1, 1);
+        assertFalse(mesh.triangulate());
+    }
+
+    @Test
+    public void testDuplicatePoints() {
+        final Random random = new Random(7);
+        final DelaunayMesh mesh = new DelaunayMesh();
+        final double[][] points = new double[200][];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = i % 3 == 2 ? points[random.nextInt(i)] :
+                    new double[]{random.nextInt(50), random.nextInt(50)};
+            mesh.add(points[i][0], points[i][1], i);
+        }
+        assertTrue(mesh.triangulate());
+        checkMesh(mesh);
+
+        // every distinct location is a vertex, through the first point added there
+        final Set<Integer> vertices = new HashSet<>();
+        for (int t = 0; t < mesh.getNumTriangles(); t++) {
+            for (int k = 0; k < 3; k++) {
+                vertices.add(mesh.getVertex(t, k));
+            }
+        }
+        final Set<String> locations = new HashSet<>();
+        for (int i = 0; i < points.length; i++) {
+            final String location = points[i][0] + "," + points[i][1];
+            if (locations.add(location)) {
+                assertTrue("point " + i, vertices.contains(i));
+            } else {
+                assertFalse("duplicate " + i, vertices.contains(i));
+            }
+        }
+
+        // all points at one location
+        mesh.reset();
+        for (int i = 0; i < 5; i++) {
+            mesh.add(1, 2, i);
+        }
+        assertFalse(mesh.triangulate());
+    }
+
+    @Test
+    public void testReuse() {
+        final Random random = new Random(3);
+        final DelaunayMesh mesh = new DelaunayMesh();
+        for (int n : new int[]{3000, 50, 1500}) {
+            mesh.reset();
+            for (int i = 0; i < n; i++) {
+                mesh.add(random.nextGaussian(), random.nextGaussian(), i);
+            }
+            assertEquals(n, mesh.getNumPoints());
+            assertTrue(mesh.triangulate());
+            checkMesh(mesh);
+        }
+    }
+
+    @Test
+    public void testGridDataLinearMatchesTriangulator() throws Exception {
+        final Random random = new Random(11);
+        final int rows = 30, cols = 40;
+        final double xyRatio = 4.0;
+        final double[] lines = new double[rows * cols];
+        final double[] pixels = new double[rows * cols];
+        final double[] z = new double[rows * cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                final int k = i * cols + j;
+                // a perturbed geocoding grid, with some points missing
+                lines[k] = 100 + 2.0 * i + random.nextDouble();
+                pixels[k] = 200 + 3.0 * j + 2.0 * random.nextDouble();
+                z[k] = 1000 * random.nextDouble();
+                if (random.nextInt(20) == 0) {
+                    lines[k] = NODATA;
+                }
+            }
+        }
+        final Window window = new Window(110, 149, 220, 299);
+        final int nLines = (int) window.lines(), nPixels = (int) window.pixels();
+
+        final double[][] expected = new double[nLines][nPixels];
+        final double[][] actual = new double[nLines][nPixels];
+        for (double[] row : expected) {
+            Arrays.fill(row, Double.NaN);
+        }
+        for (double[] row : actual) {
+            Arrays.fill(row, Double.NaN);
+        }
+
+        final FastDelaunayTriangulator fdt = TriangleInterpolator.triangulate(lines, pixels, xyRatio, NODATA);
+        TriangleInterpolator.interpolate(xyRatio, window, 1, 1, 0, NODATA, fdt,
+                new TriangleInterpolator.ZData[]{new TriangleInterpolator.ZData(z, expected)});
+        TriangleInterpolator.gridDataLinear(lines, pixels,
+                new TriangleInterpolator.ZData[]{new TriangleInterpolator.ZData(z, actual)},
+                window, xyRatio, 1, 1, NODATA, 0);
+
+        // same triangles, so same values; edges are now included, so the mesh may fill grid points left empty
+        int filled = 0;
+        for (int i = 0; i < nLines; i++) {
+            for (int j = 0; j < nPixels; j++) {
+                if (!Double.isNaN(expected[i][j])) {
+                    assertEquals("line " + i + " pixel " + j, expected[i][j], actual[i][j], 1e-6);
+                    filled++;
+                }
+            }
+        }
+        assertTrue(filled > nLines * nPixels / 2);
+    }
+
+    @Test
+    public void testGridDataLinearIncludesEdges() throws Exception {
+        // triangles over a square whose sides and diagonals pass through grid points
+        final double[][] lines = {{10, 10, 10}, {12, 12, 12}, {14, 14, 14}};
+        final double[][] pixels = {{20, 22, 24}, {20, 22, 24}, {20, 22, 24}};
+        final double[][] z = new double[3][3];
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                z[i][j] = plane(lines[i][j], pixels[i][j]);
+            }
+        }
+
+        final Window window = new Window(9, 15, 19, 25);
+        final double[][] out = new double[7][7];
+        for (double[] row : out) {
+            Arrays.fill(row, Double.NaN);
+        }
+        TriangleInterpolator.gridDataLinear(lines, pixels,
+                new TriangleInterpolator.ZData[]{new TriangleInterpolator.ZData(z, out)},
+                window, 1.0, 1, 1, NODATA, 0);
+
+        for (int i = 0; i < 7; i++) {
+            for (int j = 0; j < 7; j++) {
+                final double line = 9 + i, pixel = 19 + j;
+                if (line >= 10 && line <= 14 && pixel >= 20 && pixel <= 24) {
+                    assertEquals(plane(line, pixel), out[i][j], 1e-9);
+                } else {
+                    assertTrue(Double.isNaN(out[i][j]));
+                }
+            }
+        }
+    }
+
+    private static double plane(final double line, final double pixel) {
+        return 3.0 * line - 2.0 * pixel + 7.0;
+    }
+
+    /**
+     * Check the adjacency, the orientation and the empty circumcircle of every triangle and that the triangles
+     * cover the convex hull of the points.
+     */
+    private static void checkMesh(final DelaunayMesh mesh) {
+        final int numTriangles = mesh.getNumTriangles();
+        assertTrue(numTriangles > 0);
+
+        double area = 0;
+        for (int t = 0; t < numTriangles; t++) {
+            final int a = mesh.getVertex(t, 0), b = mesh.getVertex(t, 1), c = mesh.getVertex(t, 2);
+            final double cross = cross(mesh, a, b, c);
+            assertTrue("triangle " + t + " is not oriented consistently", cross < 0);
+            area -= cross / 2;
+
+            for (int k = 0; k < 3; k++) {
+                final int e = 3 * t + k;
+                final int o = mesh.getOpposite(e);
+                if (o >= 0) {
+                    assertEquals(e, mesh.getOpposite(o));
+                    assertEquals(mesh.getVertex(t, k), mesh.getVertex(o / 3, (o + 1) % 3));
+                    assertEquals(mesh.getVertex(t, (k + 1) % 3), mesh.getVertex(o / 3, o % 3));
+                }
+            }
+
+            for (int p = 0; p < mesh.getNumPoints(); p++) {
+                if (p == a || p == b || p == c) {
+                    continue;
+                }
+                assertFalse("point " + p + " inside the circumcircle of triangle " + t,
+                        inCircumcircle(mesh, a, b, c, p));
+            }
+        }
+        assertEquals(hullArea(mesh), area, 1e-9 * Math.max(1.0, area));
+    }
+
+    private static double cross(final DelaunayMesh mesh, final int a, final int b, final int c) {
+        return (mesh.getX(b) - mesh.getX(a)) * (mesh.getY(c) - mesh.getY(a)) -
+                (mesh.getY(b) - mesh.getY(a)) * (mesh.getX(c) - mesh.getX(a));
+    }
+
+    private static boolean inCircumcircle(final DelaunayMesh mesh, final int a, final int b, final int c,
+                                          final int p) {
+        final double px = mesh.getX(p), py = mesh.getY(p);
+        final double ax = mesh.getX(a) - px, ay = mesh.getY(a) - py;
+        final double bx = mesh.getX(b) - px, by = mesh.getY(b) - py;
+        final double cx = mesh.getX(c) - px, cy = mesh.getY(c) - py;
+        final double a2 = ax * ax + ay * ay, b2 = bx * bx + by * by, c2 = cx * cx + cy * cy;
+        final double det = ax * (by * c2 - b2 * cy) - ay * (bx * c2 - b2 * cx) + a2 * (bx * cy - by * cx);
+        final double scale = (a2 + b2 + c2) * Math.sqrt(a2 + b2 + c2);
+
+        // clockwise triangles, so a point inside gives a negative determinant; cocircular points are allowed
+        return det < -1e-9 * scale;
+    }
+
+    // monotone chain
+    private static double hullArea(final DelaunayMesh mesh) {
+        final int n = mesh.getNumPoints();
+        final Integer[] sorted = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, (p, q) -> mesh.getX(p) != mesh.getX(q) ?
+                Double.compare(mesh.getX(p), mesh.getX(q)) : Double.compare(mesh.getY(p), mesh.getY(q)));
+        final int[] hull = new int[2 * n];
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            while (k >= 2 && cross(mesh, hull[k - 2], hull[k - 1], sorted[i]) <= 0) k--;
+            hull[k++] = sorted[i];
+        }
+        for (int i = n - 2, lower = k + 1; i >= 0; i--) {
+            while (k >= lower && cross(mesh, hull[k - 2], hull[k - 1], sorted[i]) <= 0) k--;
+            hull[k++] = sorted[i];
+        }
+        double area = 0;
+        for (int i = 0; i < k - 1; i++) {
+            area += mesh.getX(hull[i]) * mesh.getY(hull[i + 1]) - mesh.getX(hull[i + 1]) * mesh.getY(hull[i]);
+        }
+        return area / 2;
+    }
+}
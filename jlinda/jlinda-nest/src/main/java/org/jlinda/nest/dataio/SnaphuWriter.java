@@ -1,7 +1,8 @@
 package org.jlinda.nest.dataio;
 
 import com.bc.ceres.core.ProgressMonitor;
-import org.esa.s1tbx.commons.io.FileImageOutputStreamExtImpl;
+import org.esa.s1tbx.commons.io.FlatRasterFile;
+import org.esa.s1tbx.commons.io.FlatRasterOutputFile;
 import org.esa.snap.core.dataio.AbstractProductWriter;
 import org.esa.snap.core.dataio.ProductReader;
 import org.esa.snap.core.dataio.ProductWriterPlugIn;
@@ -21,7 +22,6 @@ import org.jlinda.core.Window;
 import org.jlinda.core.unwrapping.snaphu.SnaphuConfigFile;
 import org.jlinda.core.unwrapping.snaphu.SnaphuParameters;
 
-import javax.imageio.stream.ImageOutputStream;
 import java.io.*;
 import java.nio.ByteOrder;
 import java.util.HashMap;
@@ -36,7 +36,7 @@ public class SnaphuWriter extends AbstractProductWriter {
 
     private File _outputDir;
     private File _outputFile;
-    private Map _bandOutputStreams;
+    private Map<Band, FlatRasterOutputFile> _bandOutputFiles;
     private boolean _incremental = true;
 
     public static final String SNAPHU_HEADER_EXTENSION = ".snaphu"+EnviHeader.FILE_EXTENSION;
@@ -158,15 +158,10 @@ public class SnaphuWriter extends AbstractProductWriter {
         final int sourceBandHeight = sourceBand.getRasterHeight();
         checkSourceRegionInsideBandRegion(sourceWidth, sourceBandWidth, sourceHeight, sourceBandHeight, sourceOffsetX,
                 sourceOffsetY);
-        final ImageOutputStream outputStream = getOrCreateImageOutputStream(sourceBand);
-        long outputPos = sourceOffsetY * sourceBandWidth + sourceOffsetX;
+        final FlatRasterOutputFile outputFile = getOrCreateOutputFile(sourceBand);
         pm.beginTask("Writing band '" + sourceBand.getName() + "'...", 1);//sourceHeight);
         try {
-            final long max = sourceHeight * sourceWidth;
-            for (int sourcePos = 0; sourcePos < max; sourcePos += sourceWidth) {
-                sourceBuffer.writeTo(sourcePos, sourceWidth, outputStream, outputPos);
-                outputPos += sourceBandWidth;
-            }
+            outputFile.writeBandRasterData(0, sourceOffsetX, sourceOffsetY, sourceWidth, sourceHeight, sourceBuffer);
             pm.worked(1);
         } finally {
             pm.done();
@@ -205,12 +200,10 @@ public class SnaphuWriter extends AbstractProductWriter {
      * @throws java.io.IOException on failure
      */
     public void flush() throws IOException {
-        if (_bandOutputStreams == null) {
+        // band data is written straight to the file channels
+        if (_bandOutputFiles == null) {
             return;
         }
-        for (Object o : _bandOutputStreams.values()) {
-            ((ImageOutputStream) o).flush();
-        }
 
         // at the very end also save SnaphuConfig file
         try {
@@ -225,40 +218,31 @@ public class SnaphuWriter extends AbstractProductWriter {
      *
      * @throws java.io.IOException on failure
      */
-    public void close() throws IOException {
-        if (_bandOutputStreams == null) {
+    public synchronized void close() throws IOException {
+        if (_bandOutputFiles == null) {
             return;
         }
-        for (Object o : _bandOutputStreams.values()) {
-            ((ImageOutputStream) o).close();
+        for (FlatRasterOutputFile outputFile : _bandOutputFiles.values()) {
+            outputFile.close();
         }
-        _bandOutputStreams.clear();
-        _bandOutputStreams = null;
+        _bandOutputFiles.clear();
+        _bandOutputFiles = null;
     }
 
     /**
-     * Returns the data output stream associated with the given <code>Band</code>. If no stream exists, one is created
+     * Returns the output file associated with the given <code>Band</code>. If no file exists, one is created
      * and fed into the hash map
      */
-    private ImageOutputStream getOrCreateImageOutputStream(Band band) throws IOException {
-        ImageOutputStream outputStream = getImageOutputStream(band);
-        if (outputStream == null) {
-            outputStream = createImageOutputStream(band);
-            if (_bandOutputStreams == null) {
-                _bandOutputStreams = new HashMap();
+    private synchronized FlatRasterOutputFile getOrCreateOutputFile(Band band) throws IOException {
+        FlatRasterOutputFile outputFile = _bandOutputFiles != null ? _bandOutputFiles.get(band) : null;
+        if (outputFile == null) {
+            outputFile = createOutputFile(band);
+            if (_bandOutputFiles == null) {
+                _bandOutputFiles = new HashMap<>();
             }
-
-            outputStream.setByteOrder(byteOrder);
-            _bandOutputStreams.put(band, outputStream);
-        }
-        return outputStream;
-    }
-
-    private ImageOutputStream getImageOutputStream(Band band) {
-        if (_bandOutputStreams != null) {
-            return (ImageOutputStream) _bandOutputStreams.get(band);
+            _bandOutputFiles.put(band, outputFile);
         }
-        return null;
+        return outputFile;
     }
 
     /**
@@ -290,8 +274,9 @@ public class SnaphuWriter extends AbstractProductWriter {
                 band.getRasterHeight());
     }
 
-    private ImageOutputStream createImageOutputStream(Band band) throws IOException {
-        return new FileImageOutputStreamExtImpl(getValidImageFile(band));
+    private FlatRasterOutputFile createOutputFile(Band band) throws IOException {
+        return new FlatRasterOutputFile(getValidImageFile(band), 0, band.getRasterWidth(), band.getRasterHeight(),
+                1, band.getDataType(), FlatRasterFile.Interleave.BSQ, byteOrder);
     }
 
     private static long getImageFileSize(RasterDataNode band) {
@@ -34,12 +34,9 @@ import org.esa.snap.engine_utilities.gpf.ReaderUtils;
 import org.jdom2.Document;
 import org.jdom2.Element;
 
-import javax.imageio.ImageReadParam;
-import javax.imageio.ImageReader;
 import java.awt.*;
 import java.awt.image.DataBuffer;
 import java.awt.image.Raster;
-import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
 import java.io.File;
 import java.io.IOException;
@@ -287,27 +284,21 @@ public class Radarsat2ProductReader extends SARReader {
 
         final Raster data;
 
-        synchronized (dataDir) {
-            final ImageReader reader = img.getReader();
-            final ImageReadParam param = reader.getDefaultReadParam();
-            param.setSourceSubsampling(sourceStepX, sourceStepY,
-                    sourceOffsetX % sourceStepX,
-                    sourceOffsetY % sourceStepY);
-
-            final RenderedImage image = reader.readAsRenderedImage(0, param);
-            if (flipToSARGeometry) {
-                if (isAntennaPointingRight) { // flip the image up side down
-                    data = image.getData(new Rectangle(destOffsetX,
-                            Math.max(0, img.getSceneHeight() - destOffsetY - destHeight),
-                            destWidth, destHeight));
-                } else { // flip the image upside down, then flip it left to right
-                    data = image.getData(new Rectangle(Math.max(0, img.getSceneWidth() - destOffsetX - destWidth),
-                            Math.max(0, img.getSceneHeight() - destOffsetY - destHeight),
-                            destWidth, destHeight));
-                }
-            } else {
-                data = image.getData(new Rectangle(destOffsetX, destOffsetY, destWidth, destHeight));
+        if (flipToSARGeometry) {
+            if (isAntennaPointingRight) { // flip the image up side down
+                data = img.readRaster(sourceOffsetX, sourceOffsetY, sourceStepX, sourceStepY,
+                        new Rectangle(destOffsetX,
+                                Math.max(0, img.getSceneHeight() - destOffsetY - destHeight),
+                                destWidth, destHeight));
+            } else { // flip the image upside down, then flip it left to right
+                data = img.readRaster(sourceOffsetX, sourceOffsetY, sourceStepX, sourceStepY,
+                        new Rectangle(Math.max(0, img.getSceneWidth() - destOffsetX - destWidth),
+                                Math.max(0, img.getSceneHeight() - destOffsetY - destHeight),
+                                destWidth, destHeight));
             }
+        } else {
+            data = img.readRaster(sourceOffsetX, sourceOffsetY, sourceStepX, sourceStepY,
+                    new Rectangle(destOffsetX, destOffsetY, destWidth, destHeight));
         }
 
         final int w = data.getWidth();
@@ -354,20 +345,13 @@ public class Radarsat2ProductReader extends SARReader {
 
         final Raster data;
     try {
-        synchronized (dataDir) {
-            final ImageReader reader = img.getReader();
-            final ImageReadParam param = reader.getDefaultReadParam();
-            param.setSourceSubsampling(sourceStepX, sourceStepY,
-                    sourceOffsetX % sourceStepX,
-                    sourceOffsetY % sourceStepY);
-
-            final RenderedImage image = reader.readAsRenderedImage(0, param);
-            if (flipToSARGeometry && isAntennaPointingRight) {  // flip the image left to right
-                data = image.getData(new Rectangle(Math.max(0, img.getSceneWidth() - destOffsetX - destWidth),
-                        destOffsetY, destWidth, destHeight));
-            } else {
-                data = image.getData(new Rectangle(destOffsetX, destOffsetY, destWidth, destHeight));
-            }
+        if (flipToSARGeometry && isAntennaPointingRight) {  // flip the image left to right
+            data = img.readRaster(sourceOffsetX, sourceOffsetY, sourceStepX, sourceStepY,
+                    new Rectangle(Math.max(0, img.getSceneWidth() - destOffsetX - destWidth),
+                            destOffsetY, destWidth, destHeight));
+        } else {
+            data = img.readRaster(sourceOffsetX, sourceOffsetY, sourceStepX, sourceStepY,
+                    new Rectangle(destOffsetX, destOffsetY, destWidth, destHeight));
         }
 
         final int w = data.getWidth();
@@ -125,6 +125,9 @@ public class RCMProductDirectory extends XMLProductDirectory {
                 } else {
                     img = new ImageIOFile(imgPath, imgStream, getTiffIIOReader(imgStream), productInputFile);
                 }
+                if (!isCompressed()) {
+                    img.enableReaderPool(getFile(imgPath));
+                }
                 bandImageFileMap.put(img.getName(), img);
             }
         }
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.csa.rstb.classification.gpf.classifiers;
+
+/**
+ * Sums and pixel counts of the matrices assigned to each cluster.
+ * <p>
+ * Each tile task accumulates into sums of its own, without locking, and the partial sums are merged in tile order
+ * once all tasks are complete, so that the cluster centres do not depend on the order in which the tasks ran.
+ */
+final class ClusterSums {
+
+    final double[][][] sumRe;
+    final double[][][] sumIm;
+    final int[] counter;
+
+    /**
+     * @param numClusters number of clusters
+     * @param dimension   matrix dimension
+     */
+    ClusterSums(final int numClusters, final int dimension) {
+        sumRe = new double[numClusters][dimension][dimension];
+        sumIm = new double[numClusters][dimension][dimension];
+        counter = new int[numClusters];
+    }
+
+    /**
+     * Add a matrix to a cluster.
+     *
+     * @param clusterIdx cluster index, starting from 0
+     * @param Mr         real part of the matrix
+     * @param Mi         imaginary part of the matrix
+     */
+    void add(final int clusterIdx, final double[][] Mr, final double[][] Mi) {
+        final double[][] re = sumRe[clusterIdx];
+        final double[][] im = sumIm[clusterIdx];
+        for (int i = 0; i < re.length; ++i) {
+            for (int j = 0; j < re.length; ++j) {
+                re[i][j] += Mr[i][j];
+                im[i][j] += Mi[i][j];
+            }
+        }
+        counter[clusterIdx]++;
+    }
+
+    /**
+     * Add the partial sums of a task.
+     *
+     * @param partial the partial sums
+     */
+    void merge(final ClusterSums partial) {
+        for (int c = 0; c < counter.length; ++c) {
+            for (int i = 0; i < sumRe[c].length; ++i) {
+                for (int j = 0; j < sumRe[c].length; ++j) {
+                    sumRe[c][i][j] += partial.sumRe[c][i][j];
+                    sumIm[c][i][j] += partial.sumIm[c][i][j];
+                }
+            }
+            counter[c] += partial.counter[c];
+        }
+    }
+
+    /**
+     * Get the mean matrix of a cluster.
+     *
+     * @param clusterIdx cluster index, starting from 0
+     * @param Mr         real part of the mean matrix
+     * @param Mi         imaginary part of the mean matrix
+     */
+    void getCenter(final int clusterIdx, final double[][] Mr, final double[][] Mi) {
+        final int count = counter[clusterIdx];
+        for (int i = 0; i < Mr.length; ++i) {
+            for (int j = 0; j < Mr.length; ++j) {
+                Mr[i][j] = sumRe[clusterIdx][i][j] / count;
+                Mi[i][j] = sumIm[clusterIdx][i][j] / count;
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@ import org.csa.rstb.classification.gpf.PolarimetricClassificationOp;
 import org.csa.rstb.polarimetric.gpf.QuadPolProcessor;
 import org.csa.rstb.polarimetric.gpf.decompositions.FreemanDurden;
 import org.esa.s1tbx.commons.polsar.PolBandUtils;
+import org.esa.s1tbx.commons.utils.ThreadExecutor;
 import org.esa.snap.core.datamodel.Band;
 import org.esa.snap.core.datamodel.IndexCoding;
 import org.esa.snap.core.datamodel.ProductData;
@@ -26,7 +27,6 @@ import org.esa.snap.core.dataop.downloadable.StatusProgressMonitor;
 import org.esa.snap.core.gpf.OperatorException;
 import org.esa.snap.core.gpf.Tile;
 import org.esa.snap.engine_utilities.gpf.OperatorUtils;
-import org.esa.snap.engine_utilities.gpf.ThreadManager;
 import org.esa.snap.engine_utilities.gpf.TileIndex;
 
 import java.awt.*;
@@ -234,7 +234,7 @@ public class FreemanDurdenWishart extends PolClassifierBase implements PolClassi
 
         final int[] counter = new int[4]; // number of pixels in each of the 4 categories: vol, dbl, suf, mix
 
-        final ThreadManager threadManager = new ThreadManager();
+        final ThreadExecutor executor = new ThreadExecutor("FreemanDurdenWishart", status);
 
         final double[] pv = new double[srcHeight * srcWidth];
         final double[] pd = new double[srcHeight * srcWidth];
@@ -244,7 +244,7 @@ public class FreemanDurdenWishart extends PolClassifierBase implements PolClassi
             for (final Rectangle rectangle : tileRectangles) {
                 op.checkIfCancelled();
 
-                final Thread worker = new Thread() {
+                final Runnable worker = new Runnable() {
 
                     final Tile[] sourceTiles = new Tile[srcBandList.srcBands.length];
                     final ProductData[] dataBuffers = new ProductData[srcBandList.srcBands.length];
@@ -302,11 +302,11 @@ public class FreemanDurdenWishart extends PolClassifierBase implements PolClassi
                         }
                     }
                 };
-                threadManager.add(worker);
+                executor.execute(worker);
 
                 status.worked(1);
             }
-            threadManager.finish();
+            executor.complete();
 
         } catch (Throwable e) {
             OperatorUtils.catchOperatorException(op.getId() + " createInitialClusters ", e);
@@ -370,7 +370,7 @@ public class FreemanDurdenWishart extends PolClassifierBase implements PolClassi
         final StatusProgressMonitor status = new StatusProgressMonitor(StatusProgressMonitor.TYPE.SUBTASK);
         status.beginTask("Computing Initial Cluster Centres... ", tileRectangles.length);
 
-        final ThreadManager threadManager = new ThreadManager();
+        final ThreadExecutor executor = new ThreadExecutor("FreemanDurdenWishart", status);
 
         final double[][][] pvSumRe = new double[numInitialClusters][3][3];
         final double[][][] pvSumIm = new double[numInitialClusters][3][3];
@@ -386,7 +386,7 @@ public class FreemanDurdenWishart extends PolClassifierBase implements PolClassi
             for (final Rectangle rectangle : tileRectangles) {
                 op.checkIfCancelled();
 
-                final Thread worker = new Thread() {
+                final Runnable worker = new Runnable() {
 
                     final Tile[] sourceTiles = new Tile[srcBandList.srcBands.length];
                     final ProductData[] dataBuffers = new ProductData[srcBandList.srcBands.length];
@@ -433,11 +433,11 @@ public class FreemanDurdenWishart extends PolClassifierBase implements PolClassi
                         }
                     }
                 };
-                threadManager.add(worker);
+                executor.execute(worker);
 
                 status.worked(1);
             }
-            threadManager.finish();
+            executor.complete();
 
         } catch (Throwable e) {
             OperatorUtils.catchOperatorException(op.getId() + " getClusterCenters ", e);
@@ -750,133 +750,108 @@ public class FreemanDurdenWishart extends PolClassifierBase implements PolClassi
         final int pdNumClusters = pdCenterList.size();
         final int psNumClusters = psCenterList.size();
 
-        final int maxNumClusters = Math.max(pvNumClusters, Math.max(pdNumClusters, psNumClusters));
-        final int[][] clusterCounter = new int[3][maxNumClusters];
+        final int[][] clusterCounter = {new int[pvNumClusters], new int[pdNumClusters], new int[psNumClusters]};
 
-        final ThreadManager threadManager = new ThreadManager();
+        final ThreadExecutor executor = new ThreadExecutor("FreemanDurdenWishart", status);
+
+        try (final MeanMatrixPlane plane = computeMeanMatrixPlane(srcBandList, tileRectangles, 3,
+                "FreemanDurdenWishart", (x, y, srcIdx, sourceTiles, dataBuffers, srcIndex, Tr, Ti) -> {
+                    getMeanCoherencyMatrix(x, y, halfWindowSizeX, halfWindowSizeY, srcWidth, srcHeight,
+                            sourceProductType, srcIndex, dataBuffers, Tr, Ti);
+                    return true;
+                })) {
 
-        try {
             for (int it = 0; (it < maxIterations && !endIteration); ++it) {
                 //System.out.println("Iteration: " + it);
 
 //                final long startTime = System.nanoTime();
 //                final long endTime;
-                final double[][][] pvSumRe = new double[pvNumClusters][3][3];
-                final double[][][] pvSumIm = new double[pvNumClusters][3][3];
-                final double[][][] pdSumRe = new double[pdNumClusters][3][3];
-                final double[][][] pdSumIm = new double[pdNumClusters][3][3];
-                final double[][][] psSumRe = new double[psNumClusters][3][3];
-                final double[][][] psSumIm = new double[psNumClusters][3][3];
-
-                java.util.Arrays.fill(clusterCounter[0], 0);
-                java.util.Arrays.fill(clusterCounter[1], 0);
-                java.util.Arrays.fill(clusterCounter[2], 0);
-
-                for (final Rectangle rectangle : tileRectangles) {
-
-                    final Thread worker = new Thread() {
-
-                        final Tile[] sourceTiles = new Tile[srcBandList.srcBands.length];
-                        final ProductData[] dataBuffers = new ProductData[srcBandList.srcBands.length];
-
-                        final double[][] Tr = new double[3][3];
-                        final double[][] Ti = new double[3][3];
-
-                        @Override
-                        public void run() {
-                            op.checkIfCancelled();
-
-                            final int x0 = rectangle.x;
-                            final int y0 = rectangle.y;
-                            final int w = rectangle.width;
-                            final int h = rectangle.height;
-                            final int xMax = x0 + w;
-                            final int yMax = y0 + h;
-
-                            final Rectangle sourceRectangle = getSourceRectangle(x0, y0, w, h);
-                            for (int i = 0; i < sourceTiles.length; ++i) {
-                                sourceTiles[i] = op.getSourceTile(srcBandList.srcBands[i], sourceRectangle);
-                                dataBuffers[i] = sourceTiles[i].getDataBuffer();
-                            }
-                            final TileIndex srcIndex = new TileIndex(sourceTiles[0]);
+                final java.util.List<ClusterSums[]> partialSums =
+                        reduceTiles(executor, tileRectangles, status, rectangle -> {
+                    op.checkIfCancelled();
 
-                            for (int y = y0; y < yMax; ++y) {
-                                for (int x = x0; x < xMax; ++x) {
+                    // partial sums of the 3 categories: vol, dbl, suf
+                    final ClusterSums[] tileSums = {new ClusterSums(pvNumClusters, 3),
+                            new ClusterSums(pdNumClusters, 3), new ClusterSums(psNumClusters, 3)};
+                    final double[][] Tr = new double[3][3];
+                    final double[][] Ti = new double[3][3];
+                    final int xMax = rectangle.x + rectangle.width;
+                    final int yMax = rectangle.y + rectangle.height;
 
-                                    getMeanCoherencyMatrix(
-                                            x, y, halfWindowSizeX, halfWindowSizeY, srcWidth, srcHeight,
-                                            sourceProductType, srcIndex, dataBuffers, Tr, Ti);
+                    for (int y = rectangle.y; y < yMax; ++y) {
+                        for (int x = rectangle.x; x < xMax; ++x) {
 
-                                    synchronized (clusterCounter) {
+                            plane.get(x, y, Tr, Ti);
 
-                                        if (category[y][x] == Categories.vol) { // pv
-                                            cluster[y][x] = findClosestCluster(Tr, Ti, pvCenterList);
-                                            computeSummationOfT3(cluster[y][x] + 1, Tr, Ti, pvSumRe, pvSumIm);
-                                            clusterCounter[0][cluster[y][x]] += 1;
+                            if (category[y][x] == Categories.vol) { // pv
+                                cluster[y][x] = findClosestCluster(Tr, Ti, pvCenterList);
+                                tileSums[0].add(cluster[y][x], Tr, Ti);
 
-                                        } else if (category[y][x] == Categories.dbl) { // pd
-                                            cluster[y][x] = findClosestCluster(Tr, Ti, pdCenterList);
-                                            computeSummationOfT3(cluster[y][x] + 1, Tr, Ti, pdSumRe, pdSumIm);
-                                            clusterCounter[1][cluster[y][x]] += 1;
+                            } else if (category[y][x] == Categories.dbl) { // pd
+                                cluster[y][x] = findClosestCluster(Tr, Ti, pdCenterList);
+                                tileSums[1].add(cluster[y][x], Tr, Ti);
 
-                                        } else if (category[y][x] == Categories.suf) { // ps
-                                            cluster[y][x] = findClosestCluster(Tr, Ti, psCenterList);
-                                            computeSummationOfT3(cluster[y][x] + 1, Tr, Ti, psSumRe, psSumIm);
-                                            clusterCounter[2][cluster[y][x]] += 1;
+                            } else if (category[y][x] == Categories.suf) { // ps
+                                cluster[y][x] = findClosestCluster(Tr, Ti, psCenterList);
+                                tileSums[2].add(cluster[y][x], Tr, Ti);
 
-                                        } else { // mixed
+                            } else { // mixed
 
-                                            final int nearestPvCluster = findClosestCluster(Tr, Ti, pvCenterList);
-                                            final int nearestPdCluster = findClosestCluster(Tr, Ti, pdCenterList);
-                                            final int nearestPsCluster = findClosestCluster(Tr, Ti, psCenterList);
+                                final int nearestPvCluster = findClosestCluster(Tr, Ti, pvCenterList);
+                                final int nearestPdCluster = findClosestCluster(Tr, Ti, pdCenterList);
+                                final int nearestPsCluster = findClosestCluster(Tr, Ti, psCenterList);
 
-                                            final double dPv = HAlphaWishart.computeWishartDistance(
-                                                    Tr, Ti, pvCenterList.get(nearestPvCluster));
+                                final double dPv = HAlphaWishart.computeWishartDistance(
+                                        Tr, Ti, pvCenterList.get(nearestPvCluster));
 
-                                            final double dPd = HAlphaWishart.computeWishartDistance(
-                                                    Tr, Ti, pdCenterList.get(nearestPdCluster));
+                                final double dPd = HAlphaWishart.computeWishartDistance(
+                                        Tr, Ti, pdCenterList.get(nearestPdCluster));
 
-                                            final double dPs = HAlphaWishart.computeWishartDistance(
-                                                    Tr, Ti, psCenterList.get(nearestPsCluster));
+                                final double dPs = HAlphaWishart.computeWishartDistance(
+                                        Tr, Ti, psCenterList.get(nearestPsCluster));
 
-                                            if (dPv <= dPd && dPv <= dPs) { // pv
-                                                cluster[y][x] = nearestPvCluster;
-                                                computeSummationOfT3(cluster[y][x] + 1, Tr, Ti, pvSumRe, pvSumIm);
-                                                clusterCounter[0][cluster[y][x]] += 1;
-                                                category[y][x] = Categories.vol;
+                                if (dPv <= dPd && dPv <= dPs) { // pv
+                                    cluster[y][x] = nearestPvCluster;
+                                    tileSums[0].add(cluster[y][x], Tr, Ti);
+                                    category[y][x] = Categories.vol;
 
-                                            } else if (dPd <= dPv && dPd <= dPs) { // pd
-                                                cluster[y][x] = nearestPdCluster;
-                                                computeSummationOfT3(cluster[y][x] + 1, Tr, Ti, pdSumRe, pdSumIm);
-                                                clusterCounter[1][cluster[y][x]] += 1;
-                                                category[y][x] = Categories.dbl;
+                                } else if (dPd <= dPv && dPd <= dPs) { // pd
+                                    cluster[y][x] = nearestPdCluster;
+                                    tileSums[1].add(cluster[y][x], Tr, Ti);
+                                    category[y][x] = Categories.dbl;
 
-                                            } else { // ps
-                                                cluster[y][x] = nearestPsCluster;
-                                                computeSummationOfT3(cluster[y][x] + 1, Tr, Ti, psSumRe, psSumIm);
-                                                clusterCounter[2][cluster[y][x]] += 1;
-                                                category[y][x] = Categories.suf;
-                                            }
-                                        }
-                                    }
+                                } else { // ps
+                                    cluster[y][x] = nearestPsCluster;
+                                    tileSums[2].add(cluster[y][x], Tr, Ti);
+                                    category[y][x] = Categories.suf;
                                 }
                             }
                         }
-                    };
-                    threadManager.add(worker);
-
-                    status.worked(1);
+                    }
+                    return tileSums;
+                });
+
+                final ClusterSums pvSums = new ClusterSums(pvNumClusters, 3);
+                final ClusterSums pdSums = new ClusterSums(pdNumClusters, 3);
+                final ClusterSums psSums = new ClusterSums(psNumClusters, 3);
+                for (ClusterSums[] tileSums : partialSums) {
+                    pvSums.merge(tileSums[0]);
+                    pdSums.merge(tileSums[1]);
+                    psSums.merge(tileSums[2]);
                 }
-                threadManager.finish();
 
                 /*
                 endTime = System.nanoTime();
                 final long duration = endTime - startTime;
                 System.out.println("duration = " + duration);
                 */
-                updateClusterCenter(pvCenterList, clusterCounter[0], pvSumRe, pvSumIm);
-                updateClusterCenter(pdCenterList, clusterCounter[1], pdSumRe, pdSumIm);
-                updateClusterCenter(psCenterList, clusterCounter[2], psSumRe, psSumIm);
+                updateClusterCenter(pvCenterList, pvSums);
+                updateClusterCenter(pdCenterList, pdSums);
+                updateClusterCenter(psCenterList, psSums);
+
+                clusterCounter[0] = pvSums.counter;
+                clusterCounter[1] = pdSums.counter;
+                clusterCounter[2] = psSums.counter;
             }
             /*
             System.out.println("# of clusters in Pv: " + pvNumClusters);
@@ -989,20 +964,14 @@ public class FreemanDurdenWishart extends PolClassifierBase implements PolClassi
         return clusterIndex;
     }
 
-    private static void updateClusterCenter(final java.util.List<ClusterInfo> centerList, final int[] clusterCounter,
-                                            final double[][][] sumRe, final double[][][] sumIm) {
+    private static void updateClusterCenter(final java.util.List<ClusterInfo> centerList, final ClusterSums sums) {
 
+        final double[][] centerRe = new double[3][3];
+        final double[][] centerIm = new double[3][3];
         for (int c = 0; c < centerList.size(); c++) {
-            final double[][] centerRe = new double[3][3];
-            final double[][] centerIm = new double[3][3];
-            if (clusterCounter[c] > 0) {
-                for (int i = 0; i < 3; i++) {
-                    for (int j = 0; j < 3; j++) {
-                        centerRe[i][j] = sumRe[c][i][j] / clusterCounter[c];
-                        centerIm[i][j] = sumIm[c][i][j] / clusterCounter[c];
-                    }
-                }
-                centerList.get(c).setClusterCenter(c, centerRe, centerIm, clusterCounter[c]);
+            if (sums.counter[c] > 0) {
+                sums.getCenter(c, centerRe, centerIm);
+                centerList.get(c).setClusterCenter(c, centerRe, centerIm, sums.counter[c]);
             }
         }
     }
@@ -20,6 +20,7 @@ import org.csa.rstb.polarimetric.gpf.PolarimetricDecompositionOp;
 import org.csa.rstb.polarimetric.gpf.QuadPolProcessor;
 import org.csa.rstb.polarimetric.gpf.decompositions.*;
 import org.esa.s1tbx.commons.polsar.PolBandUtils;
+import org.esa.s1tbx.commons.utils.ThreadExecutor;
 import org.esa.snap.core.datamodel.Band;
 import org.esa.snap.core.datamodel.IndexCoding;
 import org.esa.snap.core.datamodel.ProductData;
@@ -27,7 +28,6 @@ import org.esa.snap.core.dataop.downloadable.StatusProgressMonitor;
 import org.esa.snap.core.gpf.OperatorException;
 import org.esa.snap.core.gpf.Tile;
 import org.esa.snap.engine_utilities.gpf.OperatorUtils;
-import org.esa.snap.engine_utilities.gpf.ThreadManager;
 import org.esa.snap.engine_utilities.gpf.TileIndex;
 
 import java.awt.*;
@@ -298,7 +298,7 @@ public class GeneralWishart extends PolClassifierBase implements PolClassifier,
 
         final StatusProgressMonitor status = new StatusProgressMonitor(StatusProgressMonitor.TYPE.SUBTASK);
         status.beginTask("Creating Initial Clusters... ", tileRectangles.length);
-        final ThreadManager threadManager = new ThreadManager();
+        final ThreadExecutor executor = new ThreadExecutor("GeneralWishart", status);
 
         final int[] counter = new int[numCategories + 1]; // number of pixels in all categories, last category for mixed
         final double[][] pwr = new double[numCategories + 1][srcHeight * srcWidth];
@@ -307,7 +307,7 @@ public class GeneralWishart extends PolClassifierBase implements PolClassifier,
             for (final Rectangle rectangle : tileRectangles) {
                 op.checkIfCancelled();
 
-                final Thread worker = new Thread() {
+                final Runnable worker = new Runnable() {
 
                     final Tile[] sourceTiles = new Tile[srcBandList.srcBands.length];
                     final ProductData[] dataBuffers = new ProductData[srcBandList.srcBands.length];
@@ -378,11 +378,11 @@ public class GeneralWishart extends PolClassifierBase implements PolClassifier,
                         }
                     }
                 };
-                threadManager.add(worker);
+                executor.execute(worker);
 
                 status.worked(1);
             }
-            threadManager.finish();
+            executor.complete();
 
         } catch (Throwable e) {
             OperatorUtils.catchOperatorException(op.getId() + " createInitialClusters ", e);
@@ -520,13 +520,13 @@ public class GeneralWishart extends PolClassifierBase implements PolClassifier,
         final StatusProgressMonitor status = new StatusProgressMonitor(StatusProgressMonitor.TYPE.SUBTASK);
         status.beginTask("Computing Initial Cluster Centres... ", tileRectangles.length);
 
-        final ThreadManager threadManager = new ThreadManager();
+        final ThreadExecutor executor = new ThreadExecutor("GeneralWishart", status);
 
         try {
             for (final Rectangle rectangle : tileRectangles) {
                 op.checkIfCancelled();
 
-                final Thread worker = new Thread() {
+                final Runnable worker = new Runnable() {
 
                     final Tile[] sourceTiles = new Tile[srcBandList.srcBands.length];
                     final ProductData[] dataBuffers = new ProductData[srcBandList.srcBands.length];
@@ -567,11 +567,11 @@ public class GeneralWishart extends PolClassifierBase implements PolClassifier,
                         }
                     }
                 };
-                threadManager.add(worker);
+                executor.execute(worker);
 
                 status.worked(1);
             }
-            threadManager.finish();
+            executor.complete();
 
         } catch (Throwable e) {
             OperatorUtils.catchOperatorException(op.getId() + " getClusterCenters ", e);
@@ -755,82 +755,55 @@ public class GeneralWishart extends PolClassifierBase implements PolClassifier,
         final StatusProgressMonitor status = new StatusProgressMonitor(StatusProgressMonitor.TYPE.SUBTASK);
         status.beginTask("Computing Final Cluster Centres... ", tileRectangles.length * maxIterations);
 
-        final ThreadManager threadManager = new ThreadManager();
+        final ThreadExecutor executor = new ThreadExecutor("GeneralWishart", status);
+
+        try (final MeanMatrixPlane plane = computeMeanMatrixPlane(srcBandList, tileRectangles, 3,
+                "GeneralWishart", (x, y, srcIdx, sourceTiles, dataBuffers, srcIndex, Tr, Ti) -> {
+                    getMeanCoherencyMatrix(x, y, halfWindowSizeX, halfWindowSizeY, srcWidth, srcHeight,
+                            sourceProductType, srcIndex, dataBuffers, Tr, Ti);
+                    return true;
+                })) {
 
-        try {
             for (int it = 0; (it < maxIterations && !endIteration); ++it) {
                 //System.out.println("Iteration: " + it);
 //                final long startTime = System.nanoTime();
 //                final long endTime;
 
-                ArrayList<ArrayList<ClusterCenter>> newClusterCenters =
-                        new ArrayList<ArrayList<ClusterCenter>>(numCategories);
-
-                for (int i = 0; i < numCategories; ++i) {
-                    ArrayList<ClusterCenter> newCenters = new ArrayList<>();
-                    for (int j = 0; j < clusterCenterList.get(i).size(); ++j) {
-                        newCenters.add(new ClusterCenter());
-                    }
-                    newClusterCenters.add(newCenters);
-                }
-
-                for (final Rectangle rectangle : tileRectangles) {
-
-                    final Thread worker = new Thread() {
-
-                        final Tile[] sourceTiles = new Tile[srcBandList.srcBands.length];
-                        final ProductData[] dataBuffers = new ProductData[srcBandList.srcBands.length];
-
-                        final double[][] Tr = new double[3][3];
-                        final double[][] Ti = new double[3][3];
-
-                        @Override
-                        public void run() {
-                            op.checkIfCancelled();
-
-                            final int x0 = rectangle.x;
-                            final int y0 = rectangle.y;
-                            final int w = rectangle.width;
-                            final int h = rectangle.height;
-                            final int xMax = x0 + w;
-                            final int yMax = y0 + h;
+                final java.util.List<ClusterSums[]> partialSums =
+                        reduceTiles(executor, tileRectangles, status, rectangle -> {
+                    op.checkIfCancelled();
 
-                            final Rectangle sourceRectangle = getSourceRectangle(x0, y0, w, h);
-                            for (int i = 0; i < sourceTiles.length; ++i) {
-                                sourceTiles[i] = op.getSourceTile(srcBandList.srcBands[i], sourceRectangle);
-                                dataBuffers[i] = sourceTiles[i].getDataBuffer();
-                            }
-                            final TileIndex srcIndex = new TileIndex(sourceTiles[0]);
-
-                            for (int y = y0; y < yMax; ++y) {
-                                for (int x = x0; x < xMax; ++x) {
+                    final ClusterSums[] tileSums = createCategorySums(clusterCenterList);
+                    final double[][] Tr = new double[3][3];
+                    final double[][] Ti = new double[3][3];
+                    final int xMax = rectangle.x + rectangle.width;
+                    final int yMax = rectangle.y + rectangle.height;
 
-                                    getMeanCoherencyMatrix(
-                                            x, y, halfWindowSizeX, halfWindowSizeY, srcWidth, srcHeight,
-                                            sourceProductType, srcIndex, dataBuffers, Tr, Ti);
+                    for (int y = rectangle.y; y < yMax; ++y) {
+                        for (int x = rectangle.x; x < xMax; ++x) {
 
-                                    synchronized (newClusterCenters) {
+                            plane.get(x, y, Tr, Ti);
 
-                                        if (category[y][x] != numCategories) {
-                                            cluster[y][x] = findClosestCluster(Tr, Ti, clusterCenterList.get(category[y][x]));
-                                        } else { // mixed
-                                            final int[] CategoryCluster =
-                                                    findNearestCategoryCluster(Tr, Ti, clusterCenterList);
+                            if (category[y][x] != numCategories) {
+                                cluster[y][x] = findClosestCluster(Tr, Ti, clusterCenterList.get(category[y][x]));
+                            } else { // mixed
+                                final int[] CategoryCluster = findNearestCategoryCluster(Tr, Ti, clusterCenterList);
 
-                                            category[y][x] = CategoryCluster[0];
-                                            cluster[y][x] = CategoryCluster[1];
-                                        }
-                                        newClusterCenters.get(category[y][x]).get(cluster[y][x]).addElem(Tr, Ti);
-                                    }
-                                }
+                                category[y][x] = CategoryCluster[0];
+                                cluster[y][x] = CategoryCluster[1];
                             }
+                            tileSums[category[y][x]].add(cluster[y][x], Tr, Ti);
                         }
-                    };
-                    threadManager.add(worker);
+                    }
+                    return tileSums;
+                });
 
-                    status.worked(1);
+                final ClusterSums[] newClusterCenters = createCategorySums(clusterCenterList);
+                for (ClusterSums[] tileSums : partialSums) {
+                    for (int i = 0; i < numCategories; ++i) {
+                        newClusterCenters[i].merge(tileSums[i]);
+                    }
                 }
-                threadManager.finish();
 
                 /*
                 endTime = System.nanoTime();
@@ -841,10 +814,10 @@ public class GeneralWishart extends PolClassifierBase implements PolClassifier,
                 double[][] centerIm = new double[3][3];
                 for (int i = 0; i < numCategories; ++i) {
                     for (int j = 0; j < clusterCenterList.get(i).size(); ++j) {
-                        if (newClusterCenters.get(i).get(j).size > 0) {
-                            newClusterCenters.get(i).get(j).getCenter(centerRe, centerIm);
+                        if (newClusterCenters[i].counter[j] > 0) {
+                            newClusterCenters[i].getCenter(j, centerRe, centerIm);
                             clusterCenterList.get(i).get(j).setClusterCenter(
-                                    j, centerRe, centerIm, newClusterCenters.get(i).get(j).size);
+                                    j, centerRe, centerIm, newClusterCenters[i].counter[j]);
                         }
                     }
                 }
@@ -917,6 +890,14 @@ public class GeneralWishart extends PolClassifierBase implements PolClassifier,
         }
     }
 
+    private ClusterSums[] createCategorySums(final ArrayList<ArrayList<ClusterInfo>> clusterCenterList) {
+        final ClusterSums[] sums = new ClusterSums[numCategories];
+        for (int i = 0; i < numCategories; ++i) {
+            sums[i] = new ClusterSums(clusterCenterList.get(i).size(), 3);
+        }
+        return sums;
+    }
+
     private int[] findNearestCategoryCluster(final double[][] Tr, final double[][] Ti,
                                              final ArrayList<ArrayList<ClusterInfo>> clusterCenterList) {
 
@@ -20,6 +20,7 @@ import org.csa.rstb.polarimetric.gpf.DualPolProcessor;
 import org.csa.rstb.polarimetric.gpf.HaAlphaDescriptor;
 import org.csa.rstb.polarimetric.gpf.decompositions.HAlphaC2;
 import org.esa.s1tbx.commons.polsar.PolBandUtils;
+import org.esa.s1tbx.commons.utils.ThreadExecutor;
 import org.esa.snap.core.datamodel.Band;
 import org.esa.snap.core.datamodel.ProductData;
 import org.esa.snap.core.dataop.downloadable.StatusProgressMonitor;
@@ -27,11 +28,12 @@ import org.esa.snap.core.gpf.OperatorException;
 import org.esa.snap.core.gpf.Tile;
 import org.esa.snap.core.util.SystemUtils;
 import org.esa.snap.engine_utilities.gpf.OperatorUtils;
-import org.esa.snap.engine_utilities.gpf.ThreadManager;
 import org.esa.snap.engine_utilities.gpf.TileIndex;
 
 import java.awt.*;
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -177,107 +179,85 @@ public class HAlphaWishartC2 extends PolClassifierBase implements PolClassifier,
         final Dimension tileSize = new Dimension(256, 256);
         final Rectangle[] tileRectangles = OperatorUtils.getAllTileRectangles(op.getSourceProduct(), tileSize, 0);
 
-        computeInitialClusterCenters(targetBandIndex, srcBandList, tileRectangles, op);
+        final double noDataValue = srcBandList.srcBands[0].getNoDataValue();
+        try (final MeanMatrixPlane plane = computeMeanMatrixPlane(srcBandList, tileRectangles, 2, "HAlphaWishartC2",
+                (x, y, srcIdx, sourceTiles, dataBuffers, srcIndex, Cr, Ci) -> {
+                    if (noData(noDataValue, dataBuffers, srcIdx)) {
+                        return false;
+                    }
+                    getMeanCovarianceMatrixC2(x, y, halfWindowSizeX, halfWindowSizeY, srcWidth, srcHeight,
+                            sourceProductType, sourceTiles, dataBuffers, Cr, Ci);
+                    return true;
+                })) {
 
-        computeFinalClusterCenters(targetBandIndex, srcBandList, tileRectangles, op);
+            computeInitialClusterCenters(targetBandIndex, plane, tileRectangles, op);
 
-        clusterCentersComputed[targetBandIndex] = true;
+            computeFinalClusterCenters(targetBandIndex, plane, tileRectangles, op);
 
+        } catch (IOException e) {
+            OperatorUtils.catchOperatorException(op.getId() + " computeClusterCenters ", e);
+        }
+
+        clusterCentersComputed[targetBandIndex] = true;
     }
 
     /**
      * Compute initial cluster centers for all 9 zones using H-Alpha
      *
      * @param targetBandIndex Target band index
-     * @param srcBandList     the input bands
+     * @param plane           the mean covariance matrices
      * @param tileRectangles  Array of rectangles for all source tiles of the image
      * @param op              the operator
      */
-    protected void computeInitialClusterCenters(final int targetBandIndex,
-                                              final PolBandUtils.PolSourceBand srcBandList,
+    private void computeInitialClusterCenters(final int targetBandIndex,
+                                              final MeanMatrixPlane plane,
                                               final Rectangle[] tileRectangles,
                                               final PolarimetricClassificationOp op) {
 
         final StatusProgressMonitor status = new StatusProgressMonitor(StatusProgressMonitor.TYPE.SUBTASK);
         status.beginTask("Computing Initial Cluster Centres... ", tileRectangles.length);
 
-        final double[][][] sumRe = new double[9][2][2];
-        final double[][][] sumIm = new double[9][2][2];
-        final double[][][] centerRe = new double[9][2][2];
-        final double[][][] centerIm = new double[9][2][2];
-        final int[] counter = new int[9];
-        final double noDataValue = srcBandList.srcBands[0].getNoDataValue();
+        final double[][] centerRe = new double[2][2];
+        final double[][] centerIm = new double[2][2];
+        final ClusterSums sums = new ClusterSums(9, 2);
 
-        final ThreadManager threadManager = new ThreadManager();
+        final ThreadExecutor executor = new ThreadExecutor("HAlphaWishartC2", status);
 
         try {
-            for (final Rectangle rectangle : tileRectangles) {
+            final List<ClusterSums> partialSums = reduceTiles(executor, tileRectangles, status, rectangle -> {
                 op.checkIfCancelled();
 
-                final Thread worker = new Thread() {
-
-                    final Tile[] sourceTiles = new Tile[srcBandList.srcBands.length];
-                    final ProductData[] dataBuffers = new ProductData[srcBandList.srcBands.length];
-
-                    final double[][] Cr = new double[2][2]; // real part of covariance matrix
-                    final double[][] Ci = new double[2][2]; // imaginary part of covariance matrix
-
-                    @Override
-                    public void run() {
-                        final int x0 = rectangle.x, y0 = rectangle.y;
-                        final int w = rectangle.width, h = rectangle.height;
-                        final int xMax = x0 + w, yMax = y0 + h;
-                        //System.out.println("x0 = " + x0 + ", y0 = " + y0 + ", w = " + w + ", h = " + h);
-
-                        final Rectangle sourceRectangle = getSourceRectangle(x0, y0, w, h);
-                        for (int i = 0; i < sourceTiles.length; ++i) {
-                            sourceTiles[i] = op.getSourceTile(srcBandList.srcBands[i], sourceRectangle);
-                            dataBuffers[i] = sourceTiles[i].getDataBuffer();
-                        }
-                        final TileIndex srcIndex = new TileIndex(sourceTiles[0]);
-
-                        for (int y = y0; y < yMax; ++y) {
-                            srcIndex.calculateStride(y);
-                            for (int x = x0; x < xMax; ++x) {
-                                if (noData(noDataValue, dataBuffers, srcIndex.getIndex(x)))
-                                    continue;
-
-                                getMeanCovarianceMatrixC2(x, y, halfWindowSizeX, halfWindowSizeY, srcWidth,
-                                        srcHeight, sourceProductType, sourceTiles, dataBuffers, Cr, Ci);
-
-                                HAlphaC2.HAAlpha data = HAlphaC2.computeHAAlphaByC2(Cr, Ci);
-
-                                if (!Double.isNaN(data.entropy) && !Double.isNaN(data.anisotropy) && !Double.isNaN(data.alpha)) {
-                                    synchronized (counter) {
-                                        final int zoneIndex = HaAlphaDescriptor.getZoneIndex(data.entropy, data.alpha,
-                                                useLeeHAlphaPlaneDefinition);
-                                        counter[zoneIndex - 1] += 1;
-                                        computeSummationOfC2(zoneIndex, Cr, Ci, sumRe, sumIm);
-                                    }
-                                }
-                            }
+                final ClusterSums tileSums = new ClusterSums(9, 2);
+                final double[][] Cr = new double[2][2]; // real part of covariance matrix
+                final double[][] Ci = new double[2][2]; // imaginary part of covariance matrix
+                final int xMax = rectangle.x + rectangle.width;
+                final int yMax = rectangle.y + rectangle.height;
+
+                for (int y = rectangle.y; y < yMax; ++y) {
+                    for (int x = rectangle.x; x < xMax; ++x) {
+                        if (!plane.get(x, y, Cr, Ci))
+                            continue;
+
+                        final HAlphaC2.HAAlpha data = HAlphaC2.computeHAAlphaByC2(Cr, Ci);
+                        if (!Double.isNaN(data.entropy) && !Double.isNaN(data.anisotropy) && !Double.isNaN(data.alpha)) {
+                            final int zoneIndex = HaAlphaDescriptor.getZoneIndex(data.entropy, data.alpha,
+                                    useLeeHAlphaPlaneDefinition);
+                            tileSums.add(zoneIndex - 1, Cr, Ci);
                         }
                     }
-                };
-                threadManager.add(worker);
+                }
+                return tileSums;
+            });
 
-                status.worked(1);
+            for (ClusterSums tileSums : partialSums) {
+                sums.merge(tileSums);
             }
 
-            threadManager.finish();
-
             for (int z = 0; z < 9; ++z) {
-                final int count = counter[z];
-                //System.out.println("z = " + z + ", counter[z] = " + count);
-                if (count > 0) {
-                    for (int i = 0; i < 2; ++i) {
-                        for (int j = 0; j < 2; ++j) {
-                            centerRe[z][i][j] = sumRe[z][i][j] / count;
-                            centerIm[z][i][j] = sumIm[z][i][j] / count;
-                        }
-                    }
+                if (sums.counter[z] > 0) {
+                    sums.getCenter(z, centerRe, centerIm);
                     clusterCenters[targetBandIndex][z] = new ClusterInfo();
-                    clusterCenters[targetBandIndex][z].setClusterCenter(z + 1, centerRe[z], centerIm[z], counter[z]);
+                    clusterCenters[targetBandIndex][z].setClusterCenter(z + 1, centerRe, centerIm, sums.counter[z]);
                 }
             }
 
@@ -286,107 +266,74 @@ public class HAlphaWishartC2 extends PolClassifierBase implements PolClassifier,
         } finally {
             status.done();
         }
-
     }
 
     /**
-     * Compute final cluster centers for all 9 zones using K-mean clustering method
+     * Compute final cluster centers for all 9 zones using K-mean clustering method.
+     * The inverse and log determinant of the cluster centers are computed once per iteration by
+     * ClusterInfo.setClusterCenter.
      *
      * @param targetBandIndex Target band index
-     * @param srcBandList     the input bands
+     * @param plane           the mean covariance matrices
      * @param tileRectangles  Array of rectangles for all source tiles of the image
      * @param op              the operator
      */
     private void computeFinalClusterCenters(final int targetBandIndex,
-                                            final PolBandUtils.PolSourceBand srcBandList,
+                                            final MeanMatrixPlane plane,
                                             final Rectangle[] tileRectangles,
                                             final PolarimetricClassificationOp op) {
 
-        final double[][][] centerRe = new double[9][2][2];
-        final double[][][] centerIm = new double[9][2][2];
+        final double[][] centerRe = new double[2][2];
+        final double[][] centerIm = new double[2][2];
         boolean endIteration = false;
-        final double noDataValue = srcBandList.srcBands[0].getNoDataValue();
 
         final StatusProgressMonitor status = new StatusProgressMonitor(StatusProgressMonitor.TYPE.SUBTASK);
         status.beginTask("Computing Final Cluster Centres... ", tileRectangles.length * maxIterations);
 
-        final ThreadManager threadManager = new ThreadManager();
+        final ThreadExecutor executor = new ThreadExecutor("HAlphaWishartC2", status);
+        final ClusterInfo[] centers = clusterCenters[targetBandIndex];
 
         try {
             for (int it = 0; (it < maxIterations && !endIteration); ++it) {
                 //System.out.println("Iteration: " + it);
 
-                final double[][][] sumRe = new double[9][2][2];
-                final double[][][] sumIm = new double[9][2][2];
-                final int[] counter = new int[9];
-
-                for (final Rectangle rectangle : tileRectangles) {
+                final List<ClusterSums> partialSums = reduceTiles(executor, tileRectangles, status, rectangle -> {
+                    op.checkIfCancelled();
 
-                    final Thread worker = new Thread() {
+                    final ClusterSums tileSums = new ClusterSums(9, 2);
+                    final double[][] Cr = new double[2][2];
+                    final double[][] Ci = new double[2][2];
+                    final int xMax = rectangle.x + rectangle.width;
+                    final int yMax = rectangle.y + rectangle.height;
 
-                        final Tile[] sourceTiles = new Tile[srcBandList.srcBands.length];
-                        final ProductData[] dataBuffers = new ProductData[srcBandList.srcBands.length];
-
-                        final double[][] Cr = new double[2][2];
-                        final double[][] Ci = new double[2][2];
-
-                        @Override
-                        public void run() {
-                            op.checkIfCancelled();
-
-                            final int x0 = rectangle.x;
-                            final int y0 = rectangle.y;
-                            final int w = rectangle.width;
-                            final int h = rectangle.height;
-                            final int xMax = x0 + w;
-                            final int yMax = y0 + h;
-
-                            final Rectangle sourceRectangle = getSourceRectangle(x0, y0, w, h);
-                            for (int i = 0; i < sourceTiles.length; ++i) {
-                                sourceTiles[i] = op.getSourceTile(srcBandList.srcBands[i], sourceRectangle);
-                                dataBuffers[i] = sourceTiles[i].getDataBuffer();
-                            }
-                            final TileIndex srcIndex = new TileIndex(sourceTiles[0]);
-
-                            for (int y = y0; y < yMax; ++y) {
-                                srcIndex.calculateStride(y);
-                                for (int x = x0; x < xMax; ++x) {
-                                    if (noData(noDataValue, dataBuffers, srcIndex.getIndex(x)))
-                                        continue;
-
-                                    getMeanCovarianceMatrixC2(x, y, halfWindowSizeX, halfWindowSizeY, srcWidth,
-                                            srcHeight, sourceProductType, sourceTiles, dataBuffers, Cr, Ci);
-
-                                    synchronized (counter) {
-                                        final int zoneIdx = findZoneIndex(Cr, Ci, clusterCenters[targetBandIndex]);
-                                        counter[zoneIdx - 1]++;
-                                        computeSummationOfC2(zoneIdx, Cr, Ci, sumRe, sumIm);
-                                    }
-                                }
+                    for (int y = rectangle.y; y < yMax; ++y) {
+                        for (int x = rectangle.x; x < xMax; ++x) {
+                            if (plane.get(x, y, Cr, Ci)) {
+                                tileSums.add(findZoneIndex(Cr, Ci, centers) - 1, Cr, Ci);
                             }
                         }
-                    };
-                    threadManager.add(worker);
+                    }
+                    return tileSums;
+                });
 
-                    status.worked(1);
+                final ClusterSums sums = new ClusterSums(9, 2);
+                for (ClusterSums tileSums : partialSums) {
+                    sums.merge(tileSums);
                 }
 
                 double diff = 0.0;
                 for (int z = 0; z < 9; ++z) {
-                    final int count = counter[z];
-                    //System.out.println("counter[" + z + "] = " + count);
-                    if (counter[z] > 0) {
+                    if (sums.counter[z] > 0) {
+                        sums.getCenter(z, centerRe, centerIm);
                         for (int i = 0; i < 2; ++i) {
                             for (int j = 0; j < 2; ++j) {
-                                centerRe[z][i][j] = sumRe[z][i][j] / count;
-                                centerIm[z][i][j] = sumIm[z][i][j] / count;
-                                diff += (clusterCenters[targetBandIndex][z].centerRe[i][j] - centerRe[z][i][j]) *
-                                        (clusterCenters[targetBandIndex][z].centerRe[i][j] - centerRe[z][i][j]) +
-                                        (clusterCenters[targetBandIndex][z].centerIm[i][j] - centerIm[z][i][j]) *
-                                                (clusterCenters[targetBandIndex][z].centerIm[i][j] - centerIm[z][i][j]);
+                                diff += (centers[z].centerRe[i][j] - centerRe[i][j]) *
+                                        (centers[z].centerRe[i][j] - centerRe[i][j]) +
+                                        (centers[z].centerIm[i][j] - centerIm[i][j]) *
+                                                (centers[z].centerIm[i][j] - centerIm[i][j]);
                             }
                         }
-                        clusterCenters[targetBandIndex][z].setClusterCenter(z + 1, centerRe[z], centerIm[z], counter[z]);
+                        centers[z].setClusterCenter(z + 1, centerRe, centerIm, sums.counter[z]);
                     }
                 }
 
@@ -400,7 +347,6 @@ public class HAlphaWishartC2 extends PolClassifierBase implements PolClassifier,
         } finally {
             status.done();
         }
-
     }
 
     /**
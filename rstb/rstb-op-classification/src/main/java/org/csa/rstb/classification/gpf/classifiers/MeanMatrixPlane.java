@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.csa.rstb.classification.gpf.classifiers;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The mean coherency or covariance matrix of every pixel of the source image, computed once and read by each
+ * iteration of the clustering.
+ * <p>
+ * A Hermitian matrix of dimension n is packed into n * n floats: the diagonal, then the real and imaginary parts of
+ * the upper triangle row by row. NaN as first float marks a pixel without data. Small planes are held in direct
+ * buffers and larger ones are mapped from a temporary file, in blocks of whole rows of at most 1GB.
+ * Tasks putting disjoint pixels may run concurrently.
+ */
+final class MeanMatrixPlane implements Closeable {
+
+    private static final long MAX_DIRECT_SIZE = 256L * 1024 * 1024;
+    private static final long MAX_BLOCK_SIZE = 1L << 30;
+
+    private final int width;
+    private final int dimension;
+    private final int pixelSize;
+    private final int rowsPerBlock;
+    private final FloatBuffer[] blocks;
+    private final File file;
+    private final RandomAccessFile raf;
+
+    /**
+     * @param width     image width
+     * @param height    image height
+     * @param dimension matrix dimension, 2 or 3
+     * @throws IOException if the temporary file cannot be mapped
+     */
+    MeanMatrixPlane(final int width, final int height, final int dimension) throws IOException {
+        this(width, height, dimension, MAX_DIRECT_SIZE, MAX_BLOCK_SIZE);
+    }
+
+    /**
+     * @param maxDirectSize size up to which the plane is held in direct buffers
+     * @param maxBlockSize  maximum size of a mapped block
+     */
+    MeanMatrixPlane(final int width, final int height, final int dimension,
+                    final long maxDirectSize, final long maxBlockSize) throws IOException {
+        this.width = width;
+        this.dimension = dimension;
+        this.pixelSize = dimension * dimension;
+
+        final long rowSize = (long) width * pixelSize * Float.BYTES;
+        rowsPerBlock = (int) Math.max(1, Math.min(height, maxBlockSize / rowSize));
+        blocks = new FloatBuffer[(height + rowsPerBlock - 1) / rowsPerBlock];
+
+        if (rowSize * height <= maxDirectSize) {
+            file = null;
+            raf = null;
+            for (int b = 0; b < blocks.length; ++b) {
+                final int rows = Math.min(rowsPerBlock, height - b * rowsPerBlock);
+                blocks[b] = ByteBuffer.allocateDirect((int) (rows * rowSize))
+                        .order(ByteOrder.nativeOrder()).asFloatBuffer();
+            }
+        } else {
+            file = File.createTempFile("meanMatrixPlane", ".bin");
+            file.deleteOnExit();
+            raf = new RandomAccessFile(file, "rw");
+            final FileChannel channel = raf.getChannel();
+            for (int b = 0; b < blocks.length; ++b) {
+                final int rows = Math.min(rowsPerBlock, height - b * rowsPerBlock);
+                blocks[b] = channel.map(FileChannel.MapMode.READ_WRITE, b * rowsPerBlock * rowSize, rows * rowSize)
+                        .order(ByteOrder.nativeOrder()).asFloatBuffer();
+            }
+        }
+    }
+
+    int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * @return the temporary file the plane is mapped from, or null if it is held in direct buffers
+     */
+    File getFile() {
+        return file;
+    }
+
+    private FloatBuffer getBlock(final int y) {
+        return blocks[y / rowsPerBlock];
+    }
+
+    private int getOffset(final int x, final int y) {
+        return ((y % rowsPerBlock) * width + x) * pixelSize;
+    }
+
+    /**
+     * Store the matrix of a pixel.
+     *
+     * @param x  pixel x coordinate
+     * @param y  pixel y coordinate
+     * @param Mr real part of the matrix
+     * @param Mi imaginary part of the matrix
+     */
+    void put(final int x, final int y, final double[][] Mr, final double[][] Mi) {
+        final FloatBuffer block = getBlock(y);
+        int k = getOffset(x, y);
+        for (int i = 0; i < dimension; ++i) {
+            block.put(k++, (float) Mr[i][i]);
+        }
+        for (int i = 0; i < dimension; ++i) {
+            for (int j = i + 1; j < dimension; ++j) {
+                block.put(k++, (float) Mr[i][j]);
+                block.put(k++, (float) Mi[i][j]);
+            }
+        }
+    }
+
+    /**
+     * Mark a pixel as having no data.
+     *
+     * @param x pixel x coordinate
+     * @param y pixel y coordinate
+     */
+    void putNoData(final int x, final int y) {
+        getBlock(y).put(getOffset(x, y), Float.NaN);
+    }
+
+    /**
+     * Read the matrix of a pixel.
+     *
+     * @param x  pixel x coordinate
+     * @param y  pixel y coordinate
+     * @param Mr real part of the matrix
+     * @param Mi imaginary part of the matrix
+     * @return false if the pixel has no data, in which case Mr and Mi are left unchanged
+     */
+    boolean get(final int x, final int y, final double[][] Mr, final double[][] Mi) {
+        final FloatBuffer block = getBlock(y);
+        int k = getOffset(x, y);
+        if (Float.isNaN(block.get(k))) {
+            return false;
+        }
+        for (int i = 0; i < dimension; ++i) {
+            Mr[i][i] = block.get(k++);
+            Mi[i][i] = 0.0;
+        }
+        for (int i = 0; i < dimension; ++i) {
+            for (int j = i + 1; j < dimension; ++j) {
+                Mr[i][j] = block.get(k++);
+                Mi[i][j] = block.get(k++);
+                Mr[j][i] = Mr[i][j];
+                Mi[j][i] = -Mi[i][j];
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (raf != null) {
+            raf.close();
+            file.delete();
+        }
+    }
+}
@@ -17,12 +17,23 @@ package org.csa.rstb.classification.gpf.classifiers;
 
 import org.csa.rstb.classification.gpf.PolarimetricClassificationOp;
 import org.esa.s1tbx.commons.polsar.PolBandUtils;
+import org.esa.s1tbx.commons.utils.ThreadExecutor;
 import org.esa.snap.core.datamodel.Band;
 import org.esa.snap.core.datamodel.IndexCoding;
+import org.esa.snap.core.datamodel.ProductData;
+import org.esa.snap.core.dataop.downloadable.StatusProgressMonitor;
+import org.esa.snap.core.gpf.Tile;
 import org.esa.snap.engine_utilities.eo.Constants;
+import org.esa.snap.engine_utilities.gpf.TileIndex;
 
 import java.awt.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 /**
  * Base class for polarimetric classifiers
@@ -101,6 +112,121 @@ public abstract class PolClassifierBase {
         return new Rectangle(x0, y0, w, h);
     }
 
+    /**
+     * Computes the mean matrix of a source pixel.
+     */
+    interface MeanMatrixFunction {
+
+        /**
+         * @param x           pixel x coordinate
+         * @param y           pixel y coordinate
+         * @param srcIdx      index of the pixel in the source tile data buffers
+         * @param sourceTiles the source tiles
+         * @param dataBuffers the source tile data buffers
+         * @param srcIndex    index of the source tiles, its stride may be changed
+         * @param Mr          real part of the mean matrix
+         * @param Mi          imaginary part of the mean matrix
+         * @return false if the pixel has no data
+         */
+        boolean compute(int x, int y, int srcIdx, Tile[] sourceTiles, ProductData[] dataBuffers, TileIndex srcIndex,
+                        double[][] Mr, double[][] Mi);
+    }
+
+    /**
+     * Compute the mean matrix of every pixel of the source image once, so that the clustering iterations do not
+     * read the source tiles again.
+     *
+     * @param srcBandList    the input bands
+     * @param tileRectangles Array of rectangles for all source tiles of the image
+     * @param dimension      matrix dimension
+     * @param name           name of the executor
+     * @param function       computes the mean matrix of a pixel
+     * @return the plane, to be closed by the caller
+     * @throws IOException if the plane cannot be allocated
+     */
+    MeanMatrixPlane computeMeanMatrixPlane(final PolBandUtils.PolSourceBand srcBandList,
+                                           final Rectangle[] tileRectangles, final int dimension,
+                                           final String name, final MeanMatrixFunction function) throws IOException {
+
+        final StatusProgressMonitor status = new StatusProgressMonitor(StatusProgressMonitor.TYPE.SUBTASK);
+        status.beginTask("Computing Mean Matrices... ", tileRectangles.length);
+
+        final MeanMatrixPlane plane = new MeanMatrixPlane(srcWidth, srcHeight, dimension);
+        final ThreadExecutor executor = new ThreadExecutor(name, status);
+        try {
+            for (final Rectangle rectangle : tileRectangles) {
+                op.checkIfCancelled();
+
+                executor.execute(() -> {
+                    final Tile[] sourceTiles = new Tile[srcBandList.srcBands.length];
+                    final ProductData[] dataBuffers = new ProductData[srcBandList.srcBands.length];
+                    final double[][] Mr = new double[dimension][dimension];
+                    final double[][] Mi = new double[dimension][dimension];
+
+                    final Rectangle sourceRectangle = getSourceRectangle(
+                            rectangle.x, rectangle.y, rectangle.width, rectangle.height);
+                    for (int i = 0; i < sourceTiles.length; ++i) {
+                        sourceTiles[i] = op.getSourceTile(srcBandList.srcBands[i], sourceRectangle);
+                        dataBuffers[i] = sourceTiles[i].getDataBuffer();
+                    }
+                    final TileIndex srcIndex = new TileIndex(sourceTiles[0]);
+
+                    final int xMax = rectangle.x + rectangle.width;
+                    final int yMax = rectangle.y + rectangle.height;
+                    for (int y = rectangle.y; y < yMax; ++y) {
+                        for (int x = rectangle.x; x < xMax; ++x) {
+                            srcIndex.calculateStride(y);
+                            final int srcIdx = srcIndex.getIndex(x);
+                            if (function.compute(x, y, srcIdx, sourceTiles, dataBuffers, srcIndex, Mr, Mi)) {
+                                plane.put(x, y, Mr, Mi);
+                            } else {
+                                plane.putNoData(x, y);
+                            }
+                        }
+                    }
+                });
+
+                status.worked(1);
+            }
+
+            executor.complete();
+
+        } catch (Throwable e) {
+            plane.close();
+            throw e;
+        } finally {
+            status.done();
+        }
+        return plane;
+    }
+
+    /**
+     * Run a task for every tile and return the results in tile order.
+     *
+     * @param executor       the executor
+     * @param tileRectangles Array of rectangles for all source tiles of the image
+     * @param status         progress of the tiles
+     * @param task           computes the result of a tile
+     * @return the results of the tiles
+     */
+    static <T> List<T> reduceTiles(final ThreadExecutor executor, final Rectangle[] tileRectangles,
+                                   final StatusProgressMonitor status, final Function<Rectangle, T> task)
+            throws InterruptedException, ExecutionException {
+
+        final List<Future<T>> futures = new ArrayList<>(tileRectangles.length);
+        for (final Rectangle rectangle : tileRectangles) {
+            futures.add(executor.submit(() -> task.apply(rectangle)));
+            status.worked(1);
+        }
+        executor.complete();
+
+        final List<T> results = new ArrayList<>(futures.size());
+        for (Future<T> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+
     protected static void computeSummationOfC2(final int zoneIdx, final double[][] Cr, final double[][] Ci,
                                                double[][][] sumRe, double[][][] sumIm) {
 
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.csa.rstb.classification.gpf.classifiers;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for ClusterSums
+ */
+public class TestClusterSums {
+
+    private static final int NUM_CLUSTERS = 9;
+    private static final int DIMENSION = 3;
+    private static final int NUM_TILES = 40;
+    private static final int PIXELS_PER_TILE = 500;
+
+    @Test
+    public void testAddAndCenter() {
+        final ClusterSums sums = new ClusterSums(2, 2);
+        sums.add(1, new double[][]{{1, 2}, {2, 3}}, new double[][]{{0, 1}, {-1, 0}});
+        sums.add(1, new double[][]{{3, 4}, {4, 5}}, new double[][]{{0, 3}, {-3, 0}});
+        sums.add(0, new double[][]{{7, 0}, {0, 7}}, new double[][]{{0, 0}, {0, 0}});
+        assertEquals(1, sums.counter[0]);
+        assertEquals(2, sums.counter[1]);
+
+        final double[][] Mr = new double[2][2];
+        final double[][] Mi = new double[2][2];
+        sums.getCenter(1, Mr, Mi);
+        assertArrayEquals(new double[]{2, 3}, Mr[0], 0.0);
+        assertArrayEquals(new double[]{3, 4}, Mr[1], 0.0);
+        assertArrayEquals(new double[]{0, 2}, Mi[0], 0.0);
+        assertArrayEquals(new double[]{-2, 0}, Mi[1], 0.0);
+        sums.getCenter(0, Mr, Mi);
+        assertEquals(7.0, Mr[1][1], 0.0);
+    }
+
+    @Test
+    public void testMergeMatchesSingleSum() {
+        final Random random = new Random(1);
+        final ClusterSums single = new ClusterSums(NUM_CLUSTERS, DIMENSION);
+        final ClusterSums merged = new ClusterSums(NUM_CLUSTERS, DIMENSION);
+        for (int t = 0; t < NUM_TILES; ++t) {
+            final ClusterSums tileSums = new ClusterSums(NUM_CLUSTERS, DIMENSION);
+            for (int p = 0; p < PIXELS_PER_TILE; ++p) {
+                final int c = random.nextInt(NUM_CLUSTERS);
+                final double[][][] m = randomMatrix(random);
+                tileSums.add(c, m[0], m[1]);
+                single.add(c, m[0], m[1]);
+            }
+            merged.merge(tileSums);
+        }
+
+        final double[][] expectedR = new double[DIMENSION][DIMENSION], expectedI = new double[DIMENSION][DIMENSION];
+        final double[][] Mr = new double[DIMENSION][DIMENSION], Mi = new double[DIMENSION][DIMENSION];
+        for (int c = 0; c < NUM_CLUSTERS; ++c) {
+            assertEquals(single.counter[c], merged.counter[c]);
+            single.getCenter(c, expectedR, expectedI);
+            merged.getCenter(c, Mr, Mi);
+            for (int i = 0; i < DIMENSION; ++i) {
+                assertArrayEquals(expectedR[i], Mr[i], 1e-12);
+                assertArrayEquals(expectedI[i], Mi[i], 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void testReductionInTileOrder() throws Exception {
+        // partial sums computed by tasks running in any order and merged in tile order are bit for bit the same
+        final long[] seeds = new long[NUM_TILES];
+        final Random random = new Random(2);
+        for (int t = 0; t < NUM_TILES; ++t) {
+            seeds[t] = random.nextLong();
+        }
+
+        final ClusterSums sequential = new ClusterSums(NUM_CLUSTERS, DIMENSION);
+        for (int t = 0; t < NUM_TILES; ++t) {
+            sequential.merge(computeTile(seeds[t]));
+        }
+
+        final List<Integer> order = new ArrayList<>();
+        for (int t = 0; t < NUM_TILES; ++t) {
+            order.add(t);
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int run = 0; run < 3; ++run) {
+                Collections.shuffle(order, random);
+                final List<Future<ClusterSums>> futures = new ArrayList<>(Collections.nCopies(NUM_TILES, null));
+                for (int t : order) {
+                    futures.set(t, executor.submit(() -> computeTile(seeds[t])));
+                }
+
+                final ClusterSums reduced = new ClusterSums(NUM_CLUSTERS, DIMENSION);
+                for (Future<ClusterSums> future : futures) {
+                    reduced.merge(future.get());
+                }
+                assertIdentical(sequential, reduced);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ClusterSums computeTile(final long seed) {
+        final Random random = new Random(seed);
+        final ClusterSums tileSums = new ClusterSums(NUM_CLUSTERS, DIMENSION);
+        for (int p = 0; p < PIXELS_PER_TILE; ++p) {
+            final double[][][] m = randomMatrix(random);
+            tileSums.add(random.nextInt(NUM_CLUSTERS), m[0], m[1]);
+        }
+        return tileSums;
+    }
+
+    private static void assertIdentical(final ClusterSums expected, final ClusterSums actual) {
+        assertArrayEquals(expected.counter, actual.counter);
+        for (int c = 0; c < NUM_CLUSTERS; ++c) {
+            for (int i = 0; i < DIMENSION; ++i) {
+                for (int j = 0; j < DIMENSION; ++j) {
+                    assertEquals(Double.doubleToLongBits(expected.sumRe[c][i][j]),
+                            Double.doubleToLongBits(actual.sumRe[c][i][j]));
+                    assertEquals(Double.doubleToLongBits(expected.sumIm[c][i][j]),
+                            Double.doubleToLongBits(actual.sumIm[c][i][j]));
+                }
+            }
+        }
+    }
+
+    private static double[][][] randomMatrix(final Random random) {
+        final double[][] Mr = new double[DIMENSION][DIMENSION];
+        final double[][] Mi = new double[DIMENSION][DIMENSION];
+        for (int i = 0; i < DIMENSION; ++i) {
+            Mr[i][i] = Math.exp(3 * random.nextGaussian());
+            for (int j = i + 1; j < DIMENSION; ++j) {
+                Mr[i][j] = Mr[j][i] = random.nextGaussian();
+                Mi[i][j] = random.nextGaussian();
+                Mi[j][i] = -Mi[i][j];
+            }
+        }
+        return new double[][][]{Mr, Mi};
+    }
+}
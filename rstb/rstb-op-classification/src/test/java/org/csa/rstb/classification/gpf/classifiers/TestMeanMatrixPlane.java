@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.csa.rstb.classification.gpf.classifiers;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for MeanMatrixPlane
+ */
+public class TestMeanMatrixPlane {
+
+    @Test
+    public void testDirectRoundTrip() throws IOException {
+        for (int dimension = 2; dimension <= 3; ++dimension) {
+            try (MeanMatrixPlane plane = new MeanMatrixPlane(37, 23, dimension)) {
+                assertNull(plane.getFile());
+                assertEquals(dimension, plane.getDimension());
+                checkRoundTrip(plane, 37, 23, new Random(dimension));
+            }
+        }
+    }
+
+    @Test
+    public void testMappedBlocks() throws IOException {
+        // a mapped plane with blocks of 3 rows, so that blocks end inside the image and the last block is partial
+        for (int dimension = 2; dimension <= 3; ++dimension) {
+            final int width = 11, height = 10;
+            final long rowSize = (long) width * dimension * dimension * Float.BYTES;
+            final File file;
+            try (MeanMatrixPlane plane = new MeanMatrixPlane(width, height, dimension, 0, 3 * rowSize + 5)) {
+                file = plane.getFile();
+                assertNotNull(file);
+                assertTrue(file.exists());
+                assertEquals(height * rowSize, file.length());
+                checkRoundTrip(plane, width, height, new Random(10 + dimension));
+            }
+            assertFalse(file.exists());
+        }
+    }
+
+    @Test
+    public void testRowLargerThanBlock() throws IOException {
+        // every row gets a block of its own
+        try (MeanMatrixPlane plane = new MeanMatrixPlane(8, 5, 3, 0, 16)) {
+            checkRoundTrip(plane, 8, 5, new Random(4));
+        }
+    }
+
+    @Test
+    @Ignore("Takes too long, writes a sparse file of over 1GB")
+    public void testGigabyteBlockBoundary() throws IOException {
+        // 4096 pixels of 36 bytes per row, 7281 rows in the first 1GB block; only the pages touched are written
+        final int width = 4096, height = 7300, dimension = 3;
+        final int rowsPerBlock = (int) ((1L << 30) / (width * 36L));
+        try (MeanMatrixPlane plane = new MeanMatrixPlane(width, height, dimension)) {
+            assertNotNull(plane.getFile());
+            final Random random = new Random(5);
+            final int[][] pixels = {{0, 0}, {width - 1, rowsPerBlock - 1}, {0, rowsPerBlock}, {17, rowsPerBlock},
+                    {width - 1, rowsPerBlock + 1}, {width - 1, height - 1}};
+            final double[][][][] values = new double[pixels.length][][][];
+            for (int p = 0; p < pixels.length; ++p) {
+                values[p] = randomMatrix(dimension, random);
+                plane.put(pixels[p][0], pixels[p][1], values[p][0], values[p][1]);
+            }
+            plane.putNoData(width - 2, rowsPerBlock);
+
+            final double[][] Mr = new double[dimension][dimension];
+            final double[][] Mi = new double[dimension][dimension];
+            for (int p = 0; p < pixels.length; ++p) {
+                assertTrue(plane.get(pixels[p][0], pixels[p][1], Mr, Mi));
+                checkMatrix(values[p][0], values[p][1], Mr, Mi);
+            }
+            assertFalse(plane.get(width - 2, rowsPerBlock, Mr, Mi));
+        }
+    }
+
+    @Test
+    public void testNoData() throws IOException {
+        try (MeanMatrixPlane plane = new MeanMatrixPlane(4, 4, 2)) {
+            final double[][] Mr = {{1, 2}, {2, 3}};
+            final double[][] Mi = {{0, 4}, {-4, 0}};
+            plane.putNoData(1, 2);
+            final double[][] outR = {{7, 7}, {7, 7}};
+            final double[][] outI = {{7, 7}, {7, 7}};
+            assertFalse(plane.get(1, 2, outR, outI));
+            for (int i = 0; i < 2; ++i) {
+                for (int j = 0; j < 2; ++j) {
+                    assertEquals(7.0, outR[i][j], 0.0);
+                    assertEquals(7.0, outI[i][j], 0.0);
+                }
+            }
+
+            // data put over the marker, and the marker over data
+            plane.put(1, 2, Mr, Mi);
+            assertTrue(plane.get(1, 2, outR, outI));
+            checkMatrix(Mr, Mi, outR, outI);
+            plane.putNoData(1, 2);
+            assertFalse(plane.get(1, 2, outR, outI));
+
+            // a zero matrix is data
+            plane.put(0, 0, new double[2][2], new double[2][2]);
+            assertTrue(plane.get(0, 0, outR, outI));
+        }
+    }
+
+    @Test
+    public void testConcurrentTiles() throws Exception {
+        // tasks putting disjoint tiles across block boundaries, as PolClassifierBase.computeMeanMatrixPlane does
+        final int width = 64, height = 48, dimension = 3, tileSize = 16;
+        final long rowSize = (long) width * dimension * dimension * Float.BYTES;
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (MeanMatrixPlane plane = new MeanMatrixPlane(width, height, dimension, 0, 5 * rowSize)) {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int ty = 0; ty < height; ty += tileSize) {
+                for (int tx = 0; tx < width; tx += tileSize) {
+                    final int x0 = tx, y0 = ty;
+                    futures.add(executor.submit(() -> {
+                        for (int y = y0; y < y0 + tileSize; ++y) {
+                            for (int x = x0; x < x0 + tileSize; ++x) {
+                                final double[][][] m = pixelMatrix(x, y, dimension);
+                                plane.put(x, y, m[0], m[1]);
+                            }
+                        }
+                    }));
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            final double[][] Mr = new double[dimension][dimension];
+            final double[][] Mi = new double[dimension][dimension];
+            for (int y = 0; y < height; ++y) {
+                for (int x = 0; x < width; ++x) {
+                    assertTrue(plane.get(x, y, Mr, Mi));
+                    final double[][][] m = pixelMatrix(x, y, dimension);
+                    checkMatrix(m[0], m[1], Mr, Mi);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void checkRoundTrip(final MeanMatrixPlane plane, final int width, final int height,
+                                       final Random random) {
+        final int dimension = plane.getDimension();
+        final double[][][][][] values = new double[height][width][][][];
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                if (random.nextInt(5) == 0) {
+                    plane.putNoData(x, y);
+                } else {
+                    values[y][x] = randomMatrix(dimension, random);
+                    plane.put(x, y, values[y][x][0], values[y][x][1]);
+                }
+            }
+        }
+
+        final double[][] Mr = new double[dimension][dimension];
+        final double[][] Mi = new double[dimension][dimension];
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                if (values[y][x] == null) {
+                    assertFalse(plane.get(x, y, Mr, Mi));
+                } else {
+                    assertTrue(plane.get(x, y, Mr, Mi));
+                    checkMatrix(values[y][x][0], values[y][x][1], Mr, Mi);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the real and imaginary parts of a random Hermitian matrix
+     */
+    private static double[][][] randomMatrix(final int dimension, final Random random) {
+        final double[][] Mr = new double[dimension][dimension];
+        final double[][] Mi = new double[dimension][dimension];
+        for (int i = 0; i < dimension; ++i) {
+            Mr[i][i] = random.nextDouble() * 10;
+            for (int j = i + 1; j < dimension; ++j) {
+                Mr[i][j] = Mr[j][i] = random.nextGaussian();
+                Mi[i][j] = random.nextGaussian();
+                Mi[j][i] = -Mi[i][j];
+            }
+        }
+        return new double[][][]{Mr, Mi};
+    }
+
+    private static double[][][] pixelMatrix(final int x, final int y, final int dimension) {
+        return randomMatrix(dimension, new Random(y * 1000L + x));
+    }
+
+    // the plane holds floats
+    private static void checkMatrix(final double[][] expectedR, final double[][] expectedI,
+                                    final double[][] Mr, final double[][] Mi) {
+        for (int i = 0; i < expectedR.length; ++i) {
+            for (int j = 0; j < expectedR.length; ++j) {
+                assertEquals((float) expectedR[i][j], Mr[i][j], 0.0);
+                assertEquals((float) expectedI[i][j], Mi[i][j], 0.0);
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import Jama.Matrix;
 import org.apache.commons.math3.util.FastMath;
 import org.csa.rstb.polarimetric.gpf.decompositions.DecompositionBase;
 import org.esa.s1tbx.commons.polsar.PolBandUtils;
+import org.esa.s1tbx.commons.utils.ThreadExecutor;
 import org.esa.snap.core.datamodel.Band;
 import org.esa.snap.core.datamodel.ProductData;
 import org.esa.snap.core.dataop.downloadable.StatusProgressMonitor;
@@ -12,7 +13,6 @@ import org.esa.snap.core.gpf.OperatorException;
 import org.esa.snap.core.gpf.Tile;
 import org.esa.snap.engine_utilities.eo.Constants;
 import org.esa.snap.engine_utilities.gpf.OperatorUtils;
-import org.esa.snap.engine_utilities.gpf.ThreadManager;
 import org.esa.snap.engine_utilities.gpf.TileIndex;
 import org.jblas.DoubleMatrix;
 
@@ -1414,11 +1414,11 @@ public interface QuadPolProcessor extends PolarimetricProcessor {
         status.beginTask("Computing min max span... ", tileRectangles.length);
 
         try {
-            final ThreadManager threadManager = new ThreadManager();
+            final ThreadExecutor executor = new ThreadExecutor(op.getClass().getSimpleName(), status);
 
             for (final Rectangle rectangle : tileRectangles) {
 
-                final Thread worker = new Thread() {
+                final Runnable worker = new Runnable() {
 
                     double span = 0.0;
                     final int xMax = rectangle.x + rectangle.width;
@@ -1464,12 +1464,12 @@ public interface QuadPolProcessor extends PolarimetricProcessor {
                     }
                 };
 
-                threadManager.add(worker);
+                executor.execute(worker);
 
                 status.worked(1);
             }
 
-            threadManager.finish();
+            executor.complete();
 
             if (minMaxValue.min < Constants.EPS) {
                 minMaxValue.min = Constants.EPS;
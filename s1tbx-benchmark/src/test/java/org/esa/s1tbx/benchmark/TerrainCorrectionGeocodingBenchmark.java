@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.benchmark;
+
+import org.esa.s1tbx.commons.test.TestData;
+import org.esa.s1tbx.sar.gpf.geometric.RangeDopplerGeocodingOp;
+import org.esa.snap.core.datamodel.Band;
+import org.esa.snap.core.datamodel.Product;
+import org.esa.snap.engine_utilities.util.TestUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.media.jai.JAI;
+import java.awt.image.RenderedImage;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Terrain corrected pixels per second of RangeDopplerGeocodingOp on a Sentinel-1 GRD subset.
+ * <p>
+ * Each invocation computes the tiles of a fixed SCENE_SIZE x SCENE_SIZE region at the origin of the first target
+ * band through the operator, on the calling thread, so that one operation is one target pixel. The JAI tile cache is
+ * flushed before each invocation, so the time includes reading the source tiles but not the DEM tiles, which the DEM
+ * keeps in its own cache. To compare implementations, run {@link #main} on the tree before and after a change and
+ * compare the reported ops/s, which are target pixels per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TerrainCorrectionGeocodingBenchmark {
+
+    private static final File INPUT_FILE = TestData.inputS1_GRDSubset;
+
+    // a multiple of the usual tile sizes, so that only tiles inside the region are computed
+    private static final int SCENE_SIZE = 512;
+    private static final int SCENE_PIXELS = SCENE_SIZE * SCENE_SIZE;
+
+    private Product sourceProduct;
+    private Product targetProduct;
+    private Band targetBand;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        TestUtils.initTestEnvironment();
+        if (!INPUT_FILE.exists()) {
+            throw new IllegalStateException(INPUT_FILE + " not found");
+        }
+        sourceProduct = TestUtils.readSourceProduct(INPUT_FILE);
+
+        final RangeDopplerGeocodingOp op = (RangeDopplerGeocodingOp) new RangeDopplerGeocodingOp.Spi().createOperator();
+        op.setSourceProduct(sourceProduct);
+        targetProduct = op.getTargetProduct();
+        targetBand = targetProduct.getBandAt(0);
+
+        final RenderedImage image = targetBand.getSourceImage();
+        if (image.getWidth() < SCENE_SIZE || image.getHeight() < SCENE_SIZE ||
+                SCENE_SIZE % image.getTileWidth() != 0 || SCENE_SIZE % image.getTileHeight() != 0) {
+            throw new IllegalStateException("Target image " + image.getWidth() + " x " + image.getHeight() +
+                    " with tiles of " + image.getTileWidth() + " x " + image.getTileHeight() +
+                    " cannot be cut into a region of " + SCENE_SIZE + " x " + SCENE_SIZE + " pixels");
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void flushTileCache() {
+        JAI.getDefaultInstance().getTileCache().flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        targetProduct.dispose();
+        sourceProduct.dispose();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SCENE_PIXELS)
+    public void terrainCorrectScene(final Blackhole bh) {
+        final RenderedImage image = targetBand.getSourceImage();
+        final int minTileX = image.getMinTileX();
+        final int minTileY = image.getMinTileY();
+        final int numTilesX = SCENE_SIZE / image.getTileWidth();
+        final int numTilesY = SCENE_SIZE / image.getTileHeight();
+        for (int tileY = minTileY; tileY < minTileY + numTilesY; ++tileY) {
+            for (int tileX = minTileX; tileX < minTileX + numTilesX; ++tileX) {
+                bh.consume(image.getTile(tileX, tileY));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        final Options opt = new OptionsBuilder()
+                .include(TerrainCorrectionGeocodingBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+}
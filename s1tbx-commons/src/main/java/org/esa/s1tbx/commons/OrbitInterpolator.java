@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons;
+
+import org.esa.snap.engine_utilities.datamodel.OrbitStateVector;
+import org.esa.snap.engine_utilities.datamodel.PosVector;
+
+/**
+ * Lagrange interpolation of orbit state vectors with precomputed polynomial coefficients.
+ * <p>
+ * For every window of adjacent state vectors the Lagrange polynomial is expanded once into
+ * power form in a normalized time variable, so evaluation is a Horner loop without allocation.
+ * The interpolator is immutable after construction and can be shared between tile threads.
+ */
+public final class OrbitInterpolator {
+
+    private static final int NUM_COMPONENTS = 6;
+
+    private final int numVectors;
+    private final int numNodes;
+    private final double firstTime;
+    private final double dt;
+
+    // per window: reference time and inverse time scale of the normalized variable
+    private final double[] windowRefTime;
+    private final double[] windowInvScale;
+    // per window: NUM_COMPONENTS x numNodes coefficients, lowest order first
+    private final double[] coefficients;
+
+    /**
+     * @param orbitStateVectors state vectors sorted by increasing time without duplicates
+     * @param maxNodes          number of state vectors used in each interpolation window
+     */
+    public OrbitInterpolator(final OrbitStateVector[] orbitStateVectors, final int maxNodes) {
+        this(getTimes(orbitStateVectors), toComponents(orbitStateVectors), orbitStateVectors.length, maxNodes);
+    }
+
+    /**
+     * @param time     state vector times in days (MJD), increasing without duplicates
+     * @param xPos     state vector x positions
+     * @param yPos     state vector y positions
+     * @param zPos     state vector z positions
+     * @param xVel     state vector x velocities
+     * @param yVel     state vector y velocities
+     * @param zVel     state vector z velocities
+     * @param count    number of state vectors used from the arrays
+     * @param maxNodes number of state vectors used in each interpolation window
+     */
+    public OrbitInterpolator(final double[] time, final double[] xPos, final double[] yPos, final double[] zPos,
+                             final double[] xVel, final double[] yVel, final double[] zVel,
+                             final int count, final int maxNodes) {
+        this(time, new double[][]{xPos, yPos, zPos, xVel, yVel, zVel}, count, maxNodes);
+    }
+
+    private OrbitInterpolator(final double[] time, final double[][] components, final int count, final int maxNodes) {
+
+        this.numVectors = count;
+        if (numVectors == 0) {
+            throw new IllegalArgumentException("No orbit state vectors");
+        }
+        this.numNodes = Math.min(maxNodes, numVectors);
+        this.firstTime = time[0];
+        this.dt = numVectors > 1 ? (time[numVectors - 1] - firstTime) / (numVectors - 1) : 0.0;
+
+        final int numWindows = numVectors - numNodes + 1;
+        windowRefTime = new double[numWindows];
+        windowInvScale = new double[numWindows];
+        coefficients = new double[numWindows * NUM_COMPONENTS * numNodes];
+
+        final double[] nodes = new double[numNodes];
+        final double[] basis = new double[numNodes];
+        for (int w = 0; w < numWindows; ++w) {
+            computeWindowCoefficients(time, components, w, nodes, basis);
+        }
+    }
+
+    private static double[] getTimes(final OrbitStateVector[] osv) {
+        final double[] time = new double[osv.length];
+        for (int i = 0; i < osv.length; ++i) {
+            time[i] = osv[i].time_mjd;
+        }
+        return time;
+    }
+
+    private static double[][] toComponents(final OrbitStateVector[] osv) {
+        final double[][] components = new double[NUM_COMPONENTS][osv.length];
+        for (int i = 0; i < osv.length; ++i) {
+            components[0][i] = osv[i].x_pos;
+            components[1][i] = osv[i].y_pos;
+            components[2][i] = osv[i].z_pos;
+            components[3][i] = osv[i].x_vel;
+            components[4][i] = osv[i].y_vel;
+            components[5][i] = osv[i].z_vel;
+        }
+        return components;
+    }
+
+    private void computeWindowCoefficients(final double[] time, final double[][] components, final int i0,
+                                           final double[] nodes, final double[] basis) {
+
+        final int iN = i0 + numNodes - 1;
+        final double refTime = 0.5 * (time[i0] + time[iN]);
+        final double scale = numNodes > 1 ? (time[iN] - time[i0]) / (numNodes - 1) : 1.0;
+        final double invScale = scale != 0.0 ? 1.0 / scale : 0.0;
+        windowRefTime[i0] = refTime;
+        windowInvScale[i0] = invScale;
+
+        for (int k = 0; k < numNodes; ++k) {
+            nodes[k] = (time[i0 + k] - refTime) * invScale;
+        }
+
+        final int offset = i0 * NUM_COMPONENTS * numNodes;
+        for (int i = 0; i < numNodes; ++i) {
+
+            // expand the i-th Lagrange basis polynomial into power form
+            basis[0] = 1.0;
+            int degree = 0;
+            for (int j = 0; j < numNodes; ++j) {
+                if (j == i) {
+                    continue;
+                }
+                final double denom = 1.0 / (nodes[i] - nodes[j]);
+                basis[degree + 1] = basis[degree] * denom;
+                for (int k = degree; k > 0; --k) {
+                    basis[k] = (basis[k - 1] - nodes[j] * basis[k]) * denom;
+                }
+                basis[0] = -nodes[j] * basis[0] * denom;
+                ++degree;
+            }
+
+            for (int c = 0; c < NUM_COMPONENTS; ++c) {
+                final double value = components[c][i0 + i];
+                final int cOffset = offset + c * numNodes;
+                for (int k = 0; k < numNodes; ++k) {
+                    coefficients[cOffset + k] += basis[k] * value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the index of the first state vector of the interpolation window used for the given time.
+     */
+    private int getWindow(final double time) {
+        if (numVectors <= numNodes) {
+            return 0;
+        }
+        int i0 = Math.max((int) ((time - firstTime) / dt) - numNodes / 2 + 1, 0);
+        final int iN = Math.min(i0 + numNodes - 1, numVectors - 1);
+        i0 = (iN < numVectors - 1 ? i0 : iN - numNodes + 1);
+        return i0;
+    }
+
+    /**
+     * @return the time of the first state vector in days (MJD)
+     */
+    public double getFirstTime() {
+        return firstTime;
+    }
+
+    /**
+     * @return the time of the last state vector in days (MJD)
+     */
+    public double getLastTime() {
+        return firstTime + dt * (numVectors - 1);
+    }
+
+    private double evaluate(final int offset, final double s) {
+        double value = coefficients[offset + numNodes - 1];
+        for (int k = numNodes - 2; k >= 0; --k) {
+            value = value * s + coefficients[offset + k];
+        }
+        return value;
+    }
+
+    private double evaluateDerivative(final int offset, final double s) {
+        double value = 0.0;
+        for (int k = numNodes - 1; k >= 1; --k) {
+            value = value * s + k * coefficients[offset + k];
+        }
+        return value;
+    }
+
+    /**
+     * Interpolate sensor position and velocity at the given time into caller owned vectors.
+     *
+     * @param time     The time in days (MJD).
+     * @param position The sensor position (output).
+     * @param velocity The sensor velocity (output).
+     */
+    public void getPositionVelocity(final double time, final PosVector position, final PosVector velocity) {
+
+        final int w = getWindow(time);
+        final double s = (time - windowRefTime[w]) * windowInvScale[w];
+        final int offset = w * NUM_COMPONENTS * numNodes;
+
+        position.x = evaluate(offset, s);
+        position.y = evaluate(offset + numNodes, s);
+        position.z = evaluate(offset + 2 * numNodes, s);
+        velocity.x = evaluate(offset + 3 * numNodes, s);
+        velocity.y = evaluate(offset + 4 * numNodes, s);
+        velocity.z = evaluate(offset + 5 * numNodes, s);
+    }
+
+    /**
+     * Interpolate sensor position at the given time into a caller owned vector.
+     *
+     * @param time     The time in days (MJD).
+     * @param position The sensor position (output).
+     */
+    public void getPosition(final double time, final PosVector position) {
+
+        final int w = getWindow(time);
+        final double s = (time - windowRefTime[w]) * windowInvScale[w];
+        final int offset = w * NUM_COMPONENTS * numNodes;
+
+        position.x = evaluate(offset, s);
+        position.y = evaluate(offset + numNodes, s);
+        position.z = evaluate(offset + 2 * numNodes, s);
+    }
+
+    /**
+     * Interpolate sensor velocity at the given time into a caller owned vector.
+     *
+     * @param time     The time in days (MJD).
+     * @param velocity The sensor velocity (output).
+     */
+    public void getVelocity(final double time, final PosVector velocity) {
+
+        final int w = getWindow(time);
+        final double s = (time - windowRefTime[w]) * windowInvScale[w];
+        final int offset = w * NUM_COMPONENTS * numNodes;
+
+        velocity.x = evaluate(offset + 3 * numNodes, s);
+        velocity.y = evaluate(offset + 4 * numNodes, s);
+        velocity.z = evaluate(offset + 5 * numNodes, s);
+    }
+
+    /**
+     * Interpolate sensor position, velocity and the time derivative of the velocity at the given time.
+     *
+     * @param time         The time in days (MJD).
+     * @param position     The sensor position (output).
+     * @param velocity     The sensor velocity (output).
+     * @param acceleration The derivative of the velocity with respect to time in days (output).
+     */
+    public void getPositionVelocityAcceleration(final double time, final PosVector position,
+                                                final PosVector velocity, final PosVector acceleration) {
+
+        final int w = getWindow(time);
+        final double invScale = windowInvScale[w];
+        final double s = (time - windowRefTime[w]) * invScale;
+        final int offset = w * NUM_COMPONENTS * numNodes;
+
+        position.x = evaluate(offset, s);
+        position.y = evaluate(offset + numNodes, s);
+        position.z = evaluate(offset + 2 * numNodes, s);
+        velocity.x = evaluate(offset + 3 * numNodes, s);
+        velocity.y = evaluate(offset + 4 * numNodes, s);
+        velocity.z = evaluate(offset + 5 * numNodes, s);
+        acceleration.x = evaluateDerivative(offset + 3 * numNodes, s) * invScale;
+        acceleration.y = evaluateDerivative(offset + 4 * numNodes, s) * invScale;
+        acceleration.z = evaluateDerivative(offset + 5 * numNodes, s) * invScale;
+    }
+}
@@ -4,17 +4,14 @@ import org.esa.snap.engine_utilities.datamodel.OrbitStateVector;
 import org.esa.snap.engine_utilities.datamodel.PosVector;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public final class OrbitStateVectors {
 
     public OrbitStateVector[] orbitStateVectors = null;
     public PosVector[] sensorPosition = null; // sensor position for all range lines
     public PosVector[] sensorVelocity = null; // sensor velocity for all range lines
-    private double dt = 0.0;
-    private final Map<Double, PositionVelocity> timeMap = new HashMap<>();
+    private final OrbitInterpolator interpolator;
 
     private static final int nv = 8;
 
@@ -23,16 +20,15 @@ public final class OrbitStateVectors {
 
         this.orbitStateVectors = removeRedundantVectors(orbitStateVectors);
 
-        this.dt = (this.orbitStateVectors[this.orbitStateVectors.length - 1].time_mjd -
-                this.orbitStateVectors[0].time_mjd) / (this.orbitStateVectors.length - 1);
+        this.interpolator = new OrbitInterpolator(this.orbitStateVectors, nv);
 
         this.sensorPosition = new PosVector[sourceImageHeight];
         this.sensorVelocity = new PosVector[sourceImageHeight];
         for (int i = 0; i < sourceImageHeight; i++) {
             final double time = firstLineUTC + i * lineTimeInterval;
-            PositionVelocity pv = getPositionVelocity(time);
-            sensorPosition[i] = pv.position;
-            sensorVelocity[i] = pv.velocity;
+            sensorPosition[i] = new PosVector();
+            sensorVelocity[i] = new PosVector();
+            interpolator.getPositionVelocity(time, sensorPosition[i], sensorVelocity[i]);
         }
     }
 
@@ -40,8 +36,7 @@ public final class OrbitStateVectors {
 
         this.orbitStateVectors = removeRedundantVectors(orbitStateVectors);
 
-        this.dt = (this.orbitStateVectors[orbitStateVectors.length - 1].time_mjd -
-                this.orbitStateVectors[0].time_mjd) / (this.orbitStateVectors.length - 1);
+        this.interpolator = new OrbitInterpolator(this.orbitStateVectors, nv);
     }
 
     private static OrbitStateVector[] removeRedundantVectors(OrbitStateVector[] orbitStateVectors) {
@@ -61,113 +56,36 @@ public final class OrbitStateVectors {
         return vectorList.toArray(new OrbitStateVector[0]);
     }
 
-    public PositionVelocity getPositionVelocity(final Double time) {
+    public PositionVelocity getPositionVelocity(final double time) {
 
-        PositionVelocity cachedPosVel = timeMap.get(time);
-        if(cachedPosVel != null) {
-            return cachedPosVel;
-        }
-
-        int i0, iN;
-        if (orbitStateVectors.length <= nv) {
-            i0 = 0;
-            iN = orbitStateVectors.length - 1;
-        } else {
-            i0 = Math.max((int) ((time - orbitStateVectors[0].time_mjd) / dt) - nv / 2 + 1, 0);
-            iN = Math.min(i0 + nv - 1, orbitStateVectors.length - 1);
-            i0 = (iN < orbitStateVectors.length - 1 ? i0 : iN - nv + 1);
-        }
-
-        //lagrangeInterpolatingPolynomial
         final PositionVelocity pv = new PositionVelocity();
-
-        for (int i = i0; i <= iN; ++i) {
-            final OrbitStateVector orbI = orbitStateVectors[i];
-
-            double weight = 1;
-            for (int j = i0; j <= iN; ++j) {
-                if (j != i) {
-                    final double time2 = orbitStateVectors[j].time_mjd;
-                    weight *= (time - time2) / (orbI.time_mjd - time2);
-                }
-            }
-
-            pv.position.x += weight * orbI.x_pos;
-            pv.position.y += weight * orbI.y_pos;
-            pv.position.z += weight * orbI.z_pos;
-
-            pv.velocity.x += weight * orbI.x_vel;
-            pv.velocity.y += weight * orbI.y_vel;
-            pv.velocity.z += weight * orbI.z_vel;
-        }
-
-        timeMap.put(time, pv);
+        interpolator.getPositionVelocity(time, pv.position, pv.velocity);
         return pv;
     }
 
-    PosVector getPosition(final double time, final PosVector position) {
-
-        int i0, iN;
-        if (orbitStateVectors.length <= nv) {
-            i0 = 0;
-            iN = orbitStateVectors.length - 1;
-        } else {
-            i0 = Math.max((int) ((time - orbitStateVectors[0].time_mjd) / dt) - nv / 2 + 1, 0);
-            iN = Math.min(i0 + nv - 1, orbitStateVectors.length - 1);
-            i0 = (iN < orbitStateVectors.length - 1 ? i0 : iN - nv + 1);
-        }
-
-        //lagrangeInterpolatingPolynomial
-        position.x = 0;
-        position.y = 0;
-        position.z = 0;
+    /**
+     * Interpolate sensor position and velocity at the given time without allocation.
+     *
+     * @param time     The time in days (MJD).
+     * @param position The sensor position (output).
+     * @param velocity The sensor velocity (output).
+     */
+    public void getPositionVelocity(final double time, final PosVector position, final PosVector velocity) {
+        interpolator.getPositionVelocity(time, position, velocity);
+    }
 
-        for (int i = i0; i <= iN; ++i) {
-            final OrbitStateVector orbI = orbitStateVectors[i];
+    public OrbitInterpolator getInterpolator() {
+        return interpolator;
+    }
 
-            double weight = 1;
-            for (int j = i0; j <= iN; ++j) {
-                if (j != i) {
-                    final double time2 = orbitStateVectors[j].time_mjd;
-                    weight *= (time - time2) / (orbI.time_mjd - time2);
-                }
-            }
-            position.x += weight * orbI.x_pos;
-            position.y += weight * orbI.y_pos;
-            position.z += weight * orbI.z_pos;
-        }
+    PosVector getPosition(final double time, final PosVector position) {
+        interpolator.getPosition(time, position);
         return position;
     }
 
     PosVector getVelocity(final double time) {
-
-        int i0, iN;
-        if (orbitStateVectors.length <= nv) {
-            i0 = 0;
-            iN = orbitStateVectors.length - 1;
-        } else {
-            i0 = Math.max((int) ((time - orbitStateVectors[0].time_mjd) / dt) - nv / 2 + 1, 0);
-            iN = Math.min(i0 + nv - 1, orbitStateVectors.length - 1);
-            i0 = (iN < orbitStateVectors.length - 1 ? i0 : iN - nv + 1);
-        }
-
-        //lagrangeInterpolatingPolynomial
         final PosVector velocity = new PosVector();
-
-        for (int i = i0; i <= iN; ++i) {
-            final OrbitStateVector orbI = orbitStateVectors[i];
-
-            double weight = 1;
-            for (int j = i0; j <= iN; ++j) {
-                if (j != i) {
-                    final double time2 = orbitStateVectors[j].time_mjd;
-                    weight *= (time - time2) / (orbI.time_mjd - time2);
-                }
-            }
-            velocity.x += weight * orbI.x_vel;
-            velocity.y += weight * orbI.y_vel;
-            velocity.z += weight * orbI.z_vel;
-        }
+        interpolator.getVelocity(time, velocity);
         return velocity;
     }
 
@@ -249,6 +249,209 @@ public final class SARGeocoding {
         return lowerBoundTime - lowerBoundFreq * (upperBoundTime - lowerBoundTime) / (upperBoundFreq - lowerBoundFreq);
     }
 
+    /**
+     * Compute zero Doppler times and slant ranges for a row of earth points using Newton iteration on the
+     * orbit polynomial. Each solve is seeded with the solution of the previous point, so neighbouring points
+     * typically converge in two or three orbit evaluations. If Newton fails, the root is bracketed by stepping
+     * away from the seed and refined in the bracket; only the first point of a row scans the state vectors.
+     * The earth points are given as separate x, y, z arrays; points with a NaN coordinate are skipped.
+     *
+     * @param lineTimeInterval The line time interval in days.
+     * @param orbit            The object holding orbit state vectors.
+     * @param earthX           The x coordinates of the earth points.
+     * @param earthY           The y coordinates of the earth points.
+     * @param earthZ           The z coordinates of the earth points.
+     * @param numPoints        The number of earth points.
+     * @param zeroDopplerTime  The zero Doppler times in days, NonValidZeroDopplerTime if not found (output).
+     * @param slantRange       The slant ranges in meters (output).
+     * @return The number of points for which the zero Doppler time was found.
+     */
+    public static int computeZeroDopplerTimes(final double lineTimeInterval, final OrbitStateVectors orbit,
+                                              final double[] earthX, final double[] earthY, final double[] earthZ,
+                                              final int numPoints,
+                                              final double[] zeroDopplerTime, final double[] slantRange) {
+
+        final OrbitInterpolator interpolator = orbit.getInterpolator();
+        final double tolerance = Math.max(Math.abs(lineTimeInterval) * 1.0e-4, 1.0e-14);
+        final PosVector earthPoint = new PosVector();
+        final PosVector sensorPos = new PosVector();
+        final PosVector sensorVel = new PosVector();
+        final PosVector sensorAcc = new PosVector();
+        final double[] fdf = new double[2];
+
+        double seed = NonValidZeroDopplerTime;
+        int numValid = 0;
+        for (int i = 0; i < numPoints; ++i) {
+            earthPoint.x = earthX[i];
+            earthPoint.y = earthY[i];
+            earthPoint.z = earthZ[i];
+            if (Double.isNaN(earthPoint.x) || Double.isNaN(earthPoint.y) || Double.isNaN(earthPoint.z)) {
+                zeroDopplerTime[i] = NonValidZeroDopplerTime;
+                continue;
+            }
+
+            double time = NonValidZeroDopplerTime;
+            if (seed != NonValidZeroDopplerTime) {
+                time = solveZeroDopplerNewton(interpolator, earthPoint, seed, tolerance,
+                                              sensorPos, sensorVel, sensorAcc, fdf);
+                if (time == NonValidZeroDopplerTime) {
+                    time = solveZeroDopplerBracketed(interpolator, earthPoint, seed, lineTimeInterval, tolerance,
+                                                     sensorPos, sensorVel, sensorAcc, fdf);
+                }
+            } else {
+                final double coarseTime = getZeroDopplerTime(lineTimeInterval, 1.0, earthPoint, orbit);
+                if (coarseTime != NonValidZeroDopplerTime) {
+                    time = solveZeroDopplerNewton(interpolator, earthPoint, coarseTime, tolerance,
+                                                  sensorPos, sensorVel, sensorAcc, fdf);
+                }
+            }
+
+            zeroDopplerTime[i] = time;
+            if (time != NonValidZeroDopplerTime) {
+                final double xDiff = sensorPos.x - earthPoint.x;
+                final double yDiff = sensorPos.y - earthPoint.y;
+                final double zDiff = sensorPos.z - earthPoint.z;
+                slantRange[i] = Math.sqrt(xDiff * xDiff + yDiff * yDiff + zDiff * zDiff);
+                seed = time;
+                ++numValid;
+            }
+        }
+        return numValid;
+    }
+
+    /**
+     * Bracket the root of the Doppler function by stepping from the given time in the direction of the root with
+     * a doubling step, then refine it with Newton steps safeguarded by bisection. Used when Newton iteration from
+     * a neighbouring solution fails, as it may for near degenerate geometry.
+     * On success the sensor position and velocity at the returned time are left in sensorPos and sensorVel.
+     *
+     * @return The zero Doppler time in days if found within the orbit, NonValidZeroDopplerTime otherwise.
+     */
+    private static double solveZeroDopplerBracketed(final OrbitInterpolator interpolator, final PosVector earthPoint,
+                                                    final double initialTime, final double lineTimeInterval,
+                                                    final double tolerance,
+                                                    final PosVector sensorPos, final PosVector sensorVel,
+                                                    final PosVector sensorAcc, final double[] fdf) {
+
+        final int maxIterations = 60;
+        final double minTime = interpolator.getFirstTime();
+        final double maxTime = interpolator.getLastTime();
+
+        double t0 = Math.min(Math.max(initialTime, minTime), maxTime);
+        evaluateDopplerFunction(interpolator, earthPoint, t0, sensorPos, sensorVel, sensorAcc, fdf);
+        double f0 = fdf[0];
+        if (f0 == 0.0) {
+            return t0;
+        }
+
+        // f decreases with time, so the root is ahead of t0 if f0 is positive
+        final double direction = f0 > 0.0 ? 1.0 : -1.0;
+        double step = Math.max(Math.abs(lineTimeInterval), tolerance);
+        double t1 = t0, f1 = f0;
+        boolean bracketed = false;
+        while (!bracketed) {
+            if (t0 == (direction > 0.0 ? maxTime : minTime)) {
+                return NonValidZeroDopplerTime;
+            }
+            t1 = Math.min(Math.max(t0 + direction * step, minTime), maxTime);
+            evaluateDopplerFunction(interpolator, earthPoint, t1, sensorPos, sensorVel, sensorAcc, fdf);
+            f1 = fdf[0];
+            if (f1 == 0.0) {
+                return t1;
+            }
+            if (f0 * f1 < 0.0) {
+                bracketed = true;
+            } else {
+                t0 = t1;
+                f0 = f1;
+                step *= 2.0;
+            }
+        }
+
+        double lo = Math.min(t0, t1), hi = Math.max(t0, t1);
+        final double fLo = t0 < t1 ? f0 : f1;
+        double time = lo - fLo * (hi - lo) / ((t0 < t1 ? f1 : f0) - fLo);
+        for (int iter = 0; iter < maxIterations; ++iter) {
+            evaluateDopplerFunction(interpolator, earthPoint, time, sensorPos, sensorVel, sensorAcc, fdf);
+            final double f = fdf[0];
+            if (f == 0.0) {
+                return time;
+            }
+            if (f * fLo > 0.0) {
+                lo = time;
+            } else {
+                hi = time;
+            }
+
+            double next = fdf[1] != 0.0 ? time - f / fdf[1] : Double.NaN;
+            if (!(next > lo && next < hi)) {
+                next = 0.5 * (lo + hi);
+            }
+            if (Math.abs(next - time) < tolerance || hi - lo < tolerance) {
+                interpolator.getPositionVelocity(next, sensorPos, sensorVel);
+                return next;
+            }
+            time = next;
+        }
+        return NonValidZeroDopplerTime;
+    }
+
+    /**
+     * Evaluate the Doppler function f(t) = v(t).(P - S(t)) and its time derivative into fdf.
+     */
+    private static void evaluateDopplerFunction(final OrbitInterpolator interpolator, final PosVector earthPoint,
+                                                final double time, final PosVector sensorPos,
+                                                final PosVector sensorVel, final PosVector sensorAcc,
+                                                final double[] fdf) {
+
+        interpolator.getPositionVelocityAcceleration(time, sensorPos, sensorVel, sensorAcc);
+
+        final double xDiff = earthPoint.x - sensorPos.x;
+        final double yDiff = earthPoint.y - sensorPos.y;
+        final double zDiff = earthPoint.z - sensorPos.z;
+
+        fdf[0] = sensorVel.x * xDiff + sensorVel.y * yDiff + sensorVel.z * zDiff;
+        fdf[1] = sensorAcc.x * xDiff + sensorAcc.y * yDiff + sensorAcc.z * zDiff -
+                Constants.secondsInDay * (sensorVel.x * sensorVel.x + sensorVel.y * sensorVel.y +
+                        sensorVel.z * sensorVel.z);
+    }
+
+    /**
+     * Newton iteration for the root of the Doppler function f(t) = v(t).(P - S(t)) starting from the given time.
+     * On success the sensor position and velocity at the returned time are left in sensorPos and sensorVel.
+     *
+     * @return The zero Doppler time in days if the iteration converged, NonValidZeroDopplerTime otherwise.
+     */
+    private static double solveZeroDopplerNewton(final OrbitInterpolator interpolator, final PosVector earthPoint,
+                                                 final double initialTime, final double tolerance,
+                                                 final PosVector sensorPos, final PosVector sensorVel,
+                                                 final PosVector sensorAcc, final double[] fdf) {
+
+        final int maxIterations = 10;
+        final double minTime = interpolator.getFirstTime();
+        final double maxTime = interpolator.getLastTime();
+
+        double time = initialTime;
+        for (int iter = 0; iter < maxIterations; ++iter) {
+            evaluateDopplerFunction(interpolator, earthPoint, time, sensorPos, sensorVel, sensorAcc, fdf);
+            if (fdf[1] == 0.0) {
+                return NonValidZeroDopplerTime;
+            }
+
+            final double delta = fdf[0] / fdf[1];
+            time -= delta;
+            if (time < minTime || time > maxTime || Double.isNaN(time)) {
+                return NonValidZeroDopplerTime;
+            }
+
+            if (Math.abs(delta) < tolerance) {
+                interpolator.getPositionVelocity(time, sensorPos, sensorVel);
+                return time;
+            }
+        }
+        return NonValidZeroDopplerTime;
+    }
+
     /**
      * Compute Doppler frequency for given earthPoint and sensor position.
      *
@@ -505,69 +708,135 @@ public final class SARGeocoding {
             final boolean saveProjectedLocalIncidenceAngle, final boolean saveSigmaNought, final int x0,
             final int y0, final int x, final int y, final double[][] localDEM, final double[] localIncidenceAngles) {
 
-        // Note: For algorithm and notation of the following implementation, please see Andrea's email dated
-        //       May 29, 2009 and Marcus' email dated June 3, 2009, or see Eq (14.10) and Eq (14.11) on page
-        //       321 and 323 in "SAR Geocoding - Data and Systems".
-        //       The Cartesian coordinate (x, y, z) is represented here by a length-3 array with element[0]
-        //       representing x, element[1] representing y and element[2] representing z.
+        final LocalGeometryWorkspace ws = new LocalGeometryWorkspace();
+        if (!getNeighbourHeights(localDEM, x - x0, y - y0, demNoDataValue, ws.heights)) {
+            return;
+        }
+
+        computeLocalIncidenceAngle(lg.rightPointLat, lg.rightPointLon, lg.leftPointLat, lg.leftPointLon,
+                lg.upPointLat, lg.upPointLon, lg.downPointLat, lg.downPointLon,
+                lg.centrePoint.x, lg.centrePoint.y, lg.centrePoint.z,
+                lg.sensorPos.x, lg.sensorPos.y, lg.sensorPos.z,
+                saveLocalIncidenceAngle, saveProjectedLocalIncidenceAngle, saveSigmaNought, localIncidenceAngles, ws);
+    }
+
+    /**
+     * Compute local incidence angle and projected local incidence angle (in degree) without allocation.
+     * The neighbouring geo positions are taken from the tile georeferencing, equivalent to building a
+     * LocalGeometry for the pixel.
+     *
+     * @param tileGeoRef                       The tile georeferencing.
+     * @param centrePoint                      The earth point of the current pixel in xyz coordinate.
+     * @param sensorPos                        The sensor position at the zero Doppler time of the pixel.
+     * @param demNoDataValue                   The DEM no data value.
+     * @param saveLocalIncidenceAngle          Boolean flag indicating saving local incidence angle.
+     * @param saveProjectedLocalIncidenceAngle Boolean flag indicating saving projected local incidence angle.
+     * @param saveSigmaNought                  Boolean flag indicating applying radiometric calibration.
+     * @param x0                               The x coordinate of the pixel at the upper left corner of current tile.
+     * @param y0                               The y coordinate of the pixel at the upper left corner of current tile.
+     * @param x                                The x coordinate of the current pixel.
+     * @param y                                The y coordinate of the current pixel.
+     * @param localDEM                         The local DEM.
+     * @param localIncidenceAngles             The local incidence angle and projected local incidence angle.
+     * @param ws                               Scratch vectors reused between calls by the same thread.
+     */
+    public static void computeLocalIncidenceAngle(
+            final TileGeoreferencing tileGeoRef, final PosVector centrePoint, final PosVector sensorPos,
+            final double demNoDataValue, final boolean saveLocalIncidenceAngle,
+            final boolean saveProjectedLocalIncidenceAngle, final boolean saveSigmaNought, final int x0,
+            final int y0, final int x, final int y, final double[][] localDEM, final double[] localIncidenceAngles,
+            final LocalGeometryWorkspace ws) {
+
+        if (!getNeighbourHeights(localDEM, x - x0, y - y0, demNoDataValue, ws.heights)) {
+            return;
+        }
+
+        final GeoPos geo = ws.geo;
+        tileGeoRef.getGeoPos(x + 1, y, geo);
+        final double rightLat = geo.lat, rightLon = geo.lon;
+        tileGeoRef.getGeoPos(x - 1, y, geo);
+        final double leftLat = geo.lat, leftLon = geo.lon;
+        tileGeoRef.getGeoPos(x, y - 1, geo);
+        final double upLat = geo.lat, upLon = geo.lon;
+        tileGeoRef.getGeoPos(x, y + 1, geo);
+
+        computeLocalIncidenceAngle(rightLat, rightLon, leftLat, leftLon, upLat, upLon, geo.lat, geo.lon,
+                centrePoint.x, centrePoint.y, centrePoint.z, sensorPos.x, sensorPos.y, sensorPos.z,
+                saveLocalIncidenceAngle, saveProjectedLocalIncidenceAngle, saveSigmaNought, localIncidenceAngles, ws);
+    }
+
+    /**
+     * Average the heights of the right, left, up and down sides of the 3x3 DEM window centred on a pixel.
+     *
+     * @param xx      The x index of the upper left corner of the window in the local DEM.
+     * @param yy      The y index of the upper left corner of the window in the local DEM.
+     * @param heights The right, left, up and down point heights (output).
+     * @return false if any height of the window is no data.
+     */
+    private static boolean getNeighbourHeights(final double[][] localDEM, final int xx, final int yy,
+                                               final double demNoDataValue, final double[] heights) {
 
         for (int i = 0; i < 3; i++) {
-            final int yy = y - y0 + i;
+            final double[] demRow = localDEM[yy + i];
             for (int j = 0; j < 3; j++) {
-                if (demNoDataValue.equals(localDEM[yy][x - x0 + j])) {
-                    return;
+                if (Double.compare(demNoDataValue, demRow[xx + j]) == 0) {
+                    return false;
                 }
             }
         }
 
-        final int yy = y - y0;
-        final int xx = x - x0;
-        final double rightPointHeight = (localDEM[yy][xx + 2] +
-                localDEM[yy + 1][xx + 2] +
-                localDEM[yy + 2][xx + 2]) / 3.0;
-
-        final double leftPointHeight = (localDEM[yy][xx] +
-                localDEM[yy + 1][xx] +
-                localDEM[yy + 2][xx]) / 3.0;
-
-        final double upPointHeight = (localDEM[yy][xx] +
-                localDEM[yy][xx + 1] +
-                localDEM[yy][xx + 2]) / 3.0;
+        heights[0] = (localDEM[yy][xx + 2] + localDEM[yy + 1][xx + 2] + localDEM[yy + 2][xx + 2]) / 3.0;
+        heights[1] = (localDEM[yy][xx] + localDEM[yy + 1][xx] + localDEM[yy + 2][xx]) / 3.0;
+        heights[2] = (localDEM[yy][xx] + localDEM[yy][xx + 1] + localDEM[yy][xx + 2]) / 3.0;
+        heights[3] = (localDEM[yy + 2][xx] + localDEM[yy + 2][xx + 1] + localDEM[yy + 2][xx + 2]) / 3.0;
+        return true;
+    }
 
-        final double downPointHeight = (localDEM[yy + 2][xx] +
-                localDEM[yy + 2][xx + 1] +
-                localDEM[yy + 2][xx + 2]) / 3.0;
+    /**
+     * The local incidence angle kernel shared by the overloads above. The heights of the neighbouring points are
+     * in ws.heights, in the order right, left, up, down.
+     */
+    private static void computeLocalIncidenceAngle(
+            final double rightLat, final double rightLon, final double leftLat, final double leftLon,
+            final double upLat, final double upLon, final double downLat, final double downLon,
+            final double cx, final double cy, final double cz, final double sensorX, final double sensorY,
+            final double sensorZ, final boolean saveLocalIncidenceAngle,
+            final boolean saveProjectedLocalIncidenceAngle, final boolean saveSigmaNought,
+            final double[] localIncidenceAngles, final LocalGeometryWorkspace ws) {
 
-        final PosVector rightPoint = new PosVector();
-        final PosVector leftPoint = new PosVector();
-        final PosVector upPoint = new PosVector();
-        final PosVector downPoint = new PosVector();
+        // Note: For algorithm and notation of the following implementation, please see Andrea's email dated
+        //       May 29, 2009 and Marcus' email dated June 3, 2009, or see Eq (14.10) and Eq (14.11) on page
+        //       321 and 323 in "SAR Geocoding - Data and Systems".
 
-        GeoUtils.geo2xyzWGS84(lg.rightPointLat, lg.rightPointLon, rightPointHeight, rightPoint);
-        GeoUtils.geo2xyzWGS84(lg.leftPointLat, lg.leftPointLon, leftPointHeight, leftPoint);
-        GeoUtils.geo2xyzWGS84(lg.upPointLat, lg.upPointLon, upPointHeight, upPoint);
-        GeoUtils.geo2xyzWGS84(lg.downPointLat, lg.downPointLon, downPointHeight, downPoint);
+        final double[] heights = ws.heights;
+        GeoUtils.geo2xyzWGS84(rightLat, rightLon, heights[0], ws.rightPoint);
+        GeoUtils.geo2xyzWGS84(leftLat, leftLon, heights[1], ws.leftPoint);
+        GeoUtils.geo2xyzWGS84(upLat, upLon, heights[2], ws.upPoint);
+        GeoUtils.geo2xyzWGS84(downLat, downLon, heights[3], ws.downPoint);
 
-        final PosVector a = new PosVector(rightPoint.x - leftPoint.x, rightPoint.y - leftPoint.y, rightPoint.z - leftPoint.z);
-        final PosVector b = new PosVector(downPoint.x - upPoint.x, downPoint.y - upPoint.y, downPoint.z - upPoint.z);
-        final PosVector c = new PosVector(lg.centrePoint.x, lg.centrePoint.y, lg.centrePoint.z);
+        final double ax = ws.rightPoint.x - ws.leftPoint.x;
+        final double ay = ws.rightPoint.y - ws.leftPoint.y;
+        final double az = ws.rightPoint.z - ws.leftPoint.z;
+        final double bx = ws.downPoint.x - ws.upPoint.x;
+        final double by = ws.downPoint.y - ws.upPoint.y;
+        final double bz = ws.downPoint.z - ws.upPoint.z;
 
-        final PosVector n = new PosVector(
-                a.y * b.z - a.z * b.y,
-                a.z * b.x - a.x * b.z,
-                a.x * b.y - a.y * b.x); // ground plane normal
+        final PosVector n = ws.normal; // ground plane normal
+        n.x = ay * bz - az * by;
+        n.y = az * bx - ax * bz;
+        n.z = ax * by - ay * bx;
 
         Maths.normalizeVector(n);
-        if (Maths.innerProduct(n, c) < 0) {
+        if (n.x * cx + n.y * cy + n.z * cz < 0) {
             n.x = -n.x;
             n.y = -n.y;
             n.z = -n.z;
         }
 
-        final PosVector s = new PosVector(
-                lg.sensorPos.x - lg.centrePoint.x,
-                lg.sensorPos.y - lg.centrePoint.y,
-                lg.sensorPos.z - lg.centrePoint.z);
+        final PosVector s = ws.sensorDirection;
+        s.x = sensorX - cx;
+        s.y = sensorY - cy;
+        s.z = sensorZ - cz;
         Maths.normalizeVector(s);
 
         if (saveLocalIncidenceAngle) { // local incidence angle
@@ -576,15 +845,37 @@ public final class SARGeocoding {
         }
 
         if (saveProjectedLocalIncidenceAngle || saveSigmaNought) { // projected local incidence angle
-            final PosVector m = new PosVector(s.y * c.z - s.z * c.y, s.z * c.x - s.x * c.z, s.x * c.y - s.y * c.x); // range plane normal
+            final PosVector m = ws.rangePlaneNormal;
+            m.x = s.y * cz - s.z * cy;
+            m.y = s.z * cx - s.x * cz;
+            m.z = s.x * cy - s.y * cx;
             Maths.normalizeVector(m);
             final double mnInnerProduct = Maths.innerProduct(m, n);
-            final PosVector n1 = new PosVector(n.x - m.x * mnInnerProduct, n.y - m.y * mnInnerProduct, n.z - m.z * mnInnerProduct);
+            final PosVector n1 = ws.projectedNormal;
+            n1.x = n.x - m.x * mnInnerProduct;
+            n1.y = n.y - m.y * mnInnerProduct;
+            n1.z = n.z - m.z * mnInnerProduct;
             Maths.normalizeVector(n1);
             localIncidenceAngles[1] = FastMath.acos(Maths.innerProduct(n1, s)) * Constants.RTOD;
         }
     }
 
+    /**
+     * Scratch objects for computing local incidence angles. Not thread safe, use one instance per thread.
+     */
+    public static final class LocalGeometryWorkspace {
+        final GeoPos geo = new GeoPos();
+        final double[] heights = new double[4];
+        final PosVector rightPoint = new PosVector();
+        final PosVector leftPoint = new PosVector();
+        final PosVector upPoint = new PosVector();
+        final PosVector downPoint = new PosVector();
+        final PosVector normal = new PosVector();
+        final PosVector sensorDirection = new PosVector();
+        final PosVector rangePlaneNormal = new PosVector();
+        final PosVector projectedNormal = new PosVector();
+    }
+
     public static void computeLocalIncidenceAngle(
             final LocalGeometry lg, final double demNoDataValue, final boolean saveLocalIncidenceAngle,
             final boolean saveProjectedLocalIncidenceAngle, final boolean saveSigmaNought, final int x0,
@@ -819,6 +1110,25 @@ public final class SARGeocoding {
                                       final double lat, final double lon, final int diffLat,
                                       final GeoCoding geoCoding,
                                       final int srcMaxRange, final int srcMaxAzimuth, final PosVector sensorPos) {
+        return isValidCell(rangeIndex, azimuthIndex, lat, lon, diffLat, geoCoding, srcMaxRange, srcMaxAzimuth,
+                           sensorPos, new ValidCellWorkspace());
+    }
+
+    /**
+     * Scratch objects for checking valid cells. Not thread safe, use one instance per thread.
+     */
+    public static final class ValidCellWorkspace {
+        final GeoPos sensorGeoPos = new GeoPos();
+        final GeoPos geoPos = new GeoPos();
+        final PixelPos pixelPos = new PixelPos();
+        final double[] xyz = new double[3];
+    }
+
+    public static boolean isValidCell(final double rangeIndex, final double azimuthIndex,
+                                      final double lat, final double lon, final int diffLat,
+                                      final GeoCoding geoCoding,
+                                      final int srcMaxRange, final int srcMaxAzimuth, final PosVector sensorPos,
+                                      final ValidCellWorkspace ws) {
 
         if (rangeIndex < 0.0 || rangeIndex >= srcMaxRange || azimuthIndex < 0.0 || azimuthIndex >= srcMaxAzimuth) {
             return false;
@@ -829,8 +1139,11 @@ public final class SARGeocoding {
             return true;
         }
 
-        final GeoPos sensorGeoPos = new GeoPos();
-        GeoUtils.xyz2geo(sensorPos.toArray(), sensorGeoPos, GeoUtils.EarthModel.WGS84);
+        final GeoPos sensorGeoPos = ws.sensorGeoPos;
+        ws.xyz[0] = sensorPos.x;
+        ws.xyz[1] = sensorPos.y;
+        ws.xyz[2] = sensorPos.z;
+        GeoUtils.xyz2geo(ws.xyz, sensorGeoPos, GeoUtils.EarthModel.WGS84);
         final double delLatMax = Math.abs(lat - sensorGeoPos.lat);
         double delLonMax;
         if (lon < 0 && sensorGeoPos.lon > 0) {
@@ -841,7 +1154,8 @@ public final class SARGeocoding {
             delLonMax = Math.abs(lon - sensorGeoPos.lon);
         }
 
-        final GeoPos geoPos = geoCoding.getGeoPos(new PixelPos(rangeIndex, azimuthIndex), null);
+        ws.pixelPos.setLocation(rangeIndex, azimuthIndex);
+        final GeoPos geoPos = geoCoding.getGeoPos(ws.pixelPos, ws.geoPos);
         final double delLat = Math.abs(lat - geoPos.lat);
         final double srcLon = geoPos.lon;
 
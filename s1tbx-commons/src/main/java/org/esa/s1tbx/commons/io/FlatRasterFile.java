@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons.io;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.core.datamodel.ProductData;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A headerless raster of one or more bands stored band sequential, band interleaved by line or band interleaved
+ * by pixel, after an optional header of fixed length.
+ * <p>
+ * Lines are read with positional reads on a FileChannel into a buffer of the calling request, so any number of
+ * threads may read the same file without locking. Consecutive lines of a request are fetched as one block of at most
+ * 4 MB and decoded through a typed view of the block in the byte order of the file, straight into the destination
+ * buffer. Complex data with the real and imaginary parts interleaved is read as two bands interleaved by pixel.
+ */
+public final class FlatRasterFile implements Closeable {
+
+    public enum Interleave {BSQ, BIL, BIP}
+
+    private static final int MAX_BLOCK_BYTES = 4 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long headerOffset;
+    private final int width;
+    private final int height;
+    private final int numBands;
+    private final int elemSize;
+    private final Interleave interleave;
+    private final ByteOrder byteOrder;
+
+    /**
+     * Open a raster file for reading.
+     *
+     * @param file         the image file
+     * @param headerOffset number of bytes before the first sample
+     * @param width        raster width
+     * @param height       raster height
+     * @param numBands     number of bands in the file
+     * @param dataType     the ProductData type of the samples
+     * @param interleave   the band interleave
+     * @param byteOrder    the byte order of the samples
+     * @throws IOException if the file cannot be opened
+     */
+    public FlatRasterFile(final File file, final long headerOffset, final int width, final int height,
+                          final int numBands, final int dataType, final Interleave interleave,
+                          final ByteOrder byteOrder) throws IOException {
+        this.headerOffset = headerOffset;
+        this.width = width;
+        this.height = height;
+        this.numBands = numBands;
+        this.elemSize = ProductData.getElemSize(dataType);
+        this.interleave = interleave;
+        this.byteOrder = byteOrder;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    }
+
+    private long getLinePos(final int band, final int y) {
+        switch (interleave) {
+            case BSQ:
+                return headerOffset + ((long) band * height + y) * width * elemSize;
+            case BIL:
+                return headerOffset + ((long) y * numBands + band) * width * elemSize;
+            default:
+                return headerOffset + ((long) y * width * numBands + band) * elemSize;
+        }
+    }
+
+    private long getLineStride() {
+        return interleave == Interleave.BSQ ? (long) width * elemSize : (long) width * numBands * elemSize;
+    }
+
+    private int getPixelStride() {
+        return interleave == Interleave.BIP ? numBands : 1;
+    }
+
+    /**
+     * Read a window of a band. The destination buffer must be of the data type of the file.
+     *
+     * @param band the band index in the file, starting from 0
+     */
+    public void readBandRasterData(final int band, final int sourceOffsetX, final int sourceOffsetY,
+                                   final int sourceWidth, final int sourceHeight,
+                                   final int sourceStepX, final int sourceStepY,
+                                   final ProductData destBuffer, final ProgressMonitor pm) throws IOException {
+
+        final int sourceMaxY = sourceOffsetY + sourceHeight - 1;
+        final int destWidth = (sourceWidth - 1) / sourceStepX + 1;
+        final int pixelStride = getPixelStride();
+        final long lineStride = getLineStride();
+        final long xpos = (long) sourceOffsetX * pixelStride * elemSize;
+        final int lineBytes = ((destWidth - 1) * sourceStepX * pixelStride + 1) * elemSize;
+
+        // with a line step only the requested lines are read
+        final long maxLines = Math.max(1, MAX_BLOCK_BYTES / lineStride);
+        final int linesPerBlock = sourceStepY == 1 ? (int) Math.max(1, Math.min(sourceHeight, maxLines)) : 1;
+        final ByteBuffer block = ByteBuffer.allocate((int) ((linesPerBlock - 1) * lineStride) + lineBytes)
+                .order(byteOrder);
+        final Buffer view = createView(block, destBuffer.getElems());
+        final int lineStrideElems = (int) (lineStride / elemSize);
+
+        pm.beginTask("Reading band...", sourceMaxY - sourceOffsetY);
+        try {
+            int blockFirstLine = -1;
+            int blockNumLines = 0;
+            int destPos = 0;
+            for (int y = sourceOffsetY; y <= sourceMaxY; y += sourceStepY) {
+                if (pm.isCanceled()) {
+                    break;
+                }
+
+                if (y >= blockFirstLine + blockNumLines) {
+                    blockNumLines = Math.min(linesPerBlock, sourceMaxY - y + 1);
+                    blockFirstLine = y;
+                    block.clear();
+                    block.limit((int) ((blockNumLines - 1) * lineStride) + lineBytes);
+                    read(block, getLinePos(band, y) + xpos, y);
+                }
+
+                copyLine(view, (y - blockFirstLine) * lineStrideElems, sourceStepX * pixelStride,
+                         destBuffer.getElems(), destPos, destWidth);
+                destPos += destWidth;
+
+                pm.worked(1);
+            }
+        } finally {
+            pm.done();
+        }
+    }
+
+    private void read(final ByteBuffer buffer, final long pos, final int y) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, pos + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of image file at line " + y);
+            }
+        }
+    }
+
+    private static Buffer createView(final ByteBuffer block, final Object elems) {
+        if (elems instanceof short[]) {
+            return block.asShortBuffer();
+        } else if (elems instanceof int[]) {
+            return block.asIntBuffer();
+        } else if (elems instanceof float[]) {
+            return block.asFloatBuffer();
+        } else if (elems instanceof double[]) {
+            return block.asDoubleBuffer();
+        } else if (elems instanceof long[]) {
+            return block.asLongBuffer();
+        } else if (elems instanceof byte[]) {
+            return block;
+        }
+        throw new IllegalArgumentException("Unsupported destination buffer " + elems.getClass().getSimpleName());
+    }
+
+    private static void copyLine(final Buffer view, final int start, final int step,
+                                 final Object elems, final int destPos, final int destWidth) {
+        if (step == 1) {
+            view.position(start);
+            if (elems instanceof short[]) {
+                ((ShortBuffer) view).get((short[]) elems, destPos, destWidth);
+            } else if (elems instanceof int[]) {
+                ((IntBuffer) view).get((int[]) elems, destPos, destWidth);
+            } else if (elems instanceof float[]) {
+                ((FloatBuffer) view).get((float[]) elems, destPos, destWidth);
+            } else if (elems instanceof double[]) {
+                ((DoubleBuffer) view).get((double[]) elems, destPos, destWidth);
+            } else if (elems instanceof long[]) {
+                ((LongBuffer) view).get((long[]) elems, destPos, destWidth);
+            } else {
+                ((ByteBuffer) view).get((byte[]) elems, destPos, destWidth);
+            }
+            return;
+        }
+
+        if (elems instanceof short[]) {
+            final ShortBuffer src = (ShortBuffer) view;
+            final short[] dest = (short[]) elems;
+            for (int x = 0, i = start; x < destWidth; ++x, i += step) {
+                dest[destPos + x] = src.get(i);
+            }
+        } else if (elems instanceof int[]) {
+            final IntBuffer src = (IntBuffer) view;
+            final int[] dest = (int[]) elems;
+            for (int x = 0, i = start; x < destWidth; ++x, i += step) {
+                dest[destPos + x] = src.get(i);
+            }
+        } else if (elems instanceof float[]) {
+            final FloatBuffer src = (FloatBuffer) view;
+            final float[] dest = (float[]) elems;
+            for (int x = 0, i = start; x < destWidth; ++x, i += step) {
+                dest[destPos + x] = src.get(i);
+            }
+        } else if (elems instanceof double[]) {
+            final DoubleBuffer src = (DoubleBuffer) view;
+            final double[] dest = (double[]) elems;
+            for (int x = 0, i = start; x < destWidth; ++x, i += step) {
+                dest[destPos + x] = src.get(i);
+            }
+        } else if (elems instanceof long[]) {
+            final LongBuffer src = (LongBuffer) view;
+            final long[] dest = (long[]) elems;
+            for (int x = 0, i = start; x < destWidth; ++x, i += step) {
+                dest[destPos + x] = src.get(i);
+            }
+        } else {
+            final ByteBuffer src = (ByteBuffer) view;
+            final byte[] dest = (byte[]) elems;
+            for (int x = 0, i = start; x < destWidth; ++x, i += step) {
+                dest[destPos + x] = src.get(i);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
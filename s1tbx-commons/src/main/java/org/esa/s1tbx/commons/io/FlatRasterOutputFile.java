@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons.io;
+
+import org.esa.snap.core.datamodel.ProductData;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The output counterpart of {@link FlatRasterFile}: a headerless raster of one or more bands stored band sequential,
+ * band interleaved by line or band interleaved by pixel.
+ * <p>
+ * Tiles are encoded in the byte order of the file into a direct buffer of the calling thread and written with
+ * positional writes on a FileChannel, so any number of threads may write disjoint rectangles of the file without
+ * locking. The buffer is shared by all files written on the thread and holds at most 4 MB. Lines that are
+ * contiguous in the file are written with one call. Nothing is buffered by the writer; written data is in the
+ * operating system cache once a write method returns.
+ */
+public final class FlatRasterOutputFile implements Closeable {
+
+    private static final int MAX_BLOCK_BYTES = 4 * 1024 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> threadBuffer = new ThreadLocal<>();
+
+    private final FileChannel channel;
+    private final long headerOffset;
+    private final int width;
+    private final int height;
+    private final int numBands;
+    private final int elemSize;
+    private final boolean isFloat;
+    private final int dataType;
+    private final FlatRasterFile.Interleave interleave;
+    private final ByteOrder byteOrder;
+
+    /**
+     * Open a raster file for writing. The file is created if it does not exist.
+     *
+     * @param file         the image file
+     * @param headerOffset number of bytes before the first sample
+     * @param width        raster width
+     * @param height       raster height
+     * @param numBands     number of bands in the file
+     * @param dataType     the ProductData type of the samples in the file
+     * @param interleave   the band interleave
+     * @param byteOrder    the byte order of the samples
+     * @throws IOException if the file cannot be opened
+     */
+    public FlatRasterOutputFile(final File file, final long headerOffset, final int width, final int height,
+                                final int numBands, final int dataType, final FlatRasterFile.Interleave interleave,
+                                final ByteOrder byteOrder) throws IOException {
+        this.headerOffset = headerOffset;
+        this.width = width;
+        this.height = height;
+        this.numBands = numBands;
+        this.dataType = dataType;
+        this.elemSize = ProductData.getElemSize(dataType);
+        this.isFloat = ProductData.isFloatingPointType(dataType);
+        this.interleave = interleave;
+        this.byteOrder = byteOrder;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Write a rectangle of one band. Bands interleaved by pixel are written together with
+     * {@link #writeInterleavedRasterData}.
+     *
+     * @param band         the band index in the file, starting from 0
+     * @param sourceBuffer the samples of the rectangle, converted to the data type of the file if needed
+     */
+    public void writeBandRasterData(final int band, final int offsetX, final int offsetY,
+                                    final int rectWidth, final int rectHeight,
+                                    final ProductData sourceBuffer) throws IOException {
+        if (interleave == FlatRasterFile.Interleave.BIP && numBands > 1) {
+            throw new IllegalArgumentException("Bands interleaved by pixel must be written together");
+        }
+        writeRect(band, offsetX, offsetY, rectWidth, rectHeight, new ProductData[]{sourceBuffer});
+    }
+
+    /**
+     * Write a rectangle of all bands of a file interleaved by pixel, such as the real and imaginary parts of
+     * complex data.
+     *
+     * @param bandBuffers the samples of the rectangle for each band in file order
+     */
+    public void writeInterleavedRasterData(final int offsetX, final int offsetY,
+                                           final int rectWidth, final int rectHeight,
+                                           final ProductData... bandBuffers) throws IOException {
+        if (interleave != FlatRasterFile.Interleave.BIP || bandBuffers.length != numBands) {
+            throw new IllegalArgumentException("Expected " + numBands + " bands interleaved by pixel");
+        }
+        writeRect(0, offsetX, offsetY, rectWidth, rectHeight, bandBuffers);
+    }
+
+    private long getLinePos(final int band, final int y) {
+        switch (interleave) {
+            case BSQ:
+                return headerOffset + ((long) band * height + y) * width * elemSize;
+            case BIL:
+                return headerOffset + ((long) y * numBands + band) * width * elemSize;
+            default:
+                return headerOffset + ((long) y * width * numBands + band) * elemSize;
+        }
+    }
+
+    private long getLineStride() {
+        return interleave == FlatRasterFile.Interleave.BSQ ? (long) width * elemSize : (long) width * numBands * elemSize;
+    }
+
+    private ByteBuffer getBuffer(final int size) {
+        ByteBuffer buffer = threadBuffer.get();
+        if (buffer == null || buffer.capacity() < size) {
+            if (size > MAX_BLOCK_BYTES) {
+                // a single line longer than a block is not kept
+                buffer = ByteBuffer.allocate(size);
+            } else {
+                buffer = ByteBuffer.allocateDirect(size);
+                threadBuffer.set(buffer);
+            }
+        }
+        buffer.clear();
+        buffer.order(byteOrder);
+        return buffer;
+    }
+
+    private void writeRect(final int band, final int offsetX, final int offsetY,
+                           final int rectWidth, final int rectHeight, final ProductData[] sources) throws IOException {
+        final int lineElems = rectWidth * sources.length;
+        final int lineBytes = lineElems * elemSize;
+        final long lineStride = getLineStride();
+        final boolean contiguous = lineStride == lineBytes;
+        final long xpos = (long) offsetX * sources.length * elemSize;
+
+        final int linesPerBlock = Math.max(1, Math.min(rectHeight, MAX_BLOCK_BYTES / lineBytes));
+        final ByteBuffer buffer = getBuffer(linesPerBlock * lineBytes);
+
+        for (int line = 0; line < rectHeight; line += linesPerBlock) {
+            final int numLines = Math.min(linesPerBlock, rectHeight - line);
+            buffer.clear();
+            encode(buffer, sources, line * rectWidth, numLines * rectWidth);
+
+            final long pos = getLinePos(band, offsetY + line) + xpos;
+            if (contiguous) {
+                buffer.limit(numLines * lineBytes);
+                write(buffer, pos);
+            } else {
+                for (int l = 0; l < numLines; ++l) {
+                    buffer.limit((l + 1) * lineBytes);
+                    buffer.position(l * lineBytes);
+                    write(buffer, pos + l * lineStride);
+                }
+            }
+        }
+    }
+
+    private void write(final ByteBuffer buffer, final long pos) throws IOException {
+        final int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, pos + buffer.position() - start);
+        }
+    }
+
+    /**
+     * Encode numPixels pixels of the sources, from pixel srcPos on, interleaved by source.
+     */
+    private void encode(final ByteBuffer buffer, final ProductData[] sources, final int srcPos, final int numPixels) {
+        final int nb = sources.length;
+        if (nb == 1 && sources[0].getType() == dataType) {
+            final Object elems = sources[0].getElems();
+            if (elems instanceof short[]) {
+                buffer.asShortBuffer().put((short[]) elems, srcPos, numPixels);
+            } else if (elems instanceof int[]) {
+                buffer.asIntBuffer().put((int[]) elems, srcPos, numPixels);
+            } else if (elems instanceof float[]) {
+                buffer.asFloatBuffer().put((float[]) elems, srcPos, numPixels);
+            } else if (elems instanceof double[]) {
+                buffer.asDoubleBuffer().put((double[]) elems, srcPos, numPixels);
+            } else if (elems instanceof long[]) {
+                buffer.asLongBuffer().put((long[]) elems, srcPos, numPixels);
+            } else {
+                buffer.duplicate().put((byte[]) elems, srcPos, numPixels);
+            }
+            return;
+        }
+
+        // conversion to the data type of the file
+        if (elemSize == 1) {
+            for (int b = 0; b < nb; ++b) {
+                for (int i = 0; i < numPixels; ++i) {
+                    buffer.put(i * nb + b, (byte) (long) sources[b].getElemDoubleAt(srcPos + i));
+                }
+            }
+        } else if (elemSize == 2) {
+            final ShortBuffer view = buffer.asShortBuffer();
+            for (int b = 0; b < nb; ++b) {
+                for (int i = 0; i < numPixels; ++i) {
+                    view.put(i * nb + b, (short) (long) sources[b].getElemDoubleAt(srcPos + i));
+                }
+            }
+        } else if (elemSize == 4 && isFloat) {
+            final FloatBuffer view = buffer.asFloatBuffer();
+            for (int b = 0; b < nb; ++b) {
+                for (int i = 0; i < numPixels; ++i) {
+                    view.put(i * nb + b, sources[b].getElemFloatAt(srcPos + i));
+                }
+            }
+        } else if (elemSize == 4) {
+            final IntBuffer view = buffer.asIntBuffer();
+            for (int b = 0; b < nb; ++b) {
+                for (int i = 0; i < numPixels; ++i) {
+                    view.put(i * nb + b, (int) (long) sources[b].getElemDoubleAt(srcPos + i));
+                }
+            }
+        } else if (isFloat) {
+            final DoubleBuffer view = buffer.asDoubleBuffer();
+            for (int b = 0; b < nb; ++b) {
+                for (int i = 0; i < numPixels; ++i) {
+                    view.put(i * nb + b, sources[b].getElemDoubleAt(srcPos + i));
+                }
+            }
+        } else {
+            final LongBuffer view = buffer.asLongBuffer();
+            for (int b = 0; b < nb; ++b) {
+                for (int i = 0; i < numPixels; ++i) {
+                    view.put(i * nb + b, (long) sources[b].getElemDoubleAt(srcPos + i));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
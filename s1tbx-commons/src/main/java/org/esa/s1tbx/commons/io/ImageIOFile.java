@@ -33,7 +33,11 @@ import java.awt.image.*;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * Reader for ImageIO File
@@ -54,7 +58,25 @@ public class ImageIOFile {
     private ImageInputStream stream = null;
     private ImageReader reader;
 
+    // readers handed out per read request, the main reader is always part of the pool
+    private final ArrayDeque<ImageReader> idleReaders = new ArrayDeque<>();
+    private final List<ImageReader> pooledReaders = new ArrayList<>();
+    private final List<ImageInputStream> pooledStreams = new ArrayList<>();
+    private StreamFactory streamFactory = null;
+    private MappedRandomAccessFile mappedFile = null;
+    private int maxReaders = 1;
+    private int numReaders = 1;
+
     private static final boolean useFileCache = Config.instance().preferences().getBoolean("s1tbx.readers.useFileCache", false);
+    private static final int DEFAULT_READER_POOL_SIZE = Config.instance().preferences().getInt(
+            "s1tbx.readers.imageReaderPoolSize", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Opens an independent stream on the image file for an additional pooled reader
+     */
+    public interface StreamFactory {
+        ImageInputStream createStream() throws IOException;
+    }
 
     public ImageIOFile(final File inputFile, final ImageReader iioReader,
                        final File productInputFile) throws IOException {
@@ -84,6 +106,7 @@ public class ImageIOFile {
 
         reader = iioReader;
         initReader();
+        idleReaders.add(reader);
 
         this.numImages = numImages;
         this.numBands = numBands;
@@ -101,6 +124,7 @@ public class ImageIOFile {
 
         reader = iioReader;
         initReader();
+        idleReaders.add(reader);
 
         numImages = reader.getNumImages(!reader.isSeekForwardOnly());
         if(numImages < 0)
@@ -143,6 +167,94 @@ public class ImageIOFile {
         return reader;
     }
 
+    /**
+     * Allow concurrent reads of the image with up to the default number of readers.
+     * The additional readers share one memory mapping of the file, each with its own position.
+     *
+     * @param imageFile the image file on disk
+     */
+    public void enableReaderPool(final File imageFile) {
+        enableReaderPool(() -> new MappedImageInputStream(getMappedFile(imageFile)), DEFAULT_READER_POOL_SIZE);
+    }
+
+    private synchronized MappedRandomAccessFile getMappedFile(final File imageFile) throws IOException {
+        if (mappedFile == null) {
+            mappedFile = new MappedRandomAccessFile(imageFile);
+        }
+        return mappedFile;
+    }
+
+    /**
+     * Allow concurrent reads of the image with up to poolSize readers.
+     * Without a pool all reads share the one reader of the image.
+     *
+     * @param factory  opens the streams of the additional readers
+     * @param poolSize maximum number of readers
+     */
+    public void enableReaderPool(final StreamFactory factory, final int poolSize) {
+        synchronized (idleReaders) {
+            streamFactory = factory;
+            maxReaders = Math.max(1, poolSize);
+        }
+    }
+
+    /**
+     * Take a reader for exclusive use. Waits until a reader is free if the pool is exhausted.
+     * The reader must be given back with releaseReader.
+     *
+     * @return an image reader positioned on this image
+     * @throws IOException if no reader could be created
+     */
+    public ImageReader acquireReader() throws IOException {
+        synchronized (idleReaders) {
+            while (true) {
+                final ImageReader idleReader = idleReaders.pollFirst();
+                if (idleReader != null) {
+                    return idleReader;
+                }
+                if (streamFactory != null && numReaders < maxReaders) {
+                    ++numReaders;
+                    break;
+                }
+                try {
+                    idleReaders.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for a reader of " + name);
+                }
+            }
+        }
+
+        // open the new reader outside of the lock
+        try {
+            return createPooledReader();
+        } catch (IOException | RuntimeException e) {
+            synchronized (idleReaders) {
+                --numReaders;
+                idleReaders.notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    public void releaseReader(final ImageReader imageReader) {
+        synchronized (idleReaders) {
+            idleReaders.addFirst(imageReader);
+            idleReaders.notifyAll();
+        }
+    }
+
+    private ImageReader createPooledReader() throws IOException {
+        final ImageReader pooledReader = reader.getOriginatingProvider().createReaderInstance();
+        final ImageInputStream pooledStream = streamFactory.createStream();
+        pooledReader.setInput(pooledStream, false, true);
+        synchronized (idleReaders) {
+            pooledReaders.add(pooledReader);
+            pooledStreams.add(pooledStream);
+        }
+        return pooledReader;
+    }
+
     private static int bufferImageTypeToProductType(int biType) {
         switch (biType) {
             case BufferedImage.TYPE_CUSTOM:
@@ -198,6 +310,23 @@ public class ImageIOFile {
             stream.close();
         if (reader != null)
             reader.dispose();
+        synchronized (idleReaders) {
+            for (ImageReader pooledReader : pooledReaders) {
+                pooledReader.dispose();
+            }
+            for (ImageInputStream pooledStream : pooledStreams) {
+                pooledStream.close();
+            }
+            pooledReaders.clear();
+            pooledStreams.clear();
+            idleReaders.clear();
+        }
+        synchronized (this) {
+            if (mappedFile != null) {
+                mappedFile.close();
+                mappedFile = null;
+            }
+        }
     }
 
     public int getSceneWidth() throws IOException {
@@ -233,11 +362,8 @@ public class ImageIOFile {
                                       final int destWidth, final int destHeight,
                                       final int imageID,
                                       final int bandSampleOffset) throws IOException {
-        final ImageReadParam param = reader.getDefaultReadParam();
-        param.setSourceSubsampling(sourceStepX, sourceStepY,
-                sourceOffsetX % sourceStepX,
-                sourceOffsetY % sourceStepY);
-        final Raster data = getData(param, destOffsetX, destOffsetY, destWidth, destHeight);
+        final Raster data = getData(sourceOffsetX, sourceOffsetY, sourceStepX, sourceStepY,
+                destOffsetX, destOffsetY, destWidth, destHeight);
 
         final DataBuffer dataBuffer = data.getDataBuffer();
         final SampleModel sampleModel = data.getSampleModel();
@@ -281,17 +407,50 @@ public class ImageIOFile {
         }
     }
 
-    private synchronized Raster getData(final ImageReadParam param,
-                                        final int destOffsetX, final int destOffsetY,
-                                        final int destWidth, final int destHeight) throws IOException {
+    private Raster getData(final int sourceOffsetX, final int sourceOffsetY,
+                           final int sourceStepX, final int sourceStepY,
+                           final int destOffsetX, final int destOffsetY,
+                           final int destWidth, final int destHeight) throws IOException {
+        return readRaster(sourceOffsetX, sourceOffsetY, sourceStepX, sourceStepY,
+                new Rectangle(destOffsetX, destOffsetY, destWidth, destHeight));
+    }
+
+    /**
+     * Read a region of the subsampled image with a reader taken from the pool, so that different
+     * regions of the image can be read concurrently.
+     *
+     * @param sourceOffsetX the x offset in the source image, which sets the phase of the subsampling
+     * @param sourceOffsetY the y offset in the source image, which sets the phase of the subsampling
+     * @param sourceStepX   the subsampling in x
+     * @param sourceStepY   the subsampling in y
+     * @param destRect      the region to read in the subsampled image
+     * @return the raster of the region
+     * @throws IOException if the image cannot be read
+     */
+    public Raster readRaster(final int sourceOffsetX, final int sourceOffsetY,
+                             final int sourceStepX, final int sourceStepY,
+                             final Rectangle destRect) throws IOException {
+        final ImageReader imageReader = acquireReader();
         try {
-            final RenderedImage image = reader.readAsRenderedImage(0, param);
-            return image.getData(new Rectangle(destOffsetX, destOffsetY, destWidth, destHeight));
+            final ImageReadParam param = imageReader.getDefaultReadParam();
+            if (sourceStepX == 1 && sourceStepY == 1) {
+                // decode only the strips or tiles of the region, without a rendered image
+                param.setSourceRegion(destRect);
+                return imageReader.read(0, param).getRaster();
+            }
+
+            param.setSourceSubsampling(sourceStepX, sourceStepY,
+                    sourceOffsetX % sourceStepX,
+                    sourceOffsetY % sourceStepY);
+            final RenderedImage image = imageReader.readAsRenderedImage(0, param);
+            return image.getData(destRect);
         } catch (Exception e) {
             if(ZipUtils.isZip(productInputFile) && !ZipUtils.isValid(productInputFile)) {
                 throw new IOException("Zip file is corrupt "+productInputFile.getName());
             }
             throw e;
+        } finally {
+            releaseReader(imageReader);
         }
     }
 
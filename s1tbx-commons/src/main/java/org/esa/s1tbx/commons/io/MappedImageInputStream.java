@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons.io;
+
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageInputStreamImpl;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+
+/**
+ * An {@link ImageInputStream} reading through a cursor of a {@link MappedRandomAccessFile}.
+ * Several streams may share one mapping, each with its own position, so that concurrent
+ * readers of a file do not need their own file handle or buffer.
+ * Closing the stream does not release the shared mapping.
+ */
+public final class MappedImageInputStream extends ImageInputStreamImpl implements ImageInputStream {
+
+    private final MappedRandomAccessFile.Cursor cursor;
+
+    public MappedImageInputStream(final MappedRandomAccessFile mappedFile) throws IOException {
+        this.cursor = mappedFile.newCursor();
+        this.cursor.setByteOrder(byteOrder);
+    }
+
+    /**
+     * Map a file and open a stream on it. The mapping is released when the stream is garbage collected.
+     *
+     * @param file the file to read
+     * @return a stream over the mapped file
+     * @throws IOException if the file cannot be mapped
+     */
+    public static ImageInputStream createInputStream(final File file) throws IOException {
+        return new MappedImageInputStream(new MappedRandomAccessFile(file));
+    }
+
+    public MappedRandomAccessFile getMappedFile() {
+        return cursor.getMappedFile();
+    }
+
+    public File getFile() {
+        return cursor.getFile();
+    }
+
+    @Override
+    public void setByteOrder(final ByteOrder byteOrder) {
+        super.setByteOrder(byteOrder);
+        cursor.setByteOrder(byteOrder);
+    }
+
+    @Override
+    public int read() throws IOException {
+        bitOffset = 0;
+        final int val = cursor.read();
+        streamPos = cursor.getFilePointer();
+        return val;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        bitOffset = 0;
+        final int nbytes = cursor.readBytes(b, off, len);
+        streamPos = cursor.getFilePointer();
+        return nbytes;
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        bitOffset = 0;
+        final short val = cursor.readShort();
+        streamPos = cursor.getFilePointer();
+        return val;
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        bitOffset = 0;
+        final int val = cursor.readInt();
+        streamPos = cursor.getFilePointer();
+        return val;
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        bitOffset = 0;
+        final long val = cursor.readLong();
+        streamPos = cursor.getFilePointer();
+        return val;
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        bitOffset = 0;
+        final float val = cursor.readFloat();
+        streamPos = cursor.getFilePointer();
+        return val;
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        bitOffset = 0;
+        final double val = cursor.readDouble();
+        streamPos = cursor.getFilePointer();
+        return val;
+    }
+
+    @Override
+    public void readFully(final short[] s, final int off, final int len) throws IOException {
+        bitOffset = 0;
+        cursor.readShort(s, off, len);
+        streamPos = cursor.getFilePointer();
+    }
+
+    @Override
+    public void readFully(final int[] i, final int off, final int len) throws IOException {
+        bitOffset = 0;
+        cursor.readInt(i, off, len);
+        streamPos = cursor.getFilePointer();
+    }
+
+    @Override
+    public void readFully(final long[] l, final int off, final int len) throws IOException {
+        bitOffset = 0;
+        cursor.readLong(l, off, len);
+        streamPos = cursor.getFilePointer();
+    }
+
+    @Override
+    public void readFully(final float[] f, final int off, final int len) throws IOException {
+        bitOffset = 0;
+        cursor.readFloat(f, off, len);
+        streamPos = cursor.getFilePointer();
+    }
+
+    @Override
+    public void readFully(final double[] d, final int off, final int len) throws IOException {
+        bitOffset = 0;
+        cursor.readDouble(d, off, len);
+        streamPos = cursor.getFilePointer();
+    }
+
+    @Override
+    public long length() {
+        return cursor.length();
+    }
+
+    @Override
+    public void seek(final long pos) throws IOException {
+        super.seek(pos);
+        cursor.seek(pos);
+    }
+
+    @Override
+    public String toString() {
+        return "MappedImageInputStream which points to " + cursor.getFile();
+    }
+}
@@ -0,0 +1,462 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons.io;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only file mapped into memory once and shared by any number of cursors.
+ * <p>
+ * Each {@link Cursor} has its own position and byte order and offers the read methods of
+ * {@link EnhancedRandomAccessFile}. A cursor is confined to one thread; threads reading the same
+ * file concurrently each take their own cursor with {@link #newCursor()}. Reads are served from
+ * the mapping without system calls or intermediate buffers.
+ * <p>
+ * The file is mapped in chunks of 1 GB. The contents of the file must not change while it is mapped.
+ */
+public final class MappedRandomAccessFile implements Closeable {
+
+    private static final int CHUNK_SHIFT = 30;
+
+    private final File file;
+    private final long length;
+    private final int chunkShift;
+    private final long chunkMask;
+    private volatile MappedByteBuffer[] chunks;
+
+    /**
+     * Map a file for reading.
+     *
+     * @param file the file to map
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public MappedRandomAccessFile(final File file) throws IOException {
+        this(file, CHUNK_SHIFT);
+    }
+
+    /**
+     * Map a file for reading in chunks of a given size.
+     *
+     * @param file       the file to map
+     * @param chunkShift the base 2 logarithm of the chunk size in bytes
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    MappedRandomAccessFile(final File file, final int chunkShift) throws IOException {
+        this.file = file;
+        this.chunkShift = chunkShift;
+        final long chunkSize = 1L << chunkShift;
+        this.chunkMask = chunkSize - 1;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            final FileChannel channel = raf.getChannel();
+            length = channel.size();
+
+            final int numChunks = (int) ((length + chunkSize - 1) >>> chunkShift);
+            final MappedByteBuffer[] mapped = new MappedByteBuffer[numChunks];
+            for (int i = 0; i < numChunks; ++i) {
+                final long start = (long) i << chunkShift;
+                mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(chunkSize, length - start));
+            }
+            chunks = mapped;
+        }
+        // the mapping stays valid after the channel is closed
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public boolean isClosed() {
+        return chunks == null;
+    }
+
+    /**
+     * Create a new cursor positioned at the start of the file in big endian byte order.
+     *
+     * @return a cursor for use by the calling thread
+     * @throws IOException if the file has been closed
+     */
+    public Cursor newCursor() throws IOException {
+        return new Cursor(getChunks());
+    }
+
+    /**
+     * Release the mapping. Existing cursors fail on their next read.
+     * The memory is unmapped by the garbage collector once no cursor refers to it.
+     */
+    public void close() {
+        chunks = null;
+    }
+
+    private MappedByteBuffer[] getChunks() throws IOException {
+        final MappedByteBuffer[] mapped = chunks;
+        if (mapped == null) {
+            throw new IOException("Mapped file closed " + file);
+        }
+        return mapped;
+    }
+
+    @Override
+    public String toString() {
+        return "MappedRandomAccessFile " + file;
+    }
+
+    /**
+     * A read position over the shared mapping. Not thread safe; use one cursor per thread.
+     */
+    public final class Cursor implements DataInput {
+
+        private final ByteBuffer[] views;
+        private final byte[] scratch = new byte[8];
+        private final ByteBuffer scratchBuffer = ByteBuffer.wrap(scratch);
+        private long filePosition;
+
+        private Cursor(final MappedByteBuffer[] mapped) {
+            views = new ByteBuffer[mapped.length];
+            for (int i = 0; i < mapped.length; ++i) {
+                views[i] = mapped[i].duplicate();
+            }
+            setByteOrder(ByteOrder.BIG_ENDIAN);
+        }
+
+        public MappedRandomAccessFile getMappedFile() {
+            return MappedRandomAccessFile.this;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public long length() {
+            return length;
+        }
+
+        public void setByteOrder(final ByteOrder bo) {
+            for (ByteBuffer view : views) {
+                view.order(bo);
+            }
+            scratchBuffer.order(bo);
+        }
+
+        public ByteOrder getByteOrder() {
+            return scratchBuffer.order();
+        }
+
+        /**
+         * Set the position of the next read. Positions beyond the end of the file are allowed
+         * and read as end of file.
+         *
+         * @param pos the offset in bytes from the start of the file
+         * @return the new position
+         */
+        public long seek(final long pos) throws IOException {
+            if (pos < 0) {
+                throw new IOException("Negative seek offset " + pos);
+            }
+            filePosition = pos;
+            return filePosition;
+        }
+
+        public long getFilePointer() {
+            return filePosition;
+        }
+
+        public boolean isAtEndOfFile() {
+            return filePosition >= length;
+        }
+
+        /**
+         * Return the view holding the next n bytes, positioned at the read offset,
+         * or null if the bytes straddle two chunks.
+         */
+        private ByteBuffer view(final int n) throws IOException {
+            checkOpen();
+            if (filePosition + n > length) {
+                throw new EOFException();
+            }
+            final ByteBuffer view = views[(int) (filePosition >>> chunkShift)];
+            final int offset = (int) (filePosition & chunkMask);
+            if (offset + n > view.limit()) {
+                return null;
+            }
+            view.position(offset);
+            filePosition += n;
+            return view;
+        }
+
+        /**
+         * Copy the next n bytes into the scratch buffer for values straddling two chunks.
+         */
+        private ByteBuffer straddle(final int n) throws IOException {
+            readFully(scratch, 0, n);
+            scratchBuffer.clear();
+            return scratchBuffer;
+        }
+
+        private void checkOpen() throws IOException {
+            if (chunks == null) {
+                throw new IOException("Mapped file closed " + file);
+            }
+        }
+
+        /**
+         * Read a byte of data.
+         *
+         * @return the next byte of data, or -1 if the end of the file is reached.
+         */
+        public int read() throws IOException {
+            checkOpen();
+            if (filePosition >= length) {
+                return -1;
+            }
+            final ByteBuffer view = views[(int) (filePosition >>> chunkShift)];
+            final int b = view.get((int) (filePosition & chunkMask)) & 0xff;
+            filePosition++;
+            return b;
+        }
+
+        /**
+         * Read up to len bytes into an array, at a specified offset.
+         *
+         * @return the actual number of bytes read, or -1 if the end of the file has been reached.
+         */
+        public int readBytes(final byte[] b, final int off, final int len) throws IOException {
+            checkOpen();
+            if (len == 0) {
+                return 0;
+            }
+            if (filePosition >= length) {
+                return -1;
+            }
+            final int total = (int) Math.min(len, length - filePosition);
+            int done = 0;
+            while (done < total) {
+                final ByteBuffer view = views[(int) (filePosition >>> chunkShift)];
+                final int offset = (int) (filePosition & chunkMask);
+                final int n = Math.min(total - done, view.limit() - offset);
+                view.position(offset);
+                view.get(b, off + done, n);
+                done += n;
+                filePosition += n;
+            }
+            return total;
+        }
+
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            return readBytes(b, off, len);
+        }
+
+        public int read(final byte[] b) throws IOException {
+            return readBytes(b, 0, b.length);
+        }
+
+        public void readFully(final byte[] b) throws IOException {
+            readFully(b, 0, b.length);
+        }
+
+        public void readFully(final byte[] b, final int off, final int len) throws IOException {
+            if (filePosition + len > length) {
+                throw new EOFException();
+            }
+            readBytes(b, off, len);
+        }
+
+        public int skipBytes(final int n) throws IOException {
+            seek(filePosition + n);
+            return n;
+        }
+
+        public long skipBytes(final long n) throws IOException {
+            seek(filePosition + n);
+            return n;
+        }
+
+        public boolean readBoolean() throws IOException {
+            return readByte() != 0;
+        }
+
+        public byte readByte() throws IOException {
+            final int b = read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            return (byte) b;
+        }
+
+        public int readUnsignedByte() throws IOException {
+            return readByte() & 0xff;
+        }
+
+        public short readShort() throws IOException {
+            final ByteBuffer view = view(2);
+            return view != null ? view.getShort() : straddle(2).getShort();
+        }
+
+        public void readShort(final short[] pa, int start, int n) throws IOException {
+            while (n > 0) {
+                final ByteBuffer view = view(2);
+                if (view == null) {
+                    pa[start++] = straddle(2).getShort();
+                    --n;
+                    continue;
+                }
+                final int count = Math.min(n, view.remaining() / 2);
+                view.asShortBuffer().get(pa, start, count);
+                filePosition += 2L * (count - 1);
+                start += count;
+                n -= count;
+            }
+        }
+
+        public int readUnsignedShort() throws IOException {
+            return readShort() & 0xFFFF;
+        }
+
+        public char readChar() throws IOException {
+            return (char) readShort();
+        }
+
+        public int readInt() throws IOException {
+            final ByteBuffer view = view(4);
+            return view != null ? view.getInt() : straddle(4).getInt();
+        }
+
+        public void readInt(final int[] pa, int start, int n) throws IOException {
+            while (n > 0) {
+                final ByteBuffer view = view(4);
+                if (view == null) {
+                    pa[start++] = straddle(4).getInt();
+                    --n;
+                    continue;
+                }
+                final int count = Math.min(n, view.remaining() / 4);
+                view.asIntBuffer().get(pa, start, count);
+                filePosition += 4L * (count - 1);
+                start += count;
+                n -= count;
+            }
+        }
+
+        public long readUnsignedInt() throws IOException {
+            return ((long) readInt()) & 0xFFFFFFFFL;
+        }
+
+        public long readLong() throws IOException {
+            final ByteBuffer view = view(8);
+            return view != null ? view.getLong() : straddle(8).getLong();
+        }
+
+        public void readLong(final long[] pa, int start, int n) throws IOException {
+            while (n > 0) {
+                final ByteBuffer view = view(8);
+                if (view == null) {
+                    pa[start++] = straddle(8).getLong();
+                    --n;
+                    continue;
+                }
+                final int count = Math.min(n, view.remaining() / 8);
+                view.asLongBuffer().get(pa, start, count);
+                filePosition += 8L * (count - 1);
+                start += count;
+                n -= count;
+            }
+        }
+
+        public float readFloat() throws IOException {
+            final ByteBuffer view = view(4);
+            return view != null ? view.getFloat() : straddle(4).getFloat();
+        }
+
+        public void readFloat(final float[] pa, int start, int n) throws IOException {
+            while (n > 0) {
+                final ByteBuffer view = view(4);
+                if (view == null) {
+                    pa[start++] = straddle(4).getFloat();
+                    --n;
+                    continue;
+                }
+                final int count = Math.min(n, view.remaining() / 4);
+                view.asFloatBuffer().get(pa, start, count);
+                filePosition += 4L * (count - 1);
+                start += count;
+                n -= count;
+            }
+        }
+
+        public double readDouble() throws IOException {
+            final ByteBuffer view = view(8);
+            return view != null ? view.getDouble() : straddle(8).getDouble();
+        }
+
+        public void readDouble(final double[] pa, int start, int n) throws IOException {
+            while (n > 0) {
+                final ByteBuffer view = view(8);
+                if (view == null) {
+                    pa[start++] = straddle(8).getDouble();
+                    --n;
+                    continue;
+                }
+                final int count = Math.min(n, view.remaining() / 8);
+                view.asDoubleBuffer().get(pa, start, count);
+                filePosition += 8L * (count - 1);
+                start += count;
+                n -= count;
+            }
+        }
+
+        public String readLine() throws IOException {
+            final StringBuilder input = new StringBuilder();
+            int c;
+
+            while (((c = read()) != -1) && (c != '\n')) {
+                input.append((char) c);
+            }
+            if ((c == -1) && (input.length() == 0)) {
+                return null;
+            }
+            return input.toString();
+        }
+
+        public String readUTF() throws IOException {
+            return DataInputStream.readUTF(this);
+        }
+
+        /**
+         * Read a String of known length.
+         *
+         * @param nbytes number of bytes to read
+         * @return String wrapping the bytes.
+         */
+        public String readString(final int nbytes) throws IOException {
+            final byte[] data = new byte[nbytes];
+            readFully(data);
+            return new String(data);
+        }
+    }
+}
@@ -1,29 +1,340 @@
 package org.esa.s1tbx.commons.utils;
 
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.core.gpf.OperatorException;
+import org.esa.snap.core.util.SystemUtils;
+import org.esa.snap.runtime.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
 
+/**
+ * Runs the tasks of a parallel processing phase on a work-stealing pool shared by all operators.
+ * <p>
+ * The pool is bounded by the preference s1tbx.parallelism, by default the number of processors,
+ * so that operators running side by side do not oversubscribe the machine.
+ * complete() blocks until all submitted tasks have finished and rethrows the first failure.
+ * The thread calling complete() runs the tasks no worker has started yet itself, and waits for the
+ * others in {@link ForkJoinPool#managedBlock}. Tasks typically block in getSourceTile while JAI computes
+ * an upstream tile, which may itself wait in complete(), so waiting never depends on a free worker.
+ * Tasks not yet started are dropped once the progress monitor is canceled.
+ * Task counts and times are accumulated per executor name.
+ */
 public class ThreadExecutor {
 
-    private final ThreadPoolExecutor executor;
+    private static final int PARALLELISM = Math.max(1, Config.instance().preferences().getInt(
+            "s1tbx.parallelism", Runtime.getRuntime().availableProcessors()));
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private static final ForkJoinPool pool = new ForkJoinPool(PARALLELISM, p -> {
+        final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+        thread.setName("s1tbx-worker-" + thread.getPoolIndex());
+        return thread;
+    }, null, false);
+
+    private static final Map<String, TaskMetrics> metricsMap = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final ProgressMonitor pm;
+    private final TaskMetrics metrics;
+    private final List<Task<?>> tasks = new ArrayList<>();
+    private volatile boolean canceled = false;
 
     public ThreadExecutor() {
-        this(Runtime.getRuntime().availableProcessors());
+        this(ThreadExecutor.class.getSimpleName());
+    }
+
+    public ThreadExecutor(final String name) {
+        this(name, ProgressMonitor.NULL);
     }
 
-    public ThreadExecutor(final int maxThreads) {
-        this.executor = new ThreadPoolExecutor(maxThreads, maxThreads, 300, TimeUnit.SECONDS,
-                new LinkedBlockingQueue<>());
+    /**
+     * @param name name under which the task metrics are recorded, usually the operator
+     * @param pm   progress monitor checked for cancellation
+     */
+    public ThreadExecutor(final String name, final ProgressMonitor pm) {
+        this.name = name;
+        this.pm = pm == null ? ProgressMonitor.NULL : pm;
+        this.metrics = getMetrics(name);
+    }
+
+    /**
+     * @return the maximum number of tasks running at the same time
+     */
+    public static int getParallelism() {
+        return PARALLELISM;
+    }
+
+    /**
+     * @param name executor name
+     * @return the task metrics accumulated by all executors of that name
+     */
+    public static TaskMetrics getMetrics(final String name) {
+        return metricsMap.computeIfAbsent(name, TaskMetrics::new);
     }
 
     public void execute(final Runnable runnable) {
-        executor.execute(runnable);
+        submit(Executors.callable(runnable));
     }
 
+    public <T> Future<T> submit(final Callable<T> callable) {
+        if (isCanceled()) {
+            throw new OperatorException(name + " canceled");
+        }
+
+        final Task<T> task = new Task<>(callable);
+        metrics.submitted.increment();
+        synchronized (tasks) {
+            tasks.add(task);
+        }
+        if (ForkJoinTask.getPool() == pool) {
+            task.fork();
+        } else {
+            pool.execute(task);
+        }
+        return task;
+    }
+
+    private <T> T call(final Callable<T> callable) {
+        if (isCanceled()) {
+            throw new CancellationException();
+        }
+        final long start = System.nanoTime();
+        try {
+            final T result = callable.call();
+            metrics.completed(System.nanoTime() - start);
+            return result;
+        } catch (Throwable e) {
+            metrics.failed.increment();
+            throw new TaskFailure(e);
+        }
+    }
+
+    private boolean isCanceled() {
+        if (!canceled && pm.isCanceled()) {
+            canceled = true;
+        }
+        return canceled;
+    }
+
+    /**
+     * Wait for all submitted tasks to finish.
+     *
+     * @throws OperatorException if the progress monitor was canceled or a task failed with a checked exception.
+     *                           Runtime exceptions and errors of tasks are rethrown as they are.
+     */
     public void complete() {
-        executor.shutdown();
-        while (!executor.isTerminated()) {
+        final List<Task<?>> submitted;
+        synchronized (tasks) {
+            submitted = new ArrayList<>(tasks);
+            tasks.clear();
+        }
+
+        try {
+            // run the tasks not started by a worker on this thread
+            for (Task<?> task : submitted) {
+                if (isCanceled()) {
+                    throw new OperatorException(name + " canceled");
+                }
+                if (task.tryRun() && task.isCompletedAbnormally()) {
+                    break;
+                }
+            }
+            for (Task<?> task : submitted) {
+                await(task);
+            }
+        } catch (Throwable e) {
+            canceled = true;
+            for (Task<?> task : submitted) {
+                task.cancel(false);
+            }
+            rethrow(e);
+        }
+
+        if (SystemUtils.LOG.isLoggable(Level.FINE)) {
+            SystemUtils.LOG.fine(metrics.toString());
+        }
+    }
+
+    private void await(final Task<?> task) throws InterruptedException, ExecutionException {
+        if (!task.isDone()) {
+            ForkJoinPool.managedBlock(new TaskWaiter(task));
+            if (!task.isDone()) {
+                throw new OperatorException(name + " canceled");
+            }
+        }
+        task.get();
+    }
+
+    private void rethrow(Throwable e) {
+        if (e instanceof ExecutionException) {
+            e = e.getCause();
+        }
+        while (e instanceof TaskFailure) {
+            e = e.getCause();
+        }
+        if (e instanceof CancellationException) {
+            throw new OperatorException(name + " canceled");
+        }
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+        }
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        throw new OperatorException(e);
+    }
+
+    /**
+     * A task run exactly once, either by a worker of the pool or by the thread waiting in complete().
+     */
+    private final class Task<T> extends ForkJoinTask<T> {
+
+        private final Callable<T> callable;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private T result;
+
+        private Task(final Callable<T> callable) {
+            this.callable = callable;
+        }
+
+        /**
+         * @return false if the task has already been started by another thread
+         */
+        boolean tryRun() {
+            if (!claimed.compareAndSet(false, true)) {
+                return false;
+            }
+            try {
+                complete(call(callable));
+            } catch (Throwable e) {
+                completeExceptionally(e);
+            } finally {
+                finished.countDown();
+            }
+            return true;
+        }
+
+        @Override
+        public T getRawResult() {
+            return result;
+        }
+
+        @Override
+        protected void setRawResult(final T value) {
+            result = value;
+        }
+
+        @Override
+        protected boolean exec() {
+            // completed by tryRun, or by the thread which claimed it first
+            tryRun();
+            return false;
+        }
+    }
+
+    /**
+     * Waits for a task started by another thread, so that a waiting worker can be replaced in the pool.
+     */
+    private final class TaskWaiter implements ForkJoinPool.ManagedBlocker {
+
+        private final Task<?> task;
+
+        private TaskWaiter(final Task<?> task) {
+            this.task = task;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            if (pm == ProgressMonitor.NULL) {
+                task.finished.await();
+                return true;
+            }
+            return task.finished.await(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS) || isCanceled();
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return task.finished.getCount() == 0;
+        }
+    }
+
+    /**
+     * Carries the failure of a task to complete(). Without a public constructor the pool hands it on unchanged.
+     */
+    private static final class TaskFailure extends RuntimeException {
+        private TaskFailure(final Throwable cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Counts and times of the tasks run under one executor name
+     */
+    public static final class TaskMetrics {
+
+        private final String name;
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private TaskMetrics(final String name) {
+            this.name = name;
+        }
+
+        private void completed(final long nanos) {
+            completed.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public long getSubmittedCount() {
+            return submitted.sum();
+        }
+
+        public long getCompletedCount() {
+            return completed.sum();
+        }
+
+        public long getFailedCount() {
+            return failed.sum();
+        }
+
+        public double getTotalTaskMillis() {
+            return totalNanos.sum() / 1e6;
+        }
+
+        public double getMaxTaskMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return name + " tasks submitted=" + getSubmittedCount() + " completed=" + getCompletedCount() +
+                    " failed=" + getFailedCount() + " totalMillis=" + getTotalTaskMillis() +
+                    " maxMillis=" + getMaxTaskMillis();
         }
     }
 }
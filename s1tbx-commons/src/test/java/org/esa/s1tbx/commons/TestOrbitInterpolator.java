@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons;
+
+import org.esa.snap.core.datamodel.ProductData;
+import org.esa.snap.engine_utilities.datamodel.OrbitStateVector;
+import org.esa.snap.engine_utilities.datamodel.PosVector;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compare the precomputed orbit interpolation with Lagrange interpolation of the state vectors.
+ */
+public class TestOrbitInterpolator {
+
+    private static final int NUM_NODES = 8;
+    private static final double FIRST_TIME = 6000.0;                // MJD
+    private static final double INTERVAL = 10.0 / 86400.0;          // 10 s in days
+    private static final double RADIUS = 7.07e6;                    // m
+    private static final double OMEGA = 2.0 * Math.PI / 5924.0;     // rad/s
+    private static final double INCLINATION = Math.toRadians(98.18);
+
+    private static OrbitStateVector[] createOrbit(final int numVectors) {
+        final OrbitStateVector[] osv = new OrbitStateVector[numVectors];
+        final double cosI = Math.cos(INCLINATION);
+        final double sinI = Math.sin(INCLINATION);
+        for (int i = 0; i < numVectors; ++i) {
+            final double a = OMEGA * i * 10.0;
+            final double x = RADIUS * Math.cos(a), y = RADIUS * Math.sin(a);
+            final double vx = -RADIUS * OMEGA * Math.sin(a), vy = RADIUS * OMEGA * Math.cos(a);
+            osv[i] = new OrbitStateVector(new ProductData.UTC(FIRST_TIME + i * INTERVAL),
+                                          x, y * cosI, y * sinI, vx, vy * cosI, vy * sinI);
+        }
+        return osv;
+    }
+
+    /**
+     * Lagrange interpolation over the window of state vectors used by OrbitStateVectors.
+     */
+    private static void lagrange(final OrbitStateVector[] osv, final double time,
+                                 final PosVector position, final PosVector velocity) {
+        int i0, iN;
+        if (osv.length <= NUM_NODES) {
+            i0 = 0;
+            iN = osv.length - 1;
+        } else {
+            final double dt = (osv[osv.length - 1].time_mjd - osv[0].time_mjd) / (osv.length - 1);
+            i0 = Math.max((int) ((time - osv[0].time_mjd) / dt) - NUM_NODES / 2 + 1, 0);
+            iN = Math.min(i0 + NUM_NODES - 1, osv.length - 1);
+            i0 = (iN < osv.length - 1 ? i0 : iN - NUM_NODES + 1);
+        }
+
+        position.set(0, 0, 0);
+        velocity.set(0, 0, 0);
+        for (int i = i0; i <= iN; ++i) {
+            double weight = 1;
+            for (int j = i0; j <= iN; ++j) {
+                if (j != i) {
+                    weight *= (time - osv[j].time_mjd) / (osv[i].time_mjd - osv[j].time_mjd);
+                }
+            }
+            position.x += weight * osv[i].x_pos;
+            position.y += weight * osv[i].y_pos;
+            position.z += weight * osv[i].z_pos;
+            velocity.x += weight * osv[i].x_vel;
+            velocity.y += weight * osv[i].y_vel;
+            velocity.z += weight * osv[i].z_vel;
+        }
+    }
+
+    private static void compare(final int numVectors) {
+        final OrbitStateVector[] osv = createOrbit(numVectors);
+        final OrbitInterpolator interpolator = new OrbitInterpolator(osv, NUM_NODES);
+
+        final PosVector pos = new PosVector(), vel = new PosVector();
+        final PosVector expPos = new PosVector(), expVel = new PosVector();
+        for (int i = 0; i < numVectors - 1; ++i) {
+            // at the epoch, between two epochs and close to the next epoch
+            for (double f : new double[]{0.0, 0.5, 0.37, 0.999}) {
+                final double time = osv[i].time_mjd + f * INTERVAL;
+                interpolator.getPositionVelocity(time, pos, vel);
+                lagrange(osv, time, expPos, expVel);
+
+                assertEquals(expPos.x, pos.x, 1e-3);
+                assertEquals(expPos.y, pos.y, 1e-3);
+                assertEquals(expPos.z, pos.z, 1e-3);
+                assertEquals(expVel.x, vel.x, 1e-6);
+                assertEquals(expVel.y, vel.y, 1e-6);
+                assertEquals(expVel.z, vel.z, 1e-6);
+            }
+        }
+
+        // the state vectors are reproduced at their epochs
+        for (OrbitStateVector v : osv) {
+            interpolator.getPositionVelocity(v.time_mjd, pos, vel);
+            assertEquals(v.x_pos, pos.x, 1e-3);
+            assertEquals(v.z_pos, pos.z, 1e-3);
+            assertEquals(v.y_vel, vel.y, 1e-6);
+        }
+    }
+
+    @Test
+    public void testManyStateVectors() {
+        compare(60);
+    }
+
+    @Test
+    public void testFewerStateVectorsThanNodes() {
+        compare(5);
+    }
+
+    @Test
+    public void testComponentsAndAcceleration() {
+        final OrbitStateVector[] osv = createOrbit(30);
+        final OrbitInterpolator interpolator = new OrbitInterpolator(osv, NUM_NODES);
+
+        final PosVector pos = new PosVector(), vel = new PosVector(), acc = new PosVector();
+        final PosVector expPos = new PosVector(), expVel = new PosVector();
+        final double time = osv[12].time_mjd + 0.25 * INTERVAL;
+        interpolator.getPositionVelocity(time, expPos, expVel);
+
+        interpolator.getPosition(time, pos);
+        interpolator.getVelocity(time, vel);
+        assertEquals(expPos.y, pos.y, 0.0);
+        assertEquals(expVel.z, vel.z, 0.0);
+
+        // the time derivative of the velocity of a circular orbit points to the centre
+        interpolator.getPositionVelocityAcceleration(time, pos, vel, acc);
+        final double accPerSecond = OMEGA * OMEGA * RADIUS * 86400.0;
+        assertEquals(-pos.x / RADIUS * accPerSecond, acc.x, 1e-3 * accPerSecond);
+        assertEquals(-pos.z / RADIUS * accPerSecond, acc.z, 1e-3 * accPerSecond);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons;
+
+import org.esa.snap.core.datamodel.ProductData;
+import org.esa.snap.engine_utilities.datamodel.OrbitStateVector;
+import org.esa.snap.engine_utilities.datamodel.PosVector;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compare the batch zero Doppler solver with the bisection over the sensor positions of all range lines,
+ * on a synthetic circular orbit over a non rotating sphere where the exact zero Doppler time is known.
+ */
+public class TestSARGeocoding {
+
+    private static final double FIRST_TIME = 6000.0;                 // MJD
+    private static final double OSV_INTERVAL = 10.0;                 // s
+    private static final int NUM_OSV = 240;
+    private static final double LINE_TIME_INTERVAL = 1.0 / 86400.0;  // 1 s in days
+    private static final int NUM_LINES = (int) ((NUM_OSV - 1) * OSV_INTERVAL);
+    private static final double ORBIT_RADIUS = 7.07e6;
+    private static final double EARTH_RADIUS = 6.371e6;
+    private static final double OMEGA = 2.0 * Math.PI / 5924.0;      // rad/s
+    private static final double WAVELENGTH = 0.0555;
+
+    private final OrbitStateVector[] osv = createOrbit();
+    private final OrbitStateVectors orbit = new OrbitStateVectors(osv, FIRST_TIME, LINE_TIME_INTERVAL, NUM_LINES);
+
+    private static OrbitStateVector[] createOrbit() {
+        final OrbitStateVector[] osv = new OrbitStateVector[NUM_OSV];
+        for (int i = 0; i < NUM_OSV; ++i) {
+            final double a = OMEGA * i * OSV_INTERVAL;
+            osv[i] = new OrbitStateVector(new ProductData.UTC(FIRST_TIME + i * OSV_INTERVAL / 86400.0),
+                                          ORBIT_RADIUS * Math.cos(a), 0.0, ORBIT_RADIUS * Math.sin(a),
+                                          -ORBIT_RADIUS * OMEGA * Math.sin(a), 0.0, ORBIT_RADIUS * OMEGA * Math.cos(a));
+        }
+        return osv;
+    }
+
+    /**
+     * @param line      the image line at which the point is at zero Doppler
+     * @param crossTrack the angle of the point from the ground track in radians
+     */
+    private static double[] earthPoint(final double line, final double crossTrack) {
+        final double a = OMEGA * line * LINE_TIME_INTERVAL * 86400.0;
+        return new double[]{EARTH_RADIUS * Math.cos(crossTrack) * Math.cos(a),
+                EARTH_RADIUS * Math.sin(crossTrack),
+                EARTH_RADIUS * Math.cos(crossTrack) * Math.sin(a)};
+    }
+
+    private void checkRow(final double[] lines, final double[] crossTrack) {
+        final int n = lines.length;
+        final double[] x = new double[n], y = new double[n], z = new double[n];
+        for (int i = 0; i < n; ++i) {
+            final double[] p = earthPoint(lines[i], crossTrack[i]);
+            x[i] = p[0];
+            y[i] = p[1];
+            z[i] = p[2];
+        }
+
+        final double[] zeroDopplerTime = new double[n];
+        final double[] slantRange = new double[n];
+        final int numValid = SARGeocoding.computeZeroDopplerTimes(LINE_TIME_INTERVAL, orbit, x, y, z, n,
+                                                                  zeroDopplerTime, slantRange);
+        assertEquals(n, numValid);
+
+        for (int i = 0; i < n; ++i) {
+            final double exactTime = FIRST_TIME + lines[i] * LINE_TIME_INTERVAL;
+            final double baselineTime = SARGeocoding.getEarthPointZeroDopplerTime(
+                    FIRST_TIME, LINE_TIME_INTERVAL, WAVELENGTH, new PosVector(x[i], y[i], z[i]),
+                    orbit.sensorPosition, orbit.sensorVelocity);
+
+            assertEquals(exactTime, zeroDopplerTime[i], 1e-4 * LINE_TIME_INTERVAL);
+            assertEquals(baselineTime, zeroDopplerTime[i], 1e-2 * LINE_TIME_INTERVAL);
+
+            final double c = crossTrack[i];
+            final double expectedRange = Math.sqrt(ORBIT_RADIUS * ORBIT_RADIUS + EARTH_RADIUS * EARTH_RADIUS -
+                                                           2.0 * ORBIT_RADIUS * EARTH_RADIUS * Math.cos(c));
+            assertEquals(expectedRange, slantRange[i], 1e-2);
+        }
+    }
+
+    @Test
+    public void testNeighbouringPoints() {
+        final int n = 200;
+        final double[] lines = new double[n], crossTrack = new double[n];
+        for (int i = 0; i < n; ++i) {
+            lines[i] = 1000.3 + i * 0.02;
+            crossTrack[i] = 0.03 + i * 0.0002;
+        }
+        checkRow(lines, crossTrack);
+    }
+
+    @Test
+    public void testDistantPoints() {
+        // far enough apart for Newton iteration from the previous solution to leave the orbit
+        final double[] lines = {10.5, 2300.25, 40.75, 1700.5, 2380.0, 3.2, 1200.9};
+        final double[] crossTrack = {0.05, 0.02, 0.06, -0.04, 0.03, 0.01, 0.045};
+        checkRow(lines, crossTrack);
+    }
+
+    @Test
+    public void testPointsOutsideOrbit() {
+        final double[] before = earthPoint(-50.0, 0.04);
+        final double[] inside = earthPoint(800.4, 0.04);
+        final double[] after = earthPoint(NUM_LINES + 50.0, 0.04);
+        final double[] x = {inside[0], before[0], Double.NaN, after[0], inside[0]};
+        final double[] y = {inside[1], before[1], 0.0, after[1], inside[1]};
+        final double[] z = {inside[2], before[2], 0.0, after[2], inside[2]};
+
+        final double[] zeroDopplerTime = new double[x.length];
+        final double[] slantRange = new double[x.length];
+        final int numValid = SARGeocoding.computeZeroDopplerTimes(LINE_TIME_INTERVAL, orbit, x, y, z, x.length,
+                                                                  zeroDopplerTime, slantRange);
+        assertEquals(2, numValid);
+        assertEquals(SARGeocoding.NonValidZeroDopplerTime, zeroDopplerTime[1], 0.0);
+        assertEquals(SARGeocoding.NonValidZeroDopplerTime, zeroDopplerTime[2], 0.0);
+        assertEquals(SARGeocoding.NonValidZeroDopplerTime, zeroDopplerTime[3], 0.0);
+        assertEquals(FIRST_TIME + 800.4 * LINE_TIME_INTERVAL, zeroDopplerTime[4], 1e-4 * LINE_TIME_INTERVAL);
+    }
+}
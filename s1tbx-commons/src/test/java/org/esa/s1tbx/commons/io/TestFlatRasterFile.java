@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons.io;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.core.datamodel.ProductData;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for FlatRasterFile, reading windows of files written sample by sample in every interleave and byte order.
+ */
+public class TestFlatRasterFile {
+
+    private static final int HEADER = 17;
+    private static final ByteOrder[] BYTE_ORDERS = {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN};
+    private static final int[] DATA_TYPES = {ProductData.TYPE_INT8, ProductData.TYPE_INT16, ProductData.TYPE_INT32,
+            ProductData.TYPE_FLOAT32, ProductData.TYPE_FLOAT64};
+
+    private final List<File> files = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testInterleavesAndByteOrders() throws IOException {
+        final int width = 13, height = 11, numBands = 3;
+        for (FlatRasterFile.Interleave interleave : FlatRasterFile.Interleave.values()) {
+            for (ByteOrder order : BYTE_ORDERS) {
+                for (int dataType : DATA_TYPES) {
+                    final File file = writeFile(width, height, numBands, dataType, interleave, order);
+                    try (FlatRasterFile rasterFile = new FlatRasterFile(file, HEADER, width, height, numBands,
+                                                                        dataType, interleave, order)) {
+                        for (int band = 0; band < numBands; ++band) {
+                            final String msg = interleave + " " + order + " type " + dataType + " band " + band;
+                            checkWindow(msg, rasterFile, band, dataType, 0, 0, width, height, 1, 1);
+                            checkWindow(msg, rasterFile, band, dataType, 3, 2, 7, 8, 1, 1);
+                            checkWindow(msg, rasterFile, band, dataType, 1, 0, 12, 11, 2, 3);
+                            checkWindow(msg, rasterFile, band, dataType, 0, 4, 13, 6, 4, 1);
+                            checkWindow(msg, rasterFile, band, dataType, width - 1, height - 1, 1, 1, 1, 1);
+                            checkWindow(msg, rasterFile, band, dataType, 5, 0, 1, height, 1, 2);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testComplexImaginaryBand() throws IOException {
+        // Gamma and PolSARpro complex files: i and q interleaved by pixel, q read as band 1
+        final int width = 20, height = 9;
+        for (ByteOrder order : BYTE_ORDERS) {
+            final File file = writeFile(width, height, 2, ProductData.TYPE_FLOAT32,
+                                        FlatRasterFile.Interleave.BIP, order);
+            try (FlatRasterFile rasterFile = new FlatRasterFile(file, HEADER, width, height, 2,
+                                                                ProductData.TYPE_FLOAT32,
+                                                                FlatRasterFile.Interleave.BIP, order)) {
+                final ProductData q = ProductData.createInstance(ProductData.TYPE_FLOAT32, 4 * 3);
+                rasterFile.readBandRasterData(1, 2, 1, 7, 7, 2, 3, q, ProgressMonitor.NULL);
+                for (int j = 0; j < 3; ++j) {
+                    for (int i = 0; i < 4; ++i) {
+                        assertEquals(expected(ProductData.TYPE_FLOAT32, 1, 2 + 2 * i, 1 + 3 * j),
+                                     q.getElemDoubleAt(j * 4 + i), 0.0);
+                    }
+                }
+
+                checkWindow("i " + order, rasterFile, 0, ProductData.TYPE_FLOAT32, 0, 0, width, height, 3, 1);
+                checkWindow("q " + order, rasterFile, 1, ProductData.TYPE_FLOAT32, 0, 0, width, height, 3, 1);
+            }
+        }
+    }
+
+    @Test
+    public void testSingleBand() throws IOException {
+        // detected Gamma files hold one band read as band 0
+        final int width = 31, height = 5;
+        final File file = writeFile(width, height, 1, ProductData.TYPE_FLOAT32,
+                                    FlatRasterFile.Interleave.BSQ, ByteOrder.BIG_ENDIAN);
+        try (FlatRasterFile rasterFile = new FlatRasterFile(file, HEADER, width, height, 1,
+                                                            ProductData.TYPE_FLOAT32,
+                                                            FlatRasterFile.Interleave.BSQ, ByteOrder.BIG_ENDIAN)) {
+            checkWindow("single", rasterFile, 0, ProductData.TYPE_FLOAT32, 0, 0, width, height, 1, 1);
+            checkWindow("single", rasterFile, 0, ProductData.TYPE_FLOAT32, 10, 1, 20, 4, 5, 2);
+        }
+    }
+
+    @Test
+    public void testMultiBandBandSequential() throws IOException {
+        // the layout of GenericBSQWriter: each band after the previous one, in the native byte order
+        final int width = 8, height = 6, numBands = 5;
+        final File file = writeFile(width, height, numBands, ProductData.TYPE_INT16,
+                                    FlatRasterFile.Interleave.BSQ, ByteOrder.nativeOrder());
+        try (FlatRasterFile rasterFile = new FlatRasterFile(file, HEADER, width, height, numBands,
+                                                            ProductData.TYPE_INT16,
+                                                            FlatRasterFile.Interleave.BSQ, ByteOrder.nativeOrder())) {
+            for (int band = numBands - 1; band >= 0; --band) {
+                checkWindow("band " + band, rasterFile, band, ProductData.TYPE_INT16, 0, 0, width, height, 1, 1);
+                checkWindow("band " + band, rasterFile, band, ProductData.TYPE_INT16, 2, 3, 6, 3, 1, 1);
+            }
+        }
+    }
+
+    @Test
+    public void testReadInSeveralBlocks() throws IOException {
+        // 16 KB per line, so a full read is fetched in blocks of 256 lines
+        final int width = 1024, height = 600;
+        final File file = writeFile(width, height, 2, ProductData.TYPE_FLOAT64,
+                                    FlatRasterFile.Interleave.BIP, ByteOrder.LITTLE_ENDIAN);
+        try (FlatRasterFile rasterFile = new FlatRasterFile(file, HEADER, width, height, 2,
+                                                            ProductData.TYPE_FLOAT64,
+                                                            FlatRasterFile.Interleave.BIP, ByteOrder.LITTLE_ENDIAN)) {
+            checkWindow("blocks", rasterFile, 1, ProductData.TYPE_FLOAT64, 0, 0, width, height, 1, 1);
+            checkWindow("blocks", rasterFile, 0, ProductData.TYPE_FLOAT64, 100, 200, 900, 400, 3, 1);
+        }
+    }
+
+    @Test
+    public void testTruncatedFile() throws IOException {
+        final int width = 10, height = 10;
+        final File file = writeFile(width, height, 1, ProductData.TYPE_INT32,
+                                    FlatRasterFile.Interleave.BSQ, ByteOrder.BIG_ENDIAN);
+        try (FlatRasterFile rasterFile = new FlatRasterFile(file, HEADER, width, height + 1, 1,
+                                                            ProductData.TYPE_INT32,
+                                                            FlatRasterFile.Interleave.BSQ, ByteOrder.BIG_ENDIAN)) {
+            checkWindow("truncated", rasterFile, 0, ProductData.TYPE_INT32, 0, 0, width, height, 1, 1);
+            try {
+                rasterFile.readBandRasterData(0, 0, 5, width, 6, 1, 1,
+                                              ProductData.createInstance(ProductData.TYPE_INT32, width * 6),
+                                              ProgressMonitor.NULL);
+                fail("EOFException expected");
+            } catch (EOFException e) {
+                // expected
+            }
+        }
+    }
+
+    private static void checkWindow(final String msg, final FlatRasterFile rasterFile, final int band,
+                                    final int dataType, final int offsetX, final int offsetY,
+                                    final int w, final int h, final int stepX, final int stepY) throws IOException {
+        final int destWidth = (w - 1) / stepX + 1;
+        final int destHeight = (h - 1) / stepY + 1;
+        final ProductData dest = ProductData.createInstance(dataType, destWidth * destHeight);
+        rasterFile.readBandRasterData(band, offsetX, offsetY, w, h, stepX, stepY, dest, ProgressMonitor.NULL);
+
+        for (int j = 0; j < destHeight; ++j) {
+            for (int i = 0; i < destWidth; ++i) {
+                final int x = offsetX + i * stepX, y = offsetY + j * stepY;
+                assertEquals(msg + " x " + x + " y " + y, expected(dataType, band, x, y),
+                             dest.getElemDoubleAt(j * destWidth + i), 0.0);
+            }
+        }
+    }
+
+    /**
+     * @return the sample of a band at a pixel, as stored in the data type
+     */
+    private static double expected(final int dataType, final int band, final int x, final int y) {
+        final int value = band * 10000 + y * 37 + x;
+        switch (dataType) {
+            case ProductData.TYPE_INT8:
+                return (byte) value;
+            case ProductData.TYPE_INT16:
+                return (short) value;
+            case ProductData.TYPE_INT32:
+                return value * 1000;
+            case ProductData.TYPE_FLOAT32:
+                return value + 0.25f;
+            default:
+                return value + 0.125;
+        }
+    }
+
+    /**
+     * Write a file sample by sample, placing each sample by the definition of the interleave.
+     */
+    private File writeFile(final int width, final int height, final int numBands, final int dataType,
+                           final FlatRasterFile.Interleave interleave, final ByteOrder order) throws IOException {
+        final int elemSize = ProductData.getElemSize(dataType);
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER + width * height * numBands * elemSize).order(order);
+        for (int i = 0; i < HEADER; ++i) {
+            buffer.put(i, (byte) 0x5A);
+        }
+
+        for (int band = 0; band < numBands; ++band) {
+            for (int y = 0; y < height; ++y) {
+                for (int x = 0; x < width; ++x) {
+                    final long index;
+                    switch (interleave) {
+                        case BSQ:
+                            index = ((long) band * height + y) * width + x;
+                            break;
+                        case BIL:
+                            index = ((long) y * numBands + band) * width + x;
+                            break;
+                        default:
+                            index = ((long) y * width + x) * numBands + band;
+                    }
+                    final int pos = (int) (HEADER + index * elemSize);
+                    final double value = expected(dataType, band, x, y);
+                    switch (dataType) {
+                        case ProductData.TYPE_INT8:
+                            buffer.put(pos, (byte) value);
+                            break;
+                        case ProductData.TYPE_INT16:
+                            buffer.putShort(pos, (short) value);
+                            break;
+                        case ProductData.TYPE_INT32:
+                            buffer.putInt(pos, (int) value);
+                            break;
+                        case ProductData.TYPE_FLOAT32:
+                            buffer.putFloat(pos, (float) value);
+                            break;
+                        default:
+                            buffer.putDouble(pos, value);
+                    }
+                }
+            }
+        }
+
+        final File file = File.createTempFile("flatraster", ".img");
+        files.add(file);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(buffer.array());
+        }
+        return file;
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons.io;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.core.datamodel.ProductData;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for FlatRasterOutputFile, writing files in tiles and reading them back with FlatRasterFile.
+ */
+public class TestFlatRasterOutputFile {
+
+    private static final int HEADER = 9;
+
+    private final List<File> files = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testSingleBandRoundTrip() throws IOException {
+        final int width = 23, height = 17;
+        final int[] dataTypes = {ProductData.TYPE_INT8, ProductData.TYPE_INT16, ProductData.TYPE_INT32,
+                ProductData.TYPE_FLOAT32, ProductData.TYPE_FLOAT64};
+        for (FlatRasterFile.Interleave interleave : FlatRasterFile.Interleave.values()) {
+            for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+                for (int dataType : dataTypes) {
+                    final File file = createFile();
+                    try (FlatRasterOutputFile out = new FlatRasterOutputFile(file, HEADER, width, height, 1,
+                                                                             dataType, interleave, order)) {
+                        for (int[] tile : tiles(width, height, 8, 5)) {
+                            out.writeBandRasterData(0, tile[0], tile[1], tile[2], tile[3],
+                                                    createTile(dataType, 0, tile));
+                        }
+                    }
+                    final String msg = interleave + " " + order + " type " + dataType;
+                    assertEquals(msg, HEADER + width * height * ProductData.getElemSize(dataType), file.length());
+                    checkBand(msg, file, width, height, 1, dataType, interleave, order, 0, dataType);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testComplexInterleavedByPixel() throws IOException {
+        // i and q of complex data written together, as GammaProductWriter does, and read back as bands 0 and 1
+        final int width = 40, height = 30;
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            final File file = createFile();
+            try (FlatRasterOutputFile out = new FlatRasterOutputFile(file, HEADER, width, height, 2,
+                                                                     ProductData.TYPE_FLOAT32,
+                                                                     FlatRasterFile.Interleave.BIP, order)) {
+                for (int[] tile : tiles(width, height, 16, 7)) {
+                    out.writeInterleavedRasterData(tile[0], tile[1], tile[2], tile[3],
+                                                   createTile(ProductData.TYPE_FLOAT32, 0, tile),
+                                                   createTile(ProductData.TYPE_FLOAT32, 1, tile));
+                }
+                try {
+                    out.writeBandRasterData(0, 0, 0, width, 1,
+                                            ProductData.createInstance(ProductData.TYPE_FLOAT32, width));
+                    fail("IllegalArgumentException expected");
+                } catch (IllegalArgumentException e) {
+                    // expected
+                }
+            }
+            for (int band = 0; band < 2; ++band) {
+                checkBand("complex " + order + " band " + band, file, width, height, 2, ProductData.TYPE_FLOAT32,
+                          FlatRasterFile.Interleave.BIP, order, band, ProductData.TYPE_FLOAT32);
+            }
+        }
+    }
+
+    @Test
+    public void testComplexTypeConversion() throws IOException {
+        // complex tiles converted to the data type of the file, narrower or wider
+        final int width = 12, height = 10;
+        final int[][] types = {{ProductData.TYPE_INT32, ProductData.TYPE_INT16},
+                {ProductData.TYPE_FLOAT64, ProductData.TYPE_FLOAT32}, {ProductData.TYPE_INT16, ProductData.TYPE_FLOAT64}};
+        for (int[] t : types) {
+            final int sourceType = t[0], fileType = t[1];
+            final File file = createFile();
+            try (FlatRasterOutputFile out = new FlatRasterOutputFile(file, HEADER, width, height, 2, fileType,
+                                                                     FlatRasterFile.Interleave.BIP,
+                                                                     ByteOrder.BIG_ENDIAN)) {
+                for (int[] tile : tiles(width, height, 5, 4)) {
+                    out.writeInterleavedRasterData(tile[0], tile[1], tile[2], tile[3],
+                                                   createTile(sourceType, 0, tile), createTile(sourceType, 1, tile));
+                }
+            }
+            for (int band = 0; band < 2; ++band) {
+                checkBand("conversion " + sourceType + " to " + fileType + " band " + band, file, width, height, 2,
+                          fileType, FlatRasterFile.Interleave.BIP, ByteOrder.BIG_ENDIAN, band, sourceType);
+            }
+        }
+    }
+
+    @Test
+    public void testBandSequentialBands() throws IOException {
+        // the layout of GenericBSQWriter: bands in product order in one file of the type of the first band,
+        // written a band at a time in tiles and converted where a band is of another type
+        final int width = 30, height = 21, numBands = 3;
+        final int fileType = ProductData.TYPE_FLOAT32;
+        final int[] bandTypes = {ProductData.TYPE_FLOAT32, ProductData.TYPE_INT16, ProductData.TYPE_FLOAT64};
+        final File file = createFile();
+        try (FlatRasterOutputFile out = new FlatRasterOutputFile(file, HEADER, width, height, numBands, fileType,
+                                                                 FlatRasterFile.Interleave.BSQ,
+                                                                 ByteOrder.nativeOrder())) {
+            for (int band = numBands - 1; band >= 0; --band) {
+                for (int[] tile : tiles(width, height, 30, 4)) {
+                    out.writeBandRasterData(band, tile[0], tile[1], tile[2], tile[3],
+                                            createTile(bandTypes[band], band, tile));
+                }
+            }
+        }
+        assertEquals(HEADER + width * height * numBands * 4, file.length());
+        for (int band = 0; band < numBands; ++band) {
+            checkBand("bsq band " + band, file, width, height, numBands, fileType, FlatRasterFile.Interleave.BSQ,
+                      ByteOrder.nativeOrder(), band, bandTypes[band]);
+        }
+    }
+
+    @Test
+    public void testConcurrentTiles() throws Exception {
+        // tiles of two files written from several threads sharing their buffers; full lines of 4.4 MB are longer
+        // than a block and are written through a buffer of their own
+        final int width = 550_000, height = 4;
+        final File bsqFile = createFile();
+        final File bipFile = createFile();
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try (FlatRasterOutputFile bsq = new FlatRasterOutputFile(bsqFile, HEADER, width, height, 2,
+                                                                 ProductData.TYPE_FLOAT64,
+                                                                 FlatRasterFile.Interleave.BSQ, ByteOrder.BIG_ENDIAN);
+             FlatRasterOutputFile bip = new FlatRasterOutputFile(bipFile, HEADER, width, height, 2,
+                                                                 ProductData.TYPE_FLOAT32,
+                                                                 FlatRasterFile.Interleave.BIP, ByteOrder.BIG_ENDIAN)) {
+            final List<Future<?>> futures = new ArrayList<>();
+            final List<int[]> tiles = tiles(width, 2, width, 1);
+            for (int[] tile : tiles(width, 2, 150_000, 1)) {
+                tiles.add(new int[]{tile[0], tile[1] + 2, tile[2], tile[3]});
+            }
+            for (int[] tile : tiles) {
+                futures.add(executor.submit(() -> {
+                    for (int band = 0; band < 2; ++band) {
+                        bsq.writeBandRasterData(band, tile[0], tile[1], tile[2], tile[3],
+                                                createTile(ProductData.TYPE_FLOAT64, band, tile));
+                    }
+                    bip.writeInterleavedRasterData(tile[0], tile[1], tile[2], tile[3],
+                                                   createTile(ProductData.TYPE_FLOAT32, 0, tile),
+                                                   createTile(ProductData.TYPE_FLOAT32, 1, tile));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int band = 0; band < 2; ++band) {
+            checkBand("bsq band " + band, bsqFile, width, height, 2, ProductData.TYPE_FLOAT64,
+                      FlatRasterFile.Interleave.BSQ, ByteOrder.BIG_ENDIAN, band, ProductData.TYPE_FLOAT64);
+            checkBand("bip band " + band, bipFile, width, height, 2, ProductData.TYPE_FLOAT32,
+                      FlatRasterFile.Interleave.BIP, ByteOrder.BIG_ENDIAN, band, ProductData.TYPE_FLOAT32);
+        }
+    }
+
+    private File createFile() throws IOException {
+        final File file = File.createTempFile("flatrasterout", ".img");
+        files.add(file);
+        return file;
+    }
+
+    /**
+     * @return the rectangles {x, y, width, height} of tiles covering the raster, the last ones partial
+     */
+    private static List<int[]> tiles(final int width, final int height, final int tileWidth, final int tileHeight) {
+        final List<int[]> tiles = new ArrayList<>();
+        for (int y = 0; y < height; y += tileHeight) {
+            for (int x = 0; x < width; x += tileWidth) {
+                tiles.add(new int[]{x, y, Math.min(tileWidth, width - x), Math.min(tileHeight, height - y)});
+            }
+        }
+        return tiles;
+    }
+
+    private static ProductData createTile(final int dataType, final int band, final int[] tile) {
+        final ProductData data = ProductData.createInstance(dataType, tile[2] * tile[3]);
+        for (int y = 0; y < tile[3]; ++y) {
+            for (int x = 0; x < tile[2]; ++x) {
+                data.setElemDoubleAt(y * tile[2] + x, value(dataType, band, tile[0] + x, tile[1] + y));
+            }
+        }
+        return data;
+    }
+
+    /**
+     * @return the sample of a band at a pixel as written from a buffer of the data type
+     */
+    private static double value(final int dataType, final int band, final int x, final int y) {
+        final int value = (band + 1) * 1000 + ((y * 31 + x) % 1000);
+        switch (dataType) {
+            case ProductData.TYPE_INT8:
+                return (byte) value;
+            case ProductData.TYPE_FLOAT32:
+                return value + 0.5f;
+            case ProductData.TYPE_FLOAT64:
+                return value + 0.25;
+            default:
+                return value;
+        }
+    }
+
+    private static void checkBand(final String msg, final File file, final int width, final int height,
+                                  final int numBands, final int fileType, final FlatRasterFile.Interleave interleave,
+                                  final ByteOrder order, final int band, final int sourceType) throws IOException {
+        try (FlatRasterFile in = new FlatRasterFile(file, HEADER, width, height, numBands, fileType, interleave,
+                                                    order)) {
+            final ProductData data = ProductData.createInstance(fileType, width * height);
+            in.readBandRasterData(band, 0, 0, width, height, 1, 1, data, ProgressMonitor.NULL);
+            for (int y = 0; y < height; ++y) {
+                for (int x = 0; x < width; ++x) {
+                    final double expected = converted(value(sourceType, band, x, y), fileType);
+                    final double actual = data.getElemDoubleAt(y * width + x);
+                    if (expected != actual) {
+                        assertEquals(msg + " x " + x + " y " + y, expected, actual, 0.0);
+                    }
+                }
+            }
+        }
+    }
+
+    private static double converted(final double value, final int fileType) {
+        switch (fileType) {
+            case ProductData.TYPE_INT8:
+                return (byte) (long) value;
+            case ProductData.TYPE_INT16:
+                return (short) (long) value;
+            case ProductData.TYPE_INT32:
+                return (int) (long) value;
+            case ProductData.TYPE_FLOAT32:
+                return (float) value;
+            default:
+                return value;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons.io;
+
+import org.esa.snap.core.datamodel.ProductData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for concurrent reads of an image through the reader pool of ImageIOFile.
+ */
+public class TestImageIOFile {
+
+    private static final int WIDTH = 300;
+    private static final int HEIGHT = 200;
+    private static final int POOL_SIZE = 4;
+
+    private File file;
+    private ImageIOFile img;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("imageio", ".png");
+        final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_USHORT_GRAY);
+        final WritableRaster raster = image.getRaster();
+        for (int y = 0; y < HEIGHT; ++y) {
+            for (int x = 0; x < WIDTH; ++x) {
+                raster.setSample(x, y, 0, getValue(x, y));
+            }
+        }
+        assertTrue(ImageIO.write(image, "png", file));
+
+        img = new ImageIOFile(file, ImageIOFile.getIIOReader(file), file);
+        img.enableReaderPool(() -> ImageIO.createImageInputStream(file), POOL_SIZE);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        img.close();
+        file.delete();
+    }
+
+    private static int getValue(final int x, final int y) {
+        return (y * WIDTH + x) & 0xFFFF;
+    }
+
+    @Test
+    public void testConcurrentReads() throws Exception {
+        readConcurrently(img);
+    }
+
+    @Test
+    public void testConcurrentReadsOfMappedFile() throws Exception {
+        final ImageIOFile mappedImg = new ImageIOFile(file, ImageIOFile.getIIOReader(file), file);
+        try {
+            mappedImg.enableReaderPool(file);
+            readConcurrently(mappedImg);
+        } finally {
+            mappedImg.close();
+        }
+    }
+
+    private static void readConcurrently(final ImageIOFile img) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2 * POOL_SIZE);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4 * POOL_SIZE; ++t) {
+                final long seed = t;
+                futures.add(executor.submit(() -> {
+                    readRandomRegions(img, new Random(seed), 20);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void readRandomRegions(final ImageIOFile img, final Random random, final int count) throws IOException {
+        for (int i = 0; i < count; ++i) {
+            final int w = 1 + random.nextInt(64);
+            final int h = 1 + random.nextInt(64);
+            final int x0 = random.nextInt(WIDTH - w + 1);
+            final int y0 = random.nextInt(HEIGHT - h + 1);
+
+            final ProductData destBuffer = ProductData.createInstance(ProductData.TYPE_INT32, w * h);
+            img.readImageIORasterBand(x0, y0, 1, 1, destBuffer, x0, y0, w, h, 0, 0);
+            for (int y = 0; y < h; ++y) {
+                for (int x = 0; x < w; ++x) {
+                    assertEquals(getValue(x0 + x, y0 + y), destBuffer.getElemIntAt(y * w + x));
+                }
+            }
+
+            // subsampled by 2 in both directions
+            final int sw = Math.max(1, w / 2);
+            final int sh = Math.max(1, h / 2);
+            final int sx0 = random.nextInt(WIDTH / 2 - sw + 1);
+            final int sy0 = random.nextInt(HEIGHT / 2 - sh + 1);
+            final Raster raster = img.readRaster(0, 0, 2, 2, new Rectangle(sx0, sy0, sw, sh));
+            for (int y = 0; y < sh; ++y) {
+                for (int x = 0; x < sw; ++x) {
+                    assertEquals(getValue(2 * (sx0 + x), 2 * (sy0 + y)),
+                            raster.getSample(raster.getMinX() + x, raster.getMinY() + y, 0));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPoolSize() throws Exception {
+        final IdentityHashMap<ImageReader, Boolean> readers = new IdentityHashMap<>();
+        for (int i = 0; i < POOL_SIZE; ++i) {
+            readers.put(img.acquireReader(), Boolean.TRUE);
+        }
+        assertEquals(POOL_SIZE, readers.size());
+
+        // the pool is exhausted, the next reader is the one given back
+        final ImageReader released = readers.keySet().iterator().next();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<ImageReader> waiting = executor.submit(img::acquireReader);
+            Thread.sleep(100);
+            assertFalse(waiting.isDone());
+            img.releaseReader(released);
+            assertSame(released, waiting.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        for (ImageReader reader : readers.keySet()) {
+            img.releaseReader(reader);
+        }
+    }
+}
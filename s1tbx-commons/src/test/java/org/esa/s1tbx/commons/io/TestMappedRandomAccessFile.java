@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons.io;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for MappedRandomAccessFile, mapped in chunks of 16 bytes so that values straddle chunks.
+ */
+public class TestMappedRandomAccessFile {
+
+    private static final int CHUNK_SHIFT = 4;
+    private static final int LENGTH = 100;
+
+    private File file;
+    private byte[] bytes;
+    private MappedRandomAccessFile mappedFile;
+
+    @Before
+    public void setUp() throws IOException {
+        bytes = new byte[LENGTH];
+        for (int i = 0; i < LENGTH; ++i) {
+            bytes[i] = (byte) (i * 37 + 11);
+        }
+        file = File.createTempFile("mapped", ".dat");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(bytes);
+        }
+        mappedFile = new MappedRandomAccessFile(file, CHUNK_SHIFT);
+    }
+
+    @After
+    public void tearDown() {
+        mappedFile.close();
+        file.delete();
+    }
+
+    private ByteBuffer expected(final ByteOrder order) {
+        return ByteBuffer.wrap(bytes).order(order);
+    }
+
+    @Test
+    public void testValuesAtEveryOffset() throws IOException {
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            final ByteBuffer expected = expected(order);
+            final MappedRandomAccessFile.Cursor cursor = mappedFile.newCursor();
+            cursor.setByteOrder(order);
+            assertEquals(order, cursor.getByteOrder());
+
+            // every offset, including those where the value straddles the 16 byte chunks
+            for (int pos = 0; pos + 8 <= LENGTH; ++pos) {
+                cursor.seek(pos);
+                assertEquals(expected.getShort(pos), cursor.readShort());
+                assertEquals(pos + 2, cursor.getFilePointer());
+                cursor.seek(pos);
+                assertEquals(expected.getInt(pos), cursor.readInt());
+                cursor.seek(pos);
+                assertEquals(expected.getLong(pos), cursor.readLong());
+                assertEquals(pos + 8, cursor.getFilePointer());
+                cursor.seek(pos);
+                assertEquals(expected.getFloat(pos), cursor.readFloat(), 0.0f);
+                cursor.seek(pos);
+                assertEquals(expected.getDouble(pos), cursor.readDouble(), 0.0);
+                cursor.seek(pos);
+                assertEquals(bytes[pos] & 0xFF, cursor.read());
+            }
+        }
+    }
+
+    @Test
+    public void testArraysAcrossChunks() throws IOException {
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            final ByteBuffer expected = expected(order);
+            final MappedRandomAccessFile.Cursor cursor = mappedFile.newCursor();
+            cursor.setByteOrder(order);
+
+            for (int pos = 0; pos < 8; ++pos) {
+                final int n = (LENGTH - pos) / 8;
+
+                final short[] shorts = new short[n + 2];
+                cursor.seek(pos);
+                cursor.readShort(shorts, 1, n);
+                assertEquals(pos + 2L * n, cursor.getFilePointer());
+                final int[] ints = new int[n];
+                cursor.seek(pos);
+                cursor.readInt(ints, 0, n);
+                final long[] longs = new long[n];
+                cursor.seek(pos);
+                cursor.readLong(longs, 0, n);
+                assertEquals(pos + 8L * n, cursor.getFilePointer());
+                final float[] floats = new float[n];
+                cursor.seek(pos);
+                cursor.readFloat(floats, 0, n);
+                final double[] doubles = new double[n];
+                cursor.seek(pos);
+                cursor.readDouble(doubles, 0, n);
+
+                assertEquals(0, shorts[0]);
+                assertEquals(0, shorts[n + 1]);
+                for (int i = 0; i < n; ++i) {
+                    assertEquals(expected.getShort(pos + 2 * i), shorts[i + 1]);
+                    assertEquals(expected.getInt(pos + 4 * i), ints[i]);
+                    assertEquals(expected.getLong(pos + 8 * i), longs[i]);
+                    assertEquals(expected.getFloat(pos + 4 * i), floats[i], 0.0f);
+                    assertEquals(expected.getDouble(pos + 8 * i), doubles[i], 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBytesAcrossChunks() throws IOException {
+        final MappedRandomAccessFile.Cursor cursor = mappedFile.newCursor();
+        final byte[] b = new byte[50];
+        cursor.seek(7);
+        cursor.readFully(b, 5, 40);
+        for (int i = 0; i < 40; ++i) {
+            assertEquals(bytes[7 + i], b[5 + i]);
+        }
+        assertEquals(47, cursor.getFilePointer());
+    }
+
+    @Test
+    public void testEndOfFile() throws IOException {
+        final MappedRandomAccessFile.Cursor cursor = mappedFile.newCursor();
+        assertEquals(LENGTH, cursor.length());
+
+        // a partial read returns the remaining bytes, then end of file
+        final byte[] b = new byte[10];
+        cursor.seek(LENGTH - 4);
+        assertEquals(4, cursor.readBytes(b, 0, 10));
+        assertTrue(cursor.isAtEndOfFile());
+        assertEquals(-1, cursor.readBytes(b, 0, 10));
+        assertEquals(-1, cursor.read());
+
+        // a seek beyond the end is allowed and reads as end of file
+        cursor.seek(LENGTH + 10);
+        assertEquals(-1, cursor.read());
+
+        cursor.seek(LENGTH - 2);
+        assertEOF(cursor::readInt);
+        cursor.seek(LENGTH - 4);
+        assertEOF(cursor::readLong);
+        cursor.seek(LENGTH - 4);
+        assertEOF(() -> cursor.readFully(new byte[5]));
+        cursor.seek(LENGTH);
+        assertEOF(cursor::readByte);
+        cursor.seek(LENGTH - 8);
+        assertEOF(() -> cursor.readInt(new int[3], 0, 3));
+    }
+
+    @Test
+    public void testClose() throws IOException {
+        final MappedRandomAccessFile.Cursor cursor = mappedFile.newCursor();
+        mappedFile.close();
+        assertTrue(mappedFile.isClosed());
+        try {
+            cursor.readInt();
+            fail("read after close");
+        } catch (IOException e) {
+            // expected
+        }
+        try {
+            mappedFile.newCursor();
+            fail("cursor after close");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testImageInputStream() throws IOException {
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            final ByteBuffer expected = expected(order);
+            final MappedImageInputStream stream = new MappedImageInputStream(mappedFile);
+            stream.setByteOrder(order);
+            assertEquals(file, stream.getFile());
+            assertEquals(LENGTH, stream.length());
+
+            stream.seek(13);
+            assertEquals(expected.getInt(13), stream.readInt());
+            assertEquals(17, stream.getStreamPosition());
+            assertEquals(expected.getLong(17), stream.readLong());
+            assertEquals(expected.getShort(25), stream.readShort());
+            assertEquals(expected.getDouble(27), stream.readDouble(), 0.0);
+            assertEquals(35, stream.getStreamPosition());
+
+            final float[] floats = new float[5];
+            stream.readFully(floats, 0, 5);
+            for (int i = 0; i < 5; ++i) {
+                assertEquals(expected.getFloat(35 + 4 * i), floats[i], 0.0f);
+            }
+            assertEquals(55, stream.getStreamPosition());
+
+            // methods inherited from ImageInputStreamImpl read through read()
+            stream.seek(30);
+            assertEquals(expected.getChar(30), stream.readChar());
+            assertEquals(bytes[32] & 0xFF, stream.readUnsignedByte());
+
+            stream.seek(LENGTH - 1);
+            assertEquals(bytes[LENGTH - 1] & 0xFF, stream.read());
+            assertEquals(-1, stream.read());
+            stream.seek(LENGTH - 3);
+            try {
+                stream.readInt();
+                fail("read past the end");
+            } catch (EOFException e) {
+                // expected
+            }
+
+            // closing the stream keeps the shared mapping
+            stream.close();
+            assertFalse(mappedFile.isClosed());
+        }
+    }
+
+    private interface Read {
+        void read() throws IOException;
+    }
+
+    private static void assertEOF(final Read read) throws IOException {
+        try {
+            read.read();
+            fail("expected end of file");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons.utils;
+
+import com.bc.ceres.core.NullProgressMonitor;
+import org.esa.snap.core.gpf.OperatorException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for ThreadExecutor
+ */
+public class TestThreadExecutor {
+
+    @Test
+    public void testResults() throws Exception {
+        final ThreadExecutor executor = new ThreadExecutor("testResults");
+        final List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            final int value = i;
+            futures.add(executor.submit(() -> value * value));
+        }
+        final AtomicInteger count = new AtomicInteger();
+        for (int i = 0; i < 50; ++i) {
+            executor.execute(count::incrementAndGet);
+        }
+        executor.complete();
+
+        for (int i = 0; i < 100; ++i) {
+            assertTrue(futures.get(i).isDone());
+            assertEquals(i * i, futures.get(i).get().intValue());
+        }
+        assertEquals(50, count.get());
+
+        final ThreadExecutor.TaskMetrics metrics = ThreadExecutor.getMetrics("testResults");
+        assertEquals(150, metrics.getSubmittedCount());
+        assertEquals(150, metrics.getCompletedCount());
+        assertEquals(0, metrics.getFailedCount());
+    }
+
+    @Test
+    public void testRuntimeExceptionIsRethrown() {
+        final IllegalStateException failure = new IllegalStateException("task failed");
+        final ThreadExecutor executor = new ThreadExecutor("testRuntimeExceptionIsRethrown");
+        for (int i = 0; i < 20; ++i) {
+            final int index = i;
+            executor.execute(() -> {
+                if (index == 7) {
+                    throw failure;
+                }
+            });
+        }
+        try {
+            executor.complete();
+            fail("complete() should rethrow the failure of a task");
+        } catch (IllegalStateException e) {
+            assertSame(failure, e);
+        }
+        assertEquals(1, ThreadExecutor.getMetrics("testRuntimeExceptionIsRethrown").getFailedCount());
+    }
+
+    @Test
+    public void testErrorIsRethrown() {
+        final ThreadExecutor executor = new ThreadExecutor("testErrorIsRethrown");
+        executor.execute(() -> {
+            throw new Error("test");
+        });
+        try {
+            executor.complete();
+            fail("complete() should rethrow the error of a task");
+        } catch (Error e) {
+            assertEquals("test", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCheckedExceptionIsWrapped() {
+        final IOException failure = new IOException("read failed");
+        final ThreadExecutor executor = new ThreadExecutor("testCheckedExceptionIsWrapped");
+        executor.submit(() -> {
+            throw failure;
+        });
+        try {
+            executor.complete();
+            fail("complete() should rethrow the failure of a task");
+        } catch (OperatorException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    @Test
+    public void testCanceledBeforeSubmit() {
+        final NullProgressMonitor pm = new NullProgressMonitor();
+        pm.setCanceled(true);
+        final ThreadExecutor executor = new ThreadExecutor("testCanceledBeforeSubmit", pm);
+        try {
+            executor.execute(() -> {
+            });
+            fail("submit() should fail once canceled");
+        } catch (OperatorException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCancelWhileRunning() throws Exception {
+        final NullProgressMonitor pm = new NullProgressMonitor();
+        final ThreadExecutor executor = new ThreadExecutor("testCancelWhileRunning", pm);
+        final int parallelism = ThreadExecutor.getParallelism();
+        final CountDownLatch started = new CountDownLatch(parallelism);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger count = new AtomicInteger();
+
+        // block every worker, so that the following tasks stay queued
+        for (int i = 0; i < parallelism; ++i) {
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; ++i) {
+            executor.execute(count::incrementAndGet);
+        }
+        pm.setCanceled(true);
+
+        final long start = System.nanoTime();
+        try {
+            executor.complete();
+            fail("complete() should fail once canceled");
+        } catch (OperatorException e) {
+            assertTrue(e.getMessage().contains("canceled"));
+        }
+        // complete() does not wait for the blocked tasks
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+
+        // the queued tasks are dropped
+        release.countDown();
+        final ThreadExecutor after = new ThreadExecutor("testCancelWhileRunning.after");
+        for (int i = 0; i < 2 * parallelism; ++i) {
+            after.execute(() -> {
+            });
+        }
+        after.complete();
+        assertEquals(0, count.get());
+    }
+
+    @Test
+    public void testCompleteDoesNotNeedFreeWorker() throws Exception {
+        // occupy every worker with a task which waits for a task of another executor
+        final int parallelism = ThreadExecutor.getParallelism();
+        final CountDownLatch innerDone = new CountDownLatch(1);
+        final ThreadExecutor outer = new ThreadExecutor("testCompleteDoesNotNeedFreeWorker.outer");
+        final CountDownLatch allStarted = new CountDownLatch(parallelism);
+        for (int i = 0; i < parallelism; ++i) {
+            outer.execute(() -> {
+                allStarted.countDown();
+                try {
+                    assertTrue(innerDone.await(20, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertTrue(allStarted.await(10, TimeUnit.SECONDS));
+
+        final ThreadExecutor inner = new ThreadExecutor("testCompleteDoesNotNeedFreeWorker.inner");
+        final AtomicInteger count = new AtomicInteger();
+        for (int i = 0; i < 10; ++i) {
+            inner.execute(count::incrementAndGet);
+        }
+        final long start = System.nanoTime();
+        inner.complete();
+        assertEquals(10, count.get());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+
+        innerDone.countDown();
+        outer.complete();
+    }
+
+    @Test
+    public void testNestedExecutors() {
+        final ThreadExecutor outer = new ThreadExecutor("testNestedExecutors.outer");
+        final AtomicInteger count = new AtomicInteger();
+        for (int i = 0; i < 4 * ThreadExecutor.getParallelism(); ++i) {
+            outer.execute(() -> {
+                final ThreadExecutor inner = new ThreadExecutor("testNestedExecutors.inner");
+                for (int j = 0; j < 10; ++j) {
+                    inner.execute(count::incrementAndGet);
+                }
+                inner.complete();
+            });
+        }
+        outer.complete();
+        assertEquals(40 * ThreadExecutor.getParallelism(), count.get());
+    }
+}
@@ -42,6 +42,21 @@ public interface OrbitFile {
      */
     Orbits.OrbitVector getOrbitData(final double utc) throws Exception;
 
+    /**
+     * Get orbit information for given times.
+     *
+     * @param utcs The UTC times in days.
+     * @return The orbit information.
+     * @throws Exception The exceptions.
+     */
+    default Orbits.OrbitVector[] getOrbitData(final double[] utcs) throws Exception {
+        final Orbits.OrbitVector[] orbitVectors = new Orbits.OrbitVector[utcs.length];
+        for (int i = 0; i < utcs.length; ++i) {
+            orbitVectors[i] = getOrbitData(utcs[i]);
+        }
+        return orbitVectors;
+    }
+
     /**
      * Get the orbit file used
      *
@@ -15,30 +15,24 @@
  */
 package org.esa.s1tbx.io.orbits.sentinel1;
 
-import Jama.Matrix;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import org.esa.s1tbx.commons.OrbitInterpolator;
 import org.esa.s1tbx.io.orbits.BaseOrbitFile;
 import org.esa.s1tbx.io.orbits.OrbitFile;
 import org.esa.snap.core.datamodel.MetadataElement;
 import org.esa.snap.core.datamodel.ProductData;
 import org.esa.snap.core.util.StringUtils;
-import org.esa.snap.core.util.SystemUtils;
 import org.esa.snap.core.util.io.FileUtils;
 import org.esa.snap.engine_utilities.datamodel.AbstractMetadata;
 import org.esa.snap.engine_utilities.datamodel.Orbits;
+import org.esa.snap.engine_utilities.datamodel.PosVector;
 import org.esa.snap.engine_utilities.download.DownloadableArchive;
 import org.esa.snap.engine_utilities.download.DownloadableContentImpl;
-import org.esa.snap.engine_utilities.util.Maths;
 import org.esa.snap.engine_utilities.util.Settings;
 import org.esa.snap.engine_utilities.util.ZipUtils;
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.NodeList;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
@@ -48,11 +42,9 @@ import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
-import java.util.Enumeration;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 /**
  * Sentinel POD Orbit File
@@ -77,8 +69,9 @@ public class SentinelPODOrbitFile extends BaseOrbitFile implements OrbitFile {
     private FixedHeader fixedHeader = null;
 
     private List<Orbits.OrbitVector> osvList = new ArrayList<>();
+    private OrbitInterpolator interpolator = null;
 
-    private static LoadingCache<File, List<Orbits.OrbitVector>> cache;
+    private static LoadingCache<File, SentinelPODOrbitReader.OrbitData> cache;
 
     public SentinelPODOrbitFile(final MetadataElement absRoot, final int polyDegree) throws Exception {
         super(absRoot);
@@ -119,7 +112,7 @@ public class SentinelPODOrbitFile extends BaseOrbitFile implements OrbitFile {
         }
 
         // read content of the orbit file
-        readOrbitFile();
+        readOrbitFile(orbitFile);
 
         return orbitFile;
     }
@@ -389,318 +382,76 @@ public class SentinelPODOrbitFile extends BaseOrbitFile implements OrbitFile {
      */
     public Orbits.OrbitVector getOrbitData(final double utc) throws Exception {
 
-        final int numVectors = osvList.size();
-        final double t0 = osvList.get(0).utcMJD;
-        final double tN = osvList.get(numVectors - 1).utcMJD;
+        final PosVector position = new PosVector();
+        final PosVector velocity = new PosVector();
+        getOrbitInterpolator().getPositionVelocity(utc, position, velocity);
 
-        final int numVecPolyFit = polyDegree + 1; //4;
-        final int halfNumVecPolyFit = numVecPolyFit / 2;
-        final int[] vectorIndices = new int[numVecPolyFit];
-
-        final int vecIdx = (int) ((utc - t0) / (tN - t0) * (numVectors - 1));
-        if (vecIdx <= halfNumVecPolyFit - 1) {
-            for (int i = 0; i < numVecPolyFit; i++) {
-                vectorIndices[i] = i;
-            }
-        } else if (vecIdx >= numVectors - halfNumVecPolyFit) {
-            for (int i = 0; i < numVecPolyFit; i++) {
-                vectorIndices[i] = numVectors - numVecPolyFit + i;
-            }
-        } else {
-            for (int i = 0; i < numVecPolyFit; i++) {
-                vectorIndices[i] = vecIdx - halfNumVecPolyFit + 1 + i;
-            }
-        }
-
-        double[] timeArray = new double[numVecPolyFit];
-        double[] xPosArray = new double[numVecPolyFit];
-        double[] yPosArray = new double[numVecPolyFit];
-        double[] zPosArray = new double[numVecPolyFit];
-        double[] xVelArray = new double[numVecPolyFit];
-        double[] yVelArray = new double[numVecPolyFit];
-        double[] zVelArray = new double[numVecPolyFit];
-
-        for (int i = 0; i < numVecPolyFit; i++) {
-            timeArray[i] = osvList.get(vectorIndices[i]).utcMJD - t0;
-            xPosArray[i] = osvList.get(vectorIndices[i]).xPos;
-            yPosArray[i] = osvList.get(vectorIndices[i]).yPos;
-            zPosArray[i] = osvList.get(vectorIndices[i]).zPos;
-            xVelArray[i] = osvList.get(vectorIndices[i]).xVel;
-            yVelArray[i] = osvList.get(vectorIndices[i]).yVel;
-            zVelArray[i] = osvList.get(vectorIndices[i]).zVel;
-        }
-
-        final Matrix A = Maths.createVandermondeMatrix(timeArray, polyDegree);
-        final double[] xPosCoeff = Maths.polyFit(A, xPosArray);
-        final double[] yPosCoeff = Maths.polyFit(A, yPosArray);
-        final double[] zPosCoeff = Maths.polyFit(A, zPosArray);
-        final double[] xVelCoeff = Maths.polyFit(A, xVelArray);
-        final double[] yVelCoeff = Maths.polyFit(A, yVelArray);
-        final double[] zVelCoeff = Maths.polyFit(A, zVelArray);
-
-        final double normalizedTime = utc - t0;
-
-        return new Orbits.OrbitVector(utc,
-                Maths.polyVal(normalizedTime, xPosCoeff),
-                Maths.polyVal(normalizedTime, yPosCoeff),
-                Maths.polyVal(normalizedTime, zPosCoeff),
-                Maths.polyVal(normalizedTime, xVelCoeff),
-                Maths.polyVal(normalizedTime, yVelCoeff),
-                Maths.polyVal(normalizedTime, zVelCoeff));
-    }
-
-    private void readOrbitFile() throws Exception {
-
-        List<Orbits.OrbitVector> cachedOSVList = getCache().get(orbitFile);
-        if(cachedOSVList != null && !cachedOSVList.isEmpty()) {
-            osvList = cachedOSVList;
-            return;
-        }
-
-        final DocumentBuilderFactory documentFactory = DocumentBuilderFactory.newInstance();
-        final DocumentBuilder documentBuilder = documentFactory.newDocumentBuilder();
-
-        final Document doc;
-        if (orbitFile.getName().toLowerCase().endsWith(".zip")) {
-            final ZipFile productZip = new ZipFile(orbitFile, ZipFile.OPEN_READ);
-            final Enumeration<? extends ZipEntry> entries = productZip.entries();
-            final ZipEntry zipEntry = entries.nextElement();
-
-            doc = documentBuilder.parse(productZip.getInputStream(zipEntry));
-        } else {
-            doc = documentBuilder.parse(orbitFile);
-        }
-
-        doc.getDocumentElement().normalize();
-
-        final NodeList nodeList = doc.getElementsByTagName("Earth_Explorer_File");
-        if (nodeList.getLength() != 1) {
-            throw new Exception("SentinelPODOrbitFile.readOrbitFile: ERROR found too many Earth_Explorer_File " + nodeList.getLength());
-        }
-
-        org.w3c.dom.Node fixedHeaderNode = null;
-        org.w3c.dom.Node variableHeaderNode = null;
-        org.w3c.dom.Node listOfOSVsNode = null;
-
-        final NodeList fileChildNodes = nodeList.item(0).getChildNodes();
-
-        for (int i = 0; i < fileChildNodes.getLength(); i++) {
-
-            final org.w3c.dom.Node fileChildNode = fileChildNodes.item(i);
-
-            if (fileChildNode.getNodeName().equals("Earth_Explorer_Header")) {
-
-                final NodeList headerChildNodes = fileChildNode.getChildNodes();
-
-                for (int j = 0; j < headerChildNodes.getLength(); j++) {
-
-                    final org.w3c.dom.Node headerChildNode = headerChildNodes.item(j);
-
-                    if (headerChildNode.getNodeName().equals("Fixed_Header")) {
-
-                        fixedHeaderNode = headerChildNode;
-
-                    } else if (headerChildNode.getNodeName().equals("Variable_Header")) {
-
-                        variableHeaderNode = headerChildNode;
-                    }
-                }
-
-            } else if (fileChildNode.getNodeName().equals("Data_Block")) {
-
-                final NodeList dataBlockChildNodes = fileChildNode.getChildNodes();
-
-                for (int j = 0; j < dataBlockChildNodes.getLength(); j++) {
-
-                    final org.w3c.dom.Node dataBlockChildNode = dataBlockChildNodes.item(j);
-
-                    if (dataBlockChildNode.getNodeName().equals("List_of_OSVs")) {
-
-                        listOfOSVsNode = dataBlockChildNode;
-                    }
-                }
-            }
-
-            if (fixedHeaderNode != null && variableHeaderNode != null && listOfOSVsNode != null) {
-                break;
-            }
-        }
-
-        if (fixedHeaderNode != null) {
-
-            readFixedHeader(fixedHeaderNode);
-        }
-
-        // Don't need anything from Variable_Header.
-
-        if (listOfOSVsNode != null) {
-
-            osvList = readOSVList(listOfOSVsNode);
-        }
-
-        checkOrbitFileValidity();
-
-        getCache().put(orbitFile, osvList);
+        return new Orbits.OrbitVector(utc, position.x, position.y, position.z, velocity.x, velocity.y, velocity.z);
     }
 
-    private void readFixedHeader(final org.w3c.dom.Node fixedHeaderNode) {
-
-        final NodeList fixedHeaderChildNodes = fixedHeaderNode.getChildNodes();
-
-        String mission = null;
-        String fileType = null;
-        String validityStart = null;
-        String validityStop = null;
-
-        for (int i = 0; i < fixedHeaderChildNodes.getLength(); i++) {
-
-            final org.w3c.dom.Node fixedHeaderChildNode = fixedHeaderChildNodes.item(i);
-
-            if (fixedHeaderChildNode.getNodeName().equals("Mission")) {
-
-                mission = fixedHeaderChildNode.getTextContent();
-
-            } else if (fixedHeaderChildNode.getNodeName().equals("File_Type")) {
-
-                fileType = fixedHeaderChildNode.getTextContent();
-
-            } else if (fixedHeaderChildNode.getNodeName().equals("Validity_Period")) {
-
-                final NodeList validityPeriodChildNodes = fixedHeaderChildNode.getChildNodes();
-
-                for (int j = 0; j < validityPeriodChildNodes.getLength(); j++) {
-
-                    final org.w3c.dom.Node validityPeriodChildNode = validityPeriodChildNodes.item(j);
-
-                    if (validityPeriodChildNode.getNodeName().equals("Validity_Start")) {
-
-                        validityStart = validityPeriodChildNode.getTextContent();
-
-                    } else if (validityPeriodChildNode.getNodeName().equals("Validity_Stop")) {
-
-                        validityStop = validityPeriodChildNode.getTextContent();
-                    }
-                }
-            }
+    /**
+     * Get orbit state vectors for the given times using polynomial fitting.
+     *
+     * @param utcs The UTC times in days.
+     * @return The orbit state vectors.
+     * @throws Exception The exceptions.
+     */
+    @Override
+    public Orbits.OrbitVector[] getOrbitData(final double[] utcs) throws Exception {
 
-            if (mission != null && fileType != null && validityStart != null && validityStop != null) {
+        final OrbitInterpolator interpolator = getOrbitInterpolator();
+        final PosVector position = new PosVector();
+        final PosVector velocity = new PosVector();
 
-                fixedHeader = new FixedHeader(mission, fileType, validityStart, validityStop);
-                break;
-            }
+        final Orbits.OrbitVector[] orbitVectors = new Orbits.OrbitVector[utcs.length];
+        for (int i = 0; i < utcs.length; ++i) {
+            interpolator.getPositionVelocity(utcs[i], position, velocity);
+            orbitVectors[i] = new Orbits.OrbitVector(utcs[i],
+                    position.x, position.y, position.z, velocity.x, velocity.y, velocity.z);
         }
+        return orbitVectors;
     }
 
-    private static List<Orbits.OrbitVector> readOSVList(final org.w3c.dom.Node listOfOSVsNode) throws Exception {
-
-        final org.w3c.dom.Node attrCount = getAttributeFromNode(listOfOSVsNode, "count");
-        final int count = Integer.parseInt(attrCount.getTextContent());
-        final List<Orbits.OrbitVector> osvList = new ArrayList<>();
-
-        org.w3c.dom.Node childNode = listOfOSVsNode.getFirstChild();
-        int osvCnt = 0;
-
-        while (childNode != null) {
-
-            if (childNode.getNodeName().equals("OSV")) {
-
-                osvCnt++;
-                osvList.add(readOneOSV(childNode));
-            }
-
-            childNode = childNode.getNextSibling();
-        }
-
-        Collections.sort(osvList, new Orbits.OrbitComparator());
-
-        if (count != osvCnt) {
-            SystemUtils.LOG.warning("SentinelPODOrbitFile.readOSVList: WARNING List_of_OSVs count = " + count + " but found only " + osvCnt + " OSV");
+    /**
+     * Get the interpolator of the orbit file. Each window of polyDegree + 1 state vectors is fitted once,
+     * so the interpolator can be used without allocation inside per line geometry loops.
+     *
+     * @return The orbit interpolator.
+     * @throws Exception if the orbit file has not been read.
+     */
+    public OrbitInterpolator getOrbitInterpolator() throws Exception {
+        if (interpolator == null) {
+            throw new IOException("SentinelPODOrbitFile: orbit file has not been read");
         }
-
-        return osvList;
+        return interpolator;
     }
 
-    private static Orbits.OrbitVector readOneOSV(final org.w3c.dom.Node osvNode) throws Exception {
-
-        String utc = "";
-        double x = 0.0;
-        double y = 0.0;
-        double z = 0.0;
-        double vx = 0.0;
-        double vy = 0.0;
-        double vz = 0.0;
-
-        org.w3c.dom.Node childNode = osvNode.getFirstChild();
-
-        while (childNode != null) {
-
-            switch (childNode.getNodeName()) {
-                case "UTC": {
-                    utc = childNode.getTextContent();
-                }
-                break;
-                case "X": {
-                    x = Double.parseDouble(childNode.getTextContent());
-                }
-                break;
-                case "Y": {
-                    y = Double.parseDouble(childNode.getTextContent());
-                }
-                break;
-                case "Z": {
-                    z = Double.parseDouble(childNode.getTextContent());
-                }
-                break;
-                case "VX": {
-                    vx = Double.parseDouble(childNode.getTextContent());
-                }
-                break;
-                case "VY": {
-                    vy = Double.parseDouble(childNode.getTextContent());
-                }
-                break;
-                case "VZ": {
-                    vz = Double.parseDouble(childNode.getTextContent());
-                }
-                break;
-                default:
-                    break;
-            }
+    void readOrbitFile(final File file) throws Exception {
 
-            childNode = childNode.getNextSibling();
+        orbitFile = file;
+        final SentinelPODOrbitReader.OrbitData orbitData;
+        try {
+            orbitData = getCache().get(orbitFile);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
         }
 
-        final double utcTime = toUTC(utc).getMJD();
-
-        return new Orbits.OrbitVector(utcTime, x, y, z, vx, vy, vz);
-    }
-
-    // TODO This is copied from Sentinel1Level0Reader.java; may be we should put in in some utilities class.
-    private static org.w3c.dom.Node getAttributeFromNode(final org.w3c.dom.Node node, final String attrName) {
-
-        // Will look for attribute called attrName in the given node
-
-        NamedNodeMap attr = node.getAttributes();
-
-        org.w3c.dom.Node attrNode = null;
-
-        for (int j = 0; j < attr.getLength(); j++) {
-
-            if (attr.item(j).getNodeName().equals(attrName)) {
-                if (attrNode == null) {
-                    attrNode = attr.item(j);
-                } else {
-                    // Should not be possible
-                    SystemUtils.LOG.warning("SentinelPODOrbitFile.getAttributeFromNode: WARNING more than one " + attrName + " in " + node.getNodeName());
-                }
-            }
+        if (orbitData.mission != null) {
+            fixedHeader = new FixedHeader(orbitData.mission, orbitData.fileType,
+                    orbitData.validityStart, orbitData.validityStop);
         }
 
-        if (attrNode == null) {
-            SystemUtils.LOG.warning("SentinelPODOrbitFile.getAttributeFromNode: Failed to find " + attrName + " in " + node.getNodeName());
+        final List<Orbits.OrbitVector> list = new ArrayList<>(orbitData.count);
+        for (int i = 0; i < orbitData.count; ++i) {
+            list.add(new Orbits.OrbitVector(orbitData.utcMJD[i],
+                    orbitData.xPos[i], orbitData.yPos[i], orbitData.zPos[i],
+                    orbitData.xVel[i], orbitData.yVel[i], orbitData.zVel[i]));
         }
+        osvList = list;
+        interpolator = new OrbitInterpolator(orbitData.utcMJD, orbitData.xPos, orbitData.yPos, orbitData.zPos,
+                orbitData.xVel, orbitData.yVel, orbitData.zVel, orbitData.count, polyDegree + 1);
 
-        return attrNode;
+        checkOrbitFileValidity();
     }
 
     private static String convertUTC(String utc) {
@@ -838,20 +589,20 @@ public class SentinelPODOrbitFile extends BaseOrbitFile implements OrbitFile {
         }
     }
 
-    private LoadingCache<File, List<Orbits.OrbitVector>> getCache() {
+    private static synchronized LoadingCache<File, SentinelPODOrbitReader.OrbitData> getCache() {
         if(cache == null) {
             cache = createCache();
         }
         return cache;
     }
 
-    private static LoadingCache<File, List<Orbits.OrbitVector>> createCache() {
-        LoadingCache<File, List<Orbits.OrbitVector>> cache = CacheBuilder.newBuilder().maximumSize(6).initialCapacity(6)
+    private static LoadingCache<File, SentinelPODOrbitReader.OrbitData> createCache() {
+        LoadingCache<File, SentinelPODOrbitReader.OrbitData> cache = CacheBuilder.newBuilder().maximumSize(6).initialCapacity(6)
                 .expireAfterAccess(5, TimeUnit.MINUTES)
-                .build(new CacheLoader<File, List<Orbits.OrbitVector>>() {
+                .build(new CacheLoader<File, SentinelPODOrbitReader.OrbitData>() {
                            @Override
-                           public List<Orbits.OrbitVector> load(File key) throws Exception {
-                               return new ArrayList<>();
+                           public SentinelPODOrbitReader.OrbitData load(File key) throws Exception {
+                               return SentinelPODOrbitReader.read(key);
                            }
                        }
                 );
@@ -0,0 +1,504 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.io.orbits.sentinel1;
+
+import org.esa.snap.core.util.SystemUtils;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads the fixed header and the list of OSVs of a Sentinel POD orbit file (EOF) into primitive arrays.
+ * <p>
+ * The XML is parsed once with a streaming parser. The result is written to a binary sidecar file next to
+ * the orbit file, which later reads memory map instead of parsing the XML again.
+ */
+final class SentinelPODOrbitReader {
+
+    static final String SIDECAR_EXT = ".osv";
+
+    private static final int SIDECAR_MAGIC = 0x53314F56; // S1OV
+    private static final int SIDECAR_VERSION = 1;
+
+    // days between 1970-01-01 and the MJD 2000 epoch 2000-01-01
+    private static final long EPOCH_DAY_MJD2000 = 10957;
+    private static final double SECONDS_TO_DAYS = 1.0 / 86400.0;
+    private static final double MICROS_TO_SECONDS = 1.0e-6;
+
+    private SentinelPODOrbitReader() {
+    }
+
+    /**
+     * Content of an orbit file
+     */
+    static final class OrbitData {
+        String mission;
+        String fileType;
+        String validityStart;
+        String validityStop;
+
+        int count;
+        double[] utcMJD;
+        double[] xPos, yPos, zPos;
+        double[] xVel, yVel, zVel;
+
+        OrbitData(final int capacity) {
+            allocate(Math.max(capacity, 1));
+        }
+
+        private void allocate(final int capacity) {
+            utcMJD = new double[capacity];
+            xPos = new double[capacity];
+            yPos = new double[capacity];
+            zPos = new double[capacity];
+            xVel = new double[capacity];
+            yVel = new double[capacity];
+            zVel = new double[capacity];
+        }
+
+        private void add(final double utc, final double x, final double y, final double z,
+                         final double vx, final double vy, final double vz) {
+            if (count == utcMJD.length) {
+                final int capacity = 2 * count;
+                utcMJD = Arrays.copyOf(utcMJD, capacity);
+                xPos = Arrays.copyOf(xPos, capacity);
+                yPos = Arrays.copyOf(yPos, capacity);
+                zPos = Arrays.copyOf(zPos, capacity);
+                xVel = Arrays.copyOf(xVel, capacity);
+                yVel = Arrays.copyOf(yVel, capacity);
+                zVel = Arrays.copyOf(zVel, capacity);
+            }
+            utcMJD[count] = utc;
+            xPos[count] = x;
+            yPos[count] = y;
+            zPos[count] = z;
+            xVel[count] = vx;
+            yVel[count] = vy;
+            zVel[count] = vz;
+            ++count;
+        }
+
+        private void trimAndSort() {
+            if (utcMJD.length != count) {
+                utcMJD = Arrays.copyOf(utcMJD, count);
+                xPos = Arrays.copyOf(xPos, count);
+                yPos = Arrays.copyOf(yPos, count);
+                zPos = Arrays.copyOf(zPos, count);
+                xVel = Arrays.copyOf(xVel, count);
+                yVel = Arrays.copyOf(yVel, count);
+                zVel = Arrays.copyOf(zVel, count);
+            }
+
+            boolean sorted = true;
+            for (int i = 1; i < count && sorted; ++i) {
+                sorted = utcMJD[i - 1] <= utcMJD[i];
+            }
+            if (sorted) {
+                return;
+            }
+
+            final Integer[] order = new Integer[count];
+            for (int i = 0; i < count; ++i) {
+                order[i] = i;
+            }
+            final double[] time = utcMJD;
+            Arrays.sort(order, Comparator.comparingDouble(i -> time[i]));
+
+            utcMJD = reorder(utcMJD, order);
+            xPos = reorder(xPos, order);
+            yPos = reorder(yPos, order);
+            zPos = reorder(zPos, order);
+            xVel = reorder(xVel, order);
+            yVel = reorder(yVel, order);
+            zVel = reorder(zVel, order);
+        }
+
+        private static double[] reorder(final double[] array, final Integer[] order) {
+            final double[] result = new double[order.length];
+            for (int i = 0; i < order.length; ++i) {
+                result[i] = array[order[i]];
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Read an orbit file from its binary sidecar if it is up to date, otherwise parse the XML and write the sidecar.
+     *
+     * @param orbitFile the EOF file or a zip file containing it
+     * @return the orbit data
+     * @throws Exception if the orbit file cannot be read
+     */
+    static OrbitData read(final File orbitFile) throws Exception {
+        final File sidecarFile = getSidecarFile(orbitFile);
+        if (sidecarFile.exists()) {
+            try {
+                final OrbitData data = readSidecar(sidecarFile, orbitFile);
+                if (data != null) {
+                    return data;
+                }
+            } catch (IOException | RuntimeException e) {
+                SystemUtils.LOG.warning("SentinelPODOrbitReader.read: unable to read " + sidecarFile + ": " + e.getMessage());
+            }
+        }
+
+        final OrbitData data = parse(orbitFile);
+
+        try {
+            writeSidecar(sidecarFile, orbitFile, data);
+        } catch (IOException e) {
+            SystemUtils.LOG.fine("SentinelPODOrbitReader.read: unable to write " + sidecarFile + ": " + e.getMessage());
+        }
+        return data;
+    }
+
+    static File getSidecarFile(final File orbitFile) {
+        return new File(orbitFile.getParentFile(), orbitFile.getName() + SIDECAR_EXT);
+    }
+
+    static OrbitData parse(final File orbitFile) throws Exception {
+        if (orbitFile.getName().toLowerCase().endsWith(".zip")) {
+            try (ZipFile productZip = new ZipFile(orbitFile, ZipFile.OPEN_READ)) {
+                final Enumeration<? extends ZipEntry> entries = productZip.entries();
+                final ZipEntry zipEntry = entries.nextElement();
+                try (InputStream stream = new BufferedInputStream(productZip.getInputStream(zipEntry))) {
+                    return parse(stream);
+                }
+            }
+        }
+        try (InputStream stream = new BufferedInputStream(new FileInputStream(orbitFile))) {
+            return parse(stream);
+        }
+    }
+
+    static OrbitData parse(final InputStream stream) throws Exception {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+
+        final XMLStreamReader reader = factory.createXMLStreamReader(stream);
+        try {
+            reader.nextTag();
+            if (!reader.getLocalName().equals("Earth_Explorer_File")) {
+                throw new Exception("SentinelPODOrbitReader.parse: ERROR Earth_Explorer_File not found");
+            }
+
+            OrbitData data = null;
+            String mission = null, fileType = null, validityStart = null, validityStop = null;
+            boolean inFixedHeader = false;
+            int expectedCount = 0;
+
+            while (reader.hasNext()) {
+                final int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    final String name = reader.getLocalName();
+                    switch (name) {
+                        case "Fixed_Header":
+                            inFixedHeader = true;
+                            break;
+                        case "Mission":
+                            if (inFixedHeader) mission = reader.getElementText();
+                            break;
+                        case "File_Type":
+                            if (inFixedHeader) fileType = reader.getElementText();
+                            break;
+                        case "Validity_Start":
+                            if (inFixedHeader) validityStart = reader.getElementText();
+                            break;
+                        case "Validity_Stop":
+                            if (inFixedHeader) validityStop = reader.getElementText();
+                            break;
+                        case "List_of_OSVs": {
+                            final String countStr = reader.getAttributeValue(null, "count");
+                            if (countStr == null) {
+                                SystemUtils.LOG.warning("SentinelPODOrbitReader.parse: Failed to find count in List_of_OSVs");
+                            } else {
+                                expectedCount = Integer.parseInt(countStr.trim());
+                            }
+                            data = new OrbitData(expectedCount);
+                            break;
+                        }
+                        case "OSV":
+                            if (data == null) {
+                                data = new OrbitData(expectedCount);
+                            }
+                            readOneOSV(reader, data);
+                            break;
+                        default:
+                            break;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (reader.getLocalName().equals("Fixed_Header")) {
+                        inFixedHeader = false;
+                    }
+                }
+            }
+
+            if (data == null) {
+                data = new OrbitData(0);
+            }
+            if (expectedCount != data.count) {
+                SystemUtils.LOG.warning("SentinelPODOrbitReader.parse: WARNING List_of_OSVs count = " +
+                        expectedCount + " but found only " + data.count + " OSV");
+            }
+            data.trimAndSort();
+
+            if (mission != null && fileType != null && validityStart != null && validityStop != null) {
+                data.mission = mission;
+                data.fileType = fileType;
+                data.validityStart = validityStart;
+                data.validityStop = validityStop;
+            }
+            return data;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void readOneOSV(final XMLStreamReader reader, final OrbitData data) throws Exception {
+
+        String utc = "";
+        double x = 0.0;
+        double y = 0.0;
+        double z = 0.0;
+        double vx = 0.0;
+        double vy = 0.0;
+        double vz = 0.0;
+
+        while (reader.hasNext()) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "UTC":
+                        utc = reader.getElementText();
+                        break;
+                    case "X":
+                        x = Double.parseDouble(reader.getElementText());
+                        break;
+                    case "Y":
+                        y = Double.parseDouble(reader.getElementText());
+                        break;
+                    case "Z":
+                        z = Double.parseDouble(reader.getElementText());
+                        break;
+                    case "VX":
+                        vx = Double.parseDouble(reader.getElementText());
+                        break;
+                    case "VY":
+                        vy = Double.parseDouble(reader.getElementText());
+                        break;
+                    case "VZ":
+                        vz = Double.parseDouble(reader.getElementText());
+                        break;
+                    default:
+                        skipElement(reader);
+                        break;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                break;
+            }
+        }
+
+        data.add(parseUTC(utc), x, y, z, vx, vy, vz);
+    }
+
+    private static void skipElement(final XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                ++depth;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                --depth;
+            }
+        }
+    }
+
+    /**
+     * Convert an orbit file time of the form UTC=yyyy-MM-ddTHH:mm:ss.ffffff to MJD 2000 without a date format.
+     * Other forms are passed on to {@link SentinelPODOrbitFile#toUTC(String)}.
+     */
+    static double parseUTC(final String str) throws Exception {
+        final String s = str.trim();
+        final int o = s.startsWith("UTC=") ? 4 : 0;
+        if (s.length() >= o + 19 && s.charAt(o + 4) == '-' && s.charAt(o + 7) == '-' &&
+                (s.charAt(o + 10) == 'T' || s.charAt(o + 10) == ' ') &&
+                s.charAt(o + 13) == ':' && s.charAt(o + 16) == ':') {
+            try {
+                final int year = Integer.parseInt(s.substring(o, o + 4));
+                final int month = Integer.parseInt(s.substring(o + 5, o + 7));
+                final int day = Integer.parseInt(s.substring(o + 8, o + 10));
+                final int hour = Integer.parseInt(s.substring(o + 11, o + 13));
+                final int minute = Integer.parseInt(s.substring(o + 14, o + 16));
+                final int second = Integer.parseInt(s.substring(o + 17, o + 19));
+
+                int micros = 0;
+                if (s.length() > o + 20 && s.charAt(o + 19) == '.') {
+                    int digits = 0;
+                    for (int i = o + 20; i < s.length() && digits < 6; ++i, ++digits) {
+                        final char c = s.charAt(i);
+                        if (c < '0' || c > '9') {
+                            break;
+                        }
+                        micros = micros * 10 + (c - '0');
+                    }
+                    for (; digits < 6; ++digits) {
+                        micros *= 10;
+                    }
+                }
+
+                final long days = LocalDate.of(year, month, day).toEpochDay() - EPOCH_DAY_MJD2000;
+                final int seconds = hour * 3600 + minute * 60 + second;
+                return days + (seconds + micros * MICROS_TO_SECONDS) * SECONDS_TO_DAYS;
+            } catch (RuntimeException e) {
+                // fall back to the date format
+            }
+        }
+        return SentinelPODOrbitFile.toUTC(str).getMJD();
+    }
+
+    private static OrbitData readSidecar(final File sidecarFile, final File orbitFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(sidecarFile.toPath(), StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.remaining() < 28 || buffer.getInt() != SIDECAR_MAGIC || buffer.getInt() != SIDECAR_VERSION) {
+                return null;
+            }
+            if (buffer.getLong() != orbitFile.length() || buffer.getLong() != orbitFile.lastModified()) {
+                return null;
+            }
+
+            final int count = buffer.getInt();
+            final String mission = getString(buffer);
+            final String fileType = getString(buffer);
+            final String validityStart = getString(buffer);
+            final String validityStop = getString(buffer);
+            if (count < 0 || buffer.remaining() != 7 * 8L * count) {
+                return null;
+            }
+
+            final OrbitData data = new OrbitData(count);
+            data.mission = mission;
+            data.fileType = fileType;
+            data.validityStart = validityStart;
+            data.validityStop = validityStop;
+            data.count = count;
+            buffer.asDoubleBuffer().get(data.utcMJD, 0, count);
+            buffer.position(buffer.position() + 8 * count);
+            buffer.asDoubleBuffer().get(data.xPos, 0, count);
+            buffer.position(buffer.position() + 8 * count);
+            buffer.asDoubleBuffer().get(data.yPos, 0, count);
+            buffer.position(buffer.position() + 8 * count);
+            buffer.asDoubleBuffer().get(data.zPos, 0, count);
+            buffer.position(buffer.position() + 8 * count);
+            buffer.asDoubleBuffer().get(data.xVel, 0, count);
+            buffer.position(buffer.position() + 8 * count);
+            buffer.asDoubleBuffer().get(data.yVel, 0, count);
+            buffer.position(buffer.position() + 8 * count);
+            buffer.asDoubleBuffer().get(data.zVel, 0, count);
+            data.trimAndSort();
+            return data;
+        }
+    }
+
+    private static void writeSidecar(final File sidecarFile, final File orbitFile, final OrbitData data)
+            throws IOException {
+        final byte[][] strings = {
+                getBytes(data.mission), getBytes(data.fileType), getBytes(data.validityStart), getBytes(data.validityStop)
+        };
+        int size = 28 + 7 * 8 * data.count;
+        for (byte[] bytes : strings) {
+            size += 4 + (bytes == null ? 0 : bytes.length);
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(SIDECAR_MAGIC);
+        buffer.putInt(SIDECAR_VERSION);
+        buffer.putLong(orbitFile.length());
+        buffer.putLong(orbitFile.lastModified());
+        buffer.putInt(data.count);
+        for (byte[] bytes : strings) {
+            if (bytes == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(bytes.length);
+                buffer.put(bytes);
+            }
+        }
+        buffer.asDoubleBuffer().put(data.utcMJD, 0, data.count);
+        buffer.position(buffer.position() + 8 * data.count);
+        buffer.asDoubleBuffer().put(data.xPos, 0, data.count);
+        buffer.position(buffer.position() + 8 * data.count);
+        buffer.asDoubleBuffer().put(data.yPos, 0, data.count);
+        buffer.position(buffer.position() + 8 * data.count);
+        buffer.asDoubleBuffer().put(data.zPos, 0, data.count);
+        buffer.position(buffer.position() + 8 * data.count);
+        buffer.asDoubleBuffer().put(data.xVel, 0, data.count);
+        buffer.position(buffer.position() + 8 * data.count);
+        buffer.asDoubleBuffer().put(data.yVel, 0, data.count);
+        buffer.position(buffer.position() + 8 * data.count);
+        buffer.asDoubleBuffer().put(data.zVel, 0, data.count);
+        buffer.position(buffer.position() + 8 * data.count);
+        buffer.flip();
+
+        // write to a temporary file first so that concurrent readers never see a partial sidecar
+        final File tmpFile = File.createTempFile(sidecarFile.getName(), ".tmp", sidecarFile.getParentFile());
+        try {
+            try (FileChannel channel = FileChannel.open(tmpFile.toPath(), StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(tmpFile.toPath(), sidecarFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmpFile.toPath());
+        }
+    }
+
+    private static byte[] getBytes(final String str) {
+        return str == null ? null : str.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String getString(final ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.io.orbits.sentinel1;
+
+import org.esa.snap.core.datamodel.MetadataElement;
+import org.esa.snap.core.datamodel.ProductData;
+import org.esa.snap.engine_utilities.datamodel.AbstractMetadata;
+import org.esa.snap.engine_utilities.datamodel.Orbits;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * To test SentinelPODOrbitReader
+ */
+public class TestSentinelPODOrbitReader {
+
+    private static final String[] UTC = {
+            "UTC=2014-05-25T15:19:21.698661", "UTC=2014-05-25T15:19:31.698661", "UTC=2014-05-25T15:19:41.698661"
+    };
+
+    private File folder;
+    private File orbitFile;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("podOrbit").toFile();
+        orbitFile = new File(folder, "S1A_OPER_AUX_RESORB_OPOD_20140611T152302_V20140525T151921_20140525T183641.EOF");
+
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(orbitFile), StandardCharsets.UTF_8)) {
+            writer.write("<?xml version=\"1.0\" ?>\n<Earth_Explorer_File>\n<Earth_Explorer_Header>\n<Fixed_Header>\n" +
+                    "<Mission>Sentinel-1A</Mission>\n<File_Type>AUX_RESORB</File_Type>\n<Validity_Period>\n" +
+                    "<Validity_Start>UTC=2014-05-25T15:19:21</Validity_Start>\n" +
+                    "<Validity_Stop>UTC=2014-05-25T18:36:41</Validity_Stop>\n</Validity_Period>\n" +
+                    "</Fixed_Header>\n<Variable_Header/>\n</Earth_Explorer_Header>\n<Data_Block type=\"xml\">\n" +
+                    "<List_of_OSVs count=\"3\">\n");
+            // written out of order to check sorting
+            for (int i : new int[]{1, 0, 2}) {
+                writer.write("<OSV>\n<TAI>TAI=2014-05-25T15:19:56.698661</TAI>\n<UTC>" + UTC[i] + "</UTC>\n" +
+                        "<Absolute_Orbit>+587</Absolute_Orbit>\n" +
+                        "<X unit=\"m\">" + (1000.5 + i) + "</X>\n<Y unit=\"m\">" + (2000.25 + i) + "</Y>\n" +
+                        "<Z unit=\"m\">" + (-3000.125 + i) + "</Z>\n<VX unit=\"m/s\">" + (10.5 + i) + "</VX>\n" +
+                        "<VY unit=\"m/s\">" + (20.5 + i) + "</VY>\n<VZ unit=\"m/s\">" + (-30.5 + i) + "</VZ>\n" +
+                        "<Quality>NOMINAL</Quality>\n</OSV>\n");
+            }
+            writer.write("</List_of_OSVs>\n</Data_Block>\n</Earth_Explorer_File>\n");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        final File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        folder.delete();
+    }
+
+    @Test
+    public void testParseUTC() throws Exception {
+        for (String utc : UTC) {
+            assertEquals(SentinelPODOrbitFile.toUTC(utc).getMJD(), SentinelPODOrbitReader.parseUTC(utc), 1e-12);
+        }
+        assertEquals(SentinelPODOrbitFile.toUTC("UTC=2015-08-27T22:59:43").getMJD(),
+                SentinelPODOrbitReader.parseUTC("UTC=2015-08-27T22:59:43"), 1e-12);
+    }
+
+    @Test
+    public void testReadAndSidecar() throws Exception {
+        final SentinelPODOrbitReader.OrbitData parsed = SentinelPODOrbitReader.read(orbitFile);
+        checkOrbitData(parsed);
+
+        final File sidecarFile = SentinelPODOrbitReader.getSidecarFile(orbitFile);
+        assertTrue(sidecarFile.exists());
+
+        final SentinelPODOrbitReader.OrbitData fromSidecar = SentinelPODOrbitReader.read(orbitFile);
+        checkOrbitData(fromSidecar);
+        assertArrayEquals(parsed.utcMJD, fromSidecar.utcMJD, 0.0);
+        assertArrayEquals(parsed.zVel, fromSidecar.zVel, 0.0);
+    }
+
+    @Test
+    public void testGetOrbitData() throws Exception {
+        final int numOSV = 40;
+        final int polyDegree = 3;
+        final LocalDateTime firstTime = LocalDateTime.of(2014, 5, 25, 15, 19, 21, 698661000);
+        final DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS");
+
+        final File file = new File(folder,
+                "S1A_OPER_AUX_POEORB_OPOD_20140611T152302_V20140525T151921_20140525T152621.EOF");
+        final double[] time = new double[numOSV];
+        final double[][] osv = new double[6][numOSV];
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write("<?xml version=\"1.0\" ?>\n<Earth_Explorer_File>\n<Earth_Explorer_Header>\n<Fixed_Header>\n" +
+                    "<Mission>Sentinel-1A</Mission>\n<File_Type>AUX_POEORB</File_Type>\n<Validity_Period>\n" +
+                    "<Validity_Start>UTC=2014-05-25T15:19:21</Validity_Start>\n" +
+                    "<Validity_Stop>UTC=2014-05-25T15:26:21</Validity_Stop>\n</Validity_Period>\n" +
+                    "</Fixed_Header>\n<Variable_Header/>\n</Earth_Explorer_Header>\n<Data_Block type=\"xml\">\n" +
+                    "<List_of_OSVs count=\"" + numOSV + "\">\n");
+            // circular orbit with a 10 s state vector interval
+            final double radius = 7.07e6;
+            final double omega = 2.0 * Math.PI / 5924.0;
+            for (int i = 0; i < numOSV; ++i) {
+                final String utc = "UTC=" + firstTime.plusSeconds(10 * i).format(format);
+                final double a = omega * 10 * i;
+                osv[0][i] = radius * Math.cos(a);
+                osv[1][i] = 0.3 * radius * Math.sin(a);
+                osv[2][i] = 0.95 * radius * Math.sin(a);
+                osv[3][i] = -radius * omega * Math.sin(a);
+                osv[4][i] = 0.3 * radius * omega * Math.cos(a);
+                osv[5][i] = 0.95 * radius * omega * Math.cos(a);
+                time[i] = SentinelPODOrbitFile.toUTC(utc).getMJD();
+                writer.write("<OSV>\n<TAI>TAI=2014-05-25T15:19:56.698661</TAI>\n<UTC>" + utc + "</UTC>\n" +
+                        "<Absolute_Orbit>+587</Absolute_Orbit>\n" +
+                        "<X unit=\"m\">" + osv[0][i] + "</X>\n<Y unit=\"m\">" + osv[1][i] + "</Y>\n" +
+                        "<Z unit=\"m\">" + osv[2][i] + "</Z>\n<VX unit=\"m/s\">" + osv[3][i] + "</VX>\n" +
+                        "<VY unit=\"m/s\">" + osv[4][i] + "</VY>\n<VZ unit=\"m/s\">" + osv[5][i] + "</VZ>\n" +
+                        "<Quality>NOMINAL</Quality>\n</OSV>\n");
+            }
+            writer.write("</List_of_OSVs>\n</Data_Block>\n</Earth_Explorer_File>\n");
+        }
+
+        final MetadataElement absRoot = AbstractMetadata.addAbstractedMetadataHeader(new MetadataElement("root"));
+        AbstractMetadata.setAttribute(absRoot, AbstractMetadata.STATE_VECTOR_TIME, new ProductData.UTC(time[10]));
+        final SentinelPODOrbitFile podOrbitFile = new SentinelPODOrbitFile(absRoot, polyDegree);
+        podOrbitFile.readOrbitFile(file);
+
+        // at the first, an inner and the last state vector, between state vectors and outside the orbit
+        final double dt = time[1] - time[0];
+        final double[] utcs = {time[0], time[17], time[numOSV - 1], time[0] + 0.3 * dt, time[1] + 0.5 * dt,
+                time[20] + 0.77 * dt, time[numOSV - 2] + 0.9 * dt, time[0] - 0.2 * dt, time[numOSV - 1] + 0.1 * dt};
+        final Orbits.OrbitVector[] orbitVectors = podOrbitFile.getOrbitData(utcs);
+        for (int k = 0; k < utcs.length; ++k) {
+            final double[] expected = fitOrbit(time, osv, polyDegree, utcs[k]);
+            final Orbits.OrbitVector orbitData = podOrbitFile.getOrbitData(utcs[k]);
+            checkOrbitVector(expected, orbitData);
+            checkOrbitVector(expected, orbitVectors[k]);
+        }
+    }
+
+    /**
+     * The polynomial through polyDegree + 1 state vectors around the given time, as fitted by the former
+     * SentinelPODOrbitFile.getOrbitData.
+     */
+    private static double[] fitOrbit(final double[] time, final double[][] osv, final int polyDegree,
+                                     final double utc) {
+        final int numVectors = time.length;
+        final int numVecPolyFit = polyDegree + 1;
+        final int halfNumVecPolyFit = numVecPolyFit / 2;
+        final int vecIdx = (int) ((utc - time[0]) / (time[numVectors - 1] - time[0]) * (numVectors - 1));
+        final int i0;
+        if (vecIdx <= halfNumVecPolyFit - 1) {
+            i0 = 0;
+        } else if (vecIdx >= numVectors - halfNumVecPolyFit) {
+            i0 = numVectors - numVecPolyFit;
+        } else {
+            i0 = vecIdx - halfNumVecPolyFit + 1;
+        }
+
+        final double[] result = new double[6];
+        for (int i = i0; i < i0 + numVecPolyFit; ++i) {
+            double weight = 1.0;
+            for (int j = i0; j < i0 + numVecPolyFit; ++j) {
+                if (j != i) {
+                    weight *= (utc - time[j]) / (time[i] - time[j]);
+                }
+            }
+            for (int c = 0; c < 6; ++c) {
+                result[c] += weight * osv[c][i];
+            }
+        }
+        return result;
+    }
+
+    private static void checkOrbitVector(final double[] expected, final Orbits.OrbitVector orbitData) {
+        assertEquals(expected[0], orbitData.xPos, 1e-4);
+        assertEquals(expected[1], orbitData.yPos, 1e-4);
+        assertEquals(expected[2], orbitData.zPos, 1e-4);
+        assertEquals(expected[3], orbitData.xVel, 1e-7);
+        assertEquals(expected[4], orbitData.yVel, 1e-7);
+        assertEquals(expected[5], orbitData.zVel, 1e-7);
+    }
+
+    private static void checkOrbitData(final SentinelPODOrbitReader.OrbitData data) throws Exception {
+        assertEquals("Sentinel-1A", data.mission);
+        assertEquals("AUX_RESORB", data.fileType);
+        assertEquals("UTC=2014-05-25T15:19:21", data.validityStart);
+        assertEquals("UTC=2014-05-25T18:36:41", data.validityStop);
+
+        assertEquals(3, data.count);
+        for (int i = 0; i < data.count; ++i) {
+            assertEquals(SentinelPODOrbitFile.toUTC(UTC[i]).getMJD(), data.utcMJD[i], 1e-12);
+            assertEquals(1000.5 + i, data.xPos[i], 0.0);
+            assertEquals(2000.25 + i, data.yPos[i], 0.0);
+            assertEquals(-3000.125 + i, data.zPos[i], 0.0);
+            assertEquals(10.5 + i, data.xVel[i], 0.0);
+            assertEquals(20.5 + i, data.yVel[i], 0.0);
+            assertEquals(-30.5 + i, data.zVel[i], 0.0);
+        }
+    }
+}
@@ -22,7 +22,12 @@ import org.esa.snap.core.datamodel.MetadataElement;
 import org.esa.snap.core.datamodel.ProductData;
 import org.esa.snap.engine_utilities.eo.Constants;
 
+import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 
 /**
@@ -40,6 +45,9 @@ public abstract class CEOSImageFile {
     protected long startPosImageRecords = 0;
     protected int imageHeaderLength = 0;
 
+    private static final int MAX_BLOCK_BYTES = 4 * 1024 * 1024;
+    private FileChannel imageChannel = null;
+
     public BinaryRecord getImageFileDescriptor() {
         return imageFDR;
     }
@@ -155,6 +163,7 @@ public abstract class CEOSImageFile {
         pm.beginTask("Reading band...", sourceMaxY - sourceOffsetY);
         try {
             final short[] srcLine = new short[sourceWidth];
+            final LineReader lineReader = new LineReader(xpos, sourceOffsetY, sourceMaxY, sourceStepY, srcLine.length * 2);
             short[] destLine = null;
             if (sourceStepX != 1)
                 destLine = new short[destWidth];
@@ -164,10 +173,7 @@ public abstract class CEOSImageFile {
                 }
 
                 // Read source line
-                synchronized (binaryReader) {
-                    binaryReader.seek(_imageRecordLength * y + xpos);
-                    binaryReader.read(srcLine);
-                }
+                lineReader.read(y, srcLine);
 
                 // Copy source line into destination buffer
                 final int currentLineIndex = (y - sourceOffsetY) * destWidth;
@@ -202,6 +208,7 @@ public abstract class CEOSImageFile {
         pm.beginTask("Reading band...", sourceMaxY - sourceOffsetY);
         try {
             final int[] srcLine = new int[sourceWidth];
+            final LineReader lineReader = new LineReader(xpos, sourceOffsetY, sourceMaxY, sourceStepY, srcLine.length * 4);
             int[] destLine = null;
             if (sourceStepX != 1)
                 destLine = new int[destWidth];
@@ -211,10 +218,7 @@ public abstract class CEOSImageFile {
                 }
 
                 // Read source line
-                synchronized (binaryReader) {
-                    binaryReader.seek(_imageRecordLength * y + xpos);
-                    binaryReader.read(srcLine);
-                }
+                lineReader.read(y, srcLine);
 
                 // Copy source line into destination buffer
                 final int currentLineIndex = (y - sourceOffsetY) * destWidth;
@@ -246,6 +250,7 @@ public abstract class CEOSImageFile {
         pm.beginTask("Reading band...", sourceMaxY - sourceOffsetY);
         try {
             final float[] srcLine = new float[sourceWidth];
+            final LineReader lineReader = new LineReader(xpos, sourceOffsetY, sourceMaxY, sourceStepY, srcLine.length * 4);
             float[] destLine = null;
             if (sourceStepX != 1)
                 destLine = new float[destWidth];
@@ -255,10 +260,7 @@ public abstract class CEOSImageFile {
                 }
 
                 // Read source line
-                synchronized (binaryReader) {
-                    binaryReader.seek(_imageRecordLength * y + xpos);
-                    binaryReader.read(srcLine);
-                }
+                lineReader.read(y, srcLine);
 
                 // Copy source line into destination buffer
                 final int currentLineIndex = (y - sourceOffsetY) * destWidth;
@@ -289,6 +291,7 @@ public abstract class CEOSImageFile {
         pm.beginTask("Reading band...", sourceMaxY - sourceOffsetY);
         try {
             final byte[] srcLine = new byte[sourceWidth];
+            final LineReader lineReader = new LineReader(xpos, sourceOffsetY, sourceMaxY, sourceStepY, srcLine.length * 1);
             byte[] destLine = null;
             if (sourceStepX != 1)
                 destLine = new byte[destWidth];
@@ -298,10 +301,7 @@ public abstract class CEOSImageFile {
                 }
 
                 // Read source line
-                synchronized (binaryReader) {
-                    binaryReader.seek(_imageRecordLength * y + xpos);
-                    binaryReader.read(srcLine);
-                }
+                lineReader.read(y, srcLine);
 
                 // Copy source line into destination buffer
                 final int currentLineIndex = (y - sourceOffsetY) * destWidth;
@@ -333,6 +333,7 @@ public abstract class CEOSImageFile {
 
         try {
             final short[] srcLine = new short[sourceWidth * 2];
+            final LineReader lineReader = new LineReader(xpos, sourceOffsetY, sourceMaxY, sourceStepY, srcLine.length * 2);
             for (int y = sourceOffsetY; y <= sourceMaxY; y += sourceStepY) {
 
                 /*
@@ -360,10 +361,7 @@ public abstract class CEOSImageFile {
                 }   */
 
                 // Read source line
-                synchronized (binaryReader) {
-                    binaryReader.seek(_imageRecordLength * y + xpos);
-                    binaryReader.read(srcLine);
-                }
+                lineReader.read(y, srcLine);
 
                 // Copy source line into destination buffer
                 final int currentLineIndex = (y - sourceOffsetY) * destWidth;
@@ -390,16 +388,14 @@ public abstract class CEOSImageFile {
         pm.beginTask("Reading band...", sourceMaxY - sourceOffsetY);
         try {
             final float[] srcLine = new float[sourceWidth * 2];
+            final LineReader lineReader = new LineReader(xpos, sourceOffsetY, sourceMaxY, sourceStepY, srcLine.length * 4);
             for (int y = sourceOffsetY; y <= sourceMaxY; y += sourceStepY) {
                 if (pm.isCanceled()) {
                     break;
                 }
 
                 // Read source line
-                synchronized (binaryReader) {
-                    binaryReader.seek(_imageRecordLength * y + xpos);
-                    binaryReader.read(srcLine);
-                }
+                lineReader.read(y, srcLine);
 
                 // Copy source line into destination buffer
                 final int currentLineIndex = (y - sourceOffsetY) * destWidth;
@@ -427,6 +423,7 @@ public abstract class CEOSImageFile {
         pm.beginTask("Reading band...", sourceMaxY - sourceOffsetY);
         try {
             final byte[] srcLine = new byte[sourceWidth * 2];
+            final LineReader lineReader = new LineReader(xpos, sourceOffsetY, sourceMaxY, sourceStepY, srcLine.length * 1);
             final byte[] destLine = new byte[destWidth];
             for (int y = sourceOffsetY; y <= sourceMaxY; y += sourceStepY) {
                 if (pm.isCanceled()) {
@@ -434,10 +431,7 @@ public abstract class CEOSImageFile {
                 }
 
                 // Read source line
-                synchronized (binaryReader) {
-                    binaryReader.seek(_imageRecordLength * y + xpos);
-                    binaryReader.read(srcLine);
-                }
+                lineReader.read(y, srcLine);
 
                 // Copy source line into destination buffer
                 final int currentLineIndex = (y - sourceOffsetY) * destWidth;
@@ -565,7 +559,129 @@ public abstract class CEOSImageFile {
         }
     }
 
+    private synchronized FileChannel getImageChannel() throws IOException {
+        if (imageChannel == null && binaryReader != null) {
+            final File file = binaryReader.getFile();
+            if (file != null) {
+                imageChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            }
+        }
+        return imageChannel;
+    }
+
+    /**
+     * Reads the source lines of one raster request.
+     * File backed images are read with positional reads on a FileChannel so that concurrent tile requests
+     * do not serialize on the shared BinaryFileReader. Consecutive lines are fetched as one block of whole
+     * records and decoded from the block buffer. Other streams fall back to the synchronized BinaryFileReader.
+     */
+    private final class LineReader {
+
+        private final FileChannel channel;
+        private final long xpos;
+        private final int lastLine;
+        private final int lineBytes;
+        private final int linesPerBlock;
+        private final ByteBuffer block;
+
+        private int blockFirstLine = -1;
+        private int blockNumLines = 0;
+
+        LineReader(final long xpos, final int firstLine, final int lastLine, final int stepY, final int lineBytes)
+                throws IOException {
+            this.channel = getImageChannel();
+            this.xpos = xpos;
+            this.lastLine = lastLine;
+            this.lineBytes = lineBytes;
+
+            if (channel == null) {
+                linesPerBlock = 0;
+                block = null;
+            } else {
+                // with a line step only the requested records are read
+                final long maxLines = Math.max(1, MAX_BLOCK_BYTES / _imageRecordLength);
+                linesPerBlock = stepY == 1 ? (int) Math.max(1, Math.min(lastLine - firstLine + 1, maxLines)) : 1;
+                final int blockBytes = (int) ((linesPerBlock - 1) * _imageRecordLength) + lineBytes;
+                block = ByteBuffer.allocate(blockBytes).order(binaryReader.getByteOrder());
+            }
+        }
+
+        private ByteBuffer getLine(final int y) throws IOException {
+            if (y < blockFirstLine || y >= blockFirstLine + blockNumLines) {
+                readBlock(y);
+            }
+            block.limit((int) ((y - blockFirstLine) * _imageRecordLength) + lineBytes);
+            block.position((int) ((y - blockFirstLine) * _imageRecordLength));
+            return block;
+        }
+
+        private void readBlock(final int y) throws IOException {
+            final int numLines = Math.min(linesPerBlock, lastLine - y + 1);
+            final long blockPos = _imageRecordLength * y + xpos;
+
+            block.clear();
+            block.limit((int) ((numLines - 1) * _imageRecordLength) + lineBytes);
+            while (block.hasRemaining()) {
+                if (channel.read(block, blockPos + block.position()) < 0) {
+                    throw new EOFException("Unexpected end of image file at line " + y);
+                }
+            }
+            blockFirstLine = y;
+            blockNumLines = numLines;
+        }
+
+        void read(final int y, final byte[] line) throws IOException {
+            if (channel == null) {
+                synchronized (binaryReader) {
+                    binaryReader.seek(_imageRecordLength * y + xpos);
+                    binaryReader.read(line);
+                }
+            } else {
+                getLine(y).get(line);
+            }
+        }
+
+        void read(final int y, final short[] line) throws IOException {
+            if (channel == null) {
+                synchronized (binaryReader) {
+                    binaryReader.seek(_imageRecordLength * y + xpos);
+                    binaryReader.read(line);
+                }
+            } else {
+                getLine(y).asShortBuffer().get(line);
+            }
+        }
+
+        void read(final int y, final int[] line) throws IOException {
+            if (channel == null) {
+                synchronized (binaryReader) {
+                    binaryReader.seek(_imageRecordLength * y + xpos);
+                    binaryReader.read(line);
+                }
+            } else {
+                getLine(y).asIntBuffer().get(line);
+            }
+        }
+
+        void read(final int y, final float[] line) throws IOException {
+            if (channel == null) {
+                synchronized (binaryReader) {
+                    binaryReader.seek(_imageRecordLength * y + xpos);
+                    binaryReader.read(line);
+                }
+            } else {
+                getLine(y).asFloatBuffer().get(line);
+            }
+        }
+    }
+
     public void close() throws IOException {
+        synchronized (this) {
+            if (imageChannel != null) {
+                imageChannel.close();
+                imageChannel = null;
+            }
+        }
         binaryReader.close();
         binaryReader = null;
     }
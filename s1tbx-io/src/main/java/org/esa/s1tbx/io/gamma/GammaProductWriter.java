@@ -17,7 +17,8 @@ package org.esa.s1tbx.io.gamma;
 
 import com.bc.ceres.core.ProgressMonitor;
 import com.bc.ceres.glevel.MultiLevelImage;
-import org.esa.s1tbx.commons.io.FileImageOutputStreamExtImpl;
+import org.esa.s1tbx.commons.io.FlatRasterFile;
+import org.esa.s1tbx.commons.io.FlatRasterOutputFile;
 import org.esa.s1tbx.io.gamma.header.GammaConstants;
 import org.esa.s1tbx.io.gamma.header.HeaderDEMWriter;
 import org.esa.s1tbx.io.gamma.header.HeaderDiffWriter;
@@ -30,7 +31,6 @@ import org.esa.snap.core.gpf.internal.TileImpl;
 import org.esa.snap.core.util.Guardian;
 import org.esa.snap.engine_utilities.datamodel.Unit;
 
-import javax.imageio.stream.ImageOutputStream;
 import java.awt.*;
 import java.awt.image.Raster;
 import java.io.File;
@@ -48,7 +48,7 @@ public class GammaProductWriter extends AbstractProductWriter {
     private File outputDir;
     private File outputFile;
     private Product srcProduct;
-    private Map<Band, ImageOutputStream> bandOutputStreams;
+    private Map<Band, FlatRasterOutputFile> bandOutputFiles;
     private HeaderWriter headerWriter;
 
     public GammaProductWriter(final ProductWriterPlugIn writerPlugIn) {
@@ -89,74 +89,42 @@ public class GammaProductWriter extends AbstractProductWriter {
         headerWriter.writeParFile();
     }
 
-    private ImageOutputStream createImageOutputStream(final Band band) throws IOException {
-        final ImageOutputStream out = new FileImageOutputStreamExtImpl(getValidImageFile(band));
-        out.setByteOrder(ByteOrder.BIG_ENDIAN);
-        return out;
+    private FlatRasterOutputFile createOutputFile(final Band band) throws IOException {
+        final File file = getValidImageFile(band);
+        if (isComplex(band)) {
+            // band interleaved by pixel
+            final int dataType = headerWriter.getHighestElemSize() >= 4 ? ProductData.TYPE_FLOAT32 : ProductData.TYPE_INT16;
+            return new FlatRasterOutputFile(file, 0, band.getRasterWidth(), band.getRasterHeight(), 2, dataType,
+                    FlatRasterFile.Interleave.BIP, ByteOrder.BIG_ENDIAN);
+        }
+        return new FlatRasterOutputFile(file, 0, band.getRasterWidth(), band.getRasterHeight(), 1, band.getDataType(),
+                FlatRasterFile.Interleave.BSQ, ByteOrder.BIG_ENDIAN);
     }
 
     /**
      * {@inheritDoc}
      */
-    public synchronized void writeBandRasterData(Band sourceBand,
-                                                 int sourceOffsetX, int sourceOffsetY,
-                                                 int sourceWidth, int sourceHeight,
-                                                 ProductData sourceBuffer,
-                                                 ProgressMonitor pm) throws IOException {
+    public void writeBandRasterData(Band sourceBand,
+                                    int sourceOffsetX, int sourceOffsetY,
+                                    int sourceWidth, int sourceHeight,
+                                    ProductData sourceBuffer,
+                                    ProgressMonitor pm) throws IOException {
         Guardian.assertNotNull("sourceBand", sourceBand);
         Guardian.assertNotNull("sourceBuffer", sourceBuffer);
-        final int sourceBandWidth = sourceBand.getRasterWidth();
-        final int elemSize = headerWriter.getHighestElemSize();
 
-        final ImageOutputStream outputStream = getOrCreateImageOutputStream(sourceBand);
+        final FlatRasterOutputFile outputFile = getOrCreateOutputFile(sourceBand);
         pm.beginTask("Writing band '" + sourceBand.getName() + "'...", sourceHeight);
         try {
             if (isComplex(sourceBand)) {
-                int numInterleaved = 2;
                 final Rectangle rect = new Rectangle(sourceOffsetX, sourceOffsetY, sourceWidth, sourceHeight);
                 final Tile sourceTile = getSourceTile(getComplexSrcBand(sourceBand), rect);
                 final ProductData qSourceBuffer = sourceTile.getRawSamples();
-                int srcCnt = 0;
-
-                if (elemSize >= 4) {
-                    final float[] destBuffer = new float[sourceWidth * numInterleaved];
-                    for (long y = sourceOffsetY; y < sourceOffsetY + sourceHeight; ++y) {
-                        int dstCnt = 0;
-                        for (int x = sourceOffsetX; x < sourceOffsetX + sourceWidth; ++x) {
-
-                            destBuffer[dstCnt++] = sourceBuffer.getElemFloatAt(srcCnt);
-                            destBuffer[dstCnt++] = qSourceBuffer.getElemFloatAt(srcCnt);
-                            srcCnt++;
-                        }
-
-                        outputStream.seek(elemSize * (y * sourceBandWidth + sourceOffsetX) * numInterleaved);
-                        outputStream.writeFloats(destBuffer, 0, destBuffer.length);
-                    }
-                } else {
-                    final short[] destBuffer = new short[sourceWidth * numInterleaved];
-                    for (long y = sourceOffsetY; y < sourceOffsetY + sourceHeight; ++y) {
-                        int dstCnt = 0;
-                        for (int x = sourceOffsetX; x < sourceOffsetX + sourceWidth; ++x) {
-
-                            destBuffer[dstCnt++] = (short) sourceBuffer.getElemFloatAt(srcCnt);
-                            destBuffer[dstCnt++] = (short) qSourceBuffer.getElemFloatAt(srcCnt);
-                            srcCnt++;
-                        }
-
-                        outputStream.seek(elemSize * (y * sourceBandWidth + sourceOffsetX) * numInterleaved);
-                        outputStream.writeShorts(destBuffer, 0, destBuffer.length);
-                    }
-                }
 
-                //System.out.println(rect.toString());
+                outputFile.writeInterleavedRasterData(sourceOffsetX, sourceOffsetY, sourceWidth, sourceHeight,
+                        sourceBuffer, qSourceBuffer);
             } else {
-                //todo
-                long outputPos = (long) sourceOffsetY * (long) sourceBandWidth + sourceOffsetX;
-                final long max = sourceHeight * sourceWidth;
-                for (int sourcePos = 0; sourcePos < max; sourcePos += sourceWidth) {
-                    sourceBuffer.writeTo(sourcePos, sourceWidth, outputStream, outputPos);
-                    outputPos += sourceBandWidth;
-                }
+                outputFile.writeBandRasterData(0, sourceOffsetX, sourceOffsetY, sourceWidth, sourceHeight,
+                        sourceBuffer);
             }
             pm.worked(1);
         } finally {
@@ -188,12 +156,7 @@ public class GammaProductWriter extends AbstractProductWriter {
      * @throws java.io.IOException on failure
      */
     public void flush() throws IOException {
-        if (bandOutputStreams == null) {
-            return;
-        }
-        for (Object o : bandOutputStreams.values()) {
-            ((ImageOutputStream) o).flush();
-        }
+        // band data is written straight to the file channels
     }
 
     /**
@@ -201,15 +164,15 @@ public class GammaProductWriter extends AbstractProductWriter {
      *
      * @throws java.io.IOException on failure
      */
-    public void close() throws IOException {
-        if (bandOutputStreams == null) {
+    public synchronized void close() throws IOException {
+        if (bandOutputFiles == null) {
             return;
         }
-        for (Object o : bandOutputStreams.values()) {
-            ((ImageOutputStream) o).close();
+        for (FlatRasterOutputFile outputFile : bandOutputFiles.values()) {
+            outputFile.close();
         }
-        bandOutputStreams.clear();
-        bandOutputStreams = null;
+        bandOutputFiles.clear();
+        bandOutputFiles = null;
     }
 
     /**
@@ -224,26 +187,19 @@ public class GammaProductWriter extends AbstractProductWriter {
     }
 
     /**
-     * Returns the data output stream associated with the given <code>Band</code>. If no stream exists, one is created
+     * Returns the output file associated with the given <code>Band</code>. If no file exists, one is created
      * and fed into the hash map
      */
-    private ImageOutputStream getOrCreateImageOutputStream(final Band band) throws IOException {
-        ImageOutputStream outputStream = getImageOutputStream(band);
-        if (outputStream == null) {
-            outputStream = createImageOutputStream(band);
-            if (bandOutputStreams == null) {
-                bandOutputStreams = new HashMap<>();
+    private synchronized FlatRasterOutputFile getOrCreateOutputFile(final Band band) throws IOException {
+        FlatRasterOutputFile outputFile = bandOutputFiles != null ? bandOutputFiles.get(band) : null;
+        if (outputFile == null) {
+            outputFile = createOutputFile(band);
+            if (bandOutputFiles == null) {
+                bandOutputFiles = new HashMap<>();
             }
-            bandOutputStreams.put(band, outputStream);
-        }
-        return outputStream;
-    }
-
-    private ImageOutputStream getImageOutputStream(final Band band) {
-        if (bandOutputStreams != null) {
-            return bandOutputStreams.get(band);
+            bandOutputFiles.put(band, outputFile);
         }
-        return null;
+        return outputFile;
     }
 
     @Override
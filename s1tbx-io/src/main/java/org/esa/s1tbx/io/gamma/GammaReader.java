@@ -16,6 +16,7 @@
 package org.esa.s1tbx.io.gamma;
 
 import com.bc.ceres.core.ProgressMonitor;
+import org.esa.s1tbx.commons.io.FlatRasterFile;
 import org.esa.s1tbx.io.gamma.header.Header;
 import org.esa.snap.core.dataio.AbstractProductReader;
 import org.esa.snap.core.dataio.ProductReaderPlugIn;
@@ -28,14 +29,13 @@ import org.esa.snap.engine_utilities.datamodel.AbstractMetadata;
 import org.esa.snap.engine_utilities.datamodel.Unit;
 import org.esa.snap.engine_utilities.gpf.ReaderUtils;
 
-import javax.imageio.stream.FileImageInputStream;
-import javax.imageio.stream.ImageInputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -47,7 +47,7 @@ public class GammaReader extends AbstractProductReader {
     private Header header;
     private boolean isComplex = false;
     private boolean isCoregistered = false;
-    private Map<Band, ImageInputStream> bandImageInputStreamMap = new HashMap<>();
+    private Map<Band, FlatRasterFile> bandRasterFileMap = new HashMap<>();
 
     public GammaReader(ProductReaderPlugIn readerPlugIn) {
         super(readerPlugIn);
@@ -74,10 +74,12 @@ public class GammaReader extends AbstractProductReader {
             final File[] imageFiles = findImageFiles(inputParFile);
 
             for (File imgFile : imageFiles) {
-                final ImageInputStream inStream = new FileImageInputStream(imgFile);
-                inStream.setByteOrder(header.getJavaByteOrder());
-
                 if (isComplex) {
+                    // band interleaved by pixel
+                    final FlatRasterFile rasterFile = new FlatRasterFile(imgFile, header.getHeaderOffset(),
+                            header.getNumSamples(), header.getNumLines(), 2, dataType,
+                            FlatRasterFile.Interleave.BIP, header.getJavaByteOrder());
+
                     final Band tgtBandI = new Band("i_" + imgFile.getName(), dataType, header.getNumSamples(), header.getNumLines());
                     tgtBandI.setUnit("real");
                     product.addBand(tgtBandI);
@@ -86,8 +88,8 @@ public class GammaReader extends AbstractProductReader {
                     tgtBandQ.setUnit("imaginary");
                     product.addBand(tgtBandQ);
 
-                    bandImageInputStreamMap.put(tgtBandI, inStream);
-                    bandImageInputStreamMap.put(tgtBandQ, inStream);
+                    bandRasterFileMap.put(tgtBandI, rasterFile);
+                    bandRasterFileMap.put(tgtBandQ, rasterFile);
 
                     ReaderUtils.createVirtualIntensityBand(product, tgtBandI, tgtBandQ, imgFile.getName());
                     ReaderUtils.createVirtualPhaseBand(product, tgtBandI, tgtBandQ, "_" + imgFile.getName());
@@ -95,7 +97,9 @@ public class GammaReader extends AbstractProductReader {
                     final Band tgtBand = new Band(imgFile.getName(), dataType, header.getNumSamples(), header.getNumLines());
                     product.addBand(tgtBand);
 
-                    bandImageInputStreamMap.put(tgtBand, inStream);
+                    bandRasterFileMap.put(tgtBand, new FlatRasterFile(imgFile, header.getHeaderOffset(),
+                            header.getNumSamples(), header.getNumLines(), 1, dataType,
+                            FlatRasterFile.Interleave.BSQ, header.getJavaByteOrder()));
                 }
             }
 
@@ -190,88 +194,22 @@ public class GammaReader extends AbstractProductReader {
                                           ProductData destBuffer,
                                           ProgressMonitor pm) throws IOException {
 
-        final ImageInputStream inStream = bandImageInputStreamMap.get(destBand);
+        final FlatRasterFile rasterFile = bandRasterFileMap.get(destBand);
 
-        if (isComplex) {
-
-            final int sourceMaxY = sourceOffsetY + sourceHeight;
-            final int elemSize = destBuffer.getElemSize();
-            int bandIndex = 0;
-            if (destBand.getUnit() != null && destBand.getUnit().equals(Unit.IMAGINARY)) {
-                bandIndex = 1;
-            }
-
-            // band interleaved by pixel
-            int numInterleaved = 2;
-            final long lineSizeInBytes = header.getNumSamples() * numInterleaved * elemSize;
-            ProductData lineData = ProductData.createInstance(destBuffer.getType(), sourceWidth * numInterleaved);
-
-            pm.beginTask("Reading band '" + destBand.getName() + "'...", sourceMaxY - sourceOffsetY);
-            try {
-                final long xPos = elemSize * sourceOffsetX * numInterleaved;
-                final int xLength = sourceWidth * numInterleaved;
-                int dstCnt = 0;
-                for (int sourceY = sourceOffsetY; sourceY < sourceMaxY; sourceY += sourceStepY) {
-                    if (pm.isCanceled()) {
-                        break;
-                    }
-                    synchronized (inStream) {
-                        inStream.seek(sourceY * lineSizeInBytes + xPos);
-                        lineData.readFrom(0, xLength, inStream);
-                    }
-                    for (int x = 0; x < sourceWidth; x++) {
-                        destBuffer.setElemDoubleAt(dstCnt++, lineData.getElemDoubleAt(x * numInterleaved + bandIndex));
-                    }
-                    pm.worked(1);
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            } finally {
-                pm.done();
-            }
-
-        } else {
-            final int sourceMaxY = sourceOffsetY + sourceHeight - 1;
-            Product product = destBand.getProduct();
-            final int elemSize = destBuffer.getElemSize();
-
-            final int headerOffset = header.getHeaderOffset();
-            final int bandIndex = product.getBandIndex(destBand.getName());
-
-            final long lineSizeInBytes = header.getNumSamples() * elemSize;
-            ProductData lineData = ProductData.createInstance(destBuffer.getType(), sourceWidth);
-
-            pm.beginTask("Reading band '" + destBand.getName() + "'...", sourceMaxY - sourceOffsetY);
-            try {
-                int destPos = 0;
-                for (int sourceY = sourceOffsetY; sourceY <= sourceMaxY; sourceY += sourceStepY) {
-                    if (pm.isCanceled()) {
-                        break;
-                    }
-                    synchronized (inStream) {
-                        long lineStartPos = headerOffset + sourceY * lineSizeInBytes;
-                        inStream.seek(lineStartPos + elemSize * sourceOffsetX);
-                        lineData.readFrom(0, sourceWidth, inStream);
-                    }
-                    for (int x = 0; x < sourceWidth; x++) {
-                        destBuffer.setElemDoubleAt(destPos++, lineData.getElemDoubleAt(x + bandIndex));
-                    }
-                    pm.worked(1);
-                }
-            } catch (Exception e) {
-
-            } finally {
-                pm.done();
-            }
+        int bandIndex = 0;
+        if (isComplex && destBand.getUnit() != null && destBand.getUnit().equals(Unit.IMAGINARY)) {
+            bandIndex = 1;
         }
+
+        rasterFile.readBandRasterData(bandIndex, sourceOffsetX, sourceOffsetY, sourceWidth, sourceHeight,
+                sourceStepX, sourceStepY, destBuffer, pm);
     }
 
     @Override
     public void close() throws IOException {
-        for (ImageInputStream inStream : bandImageInputStreamMap.values()) {
-            if (inStream != null) {
-                inStream.close();
-            }
+        // the i and q bands share one file
+        for (FlatRasterFile rasterFile : new HashSet<>(bandRasterFileMap.values())) {
+            rasterFile.close();
         }
         super.close();
     }
@@ -16,6 +16,8 @@
 package org.esa.s1tbx.io.generic;
 
 import com.bc.ceres.core.ProgressMonitor;
+import org.esa.s1tbx.commons.io.FlatRasterFile;
+import org.esa.s1tbx.commons.io.FlatRasterOutputFile;
 import org.esa.snap.core.dataio.AbstractProductWriter;
 import org.esa.snap.core.dataio.ProductWriterPlugIn;
 import org.esa.snap.core.datamodel.Band;
@@ -27,20 +29,19 @@ import org.esa.snap.core.util.Guardian;
 import org.esa.snap.engine_utilities.datamodel.AbstractMetadata;
 import org.esa.snap.engine_utilities.datamodel.metadata.AbstractMetadataIO;
 
-import javax.imageio.stream.FileImageOutputStream;
-import javax.imageio.stream.ImageOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
 
 
 public class GenericBSQWriter extends AbstractProductWriter {
 
-    private ImageOutputStream _outputStream = null;
+    private File imageFile = null;
+    private FlatRasterOutputFile _outputFile = null;
 
-    private String bandName = null;
-    private int bandCounter = 0;
-    private int numOfWriteBands = 0; // number of bands that are written (no virtual bands)
+    private final Map<Band, Integer> bandIndexMap = new HashMap<>(); // order number of the written (no virtual) bands
 
     /**
      * Construct a new instance of a product writer for the given product writer plug-in.
@@ -70,9 +71,7 @@ public class GenericBSQWriter extends AbstractProductWriter {
             file = (File) getOutput();
         }
 
-        _outputStream = new FileImageOutputStream(file);
-        // Default to nativeOrder
-        _outputStream.setByteOrder(ByteOrder.nativeOrder());
+        imageFile = file;
 
         final MetadataElement absRoot = AbstractMetadata.getAbstractedMetadata(getSourceProduct());
         AbstractMetadataIO.saveExternalMetadata(getSourceProduct(), absRoot, file);
@@ -80,12 +79,22 @@ public class GenericBSQWriter extends AbstractProductWriter {
         // Get number of Real (not Virtual) bands
         final int numOfBands = getSourceProduct().getNumBands();
         for (int i = 0; i < numOfBands; i++) {
-            if (!(getSourceProduct().getBandAt(i) instanceof VirtualBand)) {
-                numOfWriteBands++;
+            final Band band = getSourceProduct().getBandAt(i);
+            if (!(band instanceof VirtualBand)) {
+                bandIndexMap.put(band, bandIndexMap.size());
             }
         }
     }
 
+    private synchronized FlatRasterOutputFile getOrCreateOutputFile(final Band band) throws IOException {
+        if (_outputFile == null) {
+            // Default to nativeOrder
+            _outputFile = new FlatRasterOutputFile(imageFile, 0, band.getRasterWidth(), band.getRasterHeight(),
+                    bandIndexMap.size(), band.getDataType(), FlatRasterFile.Interleave.BSQ, ByteOrder.nativeOrder());
+        }
+        return _outputFile;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -108,22 +117,14 @@ public class GenericBSQWriter extends AbstractProductWriter {
         checkSourceRegionInsideBandRegion(sourceWidth, sourceBandWidth, sourceHeight, sourceBandHeight, sourceOffsetX, sourceOffsetY);
 
         // Define order number of Band that is being saved
-        if (bandName == null) {
-            bandName = sourceBand.getName();
-        } else if (!bandName.equals(sourceBand.getName())) {
-            bandName = sourceBand.getName();
-            bandCounter++;
-        }
+        final int bandIndex = bandIndexMap.get(sourceBand);
 
         // Write all source NOT VIRTUAL bands in BSQ : Band Sequential Format
-        long outputPos = sourceOffsetY * (numOfWriteBands * sourceBandWidth) + sourceOffsetX + (bandCounter * sourceBandWidth);
+        final FlatRasterOutputFile outputFile = getOrCreateOutputFile(sourceBand);
         pm.beginTask("Writing band '" + sourceBand.getName() + "'...", sourceHeight);
         try {
-            final long max = sourceHeight * sourceWidth;
-            for (int sourcePos = 0; sourcePos < max; sourcePos += sourceWidth) {
-                sourceBuffer.writeTo(sourcePos, sourceWidth, _outputStream, outputPos);
-                outputPos += (numOfWriteBands * sourceBandWidth);
-            }
+            outputFile.writeBandRasterData(bandIndex, sourceOffsetX, sourceOffsetY, sourceWidth, sourceHeight,
+                    sourceBuffer);
             pm.worked(1);
         } finally {
             pm.done();
@@ -162,9 +163,7 @@ public class GenericBSQWriter extends AbstractProductWriter {
      * @throws java.io.IOException on failure
      */
     public void flush() throws IOException {
-        if (_outputStream != null) {
-            _outputStream.flush();
-        }
+        // band data is written straight to the file channel
     }
 
     /**
@@ -172,11 +171,10 @@ public class GenericBSQWriter extends AbstractProductWriter {
      *
      * @throws java.io.IOException on failure
      */
-    public void close() throws IOException {
-        if (_outputStream != null) {
-            _outputStream.flush();
-            _outputStream.close();
-            _outputStream = null;
+    public synchronized void close() throws IOException {
+        if (_outputFile != null) {
+            _outputFile.close();
+            _outputFile = null;
         }
     }
 
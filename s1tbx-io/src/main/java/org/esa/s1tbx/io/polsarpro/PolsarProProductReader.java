@@ -16,6 +16,7 @@
 package org.esa.s1tbx.io.polsarpro;
 
 import com.bc.ceres.core.ProgressMonitor;
+import org.esa.s1tbx.commons.io.FlatRasterFile;
 import org.esa.snap.core.dataio.ProductReaderPlugIn;
 import org.esa.snap.core.datamodel.Band;
 import org.esa.snap.core.datamodel.MetadataElement;
@@ -27,17 +28,17 @@ import org.esa.snap.dataio.envi.EnviConstants;
 import org.esa.snap.dataio.envi.EnviProductReader;
 import org.esa.snap.dataio.envi.Header;
 import org.esa.snap.engine_utilities.datamodel.AbstractMetadata;
+import org.esa.snap.engine_utilities.datamodel.Unit;
 import org.esa.snap.engine_utilities.datamodel.metadata.AbstractMetadataIO;
 import org.esa.snap.engine_utilities.gpf.ReaderUtils;
 import org.esa.snap.engine_utilities.util.ResourceUtils;
 
-import javax.imageio.stream.FileImageInputStream;
-import javax.imageio.stream.ImageInputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 
 public class PolsarProProductReader extends EnviProductReader {
@@ -172,10 +173,10 @@ public class PolsarProProductReader extends EnviProductReader {
 
             BandInfo bandInfo = new BandInfo();
             bandInfo.isComplex = true;
-            bandInfo.header = header;
             final File bandFile = new File(inputFile.getParentFile(), bandName);
-            bandInfo.inStream = new FileImageInputStream(bandFile);
-            bandInfo.inStream.setByteOrder(header.getJavaByteOrder());
+            // band interleaved by pixel
+            bandInfo.rasterFile = new FlatRasterFile(bandFile, header.getHeaderOffset(), width, height, 2, bandType,
+                    FlatRasterFile.Interleave.BIP, header.getJavaByteOrder());
 
             bandInfoMap.put(iBand, bandInfo);
             bandInfoMap.put(qBand, bandInfo);
@@ -212,38 +213,9 @@ public class PolsarProProductReader extends EnviProductReader {
         final BandInfo bandInfo = bandInfoMap.get(destBand);
         if (bandInfo != null && bandInfo.isComplex) {
 
-            final int sourceMaxY = sourceOffsetY + sourceHeight - 1;
-            Product product = destBand.getProduct();
-            final int elemSize = destBuffer.getElemSize();
-
-            final int headerOffset = bandInfo.header.getHeaderOffset();
-            final int bandIndex = 0;//product.getBandIndex(destBand.getName());
-
-            // band interleaved by pixel
-            int numBands = 2;
-            final long lineSizeInBytes = bandInfo.header.getNumSamples() * numBands * elemSize;
-            ProductData lineData = ProductData.createInstance(destBuffer.getType(), sourceWidth * numBands);
-
-            pm.beginTask("Reading band '" + destBand.getName() + "'...", sourceMaxY - sourceOffsetY);
-            try {
-                int destPos = 0;
-                for (int sourceY = sourceOffsetY; sourceY <= sourceMaxY; sourceY += sourceStepY) {
-                    if (pm.isCanceled()) {
-                        break;
-                    }
-                    synchronized (bandInfo.inStream) {
-                        long lineStartPos = headerOffset + sourceY * lineSizeInBytes;
-                        bandInfo.inStream.seek(lineStartPos + elemSize * sourceOffsetX * numBands);
-                        lineData.readFrom(0, sourceWidth * numBands, bandInfo.inStream);
-                    }
-                    for (int x = 0; x < sourceWidth; x++) {
-                        destBuffer.setElemDoubleAt(destPos++, lineData.getElemDoubleAt(x * numBands + bandIndex));
-                    }
-                    pm.worked(1);
-                }
-            } finally {
-                pm.done();
-            }
+            final int bandIndex = destBand.getUnit() != null && destBand.getUnit().equals(Unit.IMAGINARY) ? 1 : 0;
+            bandInfo.rasterFile.readBandRasterData(bandIndex, sourceOffsetX, sourceOffsetY, sourceWidth, sourceHeight,
+                    sourceStepX, sourceStepY, destBuffer, pm);
 
         } else {
             super.readBandRasterDataImpl(sourceOffsetX, sourceOffsetY, sourceWidth, sourceHeight, sourceStepX, sourceStepY,
@@ -251,9 +223,17 @@ public class PolsarProProductReader extends EnviProductReader {
         }
     }
 
+    @Override
+    public void close() throws IOException {
+        // the i and q bands share one file
+        for (BandInfo bandInfo : new HashSet<>(bandInfoMap.values())) {
+            bandInfo.rasterFile.close();
+        }
+        super.close();
+    }
+
     private static class BandInfo {
         boolean isComplex = false;
-        ImageInputStream inStream;
-        Header header;
+        FlatRasterFile rasterFile;
     }
 }
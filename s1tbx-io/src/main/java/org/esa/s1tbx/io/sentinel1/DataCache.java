@@ -1,31 +1,53 @@
 package org.esa.s1tbx.io.sentinel1;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.esa.s1tbx.commons.io.ImageIOFile;
+import org.esa.snap.runtime.Config;
 
 import java.awt.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * Cache of decoded SLC rectangles shared by the I and Q bands of an image.
+ * The cache is bounded by the number of bytes held and records hit, miss and eviction counts.
+ * <p>
  * Created by lveci on 20/05/2014.
  */
 public class DataCache {
 
-    private final LoadingCache<DataKey, Data> cache;
+    private static final String PREFERENCE_KEY_CACHE_SIZE = "s1tbx.readers.sentinel1.cacheSizeMB";
+    private static final long MEGABYTE = 1024L * 1024L;
+    private static final long DEFAULT_MAX_BYTES = Math.min(Runtime.getRuntime().maxMemory() / 8, 1024 * MEGABYTE);
+
+    private final Cache<DataKey, Data> cache;
 
     public DataCache() {
-        cache = CacheBuilder.newBuilder().maximumSize(500).initialCapacity(500)
-        .expireAfterAccess(1, TimeUnit.MINUTES)
-                //.recordStats()
-                .build(new CacheLoader<DataKey, Data>() {
-                           @Override
-                           public Data load(DataKey key) throws Exception {
-                               return new Data();
-                           }
-                       }
-        );
+        this(getMaxBytesFromPreferences());
+    }
+
+    DataCache(final long maxBytes) {
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher(new Weigher<DataKey, Data>() {
+                    @Override
+                    public int weigh(DataKey key, Data value) {
+                        return value.getSizeInBytes();
+                    }
+                })
+                .expireAfterAccess(1, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+    }
+
+    private static long getMaxBytesFromPreferences() {
+        final long sizeMB = Config.instance().preferences().getLong(PREFERENCE_KEY_CACHE_SIZE, -1);
+        return sizeMB > 0 ? sizeMB * MEGABYTE : DEFAULT_MAX_BYTES;
     }
 
     public long size() {
@@ -36,25 +58,75 @@ public class DataCache {
         return cache.stats().toString();
     }
 
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
     public Data get(DataKey key) {
-        return cache.getUnchecked(key);
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Get the cached data for the key or compute it with the loader.
+     * Concurrent requests for the same key wait for a single load, so I and Q bands decode once.
+     */
+    public Data get(DataKey key, Callable<Data> loader) throws ExecutionException {
+        try {
+            return cache.get(key, loader);
+        } catch (UncheckedExecutionException e) {
+            throw new ExecutionException(e.getCause());
+        }
     }
 
-    public synchronized void put(DataKey key, Data value) {
+    public void put(DataKey key, Data value) {
         cache.put(key, value);
     }
 
+    public void clear() {
+        cache.invalidateAll();
+    }
+
     public static class DataKey {
         private final ImageIOFile img;
         private final Rectangle rect;
+        private final int hash;
 
         DataKey(final ImageIOFile img, final Rectangle rect) {
             this.img = img;
             this.rect = rect;
+
+            int h = System.identityHashCode(img);
+            h = 31 * h + rect.x;
+            h = 31 * h + rect.y;
+            h = 31 * h + rect.width;
+            h = 31 * h + rect.height;
+            this.hash = h;
+        }
+
+        ImageIOFile getImage() {
+            return img;
         }
 
         @Override
         public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof DataKey)) {
+                return false;
+            }
 
             DataKey key = (DataKey) obj;
             return (rect.x == key.rect.x &&
@@ -66,7 +138,7 @@ public class DataCache {
 
         @Override
         public int hashCode() {
-            return img.hashCode();
+            return hash;
         }
 
         @Override
@@ -88,5 +160,9 @@ public class DataCache {
             this.intArray = srcArray;
             this.valid = true;
         }
+
+        int getSizeInBytes() {
+            return intArray == null ? 0 : intArray.length * 4;
+        }
     }
 }
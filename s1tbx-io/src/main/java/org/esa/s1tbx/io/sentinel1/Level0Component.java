@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.io.sentinel1;
+
+import org.esa.s1tbx.commons.io.MappedRandomAccessFile;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An annotation or index data component of a Sentinel-1 Level-0 product, read as columns.
+ * <p>
+ * The record schema is compiled once into a list of fields at fixed offsets in the record. The file is mapped into
+ * memory and a column is decoded into a primitive array the first time it is asked for, so that ingesting a product
+ * does not build a metadata element per record, and any record can be accessed directly. Closing the component
+ * releases the mapping; columns already decoded remain valid.
+ */
+public final class Level0Component implements Closeable {
+
+    public enum Kind {UNSIGNED_BYTE, UNSIGNED_SHORT, UNSIGNED_INT, UNSIGNED_LONG, DOUBLE, BITS}
+
+    /**
+     * A field of the record at a fixed offset.
+     */
+    public static final class Field {
+
+        final String name;
+        final Kind kind;
+        final int offset;     // byte offset in the record
+        final int startBit;   // applicable only if kind == BITS, counted from the most significant bit
+        final int numBits;    // applicable only if kind == BITS
+
+        Field(final String name, final Kind kind, final int offset, final int startBit, final int numBits) {
+            this.name = name;
+            this.kind = kind;
+            this.offset = offset;
+            this.startBit = startBit;
+            this.numBits = numBits;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+    }
+
+    private final File file;
+    private final int recordLength;
+    private final int numRecords;
+    private final Map<String, Field> fields = new LinkedHashMap<>();
+    private final Map<String, long[]> longColumns = new LinkedHashMap<>();
+    private final Map<String, double[]> doubleColumns = new LinkedHashMap<>();
+
+    private MappedRandomAccessFile mappedFile;
+    private boolean closed;
+
+    /**
+     * @param file         the binary data file
+     * @param fieldList    the compiled record layout
+     * @param recordLength number of bytes in one record
+     */
+    public Level0Component(final File file, final List<Field> fieldList, final int recordLength) {
+        this.file = file;
+        this.recordLength = recordLength;
+        this.numRecords = recordLength > 0 ? (int) (file.length() / recordLength) : 0;
+        for (Field field : fieldList) {
+            // repeated occurrences of an element are numbered from the second one on
+            String name = field.name;
+            for (int i = 1; fields.containsKey(name); ++i) {
+                name = field.name + '_' + i;
+            }
+            fields.put(name, field);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getNumRecords() {
+        return numRecords;
+    }
+
+    public int getRecordLength() {
+        return recordLength;
+    }
+
+    public List<String> getFieldNames() {
+        return Collections.unmodifiableList(new ArrayList<>(fields.keySet()));
+    }
+
+    public Field getField(final String name) {
+        final Field field = fields.get(name);
+        if (field == null) {
+            throw new IllegalArgumentException("Unknown field " + name + " in " + file.getName());
+        }
+        return field;
+    }
+
+    /**
+     * Get an integer field of all records. Unsigned long values above Long.MAX_VALUE are returned as negative
+     * numbers, as in Long.toUnsignedString.
+     *
+     * @param name the field name
+     * @return the column, shared by all callers, which must not modify it
+     * @throws IOException if the file cannot be read
+     */
+    public synchronized long[] getLongColumn(final String name) throws IOException {
+        long[] column = longColumns.get(name);
+        if (column == null) {
+            final Field field = getField(name);
+            if (field.kind == Kind.DOUBLE) {
+                throw new IllegalArgumentException("Field " + name + " is not an integer");
+            }
+            column = new long[numRecords];
+            final MappedRandomAccessFile.Cursor cursor = getMappedFile().newCursor();
+            cursor.setByteOrder(ByteOrder.BIG_ENDIAN);
+            for (int i = 0; i < numRecords; ++i) {
+                cursor.seek((long) i * recordLength + field.offset);
+                column[i] = readLong(cursor, field);
+            }
+            longColumns.put(name, column);
+        }
+        return column;
+    }
+
+    /**
+     * Get a field of all records as doubles. Integer fields are converted.
+     *
+     * @param name the field name
+     * @return the column, shared by all callers, which must not modify it
+     * @throws IOException if the file cannot be read
+     */
+    public synchronized double[] getDoubleColumn(final String name) throws IOException {
+        double[] column = doubleColumns.get(name);
+        if (column == null) {
+            final Field field = getField(name);
+            column = new double[numRecords];
+            if (field.kind == Kind.DOUBLE) {
+                final MappedRandomAccessFile.Cursor cursor = getMappedFile().newCursor();
+                cursor.setByteOrder(ByteOrder.BIG_ENDIAN);
+                for (int i = 0; i < numRecords; ++i) {
+                    cursor.seek((long) i * recordLength + field.offset);
+                    column[i] = cursor.readDouble();
+                }
+            } else {
+                final long[] longColumn = getLongColumn(name);
+                for (int i = 0; i < numRecords; ++i) {
+                    column[i] = longColumn[i];
+                }
+            }
+            doubleColumns.put(name, column);
+        }
+        return column;
+    }
+
+    /**
+     * Find the last record with a value of a field in ascending order not greater than the given value, such as the
+     * block of the index holding a sensing time.
+     *
+     * @param name  the name of a field in ascending order
+     * @param value the value to look for
+     * @return the record index, or -1 if the value is before the first record
+     * @throws IOException if the file cannot be read
+     */
+    public int findRecord(final String name, final double value) throws IOException {
+        final double[] column = getDoubleColumn(name);
+        int lo = 0;
+        int hi = numRecords - 1;
+        int found = -1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (column[mid] <= value) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Look up an integer field of the record found with {@link #findRecord}, such as the byte offset in the
+     * measurement data of the ISPs of a sensing time.
+     *
+     * @param keyName   the name of a field in ascending order
+     * @param key       the value to look for
+     * @param valueName the name of the integer field to return
+     * @return the value, or -1 if the key is before the first record
+     * @throws IOException if the file cannot be read
+     */
+    public long lookup(final String keyName, final double key, final String valueName) throws IOException {
+        final int record = findRecord(keyName, key);
+        return record < 0 ? -1 : getLongColumn(valueName)[record];
+    }
+
+    private synchronized MappedRandomAccessFile getMappedFile() throws IOException {
+        if (closed) {
+            throw new IOException("Level-0 component closed " + file);
+        }
+        if (mappedFile == null) {
+            mappedFile = new MappedRandomAccessFile(file);
+        }
+        return mappedFile;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (mappedFile != null) {
+            mappedFile.close();
+            mappedFile = null;
+        }
+    }
+
+    private static long readLong(final MappedRandomAccessFile.Cursor cursor, final Field field) throws IOException {
+        switch (field.kind) {
+            case UNSIGNED_BYTE:
+                return cursor.readUnsignedByte();
+            case UNSIGNED_SHORT:
+                return cursor.readUnsignedShort();
+            case UNSIGNED_INT:
+                return cursor.readUnsignedInt();
+            case UNSIGNED_LONG:
+                return cursor.readLong();
+            default:
+                final int b = cursor.readUnsignedByte();
+                return ((b << (field.startBit + 24)) >>> (32 - field.numBits)) & 0xFF;
+        }
+    }
+}
@@ -45,6 +45,7 @@ public class Sentinel1Level0Directory extends XMLProductDirectory implements Sen
 
     private final transient Map<String, String> imgBandMetadataMap = new HashMap<>(4);
     private String acqMode = "";
+    private Sentinel1Level0Reader level0Reader = null;
 
     public Sentinel1Level0Directory(final File headerFile) {
         super(headerFile);
@@ -567,11 +568,22 @@ public class Sentinel1Level0Directory extends XMLProductDirectory implements Sen
         return AbstractMetadata.parseUTC(start, sentinelDateFormat);
     }
 
-    private void addBinaryDataToProduct(final MetadataElement root) {
+    private void addBinaryDataToProduct(final MetadataElement root) throws IOException {
 
-        final Sentinel1Level0Reader reader = new Sentinel1Level0Reader(getBaseDir(),
-                                                                       AbstractMetadata.addOriginalProductMetadata(root));
-        reader.readData();
+        // the records of the annotation and index components are read as columns on demand
+        level0Reader = new Sentinel1Level0Reader(getBaseDir(), AbstractMetadata.addOriginalProductMetadata(root));
+    }
+
+    public Sentinel1Level0Reader getLevel0Reader() {
+        return level0Reader;
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        if (level0Reader != null) {
+            level0Reader.close();
+        }
     }
 
     private void addGeoCodingForLevel0Products(final Product product) {
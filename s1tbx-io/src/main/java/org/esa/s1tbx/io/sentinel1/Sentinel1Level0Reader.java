@@ -15,9 +15,6 @@
  */
 package org.esa.s1tbx.io.sentinel1;
 
-import org.esa.s1tbx.commons.io.FileImageInputStreamExtImpl;
-import org.esa.s1tbx.io.binary.BinaryFileReader;
-import org.esa.s1tbx.io.binary.IllegalBinaryFormatException;
 import org.esa.snap.core.datamodel.MetadataAttribute;
 import org.esa.snap.core.datamodel.MetadataElement;
 import org.esa.snap.core.datamodel.ProductData;
@@ -26,22 +23,22 @@ import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
-import javax.imageio.stream.ImageInputStream;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.math.BigInteger;
-import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * TBD
  */
-public class Sentinel1Level0Reader {
+public class Sentinel1Level0Reader implements Closeable {
 
     private final String SUPPORT_FOLDER_NAME = "support";
     private final String ANNOT_SCHEMA_FILENAME = "s1-level-0-annot.xsd";
@@ -122,29 +119,35 @@ public class Sentinel1Level0Reader {
     private ArrayList<DataElement> annotElemList = new ArrayList<>();
     private ArrayList<DataElement> indexElemList = new ArrayList<>();
 
-    private class DataComponent {
+    // the record layouts compiled from the schemas
+    private final List<Level0Component.Field> annotFieldList = new ArrayList<>();
+    private final List<Level0Component.Field> indexFieldList = new ArrayList<>();
+    private int annotRecordLength;
+    private int indexRecordLength;
 
-        private final BinaryFileReader reader;
-        private final ArrayList<DataElement> elemList;
+    private static class DataComponent {
+
+        private final Level0Component component;
         private final MetadataElement parentMetadataElem;
-        private final long numRecords;
 
-        DataComponent(final BinaryFileReader reader, final ArrayList<DataElement> elemList, final MetadataElement parentMetadataElem, final long numRecords) {
+        DataComponent(final Level0Component component, final MetadataElement parentMetadataElem) {
 
-            this.reader = reader;
-            this.elemList = elemList;
+            this.component = component;
             this.parentMetadataElem = parentMetadataElem;
-            this.numRecords = numRecords;
         }
     }
 
-    private ArrayList<DataComponent> dataComponents = new ArrayList<>();
+    private final Map<String, DataComponent> dataComponents = new LinkedHashMap<>();
 
-    public Sentinel1Level0Reader(final File baseDir, final MetadataElement originalProductMetadata) {
+    public Sentinel1Level0Reader(final File baseDir, final MetadataElement originalProductMetadata)
+            throws IOException {
 
         readXMLSchema(buildSchemaFilename(baseDir, ANNOT_SCHEMA_FILENAME), ANNOT_RECORD_NAME, annotElemList);
         readXMLSchema(buildSchemaFilename(baseDir, INDEX_SCHEMA_FILENAME), INDEX_RECORD_NAME, indexElemList);
 
+        annotRecordLength = compileRecordLayout(annotElemList, annotFieldList);
+        indexRecordLength = compileRecordLayout(indexElemList, indexFieldList);
+
         //  Metadata > Original_Product_Metadata > XFDU > dataObjectSection >
         //       dataObject > byteStream > fileLocation
 
@@ -199,7 +202,7 @@ public class Sentinel1Level0Reader {
 
             if (dataFilename.contains(ANNOT_PREFIX) || dataFilename.contains(INDEX_PREFIX)) {
 
-                final long numRecs = createBinaryReader(baseDir, dataFilename, recordElem);
+                final long numRecs = createDataComponent(baseDir, dataFilename, componentElem.getName(), recordElem);
                 numRecsAttr.getData().setElemUInt(numRecs);
             }
 
@@ -209,43 +212,94 @@ public class Sentinel1Level0Reader {
 
     }
 
-    private long createBinaryReader(final File baseDir, final String binDataFilename, MetadataElement metadataElement) {
+    private long createDataComponent(final File baseDir, final String binDataFilename, final String componentName,
+                                     final MetadataElement metadataElement) {
 
         final File binDataFile = new File(baseDir.getAbsolutePath() + binDataFilename);
 
-        long numRecs = 0;
-
-        try {
-            ImageInputStream imageInputStream = FileImageInputStreamExtImpl.createInputStream(binDataFile);
-
-            final BinaryFileReader binaryReader = new BinaryFileReader(imageInputStream);
-
-            // According to Product Specs, binary data is stored in Big Endian format.
-            binaryReader.setByteOrder(ByteOrder.BIG_ENDIAN);
+        final Level0Component component;
+        if (binDataFilename.contains(ANNOT_PREFIX)) {
+            component = new Level0Component(binDataFile, annotFieldList, annotRecordLength);
+        } else {
+            component = new Level0Component(binDataFile, indexFieldList, indexRecordLength);
+        }
 
-            DataComponent dataComponent = null;
+        dataComponents.put(componentName, new DataComponent(component, metadataElement));
 
-            final long filesize = binDataFile.length(); // bytes
+        return component.getNumRecords();
+    }
 
-            if (binDataFilename.contains(ANNOT_PREFIX)) {
+    /**
+     * Compile the data elements of a record into fields at fixed offsets, once per schema.
+     *
+     * @return the number of bytes in one record
+     */
+    private int compileRecordLayout(final List<DataElement> elemList, final List<Level0Component.Field> fieldList)
+            throws IOException {
 
-                numRecs = filesize / getTotalNumberOfBytes(annotElemList);
-                dataComponent = new DataComponent(binaryReader, annotElemList, metadataElement, numRecs);
+        int offset = 0;
+        int bitFieldOffset = -1;
 
-            } else if (binDataFilename.contains(INDEX_PREFIX)) {
+        for (DataElement elem : elemList) {
 
-                numRecs = filesize / getTotalNumberOfBytes(indexElemList);
-                dataComponent = new DataComponent(binaryReader, indexElemList, metadataElement, numRecs);
+            for (int j = 0; j < elem.numOccurrences; j++) {
+                switch (elem.baseType) {
+                    case BOOLEAN_TAG_NAME:
+                    case UNSIGNED_BYTE_TAG_NAME:
+                        fieldList.add(new Level0Component.Field(elem.name, Level0Component.Kind.UNSIGNED_BYTE, offset, 0, 8));
+                        offset += 1;
+                        break;
+                    case UNSIGNED_SHORT_TAG_NAME:
+                        fieldList.add(new Level0Component.Field(elem.name, Level0Component.Kind.UNSIGNED_SHORT, offset, 0, 16));
+                        offset += 2;
+                        break;
+                    case UNSIGNED_INT_TAG_NAME:
+                        fieldList.add(new Level0Component.Field(elem.name, Level0Component.Kind.UNSIGNED_INT, offset, 0, 32));
+                        offset += 4;
+                        break;
+                    case UNSIGNED_LONG_TAG_NAME:
+                        fieldList.add(new Level0Component.Field(elem.name, Level0Component.Kind.UNSIGNED_LONG, offset, 0, 64));
+                        offset += 8;
+                        break;
+                    case DOUBLE_TAG_NAME:
+                        fieldList.add(new Level0Component.Field(elem.name, Level0Component.Kind.DOUBLE, offset, 0, 64));
+                        offset += 8;
+                        break;
+                    case BIT_BASE_TYPE:
+                        // bit fields share a byte until one starts at bit 0
+                        if (bitFieldOffset < 0 || elem.startBit == 0) {
+                            bitFieldOffset = offset;
+                            offset += 1;
+                        }
+                        fieldList.add(new Level0Component.Field(elem.name, Level0Component.Kind.BITS, bitFieldOffset,
+                                                                elem.startBit, elem.numBytes));
+                        break;
+                    default:
+                        // the offsets of the following fields would be wrong
+                        throw new IOException("Unknown base type " + elem.baseType + " of " + elem.name +
+                                " in Level-0 schema");
+                }
             }
+        }
 
-            dataComponents.add(dataComponent);
+        return offset;
+    }
 
-        } catch (IOException e) {
+    /**
+     * Get an annotation or index data component to read as columns.
+     *
+     * @param componentName the name of the component in the metadata, such as "vv_annotation" or "vv_index"
+     * @return the component or null if not found
+     */
+    public Level0Component getDataComponent(final String componentName) {
 
-            System.out.println("Sentinel1Level0Reader.createBinaryReader: IOException " + e.getMessage());
-        }
+        final DataComponent dataComponent = dataComponents.get(componentName);
+        return dataComponent == null ? null : dataComponent.component;
+    }
+
+    public List<String> getDataComponentNames() {
 
-        return numRecs;
+        return new ArrayList<>(dataComponents.keySet());
     }
 
     private String buildSchemaFilename(final File baseDir, final String schemaName) {
@@ -585,164 +639,83 @@ public class Sentinel1Level0Reader {
         System.out.println("End of " + listName);
     }
 
-    public void readData() {
-
-        //System.out.println("Sentinel1Level0Reader.readData: called");
-
-        for (DataComponent d : dataComponents) {
+    /**
+     * Add every record of the annotation and index data components to the metadata. Records are otherwise read
+     * on demand as columns of {@link #getDataComponent}.
+     *
+     * @throws IOException if a data component cannot be read
+     */
+    public void readData() throws IOException {
 
-            //System.out.println("Sentinel1Level0Reader.readData: read one data component");
+        for (DataComponent d : dataComponents.values()) {
             readBinaryData(d);
         }
     }
 
-    private byte readOneBinaryElement(final BinaryFileReader reader,
-                                      final DataElement elem,
-                                      final DataElement prevElem,
-                                      final byte prevByte,
-                                      MetadataElement parentMetadataElem) {
-
-        //System.out.println("Sentinel1Level0Reader.readOneBinaryElement: read " + elem.name + " " + elem.baseType);
-
-        byte lastByteRead = 0;
-
-        try {
-            switch (elem.baseType) {
-                case BOOLEAN_TAG_NAME:
-                case UNSIGNED_BYTE_TAG_NAME: {
-                    final int val = reader.readUB1();
-                    //System.out.println(elem.name + " = " + val + "; " + elem.baseType + " (unsigned byte); pos = " + reader.getCurrentPos());
-                    MetadataAttribute attr = new MetadataAttribute(elem.name, ProductData.TYPE_UINT8);
-                    ProductData productData = attr.getData();
-                    productData.setElemInt(val);
-                    parentMetadataElem.addAttribute(attr);
-                }
-                break;
-                case UNSIGNED_SHORT_TAG_NAME: {
-                    final int val = reader.readUB2();
-                    //System.out.println(elem.name + " = " + val + "; " + elem.baseType + " (unsigned short); pos = " + reader.getCurrentPos());
-                    MetadataAttribute attr = new MetadataAttribute(elem.name, ProductData.TYPE_UINT16);
-                    ProductData productData = attr.getData();
-                    productData.setElemInt(val);
-                    parentMetadataElem.addAttribute(attr);
-                }
-                break;
-                case UNSIGNED_INT_TAG_NAME: {
-                    final long val = getUnsignedInt(reader.readB4());
-                    //System.out.println(elem.name + " = " + val + "; " + elem.baseType + " (unsigned int); pos = " + reader.getCurrentPos());
-                    MetadataAttribute attr = new MetadataAttribute(elem.name, ProductData.TYPE_UINT32);
-                    ProductData productData = attr.getData();
-                    productData.setElemUInt(val);
-                    parentMetadataElem.addAttribute(attr);
-                }
-                break;
-                case UNSIGNED_LONG_TAG_NAME: {
-                    final byte[] bytes = new byte[8];
-                    reader.read(bytes);
-                    final BigInteger val = new BigInteger(bytes);
-                    final String valStr = String.valueOf(val);
-                    //System.out.println(elem.name + " = " + val + "; " + elem.baseType + " (unsigned long);  pos = " + reader.getCurrentPos());
-                    MetadataAttribute attr = new MetadataAttribute(elem.name, ProductData.TYPE_ASCII);
-                    ProductData productData = attr.getData();
-                    productData.setElems(valStr);
-                    parentMetadataElem.addAttribute(attr);
-                    // To get back the unsigned long value, one can get the String back and create a BigInteger with it.
-                    // Constructor of BigInteger takes a String.
-                }
-                break;
-                case DOUBLE_TAG_NAME: {
-                    final double val = (double) reader.readB8();
-                    //System.out.println(elem.name + " = " + val + "; " + elem.baseType + " (double); pos" + reader.getCurrentPos());
-                    MetadataAttribute attr = new MetadataAttribute(elem.name, ProductData.TYPE_FLOAT64);
-                    ProductData productData = attr.getData();
-                    productData.setElemDouble(val);
-                    parentMetadataElem.addAttribute(attr);
-                }
-                break;
-                case BIT_BASE_TYPE: {
-                    if (prevElem == null || elem.startBit == 0) {
-                        final byte[] oneByte = new byte[1];
-                        reader.read(oneByte);
-                        lastByteRead = oneByte[0];
-                        //System.out.println(elem.name + " = "  + Integer.toBinaryString(getInteger(lastByteRead)) + "; " + elem.baseType + " (unsigned int); pos = " + reader.getCurrentPos());
-                    } else {
-                        lastByteRead = prevByte;
-                    }
+    /**
+     * Release the mapped files of the data components.
+     */
+    @Override
+    public void close() {
 
-                    final byte val = extract(lastByteRead, elem.startBit, elem.numBytes);
-
-                    MetadataAttribute attr = new MetadataAttribute(elem.name, ProductData.TYPE_UINT8);
-                    ProductData productData = attr.getData();
-                    productData.setElemInt(getInteger(val));
-                    parentMetadataElem.addAttribute(attr);
-                }
-                break;
-                default: {
-                    System.out.println("Sentinel1Level0Reader.readOneBinaryElement: ERROR Unknown baseType = " + elem.baseType);
-                }
-                break;
-            }
-
-        } catch (IOException e) {
-
-            System.out.println("Sentinel1Level0Reader.readOneBinaryElement: IOException " + e.getMessage());
-
-        } catch (IllegalBinaryFormatException e) {
-
-            System.out.println("Sentinel1Level0Reader.readOneBinaryElement: IllegalBinaryFormatException " + e.getMessage());
+        for (DataComponent d : dataComponents.values()) {
+            d.component.close();
         }
-
-        return lastByteRead;
     }
 
-    private void readBinaryData(DataComponent dataComponent) {
+    private static void readBinaryData(final DataComponent dataComponent) throws IOException {
 
-        final BinaryFileReader reader = dataComponent.reader;
-        final ArrayList<DataElement> elemList = dataComponent.elemList;
+        final Level0Component component = dataComponent.component;
         final MetadataElement parentMetadataElem = dataComponent.parentMetadataElem;
+        final String parentName = parentMetadataElem.getName();
+        final String recordName = parentName.substring(0, parentName.length() - 1);
+        final int numRecords = component.getNumRecords();
+
+        final MetadataElement[] recMetaElems = new MetadataElement[numRecords];
+        for (int i = 0; i < numRecords; i++) {
+            recMetaElems[i] = new MetadataElement(recordName + i);
+            parentMetadataElem.addElement(recMetaElems[i]);
+        }
 
-        for (long i = 0; i < dataComponent.numRecords; i++) {
+        for (String fieldName : component.getFieldNames()) {
 
-            final String parentName = parentMetadataElem.getName();
-            final MetadataElement recMetaElem = new MetadataElement(parentName.substring(0, parentName.length() - 1) + i);
-            parentMetadataElem.addElement(recMetaElem);
-            /*
-            try {
-                System.out.println("readBinaryData: file pos = " + reader.getCurrentPos());
-            } catch (IOException e) {
-                System.out.println("readBinaryData: file pos = ERROR " + e.getMessage());
+            final Level0Component.Field field = component.getField(fieldName);
+            if (field.getKind() == Level0Component.Kind.DOUBLE) {
+                final double[] column = component.getDoubleColumn(fieldName);
+                for (int i = 0; i < numRecords; i++) {
+                    final MetadataAttribute attr = new MetadataAttribute(field.getName(), ProductData.TYPE_FLOAT64);
+                    attr.getData().setElemDouble(column[i]);
+                    recMetaElems[i].addAttribute(attr);
+                }
+                continue;
             }
-            */
-            DataElement prevDataElem = null;
-            byte prevByte = 0;
 
-            for (DataElement elem : elemList) {
-
-                for (int j = 0; j < elem.numOccurrences; j++) {
-                    prevByte = readOneBinaryElement(reader, elem, prevDataElem, prevByte, recMetaElem);
-                    prevDataElem = elem;
+            final long[] column = component.getLongColumn(fieldName);
+            for (int i = 0; i < numRecords; i++) {
+                final MetadataAttribute attr;
+                switch (field.getKind()) {
+                    case UNSIGNED_SHORT:
+                        attr = new MetadataAttribute(field.getName(), ProductData.TYPE_UINT16);
+                        attr.getData().setElemInt((int) column[i]);
+                        break;
+                    case UNSIGNED_INT:
+                        attr = new MetadataAttribute(field.getName(), ProductData.TYPE_UINT32);
+                        attr.getData().setElemUInt(column[i]);
+                        break;
+                    case UNSIGNED_LONG:
+                        attr = new MetadataAttribute(field.getName(), ProductData.TYPE_ASCII);
+                        attr.getData().setElems(Long.toUnsignedString(column[i]));
+                        break;
+                    default:
+                        attr = new MetadataAttribute(field.getName(), ProductData.TYPE_UINT8);
+                        attr.getData().setElemInt((int) column[i]);
+                        break;
                 }
+                recMetaElems[i].addAttribute(attr);
             }
         }
     }
 
-    private static long getUnsignedInt(final int x) {
-        return x & 0x00000000ffffffffL;
-    }
-
-    private static int getInteger(final byte b) {
-        return b & 0xFF;
-    }
-
-    private static byte extract(final byte b, final int startBit, final int numBits) {
-
-        // Assume int is 32-bit, byte is 8-bit
-        int result = getInteger(b) << startBit + 24;
-        result = result >>> (32 - numBits);
-
-        return (byte) result;
-    }
-
     private static String extractPolarization(String filename) {
 
         final int idx = filename.lastIndexOf("raw") + 6;
@@ -755,20 +728,4 @@ public class Sentinel1Level0Reader {
             return "";
         }
     }
-
-    private int getTotalNumberOfBytes(ArrayList<DataElement> elemList) {
-
-        int total = 0;
-
-        for (DataElement elem : elemList) {
-
-            if (!elem.baseType.equals(BIT_BASE_TYPE)) {
-                total += (elem.numBytes * elem.numOccurrences);
-            } else if (elem.startBit == 0) {
-                total += 1;
-            }
-        }
-
-        return total;
-    }
 }
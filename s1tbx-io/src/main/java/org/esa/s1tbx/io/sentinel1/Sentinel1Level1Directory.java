@@ -98,6 +98,9 @@ public class Sentinel1Level1Directory extends XMLProductDirectory implements Sen
                         img = new ImageIOFile(name, imgStream, getTiffIIOReader(imgStream),
                                 1, 1, ProductData.TYPE_INT32, productInputFile);
                     }
+                    if (!isCompressed()) {
+                        img.enableReaderPool(getFile(imgPath));
+                    }
                     bandImageFileMap.put(img.getName(), img);
                 }
             } catch (Exception e) {
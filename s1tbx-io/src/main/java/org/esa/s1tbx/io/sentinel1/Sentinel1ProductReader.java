@@ -34,6 +34,7 @@ import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
 
 /**
  * The product reader for Sentinel1 products.
@@ -41,7 +42,7 @@ import java.io.IOException;
 public class Sentinel1ProductReader extends SARReader {
 
     protected Sentinel1Directory dataDir = null;
-    private DataCache cache = new DataCache();
+    private final DataCache cache = new DataCache();
 
     /**
      * Constructs a new abstract product reader.
@@ -70,6 +71,7 @@ public class Sentinel1ProductReader extends SARReader {
             dataDir.close();
             dataDir = null;
         }
+        cache.clear();
         super.close();
     }
 
@@ -177,28 +179,25 @@ public class Sentinel1ProductReader extends SARReader {
                                   final ProductData destBuffer,
                                   final int destOffsetX, final int destOffsetY,
                                   int destWidth, int destHeight,
-                                  final ImageIOFile.BandInfo bandInfo) {
-
-        int length;
-        int[] srcArray;
+                                  final ImageIOFile.BandInfo bandInfo) throws IOException {
 
         //System.out.println(cache.stats()+", size="+cache.size());
 
         final Rectangle destRect = new Rectangle(destOffsetX, destOffsetY, destWidth, destHeight);
         final DataCache.DataKey datakey = new DataCache.DataKey(bandInfo.img, destRect);
-        DataCache.Data cachedData = cache.get(datakey);
-        if (cachedData != null && cachedData.valid) {
-            srcArray = cachedData.intArray;
-            length = srcArray.length;
-        } else {
-            cachedData = readRect(datakey, bandInfo,
-                                         sourceOffsetX, sourceOffsetY, sourceStepX, sourceStepY,
-                                         destRect);
-
-            srcArray = cachedData.intArray;
-            length = srcArray.length;
+        final DataCache.Data cachedData;
+        try {
+            // the I and Q bands share the key, concurrent requests wait for a single decode
+            cachedData = cache.get(datakey, () -> readRect(bandInfo,
+                                                           sourceOffsetX, sourceOffsetY, sourceStepX, sourceStepY,
+                                                           destRect));
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
         }
 
+        final int[] srcArray = cachedData.intArray;
+        final int length = srcArray.length;
+
         final short[] destArray = (short[]) destBuffer.getElems();
         if (!bandInfo.isImaginary) {
             if (sourceStepX == 1) {
@@ -226,11 +225,22 @@ public class Sentinel1ProductReader extends SARReader {
         }
     }
 
-    private synchronized DataCache.Data readRect(final DataCache.DataKey datakey, final ImageIOFile.BandInfo bandInfo,
-                                         int sourceOffsetX, int sourceOffsetY, int sourceStepX, int sourceStepY,
-                                         final Rectangle destRect) {
+    private static DataCache.Data readRect(final ImageIOFile.BandInfo bandInfo,
+                                           int sourceOffsetX, int sourceOffsetY, int sourceStepX, int sourceStepY,
+                                           final Rectangle destRect) throws IOException {
+        // image readers are not thread safe, take one from the pool of the image for this read
+        final ImageReader imageReader = bandInfo.img.acquireReader();
+        try {
+            return readRectFromImage(imageReader, bandInfo, sourceOffsetX, sourceOffsetY, sourceStepX, sourceStepY, destRect);
+        } finally {
+            bandInfo.img.releaseReader(imageReader);
+        }
+    }
+
+    private static DataCache.Data readRectFromImage(final ImageReader imageReader, final ImageIOFile.BandInfo bandInfo,
+                                                    int sourceOffsetX, int sourceOffsetY, int sourceStepX, int sourceStepY,
+                                                    final Rectangle destRect) {
         try {
-            final ImageReader imageReader = bandInfo.img.getReader();
             final ImageReadParam readParam = imageReader.getDefaultReadParam();
             if (sourceStepX == 1 && sourceStepY == 1) {
                 readParam.setSourceRegion(destRect);
@@ -248,16 +258,10 @@ public class Sentinel1ProductReader extends SARReader {
             final int[] srcArray = new int[length];
             sampleModel.getSamples(0, 0, destWidth, destHeight, bandInfo.bandSampleOffset, srcArray, data.getDataBuffer());
 
-            DataCache.Data cachedData = new DataCache.Data(srcArray);
-            cache.put(datakey, cachedData);
-
-            return cachedData;
+            return new DataCache.Data(srcArray);
         } catch (Exception e) {
             final int[] srcArray = new int[(int)destRect.getWidth()*(int)destRect.getHeight()];
-            DataCache.Data cachedData = new DataCache.Data(srcArray);
-            cache.put(datakey, cachedData);
-
-            return cachedData;
+            return new DataCache.Data(srcArray);
         }
     }
 }
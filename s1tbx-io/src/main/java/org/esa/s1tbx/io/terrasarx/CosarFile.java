@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.io.terrasarx;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.s1tbx.io.binary.ArrayCopy;
+import org.esa.snap.core.datamodel.ProductData;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A COSAR image file of a TerraSAR-X, TanDEM-X or PAZ complex product.
+ * <p>
+ * The burst header is parsed once when the file is opened. Lines are read with positional reads on a FileChannel
+ * into a buffer of the calling request, so tile requests of any number of open products run in parallel.
+ * Consecutive lines of a request are fetched as one block of at most 4 MB and the big endian samples are decoded
+ * from the block straight into the destination buffer.
+ */
+final class CosarFile implements Closeable {
+
+    private static final int MAX_BLOCK_BYTES = 4 * 1024 * 1024;
+    private static final int HEADER_BYTES = 9 * 4;
+    private static final int FILLER = 2;
+
+    private final FileChannel channel;
+    private final long recordLength;
+    private final long firstSampleOffset;
+    private final boolean isSSC;
+
+    CosarFile(final File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.BIG_ENDIAN);
+            read(header, 0);
+
+            // range samples, record length in bytes and format version of the burst header
+            final int rs = header.getInt(8);
+            final int rtnb = header.getInt(20);
+            final int version = header.getInt(32);
+
+            if (version != 1 && version != 2) {
+                throw new IOException("Unknown version = " + version);
+            }
+
+            recordLength = rtnb;
+            isSSC = (version == 1); // true means it is SSC, false means it is CoSSC
+
+            // annotation of the first record: range sample index, first and last valid azimuth samples
+            final int asri = rs;
+            final int asfv = rs;
+            final int aslv = rs;
+            firstSampleOffset = rtnb + ((FILLER + asri + FILLER + asfv + FILLER + aslv + FILLER) * 4);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return true for an SSC, false for a CoSSC image with 16 bit float samples
+     */
+    boolean isSSC() {
+        return isSSC;
+    }
+
+    private void read(final ByteBuffer buffer, final long pos) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, pos + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of COSAR file at " + (pos + buffer.position()));
+            }
+        }
+    }
+
+    /**
+     * Read the real or imaginary part of a window of the image.
+     *
+     * @param real true for the real part, false for the imaginary part
+     */
+    void readBandRasterData(final int sourceOffsetX, final int sourceOffsetY,
+                            final int sourceWidth, final int sourceHeight,
+                            final int sourceStepX, final int sourceStepY,
+                            final int destWidth, final ProductData destBuffer, final boolean real,
+                            final ProgressMonitor pm) throws IOException {
+
+        final int sourceMaxY = sourceOffsetY + sourceHeight - 1;
+        final long xpos = firstSampleOffset + sourceOffsetX * 4L;
+        final int lineBytes = sourceWidth * 4;
+        final int part = real ? 0 : 1;
+
+        // with a line step only the requested records are read
+        final long maxLines = Math.max(1, MAX_BLOCK_BYTES / recordLength);
+        final int linesPerBlock = sourceStepY == 1 ? (int) Math.max(1, Math.min(sourceHeight, maxLines)) : 1;
+        final ByteBuffer block = ByteBuffer.allocate((int) ((linesPerBlock - 1) * recordLength) + lineBytes)
+                .order(ByteOrder.BIG_ENDIAN);
+        final ShortBuffer samples = block.asShortBuffer();
+        final int recordShorts = (int) (recordLength / 2);
+
+        final short[] shortElems = isSSC ? (short[]) destBuffer.getElems() : null;
+
+        pm.beginTask("Reading band...", sourceMaxY - sourceOffsetY);
+        try {
+            int blockFirstLine = -1;
+            int blockNumLines = 0;
+            int currentLineIndex = 0;
+            for (int y = sourceOffsetY; y <= sourceMaxY; y += sourceStepY, currentLineIndex += destWidth) {
+                if (pm.isCanceled()) {
+                    break;
+                }
+
+                if (y >= blockFirstLine + blockNumLines) {
+                    blockNumLines = Math.min(linesPerBlock, sourceMaxY - y + 1);
+                    blockFirstLine = y;
+                    block.clear();
+                    block.limit((int) ((blockNumLines - 1) * recordLength) + lineBytes);
+                    read(block, recordLength * y + xpos);
+                }
+
+                // Copy source line into destination buffer
+                final int lineStart = (y - blockFirstLine) * recordShorts + part;
+                if (isSSC) {
+                    for (int x = 0, i = lineStart; x < destWidth; ++x, i += 2 * sourceStepX) {
+                        shortElems[currentLineIndex + x] = samples.get(i);
+                    }
+                } else {
+                    for (int x = 0, i = lineStart; x < destWidth; ++x, i += 2 * sourceStepX) {
+                        destBuffer.setElemFloatAt(currentLineIndex + x,
+                                ArrayCopy.convert16BitsTo32BitFloat((char) samples.get(i)));
+                    }
+                }
+
+                pm.worked(1);
+            }
+        } finally {
+            pm.done();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -18,7 +18,6 @@ package org.esa.s1tbx.io.terrasarx;
 import Jama.Matrix;
 import com.bc.ceres.core.ProgressMonitor;
 import it.geosolutions.imageioimpl.plugins.tiff.TIFFImageReader;
-import org.esa.s1tbx.commons.io.FileImageInputStreamExtImpl;
 import org.esa.s1tbx.commons.io.ImageIOFile;
 import org.esa.s1tbx.commons.io.SARReader;
 import org.esa.s1tbx.commons.io.XMLProductDirectory;
@@ -77,7 +76,7 @@ public class TerraSarXProductDirectory extends XMLProductDirectory {
     private final double[] incidenceCorners = new double[4];
 
     private final List<File> cosarFileList = new ArrayList<>(1);
-    private final Map<String, ImageInputStream> cosarBandMap = new HashMap<>(1);
+    private final Map<String, CosarFile> cosarBandMap = new HashMap<>(1);
 
     private final DateFormat standardDateFormat = ProductData.UTC.createDateFormat("yyyy-MM-dd HH:mm:ss");
 
@@ -641,6 +640,9 @@ public class TerraSarXProductDirectory extends XMLProductDirectory {
 
                     final ImageIOFile img = new ImageIOFile(name, imgStream, getTiffIIOReader(imgStream),
                             1, 1, ProductData.TYPE_UINT16, productInputFile);
+                    if (!isCompressed()) {
+                        img.enableReaderPool(getFile(imgPath));
+                    }
                     bandImageFileMap.put(img.getName(), img);
                 }
             }
@@ -1099,8 +1101,9 @@ public class TerraSarXProductDirectory extends XMLProductDirectory {
                 ReaderUtils.createVirtualIntensityBand(product, realBand, imaginaryBand, "");
 
                 try {
-                    cosarBandMap.put(realBand.getName(), FileImageInputStreamExtImpl.createInputStream(file));
-                    cosarBandMap.put(imaginaryBand.getName(), FileImageInputStreamExtImpl.createInputStream(file));
+                    final CosarFile cosarFile = new CosarFile(file);
+                    cosarBandMap.put(realBand.getName(), cosarFile);
+                    cosarBandMap.put(imaginaryBand.getName(), cosarFile);
                 } catch (Exception e) {
                     //
                 }
@@ -1306,17 +1309,16 @@ public class TerraSarXProductDirectory extends XMLProductDirectory {
         }
     }
 
-    ImageInputStream getCosarImageInputStream(final Band band) {
+    CosarFile getCosarFile(final Band band) {
         return cosarBandMap.get(band.getName());
     }
 
     @Override
     public void close() throws IOException {
         super.close();
-        final Set<String> keys = cosarBandMap.keySet();                           // The set of keys in the map.
-        for (String key : keys) {
-            final ImageInputStream img = cosarBandMap.get(key);
-            img.close();
+        // the i and q bands of a polarisation share one file
+        for (CosarFile cosarFile : new HashSet<>(cosarBandMap.values())) {
+            cosarFile.close();
         }
     }
 
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.io.ceos;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.s1tbx.commons.io.FileImageInputStreamExtImpl;
+import org.esa.s1tbx.io.binary.BinaryFileReader;
+import org.esa.s1tbx.io.binary.BinaryRecord;
+import org.esa.snap.core.datamodel.ProductData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Reading image lines with positional reads and through the shared stream
+ */
+public class TestCEOSImageFile {
+
+    private static final int HEADER_LENGTH = 100;
+    private static final int PREFIX_LENGTH = 12;
+    private static final int WIDTH = 10;
+    private static final int HEIGHT = 20;
+    private static final int RECORD_LENGTH = PREFIX_LENGTH + 2 * WIDTH;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("ceos_img", ".dat");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.write(new byte[HEADER_LENGTH]);
+            for (int y = 0; y < HEIGHT; ++y) {
+                out.write(new byte[PREFIX_LENGTH]);
+                for (int x = 0; x < WIDTH; ++x) {
+                    out.writeShort(getValue(x, y));
+                }
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    private static int getValue(final int x, final int y) {
+        return y * 100 + x;
+    }
+
+    @Test
+    public void testPositionalRead() throws IOException {
+        final CEOSImageFile imageFile = new TestImageFile(new FileImageInputStreamExtImpl(file));
+        try {
+            checkRead(imageFile, 1, 1);
+            checkRead(imageFile, 2, 3);
+        } finally {
+            imageFile.close();
+        }
+    }
+
+    @Test
+    public void testStreamRead() throws IOException {
+        final ImageInputStream stream = new MemoryCacheImageInputStream(
+                new ByteArrayInputStream(Files.readAllBytes(file.toPath())));
+        final CEOSImageFile imageFile = new TestImageFile(stream);
+        try {
+            checkRead(imageFile, 1, 1);
+            checkRead(imageFile, 2, 3);
+        } finally {
+            imageFile.close();
+        }
+    }
+
+    private static void checkRead(final CEOSImageFile imageFile, final int stepX, final int stepY) throws IOException {
+        final int offsetX = 2, offsetY = 3;
+        final int width = 6, height = 15;
+        final int destWidth = (width - 1) / stepX + 1;
+        final ProductData data = ProductData.createInstance(ProductData.TYPE_INT16, destWidth * height);
+
+        imageFile.readBandRasterDataShort(offsetX, offsetY, width, height, stepX, stepY,
+                destWidth, data, ProgressMonitor.NULL);
+
+        // destination lines are indexed by source line
+        for (int j = 0; j < height; j += stepY) {
+            for (int i = 0; i < destWidth; ++i) {
+                assertEquals(getValue(offsetX + i * stepX, offsetY + j),
+                        data.getElemIntAt(j * destWidth + i));
+            }
+        }
+    }
+
+    private static class TestImageFile extends CEOSImageFile {
+
+        TestImageFile(final ImageInputStream stream) {
+            binaryReader = new BinaryFileReader(stream);
+            _imageRecordLength = RECORD_LENGTH;
+            startPosImageRecords = HEADER_LENGTH;
+            imageHeaderLength = PREFIX_LENGTH;
+        }
+
+        @Override
+        protected BinaryRecord createNewImageRecord(final int line) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.io.sentinel1;
+
+import org.junit.Test;
+
+import java.awt.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the Sentinel-1 SLC data cache.
+ */
+public class TestDataCache {
+
+    @Test
+    public void testKeysOfDifferentRectanglesDiffer() {
+        final DataCache.DataKey key1 = new DataCache.DataKey(null, new Rectangle(0, 0, 512, 512));
+        final DataCache.DataKey key2 = new DataCache.DataKey(null, new Rectangle(512, 0, 512, 512));
+        final DataCache.DataKey key3 = new DataCache.DataKey(null, new Rectangle(0, 0, 512, 512));
+
+        assertNotEquals(key1, key2);
+        assertNotEquals(key1.hashCode(), key2.hashCode());
+        assertEquals(key1, key3);
+        assertEquals(key1.hashCode(), key3.hashCode());
+    }
+
+    @Test
+    public void testLoadOnceAndCount() throws Exception {
+        final DataCache cache = new DataCache(1024 * 1024);
+        final DataCache.DataKey key = new DataCache.DataKey(null, new Rectangle(0, 0, 10, 10));
+        final AtomicInteger loads = new AtomicInteger();
+
+        final DataCache.Data data1 = cache.get(key, () -> {
+            loads.incrementAndGet();
+            return new DataCache.Data(new int[100]);
+        });
+        final DataCache.Data data2 = cache.get(key, () -> {
+            loads.incrementAndGet();
+            return new DataCache.Data(new int[100]);
+        });
+
+        assertSame(data1, data2);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testBoundedByBytes() throws Exception {
+        final DataCache cache = new DataCache(4 * 1000);
+        for (int i = 0; i < 10; ++i) {
+            final DataCache.DataKey key = new DataCache.DataKey(null, new Rectangle(i * 10, 0, 10, 10));
+            cache.get(key, () -> new DataCache.Data(new int[100]));
+        }
+
+        assertTrue(cache.size() < 10);
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+}
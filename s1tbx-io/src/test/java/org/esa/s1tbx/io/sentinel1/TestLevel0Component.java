@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.io.sentinel1;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for reading the records of a Sentinel-1 Level-0 index as columns.
+ */
+public class TestLevel0Component {
+
+    private static final int NUM_RECORDS = 50;
+    private static final int RECORD_LENGTH = 8 + 4 + 8 + 1 + 2;
+
+    private File file;
+    private Level0Component component;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("level0", ".dat");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            for (int i = 0; i < NUM_RECORDS; ++i) {
+                out.writeDouble(1000.0 + i * 0.5);          // time
+                out.writeInt(0x80000000 + i);                // size
+                out.writeLong(i * 65536L);                   // byte offset
+                out.writeByte(0xA0 | (i & 0x0F));            // 4 bit flag, 4 bit count
+                out.writeShort(0xFFFF - i);                  // spare
+            }
+        }
+
+        final List<Level0Component.Field> fields = Arrays.asList(
+                new Level0Component.Field("time", Level0Component.Kind.DOUBLE, 0, 0, 64),
+                new Level0Component.Field("size", Level0Component.Kind.UNSIGNED_INT, 8, 0, 32),
+                new Level0Component.Field("offset", Level0Component.Kind.UNSIGNED_LONG, 12, 0, 64),
+                new Level0Component.Field("flag", Level0Component.Kind.BITS, 20, 0, 4),
+                new Level0Component.Field("count", Level0Component.Kind.BITS, 20, 4, 4),
+                new Level0Component.Field("spare", Level0Component.Kind.UNSIGNED_SHORT, 21, 0, 16));
+        component = new Level0Component(file, fields, RECORD_LENGTH);
+    }
+
+    @After
+    public void tearDown() {
+        component.close();
+        file.delete();
+    }
+
+    @Test
+    public void testColumns() throws IOException {
+        assertEquals(NUM_RECORDS, component.getNumRecords());
+        assertEquals(Arrays.asList("time", "size", "offset", "flag", "count", "spare"), component.getFieldNames());
+
+        final double[] time = component.getDoubleColumn("time");
+        final long[] size = component.getLongColumn("size");
+        final long[] offset = component.getLongColumn("offset");
+        final long[] flag = component.getLongColumn("flag");
+        final long[] count = component.getLongColumn("count");
+        final long[] spare = component.getLongColumn("spare");
+        for (int i = 0; i < NUM_RECORDS; ++i) {
+            assertEquals(1000.0 + i * 0.5, time[i], 0.0);
+            assertEquals(0x80000000L + i, size[i]);
+            assertEquals(i * 65536L, offset[i]);
+            assertEquals(0xA, flag[i]);
+            assertEquals(i & 0x0F, count[i]);
+            assertEquals(0xFFFF - i, spare[i]);
+        }
+        assertSame(time, component.getDoubleColumn("time"));
+    }
+
+    @Test
+    public void testLookup() throws IOException {
+        assertEquals(-1, component.findRecord("time", 999.0));
+        assertEquals(0, component.findRecord("time", 1000.0));
+        assertEquals(4, component.findRecord("time", 1002.2));
+        assertEquals(NUM_RECORDS - 1, component.findRecord("time", 2000.0));
+
+        assertEquals(4 * 65536L, component.lookup("time", 1002.2, "offset"));
+        assertEquals(-1, component.lookup("time", 999.0, "offset"));
+    }
+
+    @Test
+    public void testClose() throws IOException {
+        final long[] size = component.getLongColumn("size");
+        component.close();
+        component.close();
+
+        // decoded columns are kept, others can no longer be read
+        assertSame(size, component.getLongColumn("size"));
+        try {
+            component.getDoubleColumn("time");
+            fail("IOException expected");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownField() {
+        component.getField("unknown");
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.io.terrasarx;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.s1tbx.io.binary.ArrayCopy;
+import org.esa.snap.core.datamodel.ProductData;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reading the real and imaginary parts of SSC and CoSSC COSAR files
+ */
+public class TestCosarFile {
+
+    private static final int WIDTH = 10;
+    private static final int HEIGHT = 20;
+    private static final int ANNOTATION_LENGTH = (2 + WIDTH + 2 + WIDTH + 2 + WIDTH + 2) * 4;
+    private static final int RECORD_LENGTH = ANNOTATION_LENGTH + 4 * WIDTH;
+
+    private File file;
+
+    @After
+    public void tearDown() {
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    private void writeFile(final int version) throws IOException {
+        file = File.createTempFile("cosar", ".cos");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            final int[] header = {RECORD_LENGTH * (HEIGHT + 1), 1, WIDTH, HEIGHT, 1, RECORD_LENGTH, HEIGHT,
+                    0x43534152, version};
+            for (int value : header) {
+                out.writeInt(value);
+            }
+            out.write(new byte[RECORD_LENGTH - header.length * 4]);
+            for (int y = 0; y < HEIGHT; ++y) {
+                out.write(new byte[ANNOTATION_LENGTH]);
+                for (int x = 0; x < WIDTH; ++x) {
+                    out.writeShort(getValue(x, y, true));
+                    out.writeShort(getValue(x, y, false));
+                }
+            }
+        }
+    }
+
+    private static int getValue(final int x, final int y, final boolean real) {
+        final int value = y * 100 + x;
+        return real ? value : -value;
+    }
+
+    @Test
+    public void testSSC() throws IOException {
+        writeFile(1);
+        try (CosarFile cosarFile = new CosarFile(file)) {
+            assertTrue(cosarFile.isSSC());
+            checkRead(cosarFile, ProductData.TYPE_INT16, true, 1, 1);
+            checkRead(cosarFile, ProductData.TYPE_INT16, false, 1, 1);
+            checkRead(cosarFile, ProductData.TYPE_INT16, true, 2, 3);
+            checkRead(cosarFile, ProductData.TYPE_INT16, false, 3, 2);
+        }
+    }
+
+    @Test
+    public void testCoSSC() throws IOException {
+        writeFile(2);
+        try (CosarFile cosarFile = new CosarFile(file)) {
+            assertFalse(cosarFile.isSSC());
+            checkRead(cosarFile, ProductData.TYPE_FLOAT32, true, 1, 1);
+            checkRead(cosarFile, ProductData.TYPE_FLOAT32, false, 2, 3);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownVersion() throws IOException {
+        writeFile(3);
+        new CosarFile(file).close();
+    }
+
+    private static void checkRead(final CosarFile cosarFile, final int dataType, final boolean real,
+                                  final int stepX, final int stepY) throws IOException {
+        final int offsetX = 2, offsetY = 3;
+        final int width = 6, height = 15;
+        final int destWidth = (width - 1) / stepX + 1;
+        final int destHeight = (height - 1) / stepY + 1;
+        final ProductData data = ProductData.createInstance(dataType, destWidth * destHeight);
+
+        cosarFile.readBandRasterData(offsetX, offsetY, width, height, stepX, stepY,
+                destWidth, data, real, ProgressMonitor.NULL);
+
+        for (int j = 0; j < destHeight; ++j) {
+            for (int i = 0; i < destWidth; ++i) {
+                final int value = getValue(offsetX + i * stepX, offsetY + j * stepY, real);
+                if (dataType == ProductData.TYPE_INT16) {
+                    assertEquals(value, data.getElemIntAt(j * destWidth + i));
+                } else {
+                    assertEquals(ArrayCopy.convert16BitsTo32BitFloat((char) value),
+                            data.getElemFloatAt(j * destWidth + i), 0.0f);
+                }
+            }
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.esa.s1tbx.calibration.gpf;
 import com.bc.ceres.core.ProgressMonitor;
 import org.esa.s1tbx.calibration.gpf.calibrators.Sentinel1Calibrator;
 import org.esa.s1tbx.commons.Sentinel1Utils;
+import org.esa.s1tbx.commons.utils.ThreadExecutor;
 import org.esa.snap.core.datamodel.*;
 import org.esa.snap.core.dataop.downloadable.StatusProgressMonitor;
 import org.esa.snap.core.gpf.Operator;
@@ -35,7 +36,6 @@ import org.esa.snap.engine_utilities.datamodel.AbstractMetadata;
 import org.esa.snap.engine_utilities.datamodel.Unit;
 import org.esa.snap.engine_utilities.gpf.InputProductValidator;
 import org.esa.snap.engine_utilities.gpf.OperatorUtils;
-import org.esa.snap.engine_utilities.gpf.ThreadManager;
 import org.esa.snap.engine_utilities.gpf.TileIndex;
 import org.esa.snap.engine_utilities.util.Maths;
 
@@ -527,16 +527,16 @@ public final class RemoveGRDBorderNoiseOp extends Operator {
         borderList.add(new Border(SIDE.RIGHT, borderLimit, rightRectangles));
 
         final int totalRects = topRectangles.length + bottomRectangles.length + leftRectangles.length + rightRectangles.length;
-        final ThreadManager threadManager = new ThreadManager();
         final StatusProgressMonitor status = new StatusProgressMonitor(StatusProgressMonitor.TYPE.SUBTASK);
         status.beginTask("Detecting border... ", totalRects);
+        final ThreadExecutor executor = new ThreadExecutor("RemoveGRDBorderNoiseOp", status);
 
         try {
             for (Border border : borderList) {
 
                 for (final Rectangle rectangle : border.tileRectangles) {
 
-                    final Thread worker = new Thread() {
+                    final Runnable worker = new Runnable() {
 
                         final int xMax = rectangle.x + rectangle.width;
                         final int yMax = rectangle.y + rectangle.height;
@@ -590,11 +590,11 @@ public final class RemoveGRDBorderNoiseOp extends Operator {
                         }
                     };
 
-                    threadManager.add(worker);
+                    executor.execute(worker);
                     status.worked(1);
                 }
             }
-            threadManager.finish();
+            executor.complete();
 
         } catch (Exception e) {
             OperatorUtils.catchOperatorException(getId() + " detectBorder ", e);
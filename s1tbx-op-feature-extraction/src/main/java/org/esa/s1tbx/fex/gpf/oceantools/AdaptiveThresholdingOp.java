@@ -107,6 +107,9 @@ public class AdaptiveThresholdingOp extends Operator {
 
     private final HashMap<String, String> targetBandNameToSourceBandName = new HashMap<>(2);
 
+    // per thread tables reused for every tile
+    private final ThreadLocal<SummedAreaTable> summedAreaTables = ThreadLocal.withInitial(SummedAreaTable::new);
+
     public static final String SHIPMASK_NAME = "_ship_bit_msk";
     private static final String PRODUCT_SUFFIX = "_THR";
 
@@ -322,6 +325,12 @@ public class AdaptiveThresholdingOp extends Operator {
                 backgroundThreshold = computeBackgroundThreshold(data, noDataValue);
             }
 
+            SummedAreaTable table = null;
+            if (!estimateBackground || targetWindowSize > 1) {
+                table = summedAreaTables.get();
+                table.build(data, w, h, noDataValue);
+            }
+
             final int maxy = ty0 + th;
             final int maxx = tx0 + tw;
             for (int ty = ty0; ty < maxy; ty++) {
@@ -329,7 +338,7 @@ public class AdaptiveThresholdingOp extends Operator {
                 trgIndex.calculateStride(ty);
                 for (int tx = tx0; tx < maxx; tx++) {
                     //System.out.println("ty = " + ty + " tx = " + tx);
-                    final double targetMean = computeTargetMean(tx, ty, data, x0, y0, w, h, noDataValue);
+                    final double targetMean = computeTargetMean(tx, ty, data, table, x0, y0, w, noDataValue);
                     if (noDataValue == targetMean) {
                         trgData.setElemIntAt(trgIndex.getIndex(tx), 0);
                         continue;
@@ -340,15 +349,7 @@ public class AdaptiveThresholdingOp extends Operator {
                             trgData.setElemIntAt(trgIndex.getIndex(tx), 0);
                             continue;
                         }
-                        backgroundThreshold = computeBackgroundThreshold(tx, ty, data, x0, y0, w, h, noDataValue);
-
-                        // DEBUG...
-                        /*
-                        double oldT = computeBackgroundThreshold(tx, ty, data, x0, y0, w, h, noDataValue);
-                        System.out.println("DEBUG: tx = " + tx + " ty = " + ty + ": backgroundThreshold = " + backgroundThreshold
-                                + " oldT = " + oldT + " targetMean = " + targetMean);
-                        */
-                        // ...DEBUG
+                        backgroundThreshold = computeBackgroundThreshold(tx, ty, table, x0, y0);
                     }
                     if (targetMean > backgroundThreshold) {
                         trgData.setElemIntAt(trgIndex.getIndex(tx), 1);
@@ -371,14 +372,16 @@ public class AdaptiveThresholdingOp extends Operator {
      * @param tx          The x coordinate of the central point of the target window.
      * @param ty          The y coordinate of the central point of the target window.
      * @param data        The source tile data array.
+     * @param table       The summed-area tables of the source tile, null for a single pixel target window.
      * @param noDataValue
      * @return The mean value.
      */
-    private double computeTargetMean(final int tx, final int ty, final float[] data,
-                                     final int xx0, int yy0, int width, int height, final double noDataValue) {
+    private double computeTargetMean(final int tx, final int ty, final float[] data, final SummedAreaTable table,
+                                     final int xx0, final int yy0, final int width, final double noDataValue) {
 
-        int index = ((ty - yy0) * width) + (tx - xx0);
-        final double v = data[index];
+        final int cx = tx - xx0;
+        final int cy = ty - yy0;
+        final double v = data[cy * width + cx];
         if (noDataValue == v) {
             return noDataValue;
         }
@@ -387,91 +390,56 @@ public class AdaptiveThresholdingOp extends Operator {
             return v;
         }
 
-        final int x0 = Math.max((tx - xx0) - halfTargetWindowSize, 0);
-        final int y0 = Math.max((ty - yy0) - halfTargetWindowSize, 0);
-        final int w = Math.min((tx - xx0) + halfTargetWindowSize, width - 1) - x0 + 1;
-        final int h = Math.min((ty - yy0) + halfTargetWindowSize, height - 1) - y0 + 1;
-
-        double mean = 0.0;
-        int numPixels = 0;
-        int nodataCnt = 0;
-
-        final int maxy = y0 + h;
-        final int maxx = x0 + w;
-        for (int y = y0; y < maxy; y++) {
-            int yWidth = y * width;
-            for (int x = x0; x < maxx; x++) {
-                final double val = data[yWidth + x];
-
-                if (noDataValue == val) {
-                    nodataCnt++;
-                } else {
-                    mean += val;
-                    ++numPixels;
-                }
-            }
-        }
+        final int x0 = Math.max(cx - halfTargetWindowSize, 0);
+        final int y0 = Math.max(cy - halfTargetWindowSize, 0);
+        final int x1 = Math.min(cx + halfTargetWindowSize, width - 1) + 1;
+        final int y1 = Math.min(cy + halfTargetWindowSize, table.getHeight() - 1) + 1;
 
-        if(nodataCnt > (0.1 * w*h)) {
+        final int numPixels = table.count(x0, y0, x1, y1);
+        final int area = (x1 - x0) * (y1 - y0);
+        if (area - numPixels > (0.1 * area)) {
             return noDataValue;
         }
-        return mean / numPixels;
+        return table.getOffset() + table.sum(x0, y0, x1, y1) / numPixels;
     }
 
     /**
-     * Compute the standard deviation value for pixels in the background window.
+     * Compute the detection threshold from the mean and standard deviation of the pixels in the background window,
+     * leaving out the guard window. Both windows are clipped to the source tile.
      *
-     * @param tx          The x coordinate of the central point of the background window.
-     * @param ty          The y coordinate of the central point of the background window.
-     * @param noDataValue no data value
-     * @return The std value.
+     * @param tx    The x coordinate of the central point of the background window.
+     * @param ty    The y coordinate of the central point of the background window.
+     * @param table The summed-area tables of the source tile.
+     * @return The threshold.
      */
-    private double computeBackgroundThreshold(final int tx, final int ty, final float[] data,
-                                              final int xx0, int yy0, int width, int height, final double noDataValue) {
-
-        final int x0 = Math.max((tx - xx0) - halfBackgroundWindowSize, 0);
-        final int y0 = Math.max((ty - yy0) - halfBackgroundWindowSize, 0);
-        final int w = Math.min((tx - xx0) + halfBackgroundWindowSize, width - 1) - x0 + 1;
-        final int h = Math.min((ty - yy0) + halfBackgroundWindowSize, height - 1) - y0 + 1;
-
-        // Compute the mean value for pixels in the background window.
-        double sum = 0.0;
-        double val;
-        final int maxy = y0 + h;
-        final int maxx = x0 + w;
-
-        final double[] dataArray = new double[w * h];
-        int numValues = 0;
-
-        for (int y = y0; y < maxy; y++) {
-            final int yy = y - (ty - yy0);
-            final int yWidth = y * width;
-            final boolean yGtrHalfGuard = ((yy < 0) ? -yy : yy) > halfGuardWindowSize;
-            for (int x = x0; x < maxx; x++) {
-                final int xx = x - (tx - xx0);
-                if (yGtrHalfGuard || ((xx < 0) ? -xx : xx) > halfGuardWindowSize) {
-                    val = data[yWidth + x];
-                    if (noDataValue != val) {// && val < backgroundThreshold) {
-                        sum += val;
-                        dataArray[numValues] = val;
-                        numValues++;
-                    }
-                }
-            }
-        }
-        final double mean = sum / numValues;
-
-        // Compute the standard deviation value for pixels in the background window.
-        double std = 0.0;
-        double tmp;
-        for (int i=0; i < numValues; ++i) {
-            tmp = dataArray[i] - mean;
-            std += tmp * tmp;
+    private double computeBackgroundThreshold(final int tx, final int ty, final SummedAreaTable table,
+                                              final int xx0, final int yy0) {
+
+        final int cx = tx - xx0;
+        final int cy = ty - yy0;
+        final int x0 = Math.max(cx - halfBackgroundWindowSize, 0);
+        final int y0 = Math.max(cy - halfBackgroundWindowSize, 0);
+        final int x1 = Math.min(cx + halfBackgroundWindowSize, table.getWidth() - 1) + 1;
+        final int y1 = Math.min(cy + halfBackgroundWindowSize, table.getHeight() - 1) + 1;
+
+        int numValues = table.count(x0, y0, x1, y1);
+        double sum = table.sum(x0, y0, x1, y1);
+        double sumSq = table.sumSq(x0, y0, x1, y1);
+
+        final int gx0 = Math.max(cx - halfGuardWindowSize, x0);
+        final int gy0 = Math.max(cy - halfGuardWindowSize, y0);
+        final int gx1 = Math.min(cx + halfGuardWindowSize + 1, x1);
+        final int gy1 = Math.min(cy + halfGuardWindowSize + 1, y1);
+        if (gx0 < gx1 && gy0 < gy1) {
+            numValues -= table.count(gx0, gy0, gx1, gy1);
+            sum -= table.sum(gx0, gy0, gx1, gy1);
+            sumSq -= table.sumSq(gx0, gy0, gx1, gy1);
         }
 
-        final double backgroundSTD = Math.sqrt(std / numValues);
+        final double mean = sum / numValues;
+        final double variance = Math.max(sumSq / numValues - mean * mean, 0.0);
 
-        return mean + backgroundSTD * t;
+        return table.getOffset() + mean + Math.sqrt(variance) * t;
     }
 
     private double computeBackgroundThreshold(final float[] data, final double noDataValue) {
@@ -0,0 +1,407 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.fex.gpf.oceantools;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Two-pass union-find labelling of the 8-connected foreground pixels of a tile.
+ * <p>
+ * The first pass assigns provisional labels in raster order and records label equivalences in a union-find
+ * forest. The second pass resolves every pixel to its final label and accumulates the moments of each
+ * component: area, bounding box, centroid and intensity.
+ * <p>
+ * A labeller keeps its work arrays between calls and is meant to be used by one thread. Components cut by a
+ * tile border are joined with the components of the neighbouring tiles by a {@link SeamMerger}.
+ */
+final class ConnectedComponentLabeller {
+
+    private int[] labels = new int[0];
+    private int[] parent = new int[0];
+    private int[] finalLabel = new int[0];
+
+    /**
+     * Label a tile.
+     *
+     * @param mask      non zero for foreground pixels, row by row
+     * @param intensity values summed per component, or null
+     * @param x0        x coordinate of the tile in the image
+     * @param y0        y coordinate of the tile in the image
+     * @param w         tile width
+     * @param h         tile height
+     * @return the components, valid until the next call of this labeller
+     */
+    Components label(final byte[] mask, final float[] intensity, final int x0, final int y0, final int w, final int h) {
+        final int size = w * h;
+        if (labels.length < size) {
+            labels = new int[size];
+            parent = new int[size + 1];
+            finalLabel = new int[size + 1];
+        }
+
+        // first pass: provisional labels from the already visited W, NW, N and NE neighbours
+        int numLabels = 0;
+        for (int y = 0; y < h; ++y) {
+            final int row = y * w;
+            for (int x = 0; x < w; ++x) {
+                final int i = row + x;
+                if (mask[i] == 0) {
+                    labels[i] = 0;
+                    continue;
+                }
+
+                int label = 0;
+                if (x > 0) {
+                    label = union(label, labels[i - 1]);
+                }
+                if (y > 0) {
+                    final int up = i - w;
+                    if (x > 0) {
+                        label = union(label, labels[up - 1]);
+                    }
+                    label = union(label, labels[up]);
+                    if (x < w - 1) {
+                        label = union(label, labels[up + 1]);
+                    }
+                }
+                if (label == 0) {
+                    label = ++numLabels;
+                    parent[label] = label;
+                }
+                labels[i] = label;
+            }
+        }
+
+        // compact the roots to consecutive component indices
+        int numComponents = 0;
+        for (int l = 1; l <= numLabels; ++l) {
+            final int root = find(l);
+            if (root == l) {
+                finalLabel[l] = ++numComponents;
+            }
+        }
+        for (int l = 1; l <= numLabels; ++l) {
+            finalLabel[l] = finalLabel[find(l)];
+        }
+
+        // second pass: final labels and moments
+        final Components components = new Components(labels, x0, y0, w, h, numComponents);
+        for (int y = 0; y < h; ++y) {
+            final int row = y * w;
+            for (int x = 0; x < w; ++x) {
+                final int i = row + x;
+                if (labels[i] != 0) {
+                    final int label = finalLabel[labels[i]];
+                    labels[i] = label;
+                    components.add(label - 1, x0 + x, y0 + y, intensity != null ? intensity[i] : 0.0);
+                }
+            }
+        }
+        return components;
+    }
+
+    private int find(int label) {
+        while (parent[label] != label) {
+            parent[label] = parent[parent[label]];
+            label = parent[label];
+        }
+        return label;
+    }
+
+    /**
+     * Join two labels, either may be 0 for none, and return the root.
+     */
+    private int union(final int a, final int b) {
+        if (a == 0) {
+            return b == 0 ? 0 : find(b);
+        }
+        if (b == 0) {
+            return a;
+        }
+        final int rootA = find(a);
+        final int rootB = find(b);
+        if (rootA == rootB) {
+            return rootA;
+        }
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+            return rootA;
+        }
+        parent[rootA] = rootB;
+        return rootB;
+    }
+
+    /**
+     * Moments of one connected component in image coordinates.
+     */
+    static final class Component {
+        int area;
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        double sumX, sumY, sumIntensity;
+
+        void add(final Component c) {
+            area += c.area;
+            minX = Math.min(minX, c.minX);
+            minY = Math.min(minY, c.minY);
+            maxX = Math.max(maxX, c.maxX);
+            maxY = Math.max(maxY, c.maxY);
+            sumX += c.sumX;
+            sumY += c.sumY;
+            sumIntensity += c.sumIntensity;
+        }
+
+        double getCentroidX() {
+            return sumX / area;
+        }
+
+        double getCentroidY() {
+            return sumY / area;
+        }
+
+        double getMeanIntensity() {
+            return sumIntensity / area;
+        }
+    }
+
+    /**
+     * The labels and component moments of one tile
+     */
+    static final class Components {
+
+        private final int[] labels;
+        final int x0, y0, width, height;
+        private final int[] area, minX, minY, maxX, maxY;
+        private final double[] sumX, sumY, sumIntensity;
+
+        private Components(final int[] labels, final int x0, final int y0, final int width, final int height,
+                           final int count) {
+            this.labels = labels;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.width = width;
+            this.height = height;
+            area = new int[count];
+            minX = new int[count];
+            minY = new int[count];
+            maxX = new int[count];
+            maxY = new int[count];
+            sumX = new double[count];
+            sumY = new double[count];
+            sumIntensity = new double[count];
+            Arrays.fill(minX, Integer.MAX_VALUE);
+            Arrays.fill(minY, Integer.MAX_VALUE);
+            Arrays.fill(maxX, Integer.MIN_VALUE);
+            Arrays.fill(maxY, Integer.MIN_VALUE);
+        }
+
+        private void add(final int c, final int x, final int y, final double value) {
+            area[c]++;
+            minX[c] = Math.min(minX[c], x);
+            maxX[c] = Math.max(maxX[c], x);
+            minY[c] = Math.min(minY[c], y);
+            maxY[c] = Math.max(maxY[c], y);
+            sumX[c] += x;
+            sumY[c] += y;
+            sumIntensity[c] += value;
+        }
+
+        int getCount() {
+            return area.length;
+        }
+
+        int getArea(final int c) {
+            return area[c];
+        }
+
+        /**
+         * @return the component index of a pixel in image coordinates, or -1 for background
+         */
+        int getComponentIndex(final int x, final int y) {
+            return labels[(y - y0) * width + (x - x0)] - 1;
+        }
+
+        Component getComponent(final int c) {
+            final Component comp = new Component();
+            comp.area = area[c];
+            comp.minX = minX[c];
+            comp.minY = minY[c];
+            comp.maxX = maxX[c];
+            comp.maxY = maxY[c];
+            comp.sumX = sumX[c];
+            comp.sumY = sumY[c];
+            comp.sumIntensity = sumIntensity[c];
+            return comp;
+        }
+
+        /**
+         * @return true if the component reaches a tile border that is not the border of the image
+         */
+        boolean touchesSeam(final int c, final int imageWidth, final int imageHeight) {
+            return (x0 > 0 && minX[c] == x0) || (y0 > 0 && minY[c] == y0) ||
+                    (x0 + width < imageWidth && maxX[c] == x0 + width - 1) ||
+                    (y0 + height < imageHeight && maxY[c] == y0 + height - 1);
+        }
+    }
+
+    /**
+     * Joins the components cut by tile borders once all tiles of an image have been labelled.
+     * Tiles may be added in any order from any thread.
+     */
+    static final class SeamMerger {
+
+        private final int imageWidth, imageHeight;
+        private final Set<Long> tilesAdded = new HashSet<>();
+        private long pixelsAdded = 0;
+        private boolean reduced = false;
+
+        // open components, their union-find parents and the open component of each labelled seam pixel
+        private final List<Component> open = new ArrayList<>();
+        private int[] parent = new int[16];
+        private final Map<Long, Integer> seamPixels = new HashMap<>();
+
+        SeamMerger(final int imageWidth, final int imageHeight) {
+            this.imageWidth = imageWidth;
+            this.imageHeight = imageHeight;
+        }
+
+        /**
+         * Register the components of a tile that touch a seam and join them with those of the neighbouring tiles.
+         *
+         * @return false if the tile had been added before
+         */
+        synchronized boolean add(final Components tile) {
+            if (!tilesAdded.add(((long) tile.y0 << 32) | tile.x0)) {
+                return false;
+            }
+            pixelsAdded += (long) tile.width * tile.height;
+
+            final int[] openIndex = new int[tile.getCount()];
+            for (int c = 0; c < openIndex.length; ++c) {
+                openIndex[c] = tile.touchesSeam(c, imageWidth, imageHeight) ? newOpen(tile.getComponent(c)) : -1;
+            }
+
+            final Rectangle rect = new Rectangle(tile.x0, tile.y0, tile.width, tile.height);
+            final int xEnd = tile.x0 + tile.width - 1, yEnd = tile.y0 + tile.height - 1;
+            for (int x = tile.x0; x <= xEnd; ++x) {
+                addSeamPixel(tile, openIndex, rect, x, tile.y0);
+                if (yEnd != tile.y0) {
+                    addSeamPixel(tile, openIndex, rect, x, yEnd);
+                }
+            }
+            for (int y = tile.y0 + 1; y < yEnd; ++y) {
+                addSeamPixel(tile, openIndex, rect, tile.x0, y);
+                if (xEnd != tile.x0) {
+                    addSeamPixel(tile, openIndex, rect, xEnd, y);
+                }
+            }
+            return true;
+        }
+
+        private void addSeamPixel(final Components tile, final int[] openIndex, final Rectangle rect,
+                                  final int x, final int y) {
+            final int c = tile.getComponentIndex(x, y);
+            if (c < 0 || openIndex[c] < 0) {
+                return;
+            }
+            final int id = openIndex[c];
+            seamPixels.put(pixelKey(x, y), id);
+
+            for (int ny = y - 1; ny <= y + 1; ++ny) {
+                for (int nx = x - 1; nx <= x + 1; ++nx) {
+                    if (rect.contains(nx, ny) || nx < 0 || ny < 0 || nx >= imageWidth || ny >= imageHeight) {
+                        continue;
+                    }
+                    final Integer other = seamPixels.get(pixelKey(nx, ny));
+                    if (other != null) {
+                        union(id, other);
+                    }
+                }
+            }
+        }
+
+        private long pixelKey(final int x, final int y) {
+            return (long) y * imageWidth + x;
+        }
+
+        private int newOpen(final Component comp) {
+            final int id = open.size();
+            open.add(comp);
+            if (id >= parent.length) {
+                parent = Arrays.copyOf(parent, parent.length * 2);
+            }
+            parent[id] = id;
+            return id;
+        }
+
+        private int find(int id) {
+            while (parent[id] != id) {
+                parent[id] = parent[parent[id]];
+                id = parent[id];
+            }
+            return id;
+        }
+
+        private void union(final int a, final int b) {
+            final int rootA = find(a), rootB = find(b);
+            if (rootA != rootB) {
+                parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+            }
+        }
+
+        /**
+         * @return true once the tiles added cover the whole image
+         */
+        synchronized boolean isComplete() {
+            return pixelsAdded >= (long) imageWidth * imageHeight;
+        }
+
+        /**
+         * Merge the open components joined across seams. Only the first call returns components.
+         *
+         * @return the merged components
+         */
+        synchronized List<Component> reduce() {
+            final List<Component> merged = new ArrayList<>();
+            if (reduced) {
+                return merged;
+            }
+            reduced = true;
+
+            final Map<Integer, Component> roots = new HashMap<>();
+            for (int id = 0; id < open.size(); ++id) {
+                final int root = find(id);
+                final Component comp = roots.get(root);
+                if (comp == null) {
+                    roots.put(root, open.get(id));
+                    merged.add(open.get(id));
+                } else {
+                    comp.add(open.get(id));
+                }
+            }
+            open.clear();
+            seamPixels.clear();
+            return merged;
+        }
+    }
+}
@@ -94,6 +94,8 @@ public class ObjectDiscriminationOp extends Operator {
     private double azimuthSpacing = 0;
 
     private final Map<String, List<ShipRecord>> bandClusterLists = new HashMap<>();
+    private final Map<String, ConnectedComponentLabeller.SeamMerger> bandSeamMergers = new HashMap<>();
+    private final ThreadLocal<ConnectedComponentLabeller> labellers = ThreadLocal.withInitial(ConnectedComponentLabeller::new);
     private File targetReportFile = null;
     private SimpleFeatureType shipFeatureType;
 
@@ -207,42 +209,39 @@ public class ObjectDiscriminationOp extends Operator {
             final int th = targetTileRectangle.height;
             //System.out.println("tx0 = " + tx0 + ", ty0 = " + ty0 + ", tw = " + tw + ", th = " + th);
 
-            final int x0 = Math.max(tx0 - 10, 0);
-            final int y0 = Math.max(ty0 - 10, 0);
-            final int w = Math.min(tw + 20, sourceImageWidth);
-            final int h = Math.min(th + 20, sourceImageHeight);
-            final Rectangle sourceTileRectangle = new Rectangle(x0, y0, w, h);
-            //System.out.println("x0 = " + x0 + ", y0 = " + y0 + ", w = " + w + ", h = " + h);
-
             final Band sourceBand = sourceProduct.getBand(targetBand.getName());
-            final int[][] pixelsScanned = new int[h][w];
-            final List<ShipRecord> clusterList = new ArrayList<>();
-
-            final Tile bitMaskTile = getSourceTile(sourceBand, sourceTileRectangle);
+            final Tile bitMaskTile = getSourceTile(sourceBand, targetTileRectangle);
             final ProductData bitMaskData = bitMaskTile.getDataBuffer();
+            final TileIndex srcIndex = new TileIndex(bitMaskTile);
 
-            final TileIndex srcIndex = new TileIndex(bitMaskTile);    // src and trg tile are different size
-
+            final byte[] mask = new byte[tw * th];
             final int maxy = ty0 + th;
             final int maxx = tx0 + tw;
             for (int ty = ty0; ty < maxy; ty++) {
                 srcIndex.calculateStride(ty);
+                final int row = (ty - ty0) * tw - tx0;
                 for (int tx = tx0; tx < maxx; tx++) {
+                    if (bitMaskData.getElemIntAt(srcIndex.getIndex(tx)) == 1) {
+                        mask[row + tx] = 1;
+                    }
+                }
+            }
 
-                    if (pixelsScanned[ty - y0][tx - x0] == 0) {
-
-                        if (bitMaskData.getElemIntAt(srcIndex.getIndex(tx)) == 1) {
-
-                            final List<PixelPos> clusterPixels = new ArrayList<>();
-                            clustering(tx, ty, x0, y0, w, h, bitMaskData, bitMaskTile, pixelsScanned, clusterPixels);
-
-                            final ShipRecord record = generateRecord(x0, y0, w, h, clusterPixels);
+            final ConnectedComponentLabeller.Components components =
+                    labellers.get().label(mask, null, tx0, ty0, tw, th);
 
-                            final double size = Math.sqrt(record.length * record.length + record.width * record.width);
-                            if (size >= minTargetSizeInMeter && size <= maxTargetSizeInMeter) {
-                                clusterList.add(record);
-                            }
-                        }
+            // clusters inside the tile are complete, clusters cut by the tile border are merged once all tiles are done
+            final ConnectedComponentLabeller.SeamMerger seamMerger = getSeamMerger(targetBand.getName());
+            final List<ShipRecord> clusterList = new ArrayList<>();
+            if (seamMerger.add(components)) {
+                for (int c = 0; c < components.getCount(); ++c) {
+                    if (!components.touchesSeam(c, sourceImageWidth, sourceImageHeight)) {
+                        addRecord(components.getComponent(c), clusterList);
+                    }
+                }
+                if (seamMerger.isComplete()) {
+                    for (ConnectedComponentLabeller.Component cluster : seamMerger.reduce()) {
+                        addRecord(cluster, clusterList);
                     }
                 }
             }
@@ -250,13 +249,7 @@ public class ObjectDiscriminationOp extends Operator {
             if (!clusterList.isEmpty()) {
                 AddShipRecordsAsVectors(clusterList);
             }
-
-            List<ShipRecord> shipRecordList = bandClusterLists.get(targetBand.getName());
-            if (shipRecordList == null) {
-                shipRecordList = new ArrayList<>();
-                bandClusterLists.put(targetBand.getName(), shipRecordList);
-            }
-            shipRecordList.addAll(clusterList);
+            addBandClusters(targetBand.getName(), clusterList);
 
             targetTile.setRawSamples(getSourceTile(sourceBand, targetTileRectangle).getRawSamples());
 
@@ -266,82 +259,49 @@ public class ObjectDiscriminationOp extends Operator {
         }
     }
 
+    private synchronized ConnectedComponentLabeller.SeamMerger getSeamMerger(final String bandName) {
+        return bandSeamMergers.computeIfAbsent(bandName,
+                k -> new ConnectedComponentLabeller.SeamMerger(sourceImageWidth, sourceImageHeight));
+    }
+
+    private synchronized void addBandClusters(final String bandName, final List<ShipRecord> clusterList) {
+        List<ShipRecord> shipRecordList = bandClusterLists.get(bandName);
+        if (shipRecordList == null) {
+            shipRecordList = new ArrayList<>();
+            bandClusterLists.put(bandName, shipRecordList);
+        }
+        shipRecordList.addAll(clusterList);
+    }
+
     /**
-     * Find pixels detected as target in a 3x3 window centered at a given point.
+     * Add a ship record for a cluster of the accepted size.
      *
-     * @param xc            The x coordinate of the given point.
-     * @param yc            The y coordinate of the given point.
-     * @param x0            The x coordinate for the upper left corner point of the source rectangle.
-     * @param y0            The y coordinate for the upper left corner point of the source rectangle.
-     * @param w             The width of the source rectangle.
-     * @param h             The height of the source rectangle.
-     * @param bitMaskData   The bit maks band data.
-     * @param bitMaskTile   The bit mask band tile.
-     * @param pixelsScanned The binary array indicating which pixel in the tile has been scaned.
-     * @param clusterPixels The list of pixels in the cluster.
+     * @param cluster     The detected cluster.
+     * @param clusterList The list of accepted ship records.
      */
-    private static void clustering(final int xc, final int yc, final int x0, final int y0, final int w, final int h,
-                                   final ProductData bitMaskData, final Tile bitMaskTile,
-                                   final int[][] pixelsScanned, List<PixelPos> clusterPixels) {
-
-        pixelsScanned[yc - y0][xc - x0] = 1;
-        clusterPixels.add(new PixelPos(xc, yc));
-
-        final int[] x = {xc - 1, xc, xc + 1, xc - 1, xc + 1, xc - 1, xc, xc + 1};
-        final int[] y = {yc - 1, yc - 1, yc - 1, yc, yc, yc + 1, yc + 1, yc + 1};
-
-        for (int i = 0; i < 8; i++) {
-
-            if (x[i] >= x0 && x[i] < x0 + w && y[i] >= y0 && y[i] < y0 + h &&
-                    pixelsScanned[y[i] - y0][x[i] - x0] == 0 &&
-                    bitMaskData.getElemIntAt(bitMaskTile.getDataBufferIndex(x[i], y[i])) == 1) {
+    private void addRecord(final ConnectedComponentLabeller.Component cluster, final List<ShipRecord> clusterList) {
+        final ShipRecord record = generateRecord(cluster);
 
-                clustering(x[i], y[i], x0, y0, w, h, bitMaskData, bitMaskTile, pixelsScanned, clusterPixels);
-            }
+        final double size = Math.sqrt(record.length * record.length + record.width * record.width);
+        if (size >= minTargetSizeInMeter && size <= maxTargetSizeInMeter) {
+            clusterList.add(record);
         }
     }
 
     /**
      * Generate a ship record for the detected cluster.
      *
-     * @param x0            The x coordinate for the upper left corner point of the source rectangle.
-     * @param y0            The y coordinate for the upper left corner point of the source rectangle.
-     * @param w             The width of the source rectangle.
-     * @param h             The height of the source rectangle.
-     * @param clusterPixels The list of pixels in the cluster.
+     * @param cluster The detected cluster.
      * @return ShipRecord
      */
-    private ShipRecord generateRecord(final int x0, final int y0, final int w, final int h,
-                                      List<PixelPos> clusterPixels) {
-        int xMin = x0 + w - 1;
-        int xMax = x0;
-        int yMin = y0 + h - 1;
-        int yMax = y0;
-
-        for (PixelPos pixel : clusterPixels) {
-            if (pixel.x < xMin) {
-                xMin = (int) pixel.x;
-            }
-
-            if (pixel.x > xMax) {
-                xMax = (int) pixel.x;
-            }
+    private ShipRecord generateRecord(final ConnectedComponentLabeller.Component cluster) {
 
-            if (pixel.y < yMin) {
-                yMin = (int) pixel.y;
-            }
-
-            if (pixel.y > yMax) {
-                yMax = (int) pixel.y;
-            }
-        }
-
-        final double xMid = (xMin + xMax) / 2.0;
-        final double yMid = (yMin + yMax) / 2.0;
+        final double xMid = (cluster.minX + cluster.maxX) / 2.0;
+        final double yMid = (cluster.minY + cluster.maxY) / 2.0;
         final GeoPos geoPos = targetProduct.getSceneGeoCoding().getGeoPos(new PixelPos(xMid, yMid), null);
 
-        final double width = (xMax - xMin + 1) * rangeSpacing;
-        final double length = (yMax - yMin + 1) * azimuthSpacing;
+        final double width = (cluster.maxX - cluster.minX + 1) * rangeSpacing;
+        final double length = (cluster.maxY - cluster.minY + 1) * azimuthSpacing;
 
         return new ShipRecord((int) xMid, (int) yMid, geoPos.lat, geoPos.lon, width, length);
     }
@@ -356,6 +316,15 @@ public class ObjectDiscriminationOp extends Operator {
             return;
         }
 
+        // clusters cut by tile borders of a partially processed image
+        for (Map.Entry<String, ConnectedComponentLabeller.SeamMerger> entry : bandSeamMergers.entrySet()) {
+            final List<ShipRecord> clusterList = new ArrayList<>();
+            for (ConnectedComponentLabeller.Component cluster : entry.getValue().reduce()) {
+                addRecord(cluster, clusterList);
+            }
+            addBandClusters(entry.getKey(), clusterList);
+        }
+
         writeBandClusterListsToFile();
     }
 
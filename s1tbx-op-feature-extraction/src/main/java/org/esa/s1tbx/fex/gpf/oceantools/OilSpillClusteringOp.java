@@ -18,7 +18,6 @@ package org.esa.s1tbx.fex.gpf.oceantools;
 import com.bc.ceres.core.ProgressMonitor;
 import org.esa.snap.core.datamodel.Band;
 import org.esa.snap.core.datamodel.MetadataElement;
-import org.esa.snap.core.datamodel.PixelPos;
 import org.esa.snap.core.datamodel.Product;
 import org.esa.snap.core.datamodel.ProductData;
 import org.esa.snap.core.gpf.Operator;
@@ -62,6 +61,7 @@ public class OilSpillClusteringOp extends Operator {
     private int sourceImageWidth = 0;
     private int sourceImageHeight = 0;
     private int minClusterSizeInPixels = 0;
+    private final ThreadLocal<ConnectedComponentLabeller> labellers = ThreadLocal.withInitial(ConnectedComponentLabeller::new);
 
     private MetadataElement absRoot = null;
 
@@ -166,42 +166,41 @@ public class OilSpillClusteringOp extends Operator {
             final ProductData trgData = targetTile.getDataBuffer();
             //System.out.println("tx0 = " + tx0 + ", ty0 = " + ty0 + ", tw = " + tw + ", th = " + th);
 
+            // pad the tile so that clusters reaching into the neighbouring tiles are measured in full
             final int x0 = Math.max(tx0 - minClusterSizeInPixels, 0);
             final int y0 = Math.max(ty0 - minClusterSizeInPixels, 0);
-            final int w = Math.min(tw + 2 * minClusterSizeInPixels, sourceImageWidth);
-            final int h = Math.min(th + 2 * minClusterSizeInPixels, sourceImageHeight);
+            final int w = Math.min(tx0 + tw + minClusterSizeInPixels, sourceImageWidth) - x0;
+            final int h = Math.min(ty0 + th + minClusterSizeInPixels, sourceImageHeight) - y0;
             final Rectangle sourceTileRectangle = new Rectangle(x0, y0, w, h);
             //System.out.println("x0 = " + x0 + ", y0 = " + y0 + ", w = " + w + ", h = " + h);
 
             final Band sourceBand = sourceProduct.getBand(targetBand.getName());
             final Tile sourceTile = getSourceTile(sourceBand, sourceTileRectangle);
             final ProductData srcData = sourceTile.getDataBuffer();
-            final int[][] pixelsScaned = new int[h][w];
-
             final TileIndex srcIndex = new TileIndex(sourceTile);
 
+            final byte[] mask = new byte[w * h];
+            for (int y = y0; y < y0 + h; y++) {
+                srcIndex.calculateStride(y);
+                final int row = (y - y0) * w - x0;
+                for (int x = x0; x < x0 + w; x++) {
+                    if (srcData.getElemIntAt(srcIndex.getIndex(x)) == 1) {
+                        mask[row + x] = 1;
+                    }
+                }
+            }
+
+            final ConnectedComponentLabeller.Components components = labellers.get().label(mask, null, x0, y0, w, h);
+
+            final TileIndex trgIndex = new TileIndex(targetTile);
             final int maxy = ty0 + th;
             final int maxx = tx0 + tw;
             for (int ty = ty0; ty < maxy; ty++) {
-
-                srcIndex.calculateStride(ty);
+                trgIndex.calculateStride(ty);
                 for (int tx = tx0; tx < maxx; tx++) {
-
-                    if (pixelsScaned[ty - y0][tx - x0] == 0 && srcData.getElemIntAt(srcIndex.getIndex(tx)) == 1) {
-
-                        final List<PixelPos> clusterPixels = new ArrayList<>();
-
-                        clustering(tx, ty, x0, y0, w, h, srcData, sourceTile, pixelsScaned, clusterPixels);
-
-                        if (clusterPixels.size() >= minClusterSizeInPixels) {
-                            for (PixelPos pixel : clusterPixels) {
-                                final int x = (int) pixel.x;
-                                final int y = (int) pixel.y;
-                                if (x >= tx0 && x < tx0 + tw && y >= ty0 && y < ty0 + th) {
-                                    trgData.setElemIntAt(targetTile.getDataBufferIndex(x, y), 1);
-                                }
-                            }
-                        }
+                    final int c = components.getComponentIndex(tx, ty);
+                    if (c >= 0 && components.getArea(c) >= minClusterSizeInPixels) {
+                        trgData.setElemIntAt(trgIndex.getIndex(tx), 1);
                     }
                 }
             }
@@ -210,61 +209,6 @@ public class OilSpillClusteringOp extends Operator {
         }
     }
 
-    /**
-     * Find pixels detected as target in a 3x3 window centered at a given point.
-     *
-     * @param xc            The x coordinate of the given point.
-     * @param yc            The y coordinate of the given point.
-     * @param x0            The x coordinate for the upper left corner point of the source rectangle.
-     * @param y0            The y coordinate for the upper left corner point of the source rectangle.
-     * @param w             The width of the source rectangle.
-     * @param h             The height of the source rectangle.
-     * @param bitMaskData   The bit maks band data.
-     * @param bitMaskTile   The bit mask band tile.
-     * @param pixelsScaned  The binary array indicating which pixel in the tile has been scaned.
-     * @param clusterPixels The list of pixels in the cluster.
-     */
-    private static void clustering(final int xc, final int yc, final int x0, final int y0, final int w, final int h,
-                                   final ProductData bitMaskData, final Tile bitMaskTile,
-                                   final int[][] pixelsScaned, final List<PixelPos> clusterPixels) {
-
-        final List<PixelPos> seeds = new ArrayList<>();
-        seeds.add(new PixelPos(xc, yc));
-        pixelsScaned[yc - y0][xc - x0] = 1;
-        clusterPixels.add(new PixelPos(xc, yc));
-
-        while (seeds.size() > 0) {
-            final List<PixelPos> newSeeds = new ArrayList<>();
-            for (PixelPos pixel : seeds) {
-                searchNeighbourhood(pixel, x0, y0, w, h, bitMaskData, bitMaskTile, pixelsScaned, clusterPixels, newSeeds);
-            }
-            seeds.clear();
-            seeds.addAll(newSeeds);
-        }
-    }
-
-    private static void searchNeighbourhood(final PixelPos pixel, final int x0, final int y0, final int w, final int h,
-                                            final ProductData bitMaskData, final Tile bitMaskTile,
-                                            final int[][] pixelsScaned, final List<PixelPos> clusterPixels,
-                                            final List<PixelPos> newSeeds) {
-
-        final int xc = (int) pixel.x;
-        final int yc = (int) pixel.y;
-        final int[] x = {xc - 1, xc, xc + 1, xc - 1, xc + 1, xc - 1, xc, xc + 1};
-        final int[] y = {yc - 1, yc - 1, yc - 1, yc, yc, yc + 1, yc + 1, yc + 1};
-
-        for (int i = 0; i < 8; i++) {
-            if (x[i] >= x0 && x[i] < x0 + w && y[i] >= y0 && y[i] < y0 + h &&
-                    pixelsScaned[y[i] - y0][x[i] - x0] == 0 &&
-                    bitMaskData.getElemIntAt(bitMaskTile.getDataBufferIndex(x[i], y[i])) == 1) {
-
-                pixelsScaned[y[i] - y0][x[i] - x0] = 1;
-                clusterPixels.add(new PixelPos(x[i], y[i]));
-                newSeeds.add(new PixelPos(x[i], y[i]));
-            }
-        }
-    }
-
     /**
      * Operator SPI.
      */
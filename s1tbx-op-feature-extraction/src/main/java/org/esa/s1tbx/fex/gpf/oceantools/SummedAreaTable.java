@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.fex.gpf.oceantools;
+
+/**
+ * Summed-area tables of the count, sum and sum of squares of the valid pixels of a tile.
+ * The count, mean and variance over any rectangle of the tile are then found in constant time.
+ * <p>
+ * The values are accumulated relative to the mean of the tile to limit cancellation in the variance.
+ * An instance is meant to be reused for many tiles by one thread; the tables only grow.
+ */
+final class SummedAreaTable {
+
+    private int width;
+    private int height;
+    private int stride;
+    private double offset;
+
+    private int[] count = new int[0];
+    private double[] sum = new double[0];
+    private double[] sumSq = new double[0];
+
+    /**
+     * Build the tables for a tile.
+     *
+     * @param data        the tile data, row by row
+     * @param width       tile width
+     * @param height      tile height
+     * @param noDataValue pixels of this value are left out
+     */
+    void build(final float[] data, final int width, final int height, final double noDataValue) {
+        this.width = width;
+        this.height = height;
+        this.stride = width + 1;
+
+        final int size = stride * (height + 1);
+        if (count.length < size) {
+            count = new int[size];
+            sum = new double[size];
+            sumSq = new double[size];
+        }
+
+        double total = 0.0;
+        int numValid = 0;
+        final int numPixels = width * height;
+        for (int i = 0; i < numPixels; ++i) {
+            final float v = data[i];
+            if (noDataValue != v) {
+                total += v;
+                ++numValid;
+            }
+        }
+        offset = numValid > 0 ? total / numValid : 0.0;
+
+        for (int x = 0; x < stride; ++x) {
+            count[x] = 0;
+            sum[x] = 0.0;
+            sumSq[x] = 0.0;
+        }
+
+        for (int y = 0; y < height; ++y) {
+            final int dataRow = y * width;
+            final int row = (y + 1) * stride;
+            final int prevRow = row - stride;
+            count[row] = 0;
+            sum[row] = 0.0;
+            sumSq[row] = 0.0;
+
+            int rowCount = 0;
+            double rowSum = 0.0, rowSumSq = 0.0;
+            for (int x = 0; x < width; ++x) {
+                final float v = data[dataRow + x];
+                if (noDataValue != v) {
+                    final double d = v - offset;
+                    ++rowCount;
+                    rowSum += d;
+                    rowSumSq += d * d;
+                }
+                final int idx = row + x + 1;
+                count[idx] = count[prevRow + x + 1] + rowCount;
+                sum[idx] = sum[prevRow + x + 1] + rowSum;
+                sumSq[idx] = sumSq[prevRow + x + 1] + rowSumSq;
+            }
+        }
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * Number of valid pixels in the rectangle [x0, x1) x [y0, y1) of the tile.
+     */
+    int count(final int x0, final int y0, final int x1, final int y1) {
+        final int a = y0 * stride, b = y1 * stride;
+        return count[b + x1] - count[b + x0] - count[a + x1] + count[a + x0];
+    }
+
+    /**
+     * Sum of the valid pixels in the rectangle relative to the offset.
+     */
+    double sum(final int x0, final int y0, final int x1, final int y1) {
+        final int a = y0 * stride, b = y1 * stride;
+        return sum[b + x1] - sum[b + x0] - sum[a + x1] + sum[a + x0];
+    }
+
+    /**
+     * Sum of the squared valid pixels in the rectangle relative to the offset.
+     */
+    double sumSq(final int x0, final int y0, final int x1, final int y1) {
+        final int a = y0 * stride, b = y1 * stride;
+        return sumSq[b + x1] - sumSq[b + x0] - sumSq[a + x1] + sumSq[a + x0];
+    }
+
+    /**
+     * The value the sums are relative to.
+     */
+    double getOffset() {
+        return offset;
+    }
+}
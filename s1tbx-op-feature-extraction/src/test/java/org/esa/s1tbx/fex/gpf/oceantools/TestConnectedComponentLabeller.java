@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.fex.gpf.oceantools;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for ConnectedComponentLabeller and its SeamMerger against a flood fill of the whole image
+ */
+public class TestConnectedComponentLabeller {
+
+    @Test
+    public void testEightConnectivity() {
+        // a chain joined only through diagonal neighbours and two isolated pixels
+        final String[] image = {
+                "1.....",
+                ".1..1.",
+                "..11..",
+                "......",
+                "1....1",
+        };
+        final int w = image[0].length(), h = image.length;
+        final ConnectedComponentLabeller.Components components =
+                new ConnectedComponentLabeller().label(toMask(image), null, 0, 0, w, h);
+
+        assertEquals(3, components.getCount());
+        final int c = components.getComponentIndex(0, 0);
+        assertEquals(c, components.getComponentIndex(1, 1));
+        assertEquals(c, components.getComponentIndex(4, 1));
+        assertEquals(5, components.getArea(c));
+        assertEquals(-1, components.getComponentIndex(1, 0));
+
+        final ConnectedComponentLabeller.Component comp = components.getComponent(c);
+        assertEquals(0, comp.minX);
+        assertEquals(4, comp.maxX);
+        assertEquals(0, comp.minY);
+        assertEquals(2, comp.maxY);
+        assertEquals((0 + 1 + 2 + 3 + 4) / 5.0, comp.getCentroidX(), 1e-12);
+
+        assertTrue(components.getComponentIndex(0, 4) != components.getComponentIndex(5, 4));
+    }
+
+    @Test
+    public void testLabelsJoinedLate() {
+        // a U shape whose arms get different provisional labels until the bottom row
+        final String[] image = {
+                "1...1.1",
+                "1...1.1",
+                "1.1.1.1",
+                "11111.1",
+                "......1",
+                "1111111",
+        };
+        final int w = image[0].length(), h = image.length;
+        final float[] intensity = new float[w * h];
+        for (int i = 0; i < intensity.length; ++i) {
+            intensity[i] = i;
+        }
+        final ConnectedComponentLabeller.Components components =
+                new ConnectedComponentLabeller().label(toMask(image), intensity, 0, 0, w, h);
+
+        assertEquals(2, components.getCount());
+        assertEquals(components.getComponentIndex(0, 0), components.getComponentIndex(4, 0));
+        assertEquals(components.getComponentIndex(0, 5), components.getComponentIndex(6, 0));
+        assertTrue(components.getComponentIndex(0, 0) != components.getComponentIndex(6, 0));
+
+        final ConnectedComponentLabeller.Component u = components.getComponent(components.getComponentIndex(2, 2));
+        assertEquals(12, u.area);
+        double sumIntensity = 0;
+        for (int y = 0; y < h; ++y) {
+            for (int x = 0; x < w; ++x) {
+                if (components.getComponentIndex(x, y) == components.getComponentIndex(2, 2)) {
+                    sumIntensity += intensity[y * w + x];
+                }
+            }
+        }
+        assertEquals(sumIntensity / 12, u.getMeanIntensity(), 1e-12);
+    }
+
+    @Test
+    public void testComponentAcrossSeams() {
+        // a diagonal line through the corner where four 4x4 tiles meet, ending in a small cross
+        final String[] image = {
+                "1.......",
+                ".1......",
+                "..1.....",
+                "...1....",
+                "....1...",
+                ".....1.1",
+                "......1.",
+                ".......1",
+        };
+        final List<ConnectedComponentLabeller.Component> components = labelTiled(image, 4, 4, new Random(1));
+        assertEquals(1, components.size());
+        final ConnectedComponentLabeller.Component comp = components.get(0);
+        assertEquals(9, comp.area);
+        assertEquals(0, comp.minX);
+        assertEquals(0, comp.minY);
+        assertEquals(7, comp.maxX);
+        assertEquals(7, comp.maxY);
+    }
+
+    @Test
+    public void testRandomImagesInTiles() {
+        final Random random = new Random(5);
+        final int width = 37, height = 29;
+        final int[][] tileSizes = {{37, 29}, {8, 8}, {5, 7}, {1, 29}, {37, 1}, {3, 3}};
+        for (double density : new double[]{0.2, 0.45, 0.7}) {
+            final String[] image = new String[height];
+            for (int y = 0; y < height; ++y) {
+                final StringBuilder row = new StringBuilder();
+                for (int x = 0; x < width; ++x) {
+                    row.append(random.nextDouble() < density ? '1' : '.');
+                }
+                image[y] = row.toString();
+            }
+            final List<String> expected = describe(floodFill(image));
+            for (int[] tileSize : tileSizes) {
+                final List<String> actual = describe(labelTiled(image, tileSize[0], tileSize[1], random));
+                assertEquals("tiles " + tileSize[0] + 'x' + tileSize[1], expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testReduceOfPartialImage() {
+        // as in ObjectDiscriminationOp.dispose(), reduce before all tiles have been added
+        final String[] image = {
+                "..1.....",
+                "..1.....",
+                "..1.....",
+                "..111111",
+                "........",
+                "...1....",
+        };
+        final int w = 4, h = 3;
+        final byte[] mask = toMask(image);
+        final ConnectedComponentLabeller labeller = new ConnectedComponentLabeller();
+        final ConnectedComponentLabeller.SeamMerger merger = new ConnectedComponentLabeller.SeamMerger(8, 6);
+
+        assertTrue(merger.add(labeller.label(tileMask(mask, 8, 0, 0, w, h), null, 0, 0, w, h)));
+        assertTrue(merger.add(labeller.label(tileMask(mask, 8, 4, 3, w, h), null, 4, 3, w, h)));
+        assertFalse(merger.add(labeller.label(tileMask(mask, 8, 4, 3, w, h), null, 4, 3, w, h)));
+        assertFalse(merger.isComplete());
+
+        // the two open pieces are not joined without the tile between them
+        final List<ConnectedComponentLabeller.Component> reduced = merger.reduce();
+        assertEquals(2, reduced.size());
+        assertEquals(7, reduced.get(0).area + reduced.get(1).area);
+        assertTrue(merger.reduce().isEmpty());
+
+        // once all tiles are in, the reduce of the last tile joins them
+        final ConnectedComponentLabeller.SeamMerger full = new ConnectedComponentLabeller.SeamMerger(8, 6);
+        for (int ty = 0; ty < 6; ty += h) {
+            for (int tx = 0; tx < 8; tx += w) {
+                assertFalse(full.isComplete());
+                full.add(labeller.label(tileMask(mask, 8, tx, ty, w, h), null, tx, ty, w, h));
+            }
+        }
+        assertTrue(full.isComplete());
+        final List<ConnectedComponentLabeller.Component> merged = full.reduce();
+        assertEquals(2, merged.size());
+        Collections.sort(merged, (a, b) -> Integer.compare(b.area, a.area));
+        assertEquals(9, merged.get(0).area);
+        assertEquals(2, merged.get(0).minX);
+        assertEquals(7, merged.get(0).maxX);
+        // a pixel on a seam without a neighbour across it stays on its own
+        assertEquals(1, merged.get(1).area);
+        assertTrue(full.reduce().isEmpty());
+    }
+
+    /**
+     * Label an image tile by tile in random order, as the operators do, and collect the components.
+     */
+    private static List<ConnectedComponentLabeller.Component> labelTiled(final String[] image, final int tileWidth,
+                                                                       final int tileHeight, final Random random) {
+        final int width = image[0].length(), height = image.length;
+        final byte[] mask = toMask(image);
+        final float[] intensity = new float[mask.length];
+        for (int i = 0; i < intensity.length; ++i) {
+            intensity[i] = (i * 7) % 13;
+        }
+
+        final List<int[]> tiles = new ArrayList<>();
+        for (int ty = 0; ty < height; ty += tileHeight) {
+            for (int tx = 0; tx < width; tx += tileWidth) {
+                tiles.add(new int[]{tx, ty, Math.min(tileWidth, width - tx), Math.min(tileHeight, height - ty)});
+            }
+        }
+        Collections.shuffle(tiles, random);
+
+        final ConnectedComponentLabeller labeller = new ConnectedComponentLabeller();
+        final ConnectedComponentLabeller.SeamMerger merger = new ConnectedComponentLabeller.SeamMerger(width, height);
+        final List<ConnectedComponentLabeller.Component> result = new ArrayList<>();
+        for (int[] t : tiles) {
+            final ConnectedComponentLabeller.Components components = labeller.label(
+                    tileMask(mask, width, t[0], t[1], t[2], t[3]),
+                    tileIntensity(intensity, width, t[0], t[1], t[2], t[3]), t[0], t[1], t[2], t[3]);
+            assertTrue(merger.add(components));
+            for (int c = 0; c < components.getCount(); ++c) {
+                if (!components.touchesSeam(c, width, height)) {
+                    result.add(components.getComponent(c));
+                }
+            }
+        }
+        assertTrue(merger.isComplete());
+        result.addAll(merger.reduce());
+        return result;
+    }
+
+    private static List<ConnectedComponentLabeller.Component> floodFill(final String[] image) {
+        final int width = image[0].length(), height = image.length;
+        final byte[] mask = toMask(image);
+        final boolean[] visited = new boolean[mask.length];
+        final List<ConnectedComponentLabeller.Component> result = new ArrayList<>();
+        for (int start = 0; start < mask.length; ++start) {
+            if (mask[start] == 0 || visited[start]) {
+                continue;
+            }
+            final ConnectedComponentLabeller.Component comp = new ConnectedComponentLabeller.Component();
+            final ArrayDeque<Integer> queue = new ArrayDeque<>();
+            queue.add(start);
+            visited[start] = true;
+            while (!queue.isEmpty()) {
+                final int i = queue.poll();
+                final int x = i % width, y = i / width;
+                comp.area++;
+                comp.minX = Math.min(comp.minX, x);
+                comp.maxX = Math.max(comp.maxX, x);
+                comp.minY = Math.min(comp.minY, y);
+                comp.maxY = Math.max(comp.maxY, y);
+                comp.sumX += x;
+                comp.sumY += y;
+                comp.sumIntensity += (i * 7) % 13;
+                for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, height - 1); ++ny) {
+                    for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, width - 1); ++nx) {
+                        final int n = ny * width + nx;
+                        if (mask[n] != 0 && !visited[n]) {
+                            visited[n] = true;
+                            queue.add(n);
+                        }
+                    }
+                }
+            }
+            result.add(comp);
+        }
+        return result;
+    }
+
+    private static List<String> describe(final List<ConnectedComponentLabeller.Component> components) {
+        final List<String> list = new ArrayList<>();
+        for (ConnectedComponentLabeller.Component c : components) {
+            list.add(c.minX + "," + c.minY + "-" + c.maxX + "," + c.maxY + " area " + c.area +
+                    " sum " + c.sumX + "," + c.sumY + "," + c.sumIntensity);
+        }
+        Collections.sort(list);
+        return list;
+    }
+
+    private static byte[] toMask(final String[] image) {
+        final int width = image[0].length();
+        final byte[] mask = new byte[width * image.length];
+        for (int y = 0; y < image.length; ++y) {
+            for (int x = 0; x < width; ++x) {
+                mask[y * width + x] = (byte) (image[y].charAt(x) == '1' ? 1 : 0);
+            }
+        }
+        return mask;
+    }
+
+    private static byte[] tileMask(final byte[] mask, final int width, final int x0, final int y0,
+                                   final int w, final int h) {
+        final byte[] tile = new byte[w * h];
+        for (int y = 0; y < h; ++y) {
+            System.arraycopy(mask, (y0 + y) * width + x0, tile, y * w, w);
+        }
+        return tile;
+    }
+
+    private static float[] tileIntensity(final float[] intensity, final int width, final int x0, final int y0,
+                                         final int w, final int h) {
+        final float[] tile = new float[w * h];
+        for (int y = 0; y < h; ++y) {
+            System.arraycopy(intensity, (y0 + y) * width + x0, tile, y * w, w);
+        }
+        return tile;
+    }
+}
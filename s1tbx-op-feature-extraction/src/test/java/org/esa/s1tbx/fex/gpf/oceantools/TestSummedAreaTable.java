@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.fex.gpf.oceantools;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for SummedAreaTable against sums over the window pixels
+ */
+public class TestSummedAreaTable {
+
+    private static final double NO_DATA = 0.0;
+
+    private static float[] createTile(final int width, final int height, final Random random) {
+        final float[] data = new float[width * height];
+        for (int i = 0; i < data.length; ++i) {
+            // sea clutter around 1000 with no-data pixels and a few bright targets
+            final double r = random.nextDouble();
+            data[i] = r < 0.1 ? (float) NO_DATA : r > 0.98 ? 50000.0f : (float) (1000.0 + 100.0 * random.nextGaussian());
+        }
+        return data;
+    }
+
+    @Test
+    public void testAllWindows() {
+        final Random random = new Random(7);
+        final int width = 23;
+        final int height = 17;
+        final float[] data = createTile(width, height, random);
+
+        final SummedAreaTable table = new SummedAreaTable();
+        table.build(data, width, height, NO_DATA);
+        assertEquals(width, table.getWidth());
+        assertEquals(height, table.getHeight());
+
+        // every rectangle, including empty ones and those along the tile edges
+        for (int y0 = 0; y0 <= height; ++y0) {
+            for (int y1 = y0; y1 <= height; ++y1) {
+                for (int x0 = 0; x0 <= width; ++x0) {
+                    for (int x1 = x0; x1 <= width; ++x1) {
+                        checkWindow(table, data, width, x0, y0, x1, y1);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testClippedWindows() {
+        final Random random = new Random(11);
+        final int width = 40;
+        final int height = 30;
+        final float[] data = createTile(width, height, random);
+
+        final SummedAreaTable table = new SummedAreaTable();
+        table.build(data, width, height, NO_DATA);
+
+        // windows centred on every pixel, clipped to the tile as in AdaptiveThresholdingOp
+        final int halfWindowSize = 7;
+        for (int cy = 0; cy < height; ++cy) {
+            for (int cx = 0; cx < width; ++cx) {
+                final int x0 = Math.max(cx - halfWindowSize, 0);
+                final int y0 = Math.max(cy - halfWindowSize, 0);
+                final int x1 = Math.min(cx + halfWindowSize, width - 1) + 1;
+                final int y1 = Math.min(cy + halfWindowSize, height - 1) + 1;
+                checkWindow(table, data, width, x0, y0, x1, y1);
+            }
+        }
+    }
+
+    @Test
+    public void testReuse() {
+        final Random random = new Random(3);
+        final SummedAreaTable table = new SummedAreaTable();
+
+        // a large tile, then smaller tiles of other shapes in the grown tables
+        final int[][] sizes = {{50, 40}, {10, 35}, {45, 3}, {1, 1}, {7, 7}};
+        for (int[] size : sizes) {
+            final int width = size[0];
+            final int height = size[1];
+            final float[] data = createTile(width, height, random);
+            table.build(data, width, height, NO_DATA);
+
+            checkWindow(table, data, width, 0, 0, width, height);
+            checkWindow(table, data, width, 0, 0, 1, 1);
+            checkWindow(table, data, width, width / 2, height / 2, width, height);
+            checkWindow(table, data, width, 0, height - 1, width, height);
+            checkWindow(table, data, width, width - 1, 0, width, height);
+        }
+    }
+
+    @Test
+    public void testNoValidPixels() {
+        final int width = 5;
+        final int height = 4;
+        final float[] data = new float[width * height];
+
+        final SummedAreaTable table = new SummedAreaTable();
+        table.build(data, width, height, NO_DATA);
+        assertEquals(0.0, table.getOffset(), 0.0);
+        assertEquals(0, table.count(0, 0, width, height));
+        assertEquals(0.0, table.sum(0, 0, width, height), 0.0);
+        assertEquals(0.0, table.sumSq(0, 0, width, height), 0.0);
+    }
+
+    private static void checkWindow(final SummedAreaTable table, final float[] data, final int width,
+                                    final int x0, final int y0, final int x1, final int y1) {
+        final double offset = table.getOffset();
+        int count = 0;
+        double sum = 0.0, sumSq = 0.0;
+        for (int y = y0; y < y1; ++y) {
+            for (int x = x0; x < x1; ++x) {
+                final float v = data[y * width + x];
+                if (v != NO_DATA) {
+                    final double d = v - offset;
+                    ++count;
+                    sum += d;
+                    sumSq += d * d;
+                }
+            }
+        }
+
+        // the tables accumulate over the whole tile, so allow for rounding relative to the tile totals
+        final int numPixels = table.getWidth() * table.getHeight();
+        final double tileSumSq = table.sumSq(0, 0, table.getWidth(), table.getHeight());
+        final double sumTolerance = 1e-12 * Math.sqrt(numPixels * tileSumSq) * numPixels + 1e-9;
+        final double sumSqTolerance = 1e-12 * tileSumSq * numPixels + 1e-9;
+
+        final String window = "[" + x0 + ", " + x1 + ") x [" + y0 + ", " + y1 + ")";
+        assertEquals(window, count, table.count(x0, y0, x1, y1));
+        assertEquals(window, sum, table.sum(x0, y0, x1, y1), sumTolerance);
+        assertEquals(window, sumSq, table.sumSq(x0, y0, x1, y1), sumSqTolerance);
+
+        // the mean of the pixel values, as the operator computes it
+        if (count > 0) {
+            double valueSum = 0.0;
+            for (int y = y0; y < y1; ++y) {
+                for (int x = x0; x < x1; ++x) {
+                    final float v = data[y * width + x];
+                    if (v != NO_DATA) {
+                        valueSum += v;
+                    }
+                }
+            }
+            assertEquals(window, valueSum / count, offset + table.sum(x0, y0, x1, y1) / count, 1e-6);
+        }
+    }
+}
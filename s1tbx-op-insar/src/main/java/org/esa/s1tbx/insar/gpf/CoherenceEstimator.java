@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.insar.gpf;
+
+import org.esa.snap.core.datamodel.ProductData;
+import org.esa.snap.core.gpf.Tile;
+import org.esa.snap.engine_utilities.gpf.TileIndex;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * Complex coherence of a master/slave pair over a cohWinAz x cohWinRg window.
+ * <p>
+ * Master and slave of a tile extended by the window are kept as float I/Q arrays, row by row. The cross product
+ * and both powers are summed over the window with running box sums, first down the columns then along the rows,
+ * so each pixel costs a constant number of operations whatever the window size. An instance keeps its arrays
+ * between tiles and is meant to be used by one thread.
+ */
+final class CoherenceEstimator {
+
+    private final int winAz;
+    private final int winRg;
+
+    private int width, height;
+    private float[] mstI = new float[0], mstQ = new float[0];
+    private float[] slvI = new float[0], slvQ = new float[0];
+    private boolean[] noData = new boolean[0];
+
+    // window column sums of the cross product and the powers
+    private double[] crossRe = new double[0], crossIm = new double[0];
+    private double[] mstPower = new double[0], slvPower = new double[0];
+
+    /**
+     * @param winAz coherence window size in azimuth
+     * @param winRg coherence window size in range
+     */
+    CoherenceEstimator(final int winAz, final int winRg) {
+        this.winAz = winAz;
+        this.winRg = winRg;
+    }
+
+    /**
+     * Load the extended tile of a pair.
+     *
+     * @param mstTileReal     master real part
+     * @param mstTileImag     master imaginary part
+     * @param slvTileReal     slave real part
+     * @param slvTileImag     slave imaginary part
+     * @param slvNoDataValue  no data value of the slave real part
+     */
+    void load(final Tile mstTileReal, final Tile mstTileImag, final Tile slvTileReal, final Tile slvTileImag,
+              final double slvNoDataValue) {
+        width = mstTileReal.getWidth();
+        height = mstTileReal.getHeight();
+        final int size = width * height;
+        if (mstI.length < size) {
+            mstI = new float[size];
+            mstQ = new float[size];
+            slvI = new float[size];
+            slvQ = new float[size];
+            noData = new boolean[size];
+        }
+        if (crossRe.length < width) {
+            crossRe = new double[width];
+            crossIm = new double[width];
+            mstPower = new double[width];
+            slvPower = new double[width];
+        }
+
+        final ProductData mstReal = mstTileReal.getRawSamples();
+        final ProductData mstImag = mstTileImag.getRawSamples();
+        final ProductData slvReal = slvTileReal.getRawSamples();
+        final ProductData slvImag = slvTileImag.getRawSamples();
+        for (int k = 0; k < size; k++) {
+            final double sr = slvReal.getElemDoubleAt(k);
+            mstI[k] = mstReal.getElemFloatAt(k);
+            mstQ[k] = mstImag.getElemFloatAt(k);
+            slvI[k] = (float) sr;
+            slvQ[k] = slvImag.getElemFloatAt(k);
+            noData[k] = sr == slvNoDataValue;
+        }
+    }
+
+    /**
+     * Multiply the slave by exp(i * phase).
+     *
+     * @param phase the phase of each pixel of the extended tile, row by row
+     */
+    void applyPhase(final double[] phase) {
+        final int size = width * height;
+        for (int k = 0; k < size; k++) {
+            rotateSlave(k, phase[k]);
+        }
+    }
+
+    /**
+     * Multiply the slave by exp(i * phase).
+     *
+     * @param phase the phase of each pixel of the extended tile, [row][column]
+     */
+    void applyPhase(final double[][] phase) {
+        for (int r = 0; r < height; r++) {
+            final double[] phaseRow = phase[r];
+            final int row = r * width;
+            for (int c = 0; c < width; c++) {
+                rotateSlave(row + c, phaseRow[c]);
+            }
+        }
+    }
+
+    private void rotateSlave(final int k, final double p) {
+        final double cos = Math.cos(p);
+        final double sin = Math.sin(p);
+        final double re = slvI[k];
+        final double im = slvQ[k];
+        slvI[k] = (float) (re * cos - im * sin);
+        slvQ[k] = (float) (re * sin + im * cos);
+    }
+
+    /**
+     * Estimate the coherence of the loaded pair and write it to the target tile.
+     *
+     * @param coherenceTile the target tile
+     * @param rect          the target rectangle, the loaded tile less the window margins
+     * @param noDataValue   written where the slave has no data
+     */
+    void estimate(final Tile coherenceTile, final Rectangle rect, final double noDataValue) {
+        final ProductData coherenceData = coherenceTile.getDataBuffer();
+        final TileIndex tgtIndex = new TileIndex(coherenceTile);
+        final int offsetAz = (winAz - 1) / 2;
+        final int offsetRg = (winRg - 1) / 2;
+
+        Arrays.fill(crossRe, 0, width, 0.0);
+        Arrays.fill(crossIm, 0, width, 0.0);
+        Arrays.fill(mstPower, 0, width, 0.0);
+        Arrays.fill(slvPower, 0, width, 0.0);
+        for (int r = 0; r < winAz - 1; r++) {
+            addRow(r, 1.0);
+        }
+
+        for (int yy = 0; yy < rect.height; yy++) {
+            addRow(yy + winAz - 1, 1.0);
+
+            double sumRe = 0, sumIm = 0, sumMst = 0, sumSlv = 0;
+            for (int c = 0; c < winRg - 1; c++) {
+                sumRe += crossRe[c];
+                sumIm += crossIm[c];
+                sumMst += mstPower[c];
+                sumSlv += slvPower[c];
+            }
+
+            final int y = rect.y + yy;
+            final int centreRow = (yy + offsetAz) * width + offsetRg;
+            tgtIndex.calculateStride(y);
+            for (int xx = 0; xx < rect.width; xx++) {
+                final int last = xx + winRg - 1;
+                sumRe += crossRe[last];
+                sumIm += crossIm[last];
+                sumMst += mstPower[last];
+                sumSlv += slvPower[last];
+
+                final int tgtIdx = tgtIndex.getIndex(rect.x + xx);
+                if (noData[centreRow + xx]) {
+                    coherenceData.setElemFloatAt(tgtIdx, (float) noDataValue);
+                } else {
+                    final double product = sumMst * sumSlv;
+                    final double coh = product > 0.0 ?
+                            Math.sqrt(sumRe * sumRe + sumIm * sumIm) / Math.sqrt(product) : 0.0;
+                    coherenceData.setElemFloatAt(tgtIdx, (float) coh);
+                }
+
+                sumRe -= crossRe[xx];
+                sumIm -= crossIm[xx];
+                sumMst -= mstPower[xx];
+                sumSlv -= slvPower[xx];
+            }
+
+            addRow(yy, -1.0);
+        }
+    }
+
+    /**
+     * Add a row of master times conjugate slave and of the powers to the column sums.
+     */
+    private void addRow(final int r, final double sign) {
+        final int row = r * width;
+        for (int c = 0; c < width; c++) {
+            final int k = row + c;
+            final double mi = mstI[k], mq = mstQ[k];
+            final double si = slvI[k], sq = slvQ[k];
+            crossRe[c] += sign * (mi * si + mq * sq);
+            crossIm[c] += sign * (mq * si - mi * sq);
+            mstPower[c] += sign * (mi * mi + mq * mq);
+            slvPower[c] += sign * (si * si + sq * sq);
+        }
+    }
+}
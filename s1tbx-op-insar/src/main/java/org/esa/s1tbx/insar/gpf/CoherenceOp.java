@@ -44,7 +44,6 @@ import org.esa.snap.engine_utilities.gpf.TileIndex;
 import org.jblas.ComplexDouble;
 import org.jblas.ComplexDoubleMatrix;
 import org.jblas.DoubleMatrix;
-import org.jblas.MatrixFunctions;
 import org.jlinda.core.GeoPoint;
 import org.jlinda.core.Orbit;
 import org.jlinda.core.Point;
@@ -161,7 +160,8 @@ public class CoherenceOp extends Operator {
     private MetadataElement mstRoot = null;
     private MetadataElement slvRoot = null;
     private org.jlinda.core.Point[] mstSceneCentreXYZ = null;
-    private HashMap<String, DoubleMatrix> flatEarthPolyMap = new HashMap<>();
+    private HashMap<String, ReferencePhaseGrid> flatEarthPhaseGrids = new HashMap<>();
+    private ThreadLocal<CoherenceEstimator> estimators = null;
     private int sourceImageWidth;
     private int sourceImageHeight;
 
@@ -209,6 +209,8 @@ public class CoherenceOp extends Operator {
 
             createTargetProduct();
 
+            estimators = ThreadLocal.withInitial(() -> new CoherenceEstimator(cohWinAz, cohWinRg));
+
             if (isComplex && subtractFlatEarthPhase) {
                 if (isTOPSARBurstProduct) {
                     getMstApproxSceneCentreXYZ();
@@ -481,10 +483,16 @@ public class CoherenceOp extends Operator {
                     for (int b = 0; b < numBursts; b++) {
 
                         final String polynomialName = slave.name + '_' + s + '_' + b;
-
-                        flatEarthPolyMap.put(polynomialName, InterferogramOp.estimateFlatEarthPolynomial(
-                                master, slave, s + 1, b, mstSceneCentreXYZ, orbitDegree, srpPolynomialDegree,
-                                srpNumberPoints, subSwath, su));
+                        final String key = master.name + '_' + polynomialName + '_' + orbitDegree + '_' +
+                                srpPolynomialDegree + '_' + srpNumberPoints;
+                        final int subSwathIndex = s + 1;
+                        final int burstIndex = b;
+
+                        flatEarthPhaseGrids.put(polynomialName, ReferencePhaseGrid.getSharedGrid(sourceProduct, key,
+                                0, subSwath[s].linesPerBurst - 1, 0, subSwath[s].samplesPerBurst - 1,
+                                () -> InterferogramOp.estimateFlatEarthPolynomial(
+                                        master, slave, subSwathIndex, burstIndex, mstSceneCentreXYZ, orbitDegree,
+                                        srpPolynomialDegree, srpNumberPoints, subSwath, su)));
                     }
                 }
             }
@@ -501,9 +509,12 @@ public class CoherenceOp extends Operator {
 
                 CplxContainer slave = slaveMap.get(keySlave);
 
-                flatEarthPolyMap.put(slave.name, InterferogramOp.estimateFlatEarthPolynomial(
-                        master.metaData, master.orbit, slave.metaData, slave.orbit, sourceImageWidth,
-                        sourceImageHeight, srpPolynomialDegree, srpNumberPoints, sourceProduct));
+                final String key = master.name + '_' + slave.name + '_' + srpPolynomialDegree + '_' + srpNumberPoints;
+                flatEarthPhaseGrids.put(slave.name, ReferencePhaseGrid.getSharedGrid(sourceProduct, key,
+                        0, sourceImageHeight - 1, 0, sourceImageWidth - 1,
+                        () -> InterferogramOp.estimateFlatEarthPolynomial(
+                                master.metaData, master.orbit, slave.metaData, slave.orbit, sourceImageWidth,
+                                sourceImageHeight, srpPolynomialDegree, srpNumberPoints, sourceProduct)));
             }
         }
     }
@@ -704,21 +715,18 @@ public class CoherenceOp extends Operator {
 
                 final Tile mstTileReal = getSourceTile(product.sourceMaster.realBand, extRect, border);
                 final Tile mstTileImag = getSourceTile(product.sourceMaster.imagBand, extRect, border);
-                final ComplexDoubleMatrix dataMaster = TileUtilsDoris.pullComplexDoubleMatrix(mstTileReal, mstTileImag);
-
                 final Tile slvTileReal = getSourceTile(product.sourceSlave.realBand, extRect, border);
                 final Tile slvTileImag = getSourceTile(product.sourceSlave.imagBand, extRect, border);
-                final ComplexDoubleMatrix dataSlave = TileUtilsDoris.pullComplexDoubleMatrix(slvTileReal, slvTileImag);
 
-                if (subtractFlatEarthPhase) {
-                    final DoubleMatrix flatEarthPhase = computeFlatEarthPhase(
-                            cohx0, cohx0 + cohw - 1, cohw, cohy0, cohy0 + cohh - 1, cohh,
-                            0, sourceImageWidth - 1, 0, sourceImageHeight - 1, product.sourceSlave.name);
+                final double srcNoDataValue = product.sourceMaster.realBand.getNoDataValue();
+                final CoherenceEstimator estimator = estimators.get();
+                estimator.load(mstTileReal, mstTileImag, slvTileReal, slvTileImag, srcNoDataValue);
 
-                    final ComplexDoubleMatrix complexReferencePhase = new ComplexDoubleMatrix(
-                            MatrixFunctions.cos(flatEarthPhase), MatrixFunctions.sin(flatEarthPhase));
+                if (subtractFlatEarthPhase) {
+                    final double[] flatEarthPhase = flatEarthPhaseGrids.get(product.sourceSlave.name).getPhase(
+                            cohx0, cohy0, cohw, cohh);
 
-                    dataSlave.muli(complexReferencePhase);
+                    estimator.applyPhase(flatEarthPhase);
 
                     if (OUTPUT_PHASE) {
                         saveFlatEarthPhase(x0, xN, y0, yN, flatEarthPhase, product, targetTileMap);
@@ -729,26 +737,15 @@ public class CoherenceOp extends Operator {
                     final TopoPhase topoPhase = TopoPhase.computeTopoPhase(
                             product, tileWindow, demTile, false);
 
-                    final ComplexDoubleMatrix ComplexTopoPhase = new ComplexDoubleMatrix(
-                            MatrixFunctions.cos(new DoubleMatrix(topoPhase.demPhase)),
-                            MatrixFunctions.sin(new DoubleMatrix(topoPhase.demPhase)));
-
-                    dataSlave.muli(ComplexTopoPhase);
+                    estimator.applyPhase(topoPhase.demPhase);
 
                     if (OUTPUT_PHASE) {
                         saveTopoPhase(x0, xN, y0, yN, topoPhase.demPhase, product, targetTileMap);
                     }
                 }
 
-                for (int i = 0; i < dataMaster.length; i++) {
-                    double tmp = norm(dataMaster.get(i));
-                    dataMaster.put(i, dataMaster.get(i).mul(dataSlave.get(i).conj()));
-                    dataSlave.put(i, new ComplexDouble(norm(dataSlave.get(i)), tmp));
-                }
-
-                DoubleMatrix cohMatrix = SarUtils.coherence2(dataMaster, dataSlave, cohWinAz, cohWinRg);
-
-                saveCoherence(cohMatrix, product, targetTileMap, targetRectangle);
+                final Band coherenceBand = targetProduct.getBand(product.getBandName(Unit.COHERENCE));
+                estimator.estimate(targetTileMap.get(coherenceBand), targetRectangle, srcNoDataValue);
             }
 
         } catch (Throwable e) {
@@ -758,24 +755,6 @@ public class CoherenceOp extends Operator {
         }
     }
 
-    private DoubleMatrix computeFlatEarthPhase(final int xMin, final int xMax, final int xSize,
-                                               final int yMin, final int yMax, final int ySize,
-                                               final int minPixel, final int maxPixel,
-                                               final int minLine, final int maxLine,
-                                               final String polynomialName) {
-
-        DoubleMatrix rangeAxisNormalized = DoubleMatrix.linspace(xMin, xMax, xSize);
-        rangeAxisNormalized = InterferogramOp.normalizeDoubleMatrix(rangeAxisNormalized, minPixel, maxPixel);
-
-        DoubleMatrix azimuthAxisNormalized = DoubleMatrix.linspace(yMin, yMax, ySize);
-        azimuthAxisNormalized = InterferogramOp.normalizeDoubleMatrix(azimuthAxisNormalized, minLine, maxLine);
-
-        final DoubleMatrix polyCoeffs = flatEarthPolyMap.get(polynomialName);
-
-        return PolyUtils.polyval(azimuthAxisNormalized, rangeAxisNormalized,
-                polyCoeffs, PolyUtils.degreeFromCoefficients(polyCoeffs.length));
-    }
-
     private void saveTopoPhase(final int x0, final int xN, final int y0, final int yN, final double[][] topoPhase,
                                final ProductContainer product, final Map<Band, Tile> targetTileMap) {
 
@@ -795,13 +774,14 @@ public class CoherenceOp extends Operator {
         }
     }
 
-    private void saveFlatEarthPhase(final int x0, final int xN, final int y0, final int yN, final DoubleMatrix refPhase,
+    private void saveFlatEarthPhase(final int x0, final int xN, final int y0, final int yN, final double[] refPhase,
                                     final ProductContainer product, final Map<Band, Tile> targetTileMap) {
 
         final Band flatEarthPhaseBand = targetProduct.getBand(product.getBandName(FLAT_EARTH_PHASE));
         final Tile flatEarthPhaseTile = targetTileMap.get(flatEarthPhaseBand);
         final ProductData flatEarthPhaseData = flatEarthPhaseTile.getDataBuffer();
 
+        final int cohw = xN - x0 + cohWinRg;
         final TileIndex tgtIndex = new TileIndex(flatEarthPhaseTile);
         for (int y = y0; y <= yN; y++) {
             tgtIndex.calculateStride(y);
@@ -809,43 +789,7 @@ public class CoherenceOp extends Operator {
             for (int x = x0; x <= xN; x++) {
                 final int tgtIdx = tgtIndex.getIndex(x);
                 final int xx = x - x0 + (cohWinRg - 1) / 2;
-                flatEarthPhaseData.setElemFloatAt(tgtIdx, (float)refPhase.get(yy, xx));
-            }
-        }
-    }
-
-    private void saveCoherence(final DoubleMatrix cohMatrix, final ProductContainer product,
-                               final Map<Band, Tile> targetTileMap, final Rectangle targetRectangle) {
-
-        final int x0 = targetRectangle.x;
-        final int y0 = targetRectangle.y;
-        final int maxX = x0 + targetRectangle.width;
-        final int maxY = y0 + targetRectangle.height;
-
-        final Band coherenceBand = targetProduct.getBand(product.getBandName(Unit.COHERENCE));
-        final Tile coherenceTile = targetTileMap.get(coherenceBand);
-        final ProductData coherenceData = coherenceTile.getDataBuffer();
-
-        final double srcNoDataValue = product.sourceMaster.realBand.getNoDataValue();
-        final Tile slvTileReal = getSourceTile(product.sourceSlave.realBand, targetRectangle);
-        final ProductData srcSlvData = slvTileReal.getDataBuffer();
-        final TileIndex srcSlvIndex = new TileIndex(slvTileReal);
-
-        final TileIndex tgtIndex = new TileIndex(coherenceTile);
-        for (int y = y0; y < maxY; y++) {
-            tgtIndex.calculateStride(y);
-            srcSlvIndex.calculateStride(y);
-            final int yy = y - y0;
-            for (int x = x0; x < maxX; x++) {
-                final int tgtIdx = tgtIndex.getIndex(x);
-                final int xx = x - x0;
-
-                if (srcSlvData.getElemDoubleAt(srcSlvIndex.getIndex(x)) == srcNoDataValue) {
-                    coherenceData.setElemFloatAt(tgtIdx, (float) srcNoDataValue);
-                } else {
-                    final double coh = cohMatrix.get(yy, xx);
-                    coherenceData.setElemFloatAt(tgtIdx, (float) coh);
-                }
+                flatEarthPhaseData.setElemFloatAt(tgtIdx, (float)refPhase[yy * cohw + xx]);
             }
         }
     }
@@ -929,11 +873,6 @@ public class CoherenceOp extends Operator {
                 }
             }
 
-            final int minLine = 0;
-            final int maxLine = subSwath[subSwathIndex - 1].linesPerBurst - 1;
-            final int minPixel = 0;
-            final int maxPixel = subSwath[subSwathIndex - 1].samplesPerBurst - 1;
-
             for (String cohKey : targetMap.keySet()) {
 
                 final ProductContainer product = targetMap.get(cohKey);
@@ -943,22 +882,19 @@ public class CoherenceOp extends Operator {
 
                 final Tile mstTileReal = getSourceTile(product.sourceMaster.realBand, extRect, border);
                 final Tile mstTileImag = getSourceTile(product.sourceMaster.imagBand, extRect, border);
-                final ComplexDoubleMatrix dataMaster = TileUtilsDoris.pullComplexDoubleMatrix(mstTileReal, mstTileImag);
-
                 final Tile slvTileReal = getSourceTile(product.sourceSlave.realBand, extRect, border);
                 final Tile slvTileImag = getSourceTile(product.sourceSlave.imagBand, extRect, border);
-                final ComplexDoubleMatrix dataSlave = TileUtilsDoris.pullComplexDoubleMatrix(slvTileReal, slvTileImag);
+
+                final double srcNoDataValue = product.sourceMaster.realBand.getNoDataValue();
+                final CoherenceEstimator estimator = estimators.get();
+                estimator.load(mstTileReal, mstTileImag, slvTileReal, slvTileImag, srcNoDataValue);
 
                 final String polynomialName = product.sourceSlave.name + '_' + (subSwathIndex - 1) + '_' + burstIndex;
                 if (subtractFlatEarthPhase) {
-                    final DoubleMatrix flatEarthPhase = computeFlatEarthPhase(
-                            cohx0, cohx0 + cohw - 1, cohw, cohy0 - firstLineIdx, cohy0 + cohh - 1 - firstLineIdx, cohh,
-                            minPixel, maxPixel, minLine, maxLine, polynomialName);
-
-                    final ComplexDoubleMatrix complexReferencePhase = new ComplexDoubleMatrix(
-                            MatrixFunctions.cos(flatEarthPhase), MatrixFunctions.sin(flatEarthPhase));
+                    final double[] flatEarthPhase = flatEarthPhaseGrids.get(polynomialName).getPhase(
+                            cohx0, cohy0 - firstLineIdx, cohw, cohh);
 
-                    dataSlave.muli(complexReferencePhase);
+                    estimator.applyPhase(flatEarthPhase);
 
                     if (OUTPUT_PHASE) {
                         saveFlatEarthPhase(x0, xN, y0, yN, flatEarthPhase, product, targetTileMap);
@@ -969,26 +905,15 @@ public class CoherenceOp extends Operator {
                     TopoPhase topoPhase = TopoPhase.computeTopoPhase(
                             mstMeta, mstOrbit, slvMeta, slvOrbit, tileWindow, demTile, false);
 
-                    final ComplexDoubleMatrix ComplexTopoPhase = new ComplexDoubleMatrix(
-                            MatrixFunctions.cos(new DoubleMatrix(topoPhase.demPhase)),
-                            MatrixFunctions.sin(new DoubleMatrix(topoPhase.demPhase)));
-
-                    dataSlave.muli(ComplexTopoPhase);
+                    estimator.applyPhase(topoPhase.demPhase);
 
                     if (OUTPUT_PHASE) {
                         saveTopoPhase(x0, xN, y0, yN, topoPhase.demPhase, product, targetTileMap);
                     }
                 }
 
-                for (int i = 0; i < dataMaster.length; i++) {
-                    double tmp = norm(dataMaster.get(i));
-                    dataMaster.put(i, dataMaster.get(i).mul(dataSlave.get(i).conj()));
-                    dataSlave.put(i, new ComplexDouble(norm(dataSlave.get(i)), tmp));
-                }
-
-                DoubleMatrix cohMatrix = SarUtils.coherence2(dataMaster, dataSlave, cohWinAz, cohWinRg);
-
-                saveCoherence(cohMatrix, product, targetTileMap, targetRectangle);
+                final Band coherenceBand = targetProduct.getBand(product.getBandName(Unit.COHERENCE));
+                estimator.estimate(targetTileMap.get(coherenceBand), targetRectangle, srcNoDataValue);
             }
 
         } catch (Throwable e) {
@@ -1047,10 +972,6 @@ public class CoherenceOp extends Operator {
         return new GeoPoint(lat / (2*cols), lon / (2*cols));
     }
 
-    private static double norm(final ComplexDouble number) {
-        return number.real() * number.real() + number.imag() * number.imag();
-    }
-
     private static double norm(final double real, final double imag) {
         return real * real + imag * imag;
     }
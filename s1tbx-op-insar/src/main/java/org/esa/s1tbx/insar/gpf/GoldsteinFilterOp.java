@@ -16,7 +16,6 @@
 package org.esa.s1tbx.insar.gpf;
 
 import com.bc.ceres.core.ProgressMonitor;
-import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
 import org.apache.commons.math3.util.FastMath;
 import org.esa.snap.core.datamodel.Band;
 import org.esa.snap.core.datamodel.Product;
@@ -74,12 +73,12 @@ public class GoldsteinFilterOp extends Operator {
     private int sourceImageWidth = 0;
     private int sourceImageHeight = 0;
     private int FFTSize;
-    private int halfFFTSize;
     private int windowSize;
     private int halfWindowSize;
     private double noDataValue = 0;
     private Band cohBand = null;
     private final Map<Band, Band> targetIQPair = new HashMap<>();
+    private ThreadLocal<GoldsteinFilterWorkspace> workspaces = null;
 
     private static final String PRODUCT_SUFFIX = "_Flt";
 
@@ -104,11 +103,12 @@ public class GoldsteinFilterOp extends Operator {
             validator.checkIfSLC();
 
             FFTSize = Integer.parseInt(FFTSizeString);
-            halfFFTSize = FFTSize / 2;
 
             windowSize = Integer.parseInt(windowSizeString);
             halfWindowSize = windowSize / 2;
 
+            workspaces = ThreadLocal.withInitial(() -> new GoldsteinFilterWorkspace(FFTSize, halfWindowSize, alpha));
+
             sourceImageWidth = sourceProduct.getSceneRasterWidth();
             sourceImageHeight = sourceProduct.getSceneRasterHeight();
 
@@ -242,14 +242,7 @@ public class GoldsteinFilterOp extends Operator {
                 noDataValue = iBand.getNoDataValue();
 
                 // perform filtering with a sliding window
-                final boolean[][] mask = new boolean[FFTSize][FFTSize];
-                final double[][] I = new double[FFTSize][FFTSize];
-                final double[][] Q = new double[FFTSize][FFTSize];
-                final double[][] specI = new double[FFTSize][FFTSize];
-                final double[][] specQ = new double[FFTSize][FFTSize];
-                final double[][] pwrSpec = new double[FFTSize][FFTSize];
-                final double[][] fltSpec = new double[FFTSize][FFTSize];
-                final int colMax = I[0].length;
+                final GoldsteinFilterWorkspace workspace = workspaces.get();
 
                 // arrays saving filtered I/Q data for the tile, note tile size could be different from 512x512 on boundary
                 final float[] iBandFiltered = new float[w * h];
@@ -261,33 +254,13 @@ public class GoldsteinFilterOp extends Operator {
                 for (int y = sy0; y <= syMax; y += stepSize) {
                     for (int x = sx0; x <= sxMax; x += stepSize) {
 
-                        getComplexImagettes(x, y, iBandData, qBandData, srcIndex, I, Q, mask);
-
-                        // check for no data value
-                        boolean allNoData = true;
-                        for (double[] aI : I) {
-                            for (int c = 0; c < colMax; ++c) {
-                                if (aI[c] != noDataValue) {
-                                    allNoData = false;
-                                    break;
-                                }
-                            }
-                            if (!allNoData)
-                                break;
-                        }
-                        if (allNoData) {
+                        if (!workspace.load(x, y, iBandData, qBandData, srcIndex, noDataValue)) {
                             continue;
                         }
 
-                        perform2DFFT(I, Q, specI, specQ);
+                        workspace.filter(noDataValue);
 
-                        getPowerSpectrum(specI, specQ, pwrSpec);
-
-                        getFilteredPowerSpectrum(pwrSpec, fltSpec, alpha, halfWindowSize);
-
-                        performInverse2DFFT(specI, specQ, fltSpec, I, Q);
-
-                        updateFilteredBands(x0, y0, w, h, x, y, I, Q, mask, iBandFiltered, qBandFiltered);
+                        workspace.accumulate(x0, y0, w, h, x, y, iBandFiltered, qBandFiltered);
                     }
                 }
 
@@ -341,222 +314,6 @@ public class GoldsteinFilterOp extends Operator {
         return new Rectangle(sx0, sy0, sw, sh);
     }
 
-    /**
-     * Get source image data for given sliding window
-     *
-     * @param x           The x coordinate of the upper left pixel in the sliding window
-     * @param y           The y coordinate of the upper left pixel in the sliding window
-     * @param iBandData The source tile for I band
-     * @param qBandData The source tile for Q band
-     * @param I           Real parts of the retrieved data
-     * @param Q           Imaginary parts of the retrieved data
-     */
-    private void getComplexImagettes(final int x, final int y,
-                                     final ProductData iBandData, final ProductData qBandData,
-                                     final TileIndex srcIndex,
-                                     final double[][] I, final double[][] Q,
-                                     final boolean[][] mask) {
-        int index;
-        final int maxY = y + FFTSize;
-        final int maxX = x + FFTSize;
-        for (int yy = y; yy < maxY; yy++) {
-            srcIndex.calculateStride(yy);
-            final int yidx = yy - y;
-            for (int xx = x; xx < maxX; xx++) {
-                index = srcIndex.getIndex(xx);
-                I[yidx][xx - x] = iBandData.getElemDoubleAt(index);
-                Q[yidx][xx - x] = qBandData.getElemDoubleAt(index);
-                mask[yidx][xx - x] = I[yidx][xx - x] != noDataValue;
-            }
-        }
-    }
-
-    private static void perform2DFFT(final double[][] I, final double[][] Q,
-                                     final double[][] specI, final double[][] specQ) {
-
-        final int rowMax = I.length;
-        final int colMax = I[0].length;
-
-        // perform 1-D FFT to each row
-        final int rowFFTSize = colMax;
-        final int colFFTSize = rowMax;
-        final DoubleFFT_1D row_fft = new DoubleFFT_1D(rowFFTSize);
-        final double[][] complexDataI = new double[colFFTSize][rowFFTSize];
-        final double[][] complexDataQ = new double[colFFTSize][rowFFTSize];
-        final double[] rowArray = new double[2 * rowFFTSize];
-        for (int r = 0; r < rowMax; r++) {
-            int k = 0;
-            for (int c = 0; c < colMax; c++) {
-                rowArray[k++] = Q[r][c];
-                rowArray[k++] = I[r][c];
-            }
-            row_fft.complexForward(rowArray);
-            for (int c = 0; c < rowFFTSize; c++) {
-                complexDataQ[r][c] = rowArray[c + c];
-                complexDataI[r][c] = rowArray[c + c + 1];
-            }
-        }
-
-        // perform 1-D FFT to each column
-        final DoubleFFT_1D col_fft = new DoubleFFT_1D(colFFTSize);
-        final double[] colArray = new double[2 * colFFTSize];
-        for (int c = 0; c < colMax; c++) {
-            int k = 0;
-            for (int r = 0; r < rowMax; r++) {
-                colArray[k++] = complexDataQ[r][c];
-                colArray[k++] = complexDataI[r][c];
-            }
-            col_fft.complexForward(colArray);
-            for (int r = 0; r < colFFTSize; r++) {
-                specQ[r][c] = colArray[r + r];
-                specI[r][c] = colArray[r + r + 1];
-            }
-        }
-    }
-
-    private static void getPowerSpectrum(final double[][] specI, final double[][] specQ, final double[][] pwrSpec) {
-
-        final int rowMax = specI.length;
-        final int colMax = specI[0].length;
-
-        for (int r = 0; r < rowMax; r++) {
-            for (int c = 0; c < colMax; c++) {
-                pwrSpec[r][c] = Math.sqrt(specI[r][c] * specI[r][c] + specQ[r][c] * specQ[r][c]);
-            }
-        }
-    }
-
-    private void getFilteredPowerSpectrum(
-            final double[][] pwrSpec, final double[][] fltSpec, final double alpha, final int halfWindowSize) {
-
-        final int rowMax = pwrSpec.length;
-        final int colMax = pwrSpec[0].length;
-
-        for (int r = 0; r < rowMax; r++) {
-            final int jMin = Math.max(0, r - halfWindowSize);
-            final int jMax = Math.min(rowMax - 1, r + halfWindowSize);
-            for (int c = 0; c < colMax; c++) {
-                double sum = 0;
-                int k = 0;
-                final int iMin = Math.max(0, c - halfWindowSize);
-                final int iMax = Math.min(colMax - 1, c + halfWindowSize);
-                for (int j = jMin; j <= jMax; j++) {
-                    for (int i = iMin; i <= iMax; i++) {
-                        if(pwrSpec[j][i] != noDataValue) {
-                            sum += pwrSpec[j][i];
-                            k++;
-                        }
-                    }
-                }
-                if(k != 0) {
-                    fltSpec[r][c] = FastMath.pow(sum / k, alpha);
-                } else {
-                    fltSpec[r][c] = 0;
-                }
-            }
-        }
-    }
-
-    private static void performInverse2DFFT(final double[][] specI, final double[][] specQ, final double[][] fltSpec,
-                                            final double[][] I, final double[][] Q) {
-
-        final int rowMax = I.length;
-        final int colMax = I[0].length;
-
-        final int rowFFTSize = colMax;
-        final int colFFTSize = rowMax;
-        final double[][] complexDataI = new double[colFFTSize][rowFFTSize];
-        final double[][] complexDataQ = new double[colFFTSize][rowFFTSize];
-
-        // perform 1-D FFT to each column
-        final DoubleFFT_1D col_fft = new DoubleFFT_1D(colFFTSize);
-        final double[] colArray = new double[2 * colFFTSize];
-        for (int c = 0; c < colMax; c++) {
-            int k = 0;
-            for (int r = 0; r < rowMax; r++) {
-                colArray[k++] = specQ[r][c] * fltSpec[r][c];
-                colArray[k++] = specI[r][c] * fltSpec[r][c];
-            }
-            col_fft.complexInverse(colArray, false);
-            for (int r = 0; r < colFFTSize; r++) {
-                complexDataQ[r][c] = colArray[r + r];
-                complexDataI[r][c] = colArray[r + r + 1];
-            }
-        }
-
-        // perform 1-D FFT to each row
-        final DoubleFFT_1D row_fft = new DoubleFFT_1D(rowFFTSize);
-        final double[] rowArray = new double[2 * rowFFTSize];
-        for (int r = 0; r < rowMax; r++) {
-            int k = 0;
-            for (int c = 0; c < colMax; c++) {
-                rowArray[k++] = complexDataQ[r][c];
-                rowArray[k++] = complexDataI[r][c];
-            }
-            row_fft.complexInverse(rowArray, false);
-            for (int c = 0; c < rowFFTSize; c++) {
-                Q[r][c] = rowArray[c + c];
-                I[r][c] = rowArray[c + c + 1];
-            }
-        }
-    }
-
-    /**
-     * @param x0            The x coordinate of the pixel on the upper left corner of current tile.
-     * @param y0            The y coordinate of the pixel on the upper left corner of current tile.
-     * @param w             The width of current tile.
-     * @param h             The height of current tile.
-     * @param x             The x coordinate of the pixel on the upper left corner of the sliding window.
-     * @param y             The y coordinate of the pixel on the upper left corner of the sliding window.
-     * @param I             Imaginary part of the filtered imagette.
-     * @param Q             Real part of the filtered imagette.
-     * @param iBandFiltered Buffer holding imaginary part of the filtered image.
-     * @param qBandFiltered Buffer holding real part of the filtered image.
-     */
-    private void updateFilteredBands(final int x0, final int y0, final int w, final int h,
-                                     final int x, final int y, final double[][] I, final double[][] Q,
-                                     final boolean[][] mask,
-                                     final float[] iBandFiltered, final float[] qBandFiltered) {
-
-        final int xSt = FastMath.max(x, x0);
-        final int ySt = FastMath.max(y, y0);
-        final int xEd = FastMath.min(x + FFTSize, x0 + w);
-        final int yEd = FastMath.min(y + FFTSize, y0 + h);
-        for (int yy = ySt; yy < yEd; yy++) {
-            final int yi = yy - y;
-            final int yw = (yy - y0) * w;
-            final double weightY = (1 - Math.abs(yy - y - halfFFTSize + 0.5) / halfFFTSize);
-            for (int xx = xSt; xx < xEd; xx++) {
-
-                if(!mask[yi][xx - x]) {
-                    continue;
-                }
-
-                //final double weight = getTriangularWeight(x, y, xx, yy);
-                final double weight = (1 - Math.abs(xx - x - halfFFTSize + 0.5) / halfFFTSize) * weightY;
-
-                final int k = yw + (xx - x0);
-                iBandFiltered[k] += I[yi][xx - x] * weight;
-                qBandFiltered[k] += Q[yi][xx - x] * weight;
-            }
-        }
-    }
-
-    /**
-     * Compute triangular weight
-     *
-     * @param xUL The x coordinate of the pixel on the upper left corner of the sliding window.
-     * @param yUL The y coordinate of the pixel on the upper left corner of the sliding window.
-     * @param x   The x coordinate of current pixel in the sliding window
-     * @param y   The y coordinate of current pixel in the sliding window
-     * @return The weight
-     */
-    private double getTriangularWeight(final int xUL, final int yUL, final int x, final int y) {
-        return (1 - Math.abs(x - xUL - halfFFTSize + 0.5) / halfFFTSize) *
-                (1 - Math.abs(y - yUL - halfFFTSize + 0.5) / halfFFTSize);
-    }
-
-
     /**
      * The SPI is used to register this operator in the graph processing framework
      * via the SPI configuration file
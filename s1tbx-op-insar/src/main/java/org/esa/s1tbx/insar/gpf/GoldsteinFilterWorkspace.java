@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.insar.gpf;
+
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_2D;
+import org.apache.commons.math3.util.FastMath;
+import org.esa.snap.core.datamodel.ProductData;
+import org.esa.snap.engine_utilities.gpf.TileIndex;
+
+/**
+ * The FFT plan and work arrays of the Goldstein filter for one patch size.
+ * <p>
+ * A patch is kept in one flat array of interleaved complex values, row by row, and transformed in place by a
+ * 2D plan. The power spectrum is smoothed with separable box sums and the triangular weights used to blend the
+ * overlapping patches are computed once. An instance is reused for all patches filtered by one thread.
+ */
+final class GoldsteinFilterWorkspace {
+
+    private final int fftSize;
+    private final int halfWindowSize;
+    private final double alpha;
+    private final DoubleFFT_2D fft;
+
+    // Q as real and I as imaginary part, as the filter always did
+    private final double[] patch;
+    private final boolean[] mask;
+    private final double[] power;
+    private final double[] rowSum;
+    private final int[] rowCount;
+    private final double[] weight;
+
+    /**
+     * @param fftSize        patch size
+     * @param halfWindowSize half size of the power spectrum smoothing window
+     * @param alpha          adaptive filter exponent
+     */
+    GoldsteinFilterWorkspace(final int fftSize, final int halfWindowSize, final double alpha) {
+        this.fftSize = fftSize;
+        this.halfWindowSize = halfWindowSize;
+        this.alpha = alpha;
+        this.fft = new DoubleFFT_2D(fftSize, fftSize);
+
+        final int size = fftSize * fftSize;
+        patch = new double[2 * size];
+        mask = new boolean[size];
+        power = new double[size];
+        rowSum = new double[size];
+        rowCount = new int[size];
+
+        final int halfFFTSize = fftSize / 2;
+        weight = new double[fftSize];
+        for (int i = 0; i < fftSize; ++i) {
+            weight[i] = 1 - Math.abs(i - halfFFTSize + 0.5) / halfFFTSize;
+        }
+    }
+
+    /**
+     * Get source image data for given sliding window
+     *
+     * @param x           The x coordinate of the upper left pixel in the sliding window
+     * @param y           The y coordinate of the upper left pixel in the sliding window
+     * @param iBandData   The source tile for I band
+     * @param qBandData   The source tile for Q band
+     * @param srcIndex    The index of the source tile
+     * @param noDataValue The no data value of the I band
+     * @return false if all pixels of the window are no data
+     */
+    boolean load(final int x, final int y, final ProductData iBandData, final ProductData qBandData,
+                 final TileIndex srcIndex, final double noDataValue) {
+        boolean allNoData = true;
+        for (int r = 0; r < fftSize; r++) {
+            srcIndex.calculateStride(y + r);
+            final int row = r * fftSize;
+            for (int c = 0; c < fftSize; c++) {
+                final int index = srcIndex.getIndex(x + c);
+                final double i = iBandData.getElemDoubleAt(index);
+                patch[2 * (row + c)] = qBandData.getElemDoubleAt(index);
+                patch[2 * (row + c) + 1] = i;
+                mask[row + c] = i != noDataValue;
+                if (mask[row + c]) {
+                    allNoData = false;
+                }
+            }
+        }
+        return !allNoData;
+    }
+
+    /**
+     * Weight the spectrum of the loaded patch with its smoothed power spectrum raised to alpha.
+     * The inverse transform is left unscaled.
+     *
+     * @param noDataValue spectrum samples of this power are left out of the smoothing
+     */
+    void filter(final double noDataValue) {
+        fft.complexForward(patch);
+
+        final int size = fftSize * fftSize;
+        for (int k = 0; k < size; k++) {
+            final double re = patch[2 * k];
+            final double im = patch[2 * k + 1];
+            power[k] = Math.sqrt(im * im + re * re);
+        }
+
+        // box sums along the rows, then along the columns
+        for (int r = 0; r < fftSize; r++) {
+            final int row = r * fftSize;
+            for (int c = 0; c < fftSize; c++) {
+                final int iMin = Math.max(0, c - halfWindowSize);
+                final int iMax = Math.min(fftSize - 1, c + halfWindowSize);
+                double sum = 0;
+                int count = 0;
+                for (int i = iMin; i <= iMax; i++) {
+                    final double p = power[row + i];
+                    if (p != noDataValue) {
+                        sum += p;
+                        count++;
+                    }
+                }
+                rowSum[row + c] = sum;
+                rowCount[row + c] = count;
+            }
+        }
+
+        for (int r = 0; r < fftSize; r++) {
+            final int jMin = Math.max(0, r - halfWindowSize);
+            final int jMax = Math.min(fftSize - 1, r + halfWindowSize);
+            for (int c = 0; c < fftSize; c++) {
+                double sum = 0;
+                int count = 0;
+                for (int j = jMin; j <= jMax; j++) {
+                    sum += rowSum[j * fftSize + c];
+                    count += rowCount[j * fftSize + c];
+                }
+                final double flt = count != 0 ? FastMath.pow(sum / count, alpha) : 0;
+                final int k = r * fftSize + c;
+                patch[2 * k] *= flt;
+                patch[2 * k + 1] *= flt;
+            }
+        }
+
+        fft.complexInverse(patch, false);
+    }
+
+    /**
+     * Add the filtered patch, weighted to blend with the overlapping patches, to the part of it within the tile.
+     *
+     * @param x0            The x coordinate of the pixel on the upper left corner of current tile.
+     * @param y0            The y coordinate of the pixel on the upper left corner of current tile.
+     * @param w             The width of current tile.
+     * @param h             The height of current tile.
+     * @param x             The x coordinate of the pixel on the upper left corner of the sliding window.
+     * @param y             The y coordinate of the pixel on the upper left corner of the sliding window.
+     * @param iBandFiltered Buffer holding imaginary part of the filtered image.
+     * @param qBandFiltered Buffer holding real part of the filtered image.
+     */
+    void accumulate(final int x0, final int y0, final int w, final int h, final int x, final int y,
+                    final float[] iBandFiltered, final float[] qBandFiltered) {
+
+        final int xSt = FastMath.max(x, x0);
+        final int ySt = FastMath.max(y, y0);
+        final int xEd = FastMath.min(x + fftSize, x0 + w);
+        final int yEd = FastMath.min(y + fftSize, y0 + h);
+        for (int yy = ySt; yy < yEd; yy++) {
+            final int row = (yy - y) * fftSize - x;
+            final int yw = (yy - y0) * w - x0;
+            final double weightY = weight[yy - y];
+            for (int xx = xSt; xx < xEd; xx++) {
+                final int k = row + xx;
+                if (!mask[k]) {
+                    continue;
+                }
+                final double wt = weight[xx - x] * weightY;
+                iBandFiltered[yw + xx] += patch[2 * k + 1] * wt;
+                qBandFiltered[yw + xx] += patch[2 * k] * wt;
+            }
+        }
+    }
+}
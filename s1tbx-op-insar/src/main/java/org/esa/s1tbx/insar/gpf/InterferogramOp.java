@@ -141,7 +141,7 @@ public class InterferogramOp extends Operator {
     private boolean outputLatLon = false;
 
     // flat_earth_polynomial container
-    private Map<String, DoubleMatrix> flatEarthPolyMap = new HashMap<>();
+    private Map<String, ReferencePhaseGrid> flatEarthPhaseGrids = new HashMap<>();
     private boolean flatEarthEstimated = false;
 
     // source
@@ -330,9 +330,12 @@ public class InterferogramOp extends Operator {
 
                 CplxContainer slave = slaveMap.get(keySlave);
 
-                flatEarthPolyMap.put(slave.name, estimateFlatEarthPolynomial(
-                        master.metaData, master.orbit, slave.metaData, slave.orbit, sourceImageWidth,
-                        sourceImageHeight, srpPolynomialDegree, srpNumberPoints, sourceProduct));
+                final String key = master.name + '_' + slave.name + '_' + srpPolynomialDegree + '_' + srpNumberPoints;
+                flatEarthPhaseGrids.put(slave.name, ReferencePhaseGrid.getSharedGrid(sourceProduct, key,
+                        0, sourceImageHeight - 1, 0, sourceImageWidth - 1,
+                        () -> estimateFlatEarthPolynomial(
+                                master.metaData, master.orbit, slave.metaData, slave.orbit, sourceImageWidth,
+                                sourceImageHeight, srpPolynomialDegree, srpNumberPoints, sourceProduct)));
             }
         }
     }
@@ -354,10 +357,16 @@ public class InterferogramOp extends Operator {
                     for (int b = 0; b < numBursts; b++) {
 
                         final String polynomialName = slave.name + '_' + s + '_' + b;
-
-                        flatEarthPolyMap.put(polynomialName, estimateFlatEarthPolynomial(
-                                master, slave, s + 1, b, mstSceneCentreXYZ, orbitDegree, srpPolynomialDegree,
-                                srpNumberPoints, subSwath, su));
+                        final String key = master.name + '_' + polynomialName + '_' + orbitDegree + '_' +
+                                srpPolynomialDegree + '_' + srpNumberPoints;
+                        final int subSwathIndex = s + 1;
+                        final int burstIndex = b;
+
+                        flatEarthPhaseGrids.put(polynomialName, ReferencePhaseGrid.getSharedGrid(sourceProduct, key,
+                                0, subSwath[s].linesPerBurst - 1, 0, subSwath[s].samplesPerBurst - 1,
+                                () -> estimateFlatEarthPolynomial(
+                                        master, slave, subSwathIndex, burstIndex, mstSceneCentreXYZ, orbitDegree,
+                                        srpPolynomialDegree, srpNumberPoints, subSwath, su)));
                     }
                 }
             }
@@ -911,14 +920,10 @@ public class InterferogramOp extends Operator {
                 final ComplexDoubleMatrix dataSlave = TileUtilsDoris.pullComplexDoubleMatrix(slvTileReal, slvTileImag);
 
                 if (subtractFlatEarthPhase) {
-                    final DoubleMatrix flatEarthPhase = computeFlatEarthPhase(
-                            x0, xN, dataMaster.columns, y0, yN, dataMaster.rows,
-                            0, sourceImageWidth - 1, 0, sourceImageHeight - 1, product.sourceSlave.name);
-
-                    final ComplexDoubleMatrix complexReferencePhase = new ComplexDoubleMatrix(
-                            MatrixFunctions.cos(flatEarthPhase), MatrixFunctions.sin(flatEarthPhase));
+                    final double[] flatEarthPhase = flatEarthPhaseGrids.get(product.sourceSlave.name).getPhase(
+                            x0, y0, dataMaster.columns, dataMaster.rows);
 
-                    dataSlave.muli(complexReferencePhase);
+                    ReferencePhaseGrid.applyPhase(dataSlave, flatEarthPhase);
 
                     if (OUTPUT_PHASE) {
                         saveFlatEarthPhase(x0, xN, y0, yN, flatEarthPhase, product, targetTileMap);
@@ -929,11 +934,7 @@ public class InterferogramOp extends Operator {
                     final TopoPhase topoPhase = TopoPhase.computeTopoPhase(
                             product, tileWindow, demTile, outputElevation, false);
 
-                    final ComplexDoubleMatrix ComplexTopoPhase = new ComplexDoubleMatrix(
-                            MatrixFunctions.cos(new DoubleMatrix(topoPhase.demPhase)),
-                            MatrixFunctions.sin(new DoubleMatrix(topoPhase.demPhase)));
-
-                    dataSlave.muli(ComplexTopoPhase);
+                    ReferencePhaseGrid.applyPhase(dataSlave, topoPhase.demPhase);
 
                     if (OUTPUT_PHASE) {
                         saveTopoPhase(x0, xN, y0, yN, topoPhase.demPhase, product, targetTileMap);
@@ -968,25 +969,17 @@ public class InterferogramOp extends Operator {
                             TileUtilsDoris.pullComplexDoubleMatrix(slvTileReal2, slvTileImag2);
 
                     if (subtractFlatEarthPhase) {
-                        final DoubleMatrix flatEarthPhase = computeFlatEarthPhase(
-                                cohx0, cohx0 + cohw - 1, cohw, cohy0, cohy0 + cohh - 1, cohh,
-                                0, sourceImageWidth - 1, 0, sourceImageHeight - 1, product.sourceSlave.name);
-
-                        final ComplexDoubleMatrix complexReferencePhase = new ComplexDoubleMatrix(
-                                MatrixFunctions.cos(flatEarthPhase), MatrixFunctions.sin(flatEarthPhase));
+                        final double[] flatEarthPhase = flatEarthPhaseGrids.get(product.sourceSlave.name).getPhase(
+                                cohx0, cohy0, cohw, cohh);
 
-                        dataSlave2.muli(complexReferencePhase);
+                        ReferencePhaseGrid.applyPhase(dataSlave2, flatEarthPhase);
                     }
 
                     if (subtractTopographicPhase) {
                         final TopoPhase topoPhase = TopoPhase.computeTopoPhase(
                                 product, cohTileWindow, cohDemTile, false);
 
-                        final ComplexDoubleMatrix ComplexTopoPhase = new ComplexDoubleMatrix(
-                                MatrixFunctions.cos(new DoubleMatrix(topoPhase.demPhase)),
-                                MatrixFunctions.sin(new DoubleMatrix(topoPhase.demPhase)));
-
-                        dataSlave2.muli(ComplexTopoPhase);
+                        ReferencePhaseGrid.applyPhase(dataSlave2, topoPhase.demPhase);
                     }
 
                     for (int i = 0; i < dataMaster2.length; i++) {
@@ -1007,23 +1000,6 @@ public class InterferogramOp extends Operator {
         }
     }
 
-    private DoubleMatrix computeFlatEarthPhase(final int xMin, final int xMax, final int xSize,
-                                               final int yMin, final int yMax, final int ySize,
-                                               final int minPixel, final int maxPixel,
-                                               final int minLine, final int maxLine,
-                                               final String polynomialName) {
-        DoubleMatrix rangeAxisNormalized = DoubleMatrix.linspace(xMin, xMax, xSize);
-        rangeAxisNormalized = normalizeDoubleMatrix(rangeAxisNormalized, minPixel, maxPixel);
-
-        DoubleMatrix azimuthAxisNormalized = DoubleMatrix.linspace(yMin, yMax, ySize);
-        azimuthAxisNormalized = normalizeDoubleMatrix(azimuthAxisNormalized, minLine, maxLine);
-
-        final DoubleMatrix polyCoeffs = flatEarthPolyMap.get(polynomialName);
-
-        return PolyUtils.polyval(azimuthAxisNormalized, rangeAxisNormalized,
-                polyCoeffs, PolyUtils.degreeFromCoefficients(polyCoeffs.length));
-    }
-
     private void saveElevation(final int x0, final int xN, final int y0, final int yN, final double[][] elevation,
                                final ProductContainer product, final Map<Band, Tile> targetTileMap) {
         if (product.getBandName(ELEVATION) == null) {
@@ -1093,13 +1069,14 @@ public class InterferogramOp extends Operator {
         }
     }
 
-    private void saveFlatEarthPhase(final int x0, final int xN, final int y0, final int yN, final DoubleMatrix refPhase,
+    private void saveFlatEarthPhase(final int x0, final int xN, final int y0, final int yN, final double[] refPhase,
                                     final ProductContainer product, final Map<Band, Tile> targetTileMap) {
 
         final Band flatEarthPhaseBand = targetProduct.getBand(product.getBandName(FLAT_EARTH_PHASE));
         final Tile flatEarthPhaseTile = targetTileMap.get(flatEarthPhaseBand);
         final ProductData flatEarthPhaseData = flatEarthPhaseTile.getDataBuffer();
 
+        final int w = xN - x0 + 1;
         final TileIndex tgtIndex = new TileIndex(flatEarthPhaseTile);
         for (int y = y0; y <= yN; y++) {
             tgtIndex.calculateStride(y);
@@ -1107,7 +1084,7 @@ public class InterferogramOp extends Operator {
             for (int x = x0; x <= xN; x++) {
                 final int tgtIdx = tgtIndex.getIndex(x);
                 final int xx = x - x0;
-                flatEarthPhaseData.setElemFloatAt(tgtIdx, (float)refPhase.get(yy, xx));
+                flatEarthPhaseData.setElemFloatAt(tgtIdx, (float)refPhase[yy * w + xx]);
             }
         }
     }
@@ -1312,11 +1289,6 @@ public class InterferogramOp extends Operator {
                         demNoDataValue, demSamplingLat, demSamplingLon, tileExtensionPercent);
             }
 
-            final int minLine = 0;
-            final int maxLine = subSwath[subSwathIndex - 1].linesPerBurst - 1;
-            final int minPixel = 0;
-            final int maxPixel = subSwath[subSwathIndex - 1].samplesPerBurst - 1;
-
             for (String ifgKey : targetMap.keySet()) {
 
                 final ProductContainer product = targetMap.get(ifgKey);
@@ -1336,14 +1308,10 @@ public class InterferogramOp extends Operator {
 
                 final String polynomialName = product.sourceSlave.name + '_' + (subSwathIndex - 1) + '_' + burstIndex;
                 if (subtractFlatEarthPhase) {
-                    final DoubleMatrix flatEarthPhase = computeFlatEarthPhase(
-                            x0, xN, dataMaster.columns, y0 - firstLineIdx, yN - firstLineIdx, dataMaster.rows,
-                            minPixel, maxPixel, minLine, maxLine, polynomialName);
-
-                    final ComplexDoubleMatrix complexReferencePhase = new ComplexDoubleMatrix(
-                            MatrixFunctions.cos(flatEarthPhase), MatrixFunctions.sin(flatEarthPhase));
+                    final double[] flatEarthPhase = flatEarthPhaseGrids.get(polynomialName).getPhase(
+                            x0, y0 - firstLineIdx, dataMaster.columns, dataMaster.rows);
 
-                    dataSlave.muli(complexReferencePhase);
+                    ReferencePhaseGrid.applyPhase(dataSlave, flatEarthPhase);
 
                     if (OUTPUT_PHASE) {
                         saveFlatEarthPhase(x0, xN, y0, yN, flatEarthPhase, product, targetTileMap);
@@ -1354,11 +1322,7 @@ public class InterferogramOp extends Operator {
                     TopoPhase topoPhase = TopoPhase.computeTopoPhase(
                             mstMeta, mstOrbit, slvMeta, slvOrbit, tileWindow, demTile, outputElevation, false);
 
-                    final ComplexDoubleMatrix ComplexTopoPhase = new ComplexDoubleMatrix(
-                            MatrixFunctions.cos(new DoubleMatrix(topoPhase.demPhase)),
-                            MatrixFunctions.sin(new DoubleMatrix(topoPhase.demPhase)));
-
-                    dataSlave.muli(ComplexTopoPhase);
+                    ReferencePhaseGrid.applyPhase(dataSlave, topoPhase.demPhase);
 
                     if (OUTPUT_PHASE) {
                         saveTopoPhase(x0, xN, y0, yN, topoPhase.demPhase, product, targetTileMap);
@@ -1393,25 +1357,17 @@ public class InterferogramOp extends Operator {
                             TileUtilsDoris.pullComplexDoubleMatrix(slvTileReal2, slvTileImag2);
 
                     if (subtractFlatEarthPhase) {
-                        final DoubleMatrix flatEarthPhase = computeFlatEarthPhase(
-                                cohx0, cohx0 + cohw - 1, cohw, cohy0 - firstLineIdx, cohy0 + cohh - 1 - firstLineIdx, cohh,
-                                minPixel, maxPixel, minLine, maxLine, polynomialName);
-
-                        final ComplexDoubleMatrix complexReferencePhase = new ComplexDoubleMatrix(
-                                MatrixFunctions.cos(flatEarthPhase), MatrixFunctions.sin(flatEarthPhase));
+                        final double[] flatEarthPhase = flatEarthPhaseGrids.get(polynomialName).getPhase(
+                                cohx0, cohy0 - firstLineIdx, cohw, cohh);
 
-                        dataSlave2.muli(complexReferencePhase);
+                        ReferencePhaseGrid.applyPhase(dataSlave2, flatEarthPhase);
                     }
 
                     if (subtractTopographicPhase) {
                         TopoPhase topoPhase = TopoPhase.computeTopoPhase(
                                 mstMeta, mstOrbit, slvMeta, slvOrbit, cohTileWindow, cohDemTile, false);
 
-                        final ComplexDoubleMatrix ComplexTopoPhase = new ComplexDoubleMatrix(
-                                MatrixFunctions.cos(new DoubleMatrix(topoPhase.demPhase)),
-                                MatrixFunctions.sin(new DoubleMatrix(topoPhase.demPhase)));
-
-                        dataSlave2.muli(ComplexTopoPhase);
+                        ReferencePhaseGrid.applyPhase(dataSlave2, topoPhase.demPhase);
                     }
 
                     for (int i = 0; i < dataMaster2.length; i++) {
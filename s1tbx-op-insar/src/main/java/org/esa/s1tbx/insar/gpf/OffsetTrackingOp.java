@@ -19,6 +19,7 @@ import com.bc.ceres.core.ProgressMonitor;
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.Point;
+import org.esa.s1tbx.commons.utils.ThreadExecutor;
 import org.esa.s1tbx.insar.gpf.coregistration.CrossCorrelationOp;
 import org.esa.snap.core.datamodel.*;
 import org.esa.snap.core.dataop.downloadable.StatusProgressMonitor;
@@ -39,7 +40,6 @@ import org.esa.snap.engine_utilities.datamodel.Unit;
 import org.esa.snap.engine_utilities.eo.GeoUtils;
 import org.esa.snap.engine_utilities.gpf.OperatorUtils;
 import org.esa.snap.engine_utilities.gpf.StackUtils;
-import org.esa.snap.engine_utilities.gpf.ThreadManager;
 import org.esa.snap.engine_utilities.gpf.TileIndex;
 import org.esa.snap.engine_utilities.util.VectorUtils;
 import org.geotools.feature.DefaultFeatureCollection;
@@ -565,12 +565,12 @@ public class OffsetTrackingOp extends Operator {
             final StatusProgressMonitor status = new StatusProgressMonitor(StatusProgressMonitor.TYPE.SUBTASK);
             status.beginTask("Computing slave GCPs... ", gcpList.size());
 
-            final ThreadManager threadManager = new ThreadManager();
+            final ThreadExecutor executor = new ThreadExecutor("OffsetTrackingOp", status);
 
             for (GCPData gcpData : gcpList) {
                 checkForCancellation();
 
-                final Thread worker = new Thread() {
+                final Runnable worker = new Runnable() {
                     @Override
                     public void run() {
                         final PixelPos sGCP = new PixelPos(gcpData.mGCP.x, gcpData.mGCP.y);
@@ -585,11 +585,11 @@ public class OffsetTrackingOp extends Operator {
                         velocityData.slvGCPy[gcpData.i][gcpData.j] = sGCP.y;
                     }
                 };
-                threadManager.add(worker);
+                executor.execute(worker);
                 status.worked(1);
             }
+            executor.complete();
             status.done();
-            threadManager.finish();
 
         } catch (Throwable e) {
             OperatorUtils.catchOperatorException("computeGCPsByXCorrelation", e);
@@ -601,7 +601,7 @@ public class OffsetTrackingOp extends Operator {
         final StatusProgressMonitor status = new StatusProgressMonitor(StatusProgressMonitor.TYPE.SUBTASK);
         status.beginTask("Compute Offsets... ", numGCPsPerAzLine * numGCPsPerRgLine);
 
-        final ThreadManager threadManager = new ThreadManager();
+        final ThreadExecutor executor = new ThreadExecutor("OffsetTrackingOp", status);
         try {
             for (int i = 0; i < numGCPsPerAzLine; i++) {
                 for (int j = 0; j < numGCPsPerRgLine; j++) {
@@ -613,7 +613,7 @@ public class OffsetTrackingOp extends Operator {
                         continue;
                     }
 
-                    final Thread worker = new Thread() {
+                    final Runnable worker = new Runnable() {
                         @Override
                         public void run() {
 
@@ -640,12 +640,12 @@ public class OffsetTrackingOp extends Operator {
                             velocityData.azimuthShift[iIdx][jIdx] = yShift;
                         }
                     };
-                    threadManager.add(worker);
+                    executor.execute(worker);
                     status.worked(1);
                 }
             }
+            executor.complete();
             status.done();
-            threadManager.finish();
 
         } catch (Throwable e) {
             OperatorUtils.catchOperatorException("computeGCPOffsets", e);
@@ -657,7 +657,7 @@ public class OffsetTrackingOp extends Operator {
         final StatusProgressMonitor status = new StatusProgressMonitor(StatusProgressMonitor.TYPE.SUBTASK);
         status.beginTask("Average Offsets... ", numGCPsPerAzLine * numGCPsPerRgLine);
 
-        final ThreadManager threadManager = new ThreadManager();
+        final ThreadExecutor executor = new ThreadExecutor("OffsetTrackingOp", status);
         try {
             for (int i = 0; i < numGCPsPerAzLine; i++) {
                 for (int j = 0; j < numGCPsPerRgLine; j++) {
@@ -669,7 +669,7 @@ public class OffsetTrackingOp extends Operator {
                         continue;
                     }
 
-                    final Thread worker = new Thread() {
+                    final Runnable worker = new Runnable() {
                         @Override
                         public void run() {
 
@@ -713,12 +713,12 @@ public class OffsetTrackingOp extends Operator {
                             velocityData.slvGCPy[iIdx][jIdx] = slvGCPy;
                         }
                     };
-                    threadManager.add(worker);
+                    executor.execute(worker);
                     status.worked(1);
                 }
             }
+            executor.complete();
             status.done();
-            threadManager.finish();
 
         } catch (Throwable e) {
             OperatorUtils.catchOperatorException("averageOffsets", e);
@@ -730,7 +730,7 @@ public class OffsetTrackingOp extends Operator {
         final StatusProgressMonitor status = new StatusProgressMonitor(StatusProgressMonitor.TYPE.SUBTASK);
         status.beginTask("Fill Holes... ", numGCPsPerAzLine * numGCPsPerRgLine);
 
-        final ThreadManager threadManager = new ThreadManager();
+        final ThreadExecutor executor = new ThreadExecutor("OffsetTrackingOp", status);
         try {
             final java.util.List<int[]> holeList = new ArrayList<>();
             for (int i = 0; i < numGCPsPerAzLine; i++) {
@@ -746,7 +746,7 @@ public class OffsetTrackingOp extends Operator {
                 final int iIdx = holeList.get(k)[0];
                 final int jIdx = holeList.get(k)[1];
 
-                final Thread worker = new Thread() {
+                final Runnable worker = new Runnable() {
                     @Override
                     public void run() {
 
@@ -800,11 +800,11 @@ public class OffsetTrackingOp extends Operator {
                         velocityData.slvGCPy[iIdx][jIdx] = slvGCPy;
                     }
                 };
-                threadManager.add(worker);
+                executor.execute(worker);
                 status.worked(1);
             }
+            executor.complete();
             status.done();
-            threadManager.finish();
 
         } catch (Throwable e) {
             OperatorUtils.catchOperatorException("fillHoles", e);
@@ -816,7 +816,7 @@ public class OffsetTrackingOp extends Operator {
         final StatusProgressMonitor status = new StatusProgressMonitor(StatusProgressMonitor.TYPE.SUBTASK);
         status.beginTask("Compute Velocities... ", numGCPsPerAzLine * numGCPsPerRgLine);
 
-        final ThreadManager threadManager = new ThreadManager();
+        final ThreadExecutor executor = new ThreadExecutor("OffsetTrackingOp", status);
         try {
             for (int i = 0; i < numGCPsPerAzLine; i++) {
                 for (int j = 0; j < numGCPsPerRgLine; j++) {
@@ -828,7 +828,7 @@ public class OffsetTrackingOp extends Operator {
                         continue;
                     }
 
-                    final Thread worker = new Thread() {
+                    final Runnable worker = new Runnable() {
                         @Override
                         public void run() {
 
@@ -842,12 +842,12 @@ public class OffsetTrackingOp extends Operator {
                             velocityData.velocity[iIdx][jIdx] = v;
                         }
                     };
-                    threadManager.add(worker);
+                    executor.execute(worker);
                     status.worked(1);
                 }
             }
+            executor.complete();
             status.done();
-            threadManager.finish();
 
         } catch (Throwable e) {
             OperatorUtils.catchOperatorException("computeGCPVelocities", e);
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.insar.gpf;
+
+import org.esa.snap.core.datamodel.Product;
+import org.jblas.ComplexDoubleMatrix;
+import org.jblas.DoubleMatrix;
+import org.jlinda.core.utils.PolyUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The flat earth phase of a master/slave pair sampled on a coarse grid and densified per tile by bilinear
+ * interpolation. Also applies reference phases to complex data in place.
+ * <p>
+ * The grid spacing is halved until the interpolation error at the cell centres is below
+ * {@link #MAX_INTERPOLATION_ERROR}; the polynomial is evaluated exactly outside the grid and everywhere when no
+ * grid fine enough fits in {@link #MAX_NODES} nodes. Grids are shared through {@link #getSharedGrid} by all
+ * operators reading the same source product, so that InterferogramOp and CoherenceOp in one graph estimate the
+ * polynomial of a pair only once. They are kept until the product is garbage collected, the node limit bounds
+ * what each of them holds.
+ */
+final class ReferencePhaseGrid {
+
+    private static final int MAX_SPACING = 32;
+    private static final int MIN_SPACING = 4;
+    private static final int MARGIN = 64;
+    private static final double MAX_INTERPOLATION_ERROR = 1e-3; // radians
+    private static final int MAX_NODES = 1 << 21; // 16 MB per grid
+
+    private static final Map<Product, Map<String, GridHolder>> sharedGrids = new WeakHashMap<>();
+    private static final ThreadLocal<double[]> phaseBuffers = ThreadLocal.withInitial(() -> new double[0]);
+
+    /**
+     * Estimates the flat earth polynomial of a pair.
+     */
+    interface PolynomialEstimator {
+        DoubleMatrix estimate() throws Exception;
+    }
+
+    private final double[] coeffs;
+    private final int degree;
+    private final int minLine, maxLine, minPixel, maxPixel;
+
+    // grid nodes at line gridLine0 + i * spacing and pixel gridPixel0 + j * spacing, or null if too coarse or too large
+    private final int spacing;
+    private final int gridLine0, gridPixel0;
+    private final int numLines, numPixels;
+    private final double[] grid;
+
+    /**
+     * @param polyCoeffs the flat earth polynomial in normalized line and pixel
+     * @param minLine    first line of the normalization interval
+     * @param maxLine    last line of the normalization interval
+     * @param minPixel   first pixel of the normalization interval
+     * @param maxPixel   last pixel of the normalization interval
+     */
+    ReferencePhaseGrid(final DoubleMatrix polyCoeffs, final int minLine, final int maxLine,
+                       final int minPixel, final int maxPixel) {
+        this.coeffs = polyCoeffs.toArray();
+        this.degree = PolyUtils.degreeFromCoefficients(coeffs.length);
+        this.minLine = minLine;
+        this.maxLine = maxLine;
+        this.minPixel = minPixel;
+        this.maxPixel = maxPixel;
+
+        gridLine0 = minLine - MARGIN;
+        gridPixel0 = minPixel - MARGIN;
+
+        int s = MAX_SPACING;
+        double[] nodes = fits(s) ? sample(s) : null;
+        while (nodes != null && maxInterpolationError(nodes, s) > MAX_INTERPOLATION_ERROR) {
+            s /= 2;
+            nodes = s >= MIN_SPACING && fits(s) ? sample(s) : null;
+        }
+        spacing = nodes != null ? s : 0;
+        grid = nodes;
+        numLines = nodes != null ? numNodes(maxLine - minLine, s) : 0;
+        numPixels = nodes != null ? numNodes(maxPixel - minPixel, s) : 0;
+    }
+
+    /**
+     * Get the grid of a pair, building it the first time.
+     *
+     * @param sourceProduct the product the pair is read from
+     * @param key           identifies the pair and the polynomial estimation parameters within the product
+     * @param estimator     estimates the polynomial if the grid is not built yet
+     * @return the grid
+     */
+    static ReferencePhaseGrid getSharedGrid(final Product sourceProduct, final String key,
+                                            final int minLine, final int maxLine,
+                                            final int minPixel, final int maxPixel,
+                                            final PolynomialEstimator estimator) throws Exception {
+        final GridHolder holder;
+        synchronized (sharedGrids) {
+            final String fullKey = key + '_' + minLine + '_' + maxLine + '_' + minPixel + '_' + maxPixel;
+            holder = sharedGrids.computeIfAbsent(sourceProduct, p -> new HashMap<>())
+                    .computeIfAbsent(fullKey, k -> new GridHolder());
+        }
+        synchronized (holder) {
+            if (holder.grid == null) {
+                holder.grid = new ReferencePhaseGrid(estimator.estimate(), minLine, maxLine, minPixel, maxPixel);
+            }
+            return holder.grid;
+        }
+    }
+
+    private static int numNodes(final int extent, final int s) {
+        return (extent + 2 * MARGIN + s - 1) / s + 1;
+    }
+
+    private boolean fits(final int s) {
+        return (long) numNodes(maxLine - minLine, s) * numNodes(maxPixel - minPixel, s) <= MAX_NODES;
+    }
+
+    /**
+     * @return the grid spacing in pixels, or 0 if the polynomial is evaluated exactly
+     */
+    int getSpacing() {
+        return spacing;
+    }
+
+    private double[] sample(final int s) {
+        final int nl = numNodes(maxLine - minLine, s);
+        final int np = numNodes(maxPixel - minPixel, s);
+        final double[] nodes = new double[nl * np];
+        for (int i = 0; i < nl; i++) {
+            for (int j = 0; j < np; j++) {
+                nodes[i * np + j] = evaluate(gridLine0 + i * s, gridPixel0 + j * s);
+            }
+        }
+        return nodes;
+    }
+
+    private double maxInterpolationError(final double[] nodes, final int s) {
+        final int nl = numNodes(maxLine - minLine, s);
+        final int np = numNodes(maxPixel - minPixel, s);
+        double maxError = 0;
+        for (int i = 0; i < nl - 1; i++) {
+            for (int j = 0; j < np - 1; j++) {
+                final int k = i * np + j;
+                final double interpolated = 0.25 * (nodes[k] + nodes[k + 1] + nodes[k + np] + nodes[k + np + 1]);
+                final double exact = evaluate(gridLine0 + (i + 0.5) * s, gridPixel0 + (j + 0.5) * s);
+                maxError = Math.max(maxError, Math.abs(interpolated - exact));
+            }
+        }
+        return maxError;
+    }
+
+    private double evaluate(final double line, final double pixel) {
+        return PolyUtils.polyval(PolyUtils.normalize2(line, minLine, maxLine),
+                PolyUtils.normalize2(pixel, minPixel, maxPixel), coeffs, degree);
+    }
+
+    /**
+     * Get the flat earth phase of a window, row by row.
+     *
+     * @param x0 first pixel
+     * @param y0 first line, relative to the normalization interval
+     * @param w  window width
+     * @param h  window height
+     * @return a buffer of the calling thread, valid until its next call
+     */
+    double[] getPhase(final int x0, final int y0, final int w, final int h) {
+        double[] phase = phaseBuffers.get();
+        if (phase.length < w * h) {
+            phase = new double[w * h];
+            phaseBuffers.set(phase);
+        }
+
+        final int lastLine = gridLine0 + (numLines - 1) * spacing;
+        final int lastPixel = gridPixel0 + (numPixels - 1) * spacing;
+        for (int y = y0; y < y0 + h; y++) {
+            final int row = (y - y0) * w;
+            final boolean lineInGrid = grid != null && y >= gridLine0 && y < lastLine;
+            final int i = lineInGrid ? (y - gridLine0) / spacing : 0;
+            final double wy = lineInGrid ? (double) (y - gridLine0 - i * spacing) / spacing : 0;
+            for (int x = x0; x < x0 + w; x++) {
+                if (!lineInGrid || x < gridPixel0 || x >= lastPixel) {
+                    phase[row + x - x0] = evaluate(y, x);
+                    continue;
+                }
+                final int j = (x - gridPixel0) / spacing;
+                final double wx = (double) (x - gridPixel0 - j * spacing) / spacing;
+                final int k = i * numPixels + j;
+                final double top = grid[k] + wx * (grid[k + 1] - grid[k]);
+                final double bottom = grid[k + numPixels] + wx * (grid[k + numPixels + 1] - grid[k + numPixels]);
+                phase[row + x - x0] = top + wy * (bottom - top);
+            }
+        }
+        return phase;
+    }
+
+    /**
+     * Multiply complex data in place by exp(i * phase).
+     *
+     * @param data  the data
+     * @param phase the phase of each element, row by row
+     */
+    static void applyPhase(final ComplexDoubleMatrix data, final double[] phase) {
+        final int rows = data.rows;
+        final int columns = data.columns;
+        final double[] d = data.data;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                final double p = phase[r * columns + c];
+                multiply(d, 2 * (c * rows + r), Math.cos(p), Math.sin(p));
+            }
+        }
+    }
+
+    /**
+     * Multiply complex data in place by exp(i * phase).
+     *
+     * @param data  the data
+     * @param phase the phase of each element, [row][column]
+     */
+    static void applyPhase(final ComplexDoubleMatrix data, final double[][] phase) {
+        final int rows = data.rows;
+        final int columns = data.columns;
+        final double[] d = data.data;
+        for (int r = 0; r < rows; r++) {
+            final double[] phaseRow = phase[r];
+            for (int c = 0; c < columns; c++) {
+                final double p = phaseRow[c];
+                multiply(d, 2 * (c * rows + r), Math.cos(p), Math.sin(p));
+            }
+        }
+    }
+
+    private static void multiply(final double[] d, final int k, final double re, final double im) {
+        final double a = d[k];
+        final double b = d[k + 1];
+        d[k] = a * re - b * im;
+        d[k + 1] = a * im + b * re;
+    }
+
+    private static final class GridHolder {
+        ReferencePhaseGrid grid;
+    }
+}
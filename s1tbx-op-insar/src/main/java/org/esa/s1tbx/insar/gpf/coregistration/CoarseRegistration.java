@@ -341,8 +341,8 @@ public class CoarseRegistration {
 
         final int w = image.getWidth();  // w is power of 2
         final int h = image.getHeight(); // h is power of 2
-        final int newWidth = rowUpSamplingFactor * w; // rowInterpFactor should be power of 2 to avoid zero padding in idft
-        final int newHeight = colUpSamplingFactor * h; // colInterpFactor should be power of 2 to avoid zero padding in idft
+        final int newWidth = colUpSamplingFactor * w; // colInterpFactor should be power of 2 to avoid zero padding in idft
+        final int newHeight = rowUpSamplingFactor * h; // rowInterpFactor should be power of 2 to avoid zero padding in idft
 
         // create shifted image
         final ParameterBlock pb1 = new ParameterBlock();
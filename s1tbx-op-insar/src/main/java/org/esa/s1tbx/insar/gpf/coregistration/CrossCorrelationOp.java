@@ -17,6 +17,7 @@ package org.esa.s1tbx.insar.gpf.coregistration;
 
 import com.bc.ceres.core.ProgressMonitor;
 import org.apache.commons.math3.util.FastMath;
+import org.esa.s1tbx.commons.utils.ThreadExecutor;
 import org.esa.s1tbx.insar.gpf.support.JAIFunctions;
 import org.esa.snap.core.datamodel.*;
 import org.esa.snap.core.dataop.dem.ElevationModel;
@@ -41,18 +42,23 @@ import org.esa.snap.engine_utilities.datamodel.Unit;
 import org.esa.snap.engine_utilities.eo.Constants;
 import org.esa.snap.engine_utilities.gpf.OperatorUtils;
 import org.esa.snap.engine_utilities.gpf.StackUtils;
-import org.esa.snap.engine_utilities.gpf.ThreadManager;
 import org.esa.snap.engine_utilities.gpf.TileIndex;
 import org.jblas.ComplexDoubleMatrix;
 import org.jlinda.core.coregistration.utils.CoregistrationUtils;
-import org.jlinda.core.utils.TileUtilsDoris;
 
 import javax.media.jai.PlanarImage;
 import javax.media.jai.RasterFactory;
 import java.awt.*;
 import java.awt.image.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * Image co-registration is fundamental for Interferometry SAR (InSAR) imaging and its applications, such as
@@ -165,6 +171,8 @@ public class CrossCorrelationOp extends Operator {
     private int fWindowHeight = 0; // column dimension for master and slave imagette for computing coherence, must be power of 2
 
     private final static double MaxInvalidPixelPercentage = 0.66; // maximum percentage of invalid pixels allowed in xcorrelation
+    private final static int StripeSlack = 8; // pixels the slave GCP may drift beyond the stripe margin while iterating
+    private final static int MaxStripesInFlight = 3; // stripes of source data held while their GCPs are correlated
 
     private final Map<Band, Band> sourceRasterMap = new HashMap<>(10);
     private final Map<Band, Band> complexSrcMap = new HashMap<>(10);
@@ -175,6 +183,9 @@ public class CrossCorrelationOp extends Operator {
     private ElevationModel dem = null;
     private CorrelationWindow fineWin;
 
+    private ImagetteCorrelator correlator;
+    private ThreadLocal<ImagetteCorrelator.Workspace> workspaces;
+
     /**
      * Default constructor. The graph processing framework
      * requires that an operator has a default constructor.
@@ -207,6 +218,9 @@ public class CrossCorrelationOp extends Operator {
             rowUpSamplingFactor = Integer.parseInt(rowInterpFactor);
             colUpSamplingFactor = Integer.parseInt(columnInterpFactor);
 
+            correlator = new ImagetteCorrelator(cWindowWidth, cWindowHeight, rowUpSamplingFactor, colUpSamplingFactor);
+            workspaces = ThreadLocal.withInitial(correlator::createWorkspace);
+
             getMasterBands();
 
             // parameters: Fine
@@ -526,79 +540,101 @@ public class CrossCorrelationOp extends Operator {
                 determiningImageOffset(slaveBand1, slaveBand2, offset);
             }
 
-            final ThreadManager threadManager = new ThreadManager();
-
             //final ProcessTimeMonitor timeMonitor = new ProcessTimeMonitor();
             //timeMonitor.start();
 
             final int numberOfMasterGCPs = masterGcpGroup.getNodeCount();
             final StatusProgressMonitor status = new StatusProgressMonitor(StatusProgressMonitor.TYPE.SUBTASK);
             status.beginTask("Cross Correlating " + bandCountStr + ' ' + slaveBand1.getName() + "... ", numberOfMasterGCPs);
+            final ThreadExecutor executor = new ThreadExecutor("CrossCorrelationOp", status);
 
+            // valid GCPs, each task writes only the slots of its own GCP
+            final PixelPos[] slavePixelPos = new PixelPos[numberOfMasterGCPs];
+            final boolean[] found = new boolean[numberOfMasterGCPs];
+            final List<Integer> candidates = new ArrayList<>(numberOfMasterGCPs);
             for (int i = 0; i < numberOfMasterGCPs; ++i) {
                 checkForCancellation();
 
                 final Placemark mPin = masterGcpGroup.get(i);
-
                 if (checkMasterGCPValidity(mPin)) {
-
-                    final GeoPos mGCPGeoPos = mPin.getGeoPos();
-                    final PixelPos mGCPPixelPos = mPin.getPixelPos();
                     final PixelPos sGCPPixelPos = new PixelPos(mPin.getPixelPos().x + offset[0],
                                                                mPin.getPixelPos().y + offset[1]);
-                    if (!checkSlaveGCPValidity(sGCPPixelPos)) {
-                        //System.out.println("GCP(" + i + ") is outside slave image.");
+                    if (checkSlaveGCPValidity(sGCPPixelPos)) {
+                        slavePixelPos[i] = sGCPPixelPos;
+                        candidates.add(i);
                         continue;
                     }
+                }
+                status.worked(1);
+            }
 
-                    final Thread worker = new Thread() {
-
-                        @Override
-                        public void run() {
-                            //System.out.println("Running "+mPin.getName());
-                            boolean getSlaveGCP = getCoarseSlaveGCPPosition(slaveBand1, slaveBand2, mGCPPixelPos, sGCPPixelPos);
-
-                            if (getSlaveGCP && complexCoregistration && applyFineRegistration) {
-                                if (inSAROptimized) {
-                                    getSlaveGCP = getFineOffsets(slaveBand1, slaveBand2, mGCPPixelPos, sGCPPixelPos);
-                                } else {
-                                    getSlaveGCP = getFineSlaveGCPPosition(slaveBand1, slaveBand2, mGCPPixelPos, sGCPPixelPos);
-                                }
-                            }
-
-                            if (getSlaveGCP) {
-
-                                final Placemark sPin = Placemark.createPointPlacemark(
-                                        GcpDescriptor.getInstance(),
-                                        mPin.getName(),
-                                        mPin.getLabel(),
-                                        mPin.getDescription(),
-                                        sGCPPixelPos,
-                                        mGCPGeoPos,
-                                        tgtGeoCoding);
+            // correlate the GCPs stripe by stripe down the image, reading the source data of a stripe at once
+            final Integer[] sorted = candidates.toArray(new Integer[candidates.size()]);
+            Arrays.sort(sorted, Comparator.comparingDouble(i -> masterGcpGroup.get(i).getPixelPos().y));
 
-                                addPlacemark(sPin);
-                                //System.out.println("final "+mPin.getName()+" = " + "(" + sGCPPixelPos.x + "," + sGCPPixelPos.y + ")");
-                                //System.out.println();
+            final Deque<List<Future<Object>>> stripesInFlight = new ArrayDeque<>();
+            int first = 0;
+            while (first < sorted.length) {
+                checkForCancellation();
 
-                            } //else {
-                            //System.out.println("GCP(" + mPin.getName() + ") is invalid.");
-                            //}
+                final double stripeY0 = masterGcpGroup.get(sorted[first]).getPixelPos().y;
+                int last = first + 1;
+                while (last < sorted.length &&
+                        masterGcpGroup.get(sorted[last]).getPixelPos().y - stripeY0 < cWindowHeight) {
+                    ++last;
+                }
+                final Stripe stripe = getStripe(slaveBand1, slaveBand2, sorted, first, last, slavePixelPos);
+
+                final List<Future<Object>> futures = new ArrayList<>(last - first);
+                for (int n = first; n < last; ++n) {
+                    final int i = sorted[n];
+                    final PixelPos mGCPPixelPos = masterGcpGroup.get(i).getPixelPos();
+                    final PixelPos sGCPPixelPos = slavePixelPos[i];
+
+                    futures.add(executor.submit(() -> {
+                        boolean getSlaveGCP = getCoarseSlaveGCPPosition(
+                                stripe, slaveBand1, slaveBand2, mGCPPixelPos, sGCPPixelPos);
+
+                        if (getSlaveGCP && complexCoregistration && applyFineRegistration) {
+                            if (inSAROptimized) {
+                                getSlaveGCP = getFineOffsets(stripe, slaveBand1, slaveBand2, mGCPPixelPos, sGCPPixelPos);
+                            } else {
+                                getSlaveGCP = getFineSlaveGCPPosition(
+                                        stripe, slaveBand1, slaveBand2, mGCPPixelPos, sGCPPixelPos);
+                            }
                         }
+                        found[i] = getSlaveGCP;
+                        return null;
+                    }));
+                    status.worked(1);
+                }
 
-                        private synchronized void addPlacemark(final Placemark pin) {
-                            targetGCPGroup.add(pin);
-                        }
+                stripesInFlight.add(futures);
+                if (stripesInFlight.size() > MaxStripesInFlight) {
+                    for (Future<Object> future : stripesInFlight.poll()) {
+                        future.get();
+                    }
+                }
+                first = last;
+            }
 
-                    };
+            executor.complete();
 
-                    threadManager.add(worker);
+            for (int i = 0; i < numberOfMasterGCPs; ++i) {
+                if (found[i]) {
+                    final Placemark mPin = masterGcpGroup.get(i);
+                    final Placemark sPin = Placemark.createPointPlacemark(
+                            GcpDescriptor.getInstance(),
+                            mPin.getName(),
+                            mPin.getLabel(),
+                            mPin.getDescription(),
+                            slavePixelPos[i],
+                            mPin.getGeoPos(),
+                            tgtGeoCoding);
+                    targetGCPGroup.add(sPin);
                 }
-                status.worked(1);
             }
 
-            threadManager.finish();
-
             SystemUtils.tileCacheFreeOldTiles();
 
             //final long duration = timeMonitor.stop();
@@ -611,6 +647,71 @@ public class CrossCorrelationOp extends Operator {
         gcpsComputedMap.put(slaveBand1, true);
     }
 
+    /**
+     * Read the master and slave data around a stripe of GCPs.
+     *
+     * @param slaveBand1    the slave band
+     * @param slaveBand2    the slave imaginary band for complex
+     * @param sorted        GCP indices in master line order
+     * @param first         first GCP of the stripe in sorted
+     * @param last          GCP after the stripe in sorted
+     * @param slavePixelPos initial slave GCP positions
+     * @return the stripe
+     */
+    private Stripe getStripe(final Band slaveBand1, final Band slaveBand2, final Integer[] sorted,
+                             final int first, final int last, final PixelPos[] slavePixelPos) {
+
+        final int fineWidth = fineWin != null ? fineWin.width : fWindowWidth;
+        final int fineHeight = fineWin != null ? fineWin.height : fWindowHeight;
+        final int marginX = Math.max(cWindowWidth, fineWidth) + StripeSlack;
+        final int marginY = Math.max(cWindowHeight, fineHeight) + StripeSlack;
+
+        double mMinX = Double.MAX_VALUE, mMaxX = -Double.MAX_VALUE, mMinY = Double.MAX_VALUE, mMaxY = -Double.MAX_VALUE;
+        double sMinX = Double.MAX_VALUE, sMaxX = -Double.MAX_VALUE, sMinY = Double.MAX_VALUE, sMaxY = -Double.MAX_VALUE;
+        for (int n = first; n < last; ++n) {
+            final PixelPos mPos = masterGcpGroup.get(sorted[n]).getPixelPos();
+            final PixelPos sPos = slavePixelPos[sorted[n]];
+            mMinX = Math.min(mMinX, mPos.x);
+            mMaxX = Math.max(mMaxX, mPos.x);
+            mMinY = Math.min(mMinY, mPos.y);
+            mMaxY = Math.max(mMaxY, mPos.y);
+            sMinX = Math.min(sMinX, sPos.x);
+            sMaxX = Math.max(sMaxX, sPos.x);
+            sMinY = Math.min(sMinY, sPos.y);
+            sMaxY = Math.max(sMaxY, sPos.y);
+        }
+
+        final Rectangle imageRectangle = new Rectangle(0, 0, sourceImageWidth, sourceImageHeight);
+        final Rectangle masterRectangle = new Rectangle(
+                (int) mMinX - marginX, (int) mMinY - marginY,
+                (int) mMaxX - (int) mMinX + 2 * marginX + 1, (int) mMaxY - (int) mMinY + 2 * marginY + 1)
+                .intersection(imageRectangle);
+        final Rectangle slaveRectangle = new Rectangle(
+                (int) sMinX - marginX, (int) sMinY - marginY,
+                (int) sMaxX - (int) sMinX + 2 * marginX + 1, (int) sMaxY - (int) sMinY + 2 * marginY + 1)
+                .intersection(imageRectangle);
+
+        final Stripe stripe = new Stripe();
+        stripe.rasters.put(masterBand1, getSourceTile(masterBand1, masterRectangle));
+        stripe.rasters.put(slaveBand1, getSourceTile(slaveBand1, slaveRectangle));
+        if (complexCoregistration) {
+            stripe.rasters.put(masterBand2, getSourceTile(masterBand2, masterRectangle));
+            stripe.rasters.put(slaveBand2, getSourceTile(slaveBand2, slaveRectangle));
+        }
+        return stripe;
+    }
+
+    /**
+     * Get the source data of an imagette from the stripe, or read it if it is outside the stripe.
+     */
+    private Tile getImagetteRaster(final Stripe stripe, final Band band, final Rectangle rectangle) {
+        final Tile raster = stripe.rasters.get(band);
+        if (raster != null && raster.getRectangle().contains(rectangle)) {
+            return raster;
+        }
+        return getSourceTile(band, rectangle);
+    }
+
     private void determiningImageOffset(final Band slaveBand1, final Band slaveBand2, int[] offset) {
 
         try {
@@ -652,12 +753,12 @@ public class CrossCorrelationOp extends Operator {
             final StatusProgressMonitor status = new StatusProgressMonitor(StatusProgressMonitor.TYPE.SUBTASK);
             status.beginTask("Computing offset... ", tileRectangles.length);
 
-            final ThreadManager threadManager = new ThreadManager();
+            final ThreadExecutor executor = new ThreadExecutor("CrossCorrelationOp", status);
             try {
                 for (final Rectangle rectangle : tileRectangles) {
                     checkForCancellation();
 
-                    final Thread worker = new Thread() {
+                    final Runnable worker = new Runnable() {
 
                         @Override
                         public void run() {
@@ -705,10 +806,10 @@ public class CrossCorrelationOp extends Operator {
                             status.worked(1);
                         }
                     };
-                    threadManager.add(worker);
+                    executor.execute(worker);
 
                 }
-                threadManager.finish();
+                executor.complete();
 
             } catch (Throwable e) {
                 OperatorUtils.catchOperatorException("GCPSelectionOp", e);
@@ -875,15 +976,15 @@ public class CrossCorrelationOp extends Operator {
         return false;
     }*/
 
-    private boolean getFineOffsets(final Band slaveBand1, final Band slaveBand2,
+    private boolean getFineOffsets(final Stripe stripe, final Band slaveBand1, final Band slaveBand2,
                                    final PixelPos mGCPPixelPos,
                                    final PixelPos sGCPPixelPos) {
         try {
             //SystemUtils.LOG.info("mGCP = ({}, {})" + mGCPPixelPos.x + mGCPPixelPos.y);
             //SystemUtils.LOG.info("Initial sGCP = ({}, {})" + sGCPPixelPos.x + sGCPPixelPos.y);
 
-            ComplexDoubleMatrix mI = getComplexDoubleMatrix(masterBand1, masterBand2, mGCPPixelPos, fineWin);
-            ComplexDoubleMatrix sI = getComplexDoubleMatrix(slaveBand1, slaveBand2, sGCPPixelPos, fineWin);
+            ComplexDoubleMatrix mI = getComplexDoubleMatrix(stripe, masterBand1, masterBand2, mGCPPixelPos, fineWin);
+            ComplexDoubleMatrix sI = getComplexDoubleMatrix(stripe, slaveBand1, slaveBand2, sGCPPixelPos, fineWin);
 
             final double[] fineOffset = {sGCPPixelPos.x, sGCPPixelPos.y};
 
@@ -907,30 +1008,41 @@ public class CrossCorrelationOp extends Operator {
         return false;
     }
 
-    private ComplexDoubleMatrix getComplexDoubleMatrix(
-            final Band band1, final Band band2, final PixelPos pixelPos, final CorrelationWindow corrWindow) {
-
-        Rectangle rectangle = corrWindow.defineRectangleMask(pixelPos);
-        Tile tileReal = getSourceTile(band1, rectangle);
-
-        Tile tileImag = null;
-        if (band2 != null) {
-            tileImag = getSourceTile(band2, rectangle);
+    private ComplexDoubleMatrix getComplexDoubleMatrix(final Stripe stripe, final Band band1, final Band band2,
+                                                       final PixelPos pixelPos, final CorrelationWindow corrWindow) {
+
+        final Rectangle mask = corrWindow.defineRectangleMask(pixelPos);
+        final Tile tileReal = getImagetteRaster(stripe, band1, mask);
+        final ProductData dataReal = tileReal.getDataBuffer();
+        final ProductData dataImag = band2 != null ? getImagetteRaster(stripe, band2, mask).getDataBuffer() : null;
+        final TileIndex index = new TileIndex(tileReal);
+
+        final Rectangle rectangle = mask.intersection(tileReal.getRectangle());
+        final ComplexDoubleMatrix result = new ComplexDoubleMatrix(rectangle.height, rectangle.width);
+        final double[] data = result.data;
+        for (int y = 0; y < rectangle.height; y++) {
+            index.calculateStride(rectangle.y + y);
+            for (int x = 0; x < rectangle.width; x++) {
+                final int idx = index.getIndex(rectangle.x + x);
+                final int k = 2 * (x * rectangle.height + y);
+                data[k] = dataReal.getElemDoubleAt(idx);
+                data[k + 1] = dataImag != null ? dataImag.getElemDoubleAt(idx) : 0.0;
+            }
         }
-        return TileUtilsDoris.pullComplexDoubleMatrix(tileReal, tileImag);
+        return result;
     }
 
-    private boolean getCoarseSlaveGCPPosition(final Band slaveBand, final Band slaveBand2,
+    private boolean getCoarseSlaveGCPPosition(final Stripe stripe, final Band slaveBand, final Band slaveBand2,
                                               final PixelPos mGCPPixelPos, final PixelPos sGCPPixelPos) {
 
         try {
-            final double[] mI = new double[cWindowWidth * cWindowHeight];
-            final double[] sI = new double[cWindowWidth * cWindowHeight];
+            final ImagetteCorrelator.Workspace workspace = workspaces.get();
 
-            final boolean getMISuccess = getMasterImagette(mGCPPixelPos, mI);
+            final boolean getMISuccess = getMasterImagette(stripe, mGCPPixelPos, workspace.mI);
             if (!getMISuccess) {
                 return false;
             }
+            workspace.setMaster();
             //System.out.println("Master imagette:");
             //outputRealImage(mI);
 
@@ -948,7 +1060,7 @@ public class CrossCorrelationOp extends Operator {
                     return false;
                 }
 
-                final boolean getSISuccess = getSlaveImagette(slaveBand, slaveBand2, sGCPPixelPos, sI);
+                final boolean getSISuccess = getSlaveImagette(stripe, slaveBand, slaveBand2, sGCPPixelPos, workspace.sI);
                 if (!getSISuccess) {
                     return false;
                 }
@@ -956,7 +1068,7 @@ public class CrossCorrelationOp extends Operator {
                 //outputRealImage(sI);
 
                 final double[] shift = {0, 0};
-                if (!getSlaveGCPShift(shift, mI, sI)) {
+                if (!getSlaveGCPShift(workspace, shift)) {
                     return false;
                 }
 
@@ -974,7 +1086,8 @@ public class CrossCorrelationOp extends Operator {
         return false;
     }
 
-    private boolean getMasterImagette(final PixelPos gcpPixelPos, final double[] mI) throws OperatorException {
+    private boolean getMasterImagette(final Stripe stripe, final PixelPos gcpPixelPos, final double[] mI)
+            throws OperatorException {
 
         final int x0 = (int) gcpPixelPos.x;
         final int y0 = (int) gcpPixelPos.y;
@@ -983,14 +1096,14 @@ public class CrossCorrelationOp extends Operator {
         final Rectangle masterImagetteRectangle = new Rectangle(xul, yul, cWindowWidth, cWindowHeight);
 
         try {
-            final Tile masterImagetteRaster1 = getSourceTile(masterBand1, masterImagetteRectangle);
+            final Tile masterImagetteRaster1 = getImagetteRaster(stripe, masterBand1, masterImagetteRectangle);
             final ProductData masterData1 = masterImagetteRaster1.getDataBuffer();
             final Double noDataValue1 = masterBand1.getNoDataValue();
 
             ProductData masterData2 = null;
             Double noDataValue2 = 0.0;
             if (complexCoregistration) {
-                final Tile masterImagetteRaster2 = getSourceTile(masterBand2, masterImagetteRectangle);
+                final Tile masterImagetteRaster2 = getImagetteRaster(stripe, masterBand2, masterImagetteRectangle);
                 masterData2 = masterImagetteRaster2.getDataBuffer();
                 noDataValue2 = masterBand2.getNoDataValue();
             }
@@ -1020,10 +1133,6 @@ public class CrossCorrelationOp extends Operator {
                 }
             }
 
-            masterData1.dispose();
-            if (masterData2 != null)
-                masterData2.dispose();
-
             return numInvalidPixels <= MaxInvalidPixelPercentage * cWindowHeight * cWindowWidth;
 
         } catch (Throwable e) {
@@ -1032,8 +1141,8 @@ public class CrossCorrelationOp extends Operator {
         return false;
     }
 
-    private boolean getSlaveImagette(
-            final Band slaveBand1, final Band slaveBand2, final PixelPos gcpPixelPos, final double[] sI)
+    private boolean getSlaveImagette(final Stripe stripe, final Band slaveBand1, final Band slaveBand2,
+                                     final PixelPos gcpPixelPos, final double[] sI)
             throws OperatorException {
 
         final double xx = gcpPixelPos.x;
@@ -1044,7 +1153,7 @@ public class CrossCorrelationOp extends Operator {
         int k = 0;
 
         try {
-            final Tile slaveImagetteRaster1 = getSourceTile(slaveBand1, slaveImagetteRectangle);
+            final Tile slaveImagetteRaster1 = getImagetteRaster(stripe, slaveBand1, slaveImagetteRectangle);
             final ProductData slaveData1 = slaveImagetteRaster1.getDataBuffer();
             final Double noDataValue1 = slaveBand1.getNoDataValue();
 
@@ -1052,7 +1161,7 @@ public class CrossCorrelationOp extends Operator {
             ProductData slaveData2 = null;
             Double noDataValue2 = 0.0;
             if (complexCoregistration) {
-                slaveImagetteRaster2 = getSourceTile(slaveBand2, slaveImagetteRectangle);
+                slaveImagetteRaster2 = getImagetteRaster(stripe, slaveBand2, slaveImagetteRectangle);
                 slaveData2 = slaveImagetteRaster2.getDataBuffer();
                 noDataValue2 = slaveBand2.getNoDataValue();
             }
@@ -1110,10 +1219,6 @@ public class CrossCorrelationOp extends Operator {
                     ++k;
                 }
             }
-            slaveData1.dispose();
-            if (slaveData2 != null)
-                slaveData2.dispose();
-
             return numInvalidPixels <= MaxInvalidPixelPercentage * cWindowHeight * cWindowWidth;
 
         } catch (Throwable e) {
@@ -1122,61 +1227,9 @@ public class CrossCorrelationOp extends Operator {
         return false;
     }
 
-    private boolean getSlaveGCPShift(final double[] shift, final double[] mI, final double[] sI) {
+    private static boolean getSlaveGCPShift(final ImagetteCorrelator.Workspace workspace, final double[] shift) {
         try {
-            // perform cross correlation
-            final PlanarImage crossCorrelatedImage = computeCrossCorrelatedImage(mI, sI);
-
-            // check peak validity
-            /*
-            final double mean = getMean(crossCorrelatedImage);
-            if (Double.compare(mean, 0.0) == 0) {
-                return false;
-            }
-
-            double max = getMax(crossCorrelatedImage);
-            double qualityParam = max / mean;
-            if (qualityParam <= qualityThreshold) {
-                return false;
-            }
-            */
-
-            // get peak shift: row and col
-            final int w = crossCorrelatedImage.getWidth();
-            final int h = crossCorrelatedImage.getHeight();
-
-            final Raster idftData = crossCorrelatedImage.getData();
-            final double[] real = idftData.getSamples(0, 0, w, h, 0, (double[]) null);
-            //System.out.println("Cross correlated imagette:");
-            //outputRealImage(real);
-
-            int peakRow = 0;
-            int peakCol = 0;
-            double peak = real[0];
-            for (int r = 0; r < h; r++) {
-                for (int c = 0; c < w; c++) {
-                    final int k = r * w + c;
-                    if (real[k] > peak) {
-                        peak = real[k];
-                        peakRow = r;
-                        peakCol = c;
-                    }
-                }
-            }
-            //System.out.println("peak = " + peak + " at (" + peakRow + ", " + peakCol + ")");
-
-            if (peakRow <= h / 2) {
-                shift[0] = (double) (-peakRow) / (double) rowUpSamplingFactor;
-            } else {
-                shift[0] = (double) (h - peakRow) / (double) rowUpSamplingFactor;
-            }
-
-            if (peakCol <= w / 2) {
-                shift[1] = (double) (-peakCol) / (double) colUpSamplingFactor;
-            } else {
-                shift[1] = (double) (w - peakCol) / (double) colUpSamplingFactor;
-            }
-
+            workspace.getShift(shift);
             return true;
         } catch (Throwable t) {
             SystemUtils.LOG.warning("getSlaveGCPShift failed " + t.getMessage());
@@ -1184,43 +1237,6 @@ public class CrossCorrelationOp extends Operator {
         }
     }
 
-    private PlanarImage computeCrossCorrelatedImage(final double[] mI, final double[] sI) {
-
-        // get master imagette spectrum
-        final RenderedImage masterImage = createRenderedImage(mI, cWindowWidth, cWindowHeight);
-        final PlanarImage masterSpectrum = JAIFunctions.dft(masterImage);
-        //System.out.println("Master spectrum:");
-        //outputComplexImage(masterSpectrum);
-
-        // get slave imagette spectrum
-        final RenderedImage slaveImage = createRenderedImage(sI, cWindowWidth, cWindowHeight);
-        final PlanarImage slaveSpectrum = JAIFunctions.dft(slaveImage);
-        //System.out.println("Slave spectrum:");
-        //outputComplexImage(slaveSpectrum);
-
-        // get conjugate slave spectrum
-        final PlanarImage conjugateSlaveSpectrum = JAIFunctions.conjugate(slaveSpectrum);
-        //System.out.println("Conjugate slave spectrum:");
-        //outputComplexImage(conjugateSlaveSpectrum);
-
-        // multiply master spectrum and conjugate slave spectrum
-        final PlanarImage crossSpectrum = JAIFunctions.multiplyComplex(masterSpectrum, conjugateSlaveSpectrum);
-        //System.out.println("Cross spectrum:");
-        //outputComplexImage(crossSpectrum);
-
-        // upsampling cross spectrum
-        final RenderedImage upsampledCrossSpectrum = JAIFunctions.upsampling(crossSpectrum,
-                                                                             rowUpSamplingFactor, colUpSamplingFactor);
-
-        // perform IDF on the cross spectrum
-        final PlanarImage correlatedImage = JAIFunctions.idft(upsampledCrossSpectrum);
-        //System.out.println("Correlated image:");
-        //outputComplexImage(correlatedImage);
-
-        // compute the magnitude of the cross correlated image
-        return JAIFunctions.magnitude(correlatedImage);
-    }
-
     private static RenderedImage createRenderedImage(final double[] array, final int w, final int h) {
 
         // create rendered image with dimension being width by height
@@ -1288,7 +1304,7 @@ public class CrossCorrelationOp extends Operator {
 
     //=========================================== Complex Co-registration ==============================================
 
-    private boolean getFineSlaveGCPPosition(final Band slaveBand1, final Band slaveBand2,
+    private boolean getFineSlaveGCPPosition(final Stripe stripe, final Band slaveBand1, final Band slaveBand2,
                                             final PixelPos mGCPPixelPos, final PixelPos sGCPPixelPos) {
         try {
             //System.out.println("mGCP = (" + mGCPPixelPos.x + ", " + mGCPPixelPos.y + ")");
@@ -1301,7 +1317,7 @@ public class CrossCorrelationOp extends Operator {
                                                           coherenceFuncToler, coherenceValueToler,
                                                           fWindowWidth, fWindowHeight, useSlidingWindow);
 
-            getComplexMasterImagette(complexData, mGCPPixelPos);
+            getComplexMasterImagette(stripe, complexData, mGCPPixelPos);
             /*
             System.out.println("Real part of master imagette:");
             outputRealImage(complexData.mII);
@@ -1312,7 +1328,7 @@ public class CrossCorrelationOp extends Operator {
 //            getInitialComplexSlaveImagette(complexData, mGCPPixelPos); // for testing only
 //            final double[] p = {mGCPPixelPos.x, mGCPPixelPos.y}; // for testing only
 
-            getInitialComplexSlaveImagette(fineRegistration, complexData, slaveBand1, slaveBand2, sGCPPixelPos);
+            getInitialComplexSlaveImagette(stripe, fineRegistration, complexData, slaveBand1, slaveBand2, sGCPPixelPos);
             /*
             System.out.println("Real part of initial slave imagette:");
             outputRealImage(complexData.sII0);
@@ -1343,7 +1359,7 @@ public class CrossCorrelationOp extends Operator {
         return false;
     }
 
-    private void getComplexMasterImagette(final FineRegistration.ComplexCoregData complexData,
+    private void getComplexMasterImagette(final Stripe stripe, final FineRegistration.ComplexCoregData complexData,
                                           final PixelPos gcpPixelPos) {
 
         complexData.mII = new double[complexData.fWindowHeight][complexData.fWindowWidth];
@@ -1354,8 +1370,8 @@ public class CrossCorrelationOp extends Operator {
         final int yul = y0 - complexData.fHalfWindowHeight + 1;
         final Rectangle masterImagetteRectangle = new Rectangle(xul, yul, complexData.fWindowWidth, complexData.fWindowHeight);
 
-        final Tile masterImagetteRaster1 = getSourceTile(masterBand1, masterImagetteRectangle);
-        final Tile masterImagetteRaster2 = getSourceTile(masterBand2, masterImagetteRectangle);
+        final Tile masterImagetteRaster1 = getImagetteRaster(stripe, masterBand1, masterImagetteRectangle);
+        final Tile masterImagetteRaster2 = getImagetteRaster(stripe, masterBand2, masterImagetteRectangle);
 
         final ProductData masterData1 = masterImagetteRaster1.getDataBuffer();
         final ProductData masterData2 = masterImagetteRaster2.getDataBuffer();
@@ -1372,8 +1388,6 @@ public class CrossCorrelationOp extends Operator {
                 mIQdata[j][i] = masterData2.getElemDoubleAt(idx);
             }
         }
-        masterData1.dispose();
-        masterData2.dispose();
     }
 
     // This function is for testing only
@@ -1401,7 +1415,7 @@ public class CrossCorrelationOp extends Operator {
         fineRegistration.getShiftedData(complexData, mIIdata, mIQdata, xShift, yShift, sII0data, sIQ0data);
     }
 
-    private void getInitialComplexSlaveImagette(final FineRegistration fineRegistration,
+    private void getInitialComplexSlaveImagette(final Stripe stripe, final FineRegistration fineRegistration,
                                                 final FineRegistration.ComplexCoregData complexData,
                                                 final Band slaveBand1, final Band slaveBand2,
                                                 final PixelPos sGCPPixelPos) {
@@ -1425,8 +1439,8 @@ public class CrossCorrelationOp extends Operator {
         final int yul = y0 - complexData.fHalfWindowHeight + 1;
         final Rectangle slaveImagetteRectangle = new Rectangle(xul, yul, complexData.fWindowWidth, complexData.fWindowHeight);
 
-        final Tile slaveImagetteRaster1 = getSourceTile(slaveBand1, slaveImagetteRectangle);
-        final Tile slaveImagetteRaster2 = getSourceTile(slaveBand2, slaveImagetteRectangle);
+        final Tile slaveImagetteRaster1 = getImagetteRaster(stripe, slaveBand1, slaveImagetteRectangle);
+        final Tile slaveImagetteRaster2 = getImagetteRaster(stripe, slaveBand2, slaveImagetteRectangle);
 
         final ProductData slaveData1 = slaveImagetteRaster1.getDataBuffer();
         final ProductData slaveData2 = slaveImagetteRaster2.getDataBuffer();
@@ -1439,14 +1453,19 @@ public class CrossCorrelationOp extends Operator {
                 tmpQ[j][i] = slaveData2.getElemDoubleAt(idx);
             }
         }
-        slaveData1.dispose();
-        slaveData2.dispose();
 
         final double xShift = sGCPPixelPos.x - x0;
         final double yShift = sGCPPixelPos.y - y0;
         fineRegistration.getShiftedData(complexData, tmpI, tmpQ, xShift, yShift, sII0data, sIQ0data);
     }
 
+    /**
+     * Source data read at once for a stripe of GCPs
+     */
+    private static final class Stripe {
+        private final Map<Band, Tile> rasters = new HashMap<>(4);
+    }
+
     public static class CorrelationWindow {
 
         final public int height;
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.insar.gpf.coregistration;
+
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * FFT cross correlation of the master and slave imagettes of the coarse registration.
+ * <p>
+ * The cross spectrum of the imagettes is upsampled by zero padding and transformed back, and the slave shift is
+ * read from the peak of the correlation magnitude. The 2D transforms are done row by row and column by column
+ * with 1D plans, one per transform length, which hold no state once built and are shared by all threads.
+ * The work arrays are kept in a {@link Workspace}, one per thread.
+ */
+final class ImagetteCorrelator {
+
+    private static final Map<Integer, DoubleFFT_1D> plans = new HashMap<>();
+
+    private final int width, height;
+    private final int rowUpSamplingFactor, colUpSamplingFactor;
+    private final int upWidth, upHeight;
+    private final DoubleFFT_1D rowPlan, columnPlan, upRowPlan, upColumnPlan;
+
+    /**
+     * @param width               imagette width, a power of 2
+     * @param height              imagette height, a power of 2
+     * @param rowUpSamplingFactor upsampling factor of the height, which sets the resolution of the row shift
+     * @param colUpSamplingFactor upsampling factor of the width, which sets the resolution of the column shift
+     */
+    ImagetteCorrelator(final int width, final int height,
+                       final int rowUpSamplingFactor, final int colUpSamplingFactor) {
+        this.width = width;
+        this.height = height;
+        this.rowUpSamplingFactor = rowUpSamplingFactor;
+        this.colUpSamplingFactor = colUpSamplingFactor;
+        this.upWidth = colUpSamplingFactor * width;
+        this.upHeight = rowUpSamplingFactor * height;
+
+        rowPlan = getPlan(width);
+        columnPlan = getPlan(height);
+        upRowPlan = getPlan(upWidth);
+        upColumnPlan = getPlan(upHeight);
+    }
+
+    private static synchronized DoubleFFT_1D getPlan(final int n) {
+        return plans.computeIfAbsent(n, DoubleFFT_1D::new);
+    }
+
+    Workspace createWorkspace() {
+        return new Workspace();
+    }
+
+    /**
+     * Imagettes and spectra of one thread
+     */
+    final class Workspace {
+
+        /**
+         * master imagette, row by row
+         */
+        final double[] mI = new double[width * height];
+        /**
+         * slave imagette, row by row
+         */
+        final double[] sI = new double[width * height];
+
+        private final double[] masterSpectrum = new double[2 * width * height];
+        private final double[] crossSpectrum = new double[2 * width * height];
+        private final double[] correlation = new double[2 * upWidth * upHeight];
+        private final double[] column = new double[2 * Math.max(height, upHeight)];
+
+        /**
+         * Transform the master imagette held in mI. It is correlated with every slave imagette until the next call.
+         */
+        void setMaster() {
+            load(mI, masterSpectrum);
+        }
+
+        /**
+         * Correlate the slave imagette held in sI with the master.
+         *
+         * @param shift receives the row and column shift of the slave
+         */
+        void getShift(final double[] shift) {
+            load(sI, crossSpectrum);
+            for (int k = 0; k < crossSpectrum.length; k += 2) {
+                final double mRe = masterSpectrum[k], mIm = masterSpectrum[k + 1];
+                final double sRe = crossSpectrum[k], sIm = crossSpectrum[k + 1];
+                crossSpectrum[k] = mRe * sRe + mIm * sIm;
+                crossSpectrum[k + 1] = mIm * sRe - mRe * sIm;
+            }
+
+            // zero pad the spectrum, the Nyquist frequency going to the negative half
+            Arrays.fill(correlation, 0.0);
+            final int halfWidth = width / 2;
+            final int halfHeight = height / 2;
+            for (int r = 0; r < height; r++) {
+                final int upRow = r < halfHeight ? r : r - height + upHeight;
+                for (int c = 0; c < width; c++) {
+                    final int upCol = c < halfWidth ? c : c - width + upWidth;
+                    final int src = 2 * (r * width + c);
+                    final int dst = 2 * (upRow * upWidth + upCol);
+                    correlation[dst] = crossSpectrum[src];
+                    correlation[dst + 1] = crossSpectrum[src + 1];
+                }
+            }
+
+            // inverse transform, only the columns holding the spectrum are non zero
+            for (int c = 0; c < width; c++) {
+                transformColumn(correlation, c < halfWidth ? c : c - width + upWidth, upWidth, upHeight,
+                                upColumnPlan, false);
+            }
+            for (int r = 0; r < upHeight; r++) {
+                upRowPlan.complexInverse(correlation, 2 * r * upWidth, false);
+            }
+
+            int peakRow = 0;
+            int peakCol = 0;
+            double peak = correlation[0] * correlation[0] + correlation[1] * correlation[1];
+            for (int r = 0; r < upHeight; r++) {
+                for (int c = 0; c < upWidth; c++) {
+                    final int k = 2 * (r * upWidth + c);
+                    final double power = correlation[k] * correlation[k] + correlation[k + 1] * correlation[k + 1];
+                    if (power > peak) {
+                        peak = power;
+                        peakRow = r;
+                        peakCol = c;
+                    }
+                }
+            }
+
+            if (peakRow <= upHeight / 2) {
+                shift[0] = (double) (-peakRow) / (double) rowUpSamplingFactor;
+            } else {
+                shift[0] = (double) (upHeight - peakRow) / (double) rowUpSamplingFactor;
+            }
+
+            if (peakCol <= upWidth / 2) {
+                shift[1] = (double) (-peakCol) / (double) colUpSamplingFactor;
+            } else {
+                shift[1] = (double) (upWidth - peakCol) / (double) colUpSamplingFactor;
+            }
+        }
+
+        private void load(final double[] imagette, final double[] spectrum) {
+            for (int k = 0; k < imagette.length; k++) {
+                spectrum[2 * k] = imagette[k];
+                spectrum[2 * k + 1] = 0.0;
+            }
+            for (int r = 0; r < height; r++) {
+                rowPlan.complexForward(spectrum, 2 * r * width);
+            }
+            for (int c = 0; c < width; c++) {
+                transformColumn(spectrum, c, width, height, columnPlan, true);
+            }
+        }
+
+        private void transformColumn(final double[] data, final int c, final int w, final int h,
+                                     final DoubleFFT_1D plan, final boolean forward) {
+            for (int r = 0; r < h; r++) {
+                final int k = 2 * (r * w + c);
+                column[2 * r] = data[k];
+                column[2 * r + 1] = data[k + 1];
+            }
+            if (forward) {
+                plan.complexForward(column);
+            } else {
+                plan.complexInverse(column, false);
+            }
+            for (int r = 0; r < h; r++) {
+                final int k = 2 * (r * w + c);
+                data[k] = column[2 * r];
+                data[k + 1] = column[2 * r + 1];
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.insar.gpf;
+
+import org.esa.snap.core.datamodel.Band;
+import org.esa.snap.core.datamodel.ProductData;
+import org.esa.snap.core.gpf.Tile;
+import org.esa.snap.core.gpf.internal.TileImpl;
+import org.jblas.ComplexDouble;
+import org.jblas.ComplexDoubleMatrix;
+import org.jblas.DoubleMatrix;
+import org.jlinda.core.utils.SarUtils;
+import org.jlinda.core.utils.TileUtilsDoris;
+import org.junit.Test;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BandedSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for CoherenceEstimator against SarUtils.coherence2, as CoherenceOp computed the coherence before.
+ */
+public class TestCoherenceEstimator {
+
+    private static final int WIDTH = 45;
+    private static final int HEIGHT = 38;
+    private static final double NO_DATA = 0.0;
+
+    // even and odd window sizes, {cohWinAz, cohWinRg}
+    private static final int[][] WINDOWS = {{3, 3}, {10, 10}, {4, 7}, {5, 2}, {1, 1}, {2, 9}};
+
+    // target tiles in the interior and at every image border, the largest first to reuse the estimator arrays
+    private static final Rectangle[] TILES = {new Rectangle(0, 0, WIDTH, HEIGHT), new Rectangle(11, 9, 20, 15),
+            new Rectangle(0, 0, 12, 10), new Rectangle(WIDTH - 13, HEIGHT - 7, 13, 7),
+            new Rectangle(0, 20, 9, HEIGHT - 20), new Rectangle(30, 0, WIDTH - 30, 1)};
+
+    private final float[][] mstReal = new float[HEIGHT][WIDTH];
+    private final float[][] mstImag = new float[HEIGHT][WIDTH];
+    private final float[][] slvReal = new float[HEIGHT][WIDTH];
+    private final float[][] slvImag = new float[HEIGHT][WIDTH];
+
+    public TestCoherenceEstimator() {
+        // a partly coherent pair with a phase ramp, slave no data scattered and in a block
+        final Random random = new Random(11);
+        for (int y = 0; y < HEIGHT; ++y) {
+            for (int x = 0; x < WIDTH; ++x) {
+                final double re = random.nextGaussian(), im = random.nextGaussian();
+                final double ramp = 1.1 * x + 0.1 * y;
+                mstReal[y][x] = (float) re;
+                mstImag[y][x] = (float) im;
+                slvReal[y][x] = (float) (re * Math.cos(ramp) - im * Math.sin(ramp) + 0.7 * random.nextGaussian());
+                slvImag[y][x] = (float) (re * Math.sin(ramp) + im * Math.cos(ramp) + 0.7 * random.nextGaussian());
+                if (x >= 20 && x < 26 && y >= 5 && y < 9 || random.nextInt(15) == 0) {
+                    slvReal[y][x] = (float) NO_DATA;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCoherence() {
+        for (int[] win : WINDOWS) {
+            final CoherenceEstimator estimator = new CoherenceEstimator(win[0], win[1]);
+            for (Rectangle rect : TILES) {
+                compare(estimator, win, rect, null, null);
+            }
+        }
+    }
+
+    @Test
+    public void testCoherenceWithPhase() {
+        for (int[] win : WINDOWS) {
+            final CoherenceEstimator estimator = new CoherenceEstimator(win[0], win[1]);
+            for (Rectangle rect : TILES) {
+                final Rectangle extRect = getExtendedRectangle(rect, win);
+
+                // a flat earth phase as a flat array and a topographic phase as rows
+                final double[] flatEarthPhase = new double[extRect.width * extRect.height];
+                final double[][] topoPhase = new double[extRect.height][extRect.width];
+                for (int r = 0; r < extRect.height; ++r) {
+                    for (int c = 0; c < extRect.width; ++c) {
+                        final int x = extRect.x + c, y = extRect.y + r;
+                        flatEarthPhase[r * extRect.width + c] = -1.1 * x - 0.1 * y;
+                        topoPhase[r][c] = Math.sin(0.2 * x) + 0.05 * y * y;
+                    }
+                }
+                compare(estimator, win, rect, flatEarthPhase, null);
+                compare(estimator, win, rect, null, topoPhase);
+                compare(estimator, win, rect, flatEarthPhase, topoPhase);
+            }
+        }
+    }
+
+    @Test
+    public void testFlatEarthPhaseRaisesCoherence() {
+        // removing the ramp of the slave makes the pair coherent over the window
+        final int[] win = {5, 5};
+        final Rectangle rect = new Rectangle(5, 12, 14, 10);
+        final Rectangle extRect = getExtendedRectangle(rect, win);
+        final double[] flatEarthPhase = new double[extRect.width * extRect.height];
+        for (int r = 0; r < extRect.height; ++r) {
+            for (int c = 0; c < extRect.width; ++c) {
+                flatEarthPhase[r * extRect.width + c] = -1.1 * (extRect.x + c) - 0.1 * (extRect.y + r);
+            }
+        }
+        final float[] without = compare(new CoherenceEstimator(win[0], win[1]), win, rect, null, null);
+        final float[] with = compare(new CoherenceEstimator(win[0], win[1]), win, rect, flatEarthPhase, null);
+        double meanWithout = 0, meanWith = 0;
+        for (int i = 0; i < with.length; ++i) {
+            meanWithout += without[i] / with.length;
+            meanWith += with[i] / with.length;
+        }
+        assertTrue(meanWith + " " + meanWithout, meanWith > 0.6 && meanWithout < 0.4);
+    }
+
+    /**
+     * Estimate the coherence of a tile and compare it with the previous computation.
+     *
+     * @return the estimated coherence of the tile, row by row
+     */
+    private float[] compare(final CoherenceEstimator estimator, final int[] win, final Rectangle rect,
+                            final double[] flatEarthPhase, final double[][] topoPhase) {
+        final Rectangle extRect = getExtendedRectangle(rect, win);
+        final Tile mstTileReal = createTile(createRaster(mstReal, extRect));
+        final Tile mstTileImag = createTile(createRaster(mstImag, extRect));
+        final Tile slvTileReal = createTile(createRaster(slvReal, extRect));
+        final Tile slvTileImag = createTile(createRaster(slvImag, extRect));
+
+        estimator.load(mstTileReal, mstTileImag, slvTileReal, slvTileImag, NO_DATA);
+        if (flatEarthPhase != null) {
+            estimator.applyPhase(flatEarthPhase);
+        }
+        if (topoPhase != null) {
+            estimator.applyPhase(topoPhase);
+        }
+        final WritableRaster coherenceRaster = createRaster(null, rect);
+        estimator.estimate(createTile(coherenceRaster), rect, NO_DATA);
+
+        // the previous computation of CoherenceOp
+        final ComplexDoubleMatrix dataMaster = TileUtilsDoris.pullComplexDoubleMatrix(mstTileReal, mstTileImag);
+        final ComplexDoubleMatrix dataSlave = TileUtilsDoris.pullComplexDoubleMatrix(slvTileReal, slvTileImag);
+        if (flatEarthPhase != null) {
+            ReferencePhaseGrid.applyPhase(dataSlave, flatEarthPhase);
+        }
+        if (topoPhase != null) {
+            ReferencePhaseGrid.applyPhase(dataSlave, topoPhase);
+        }
+        for (int i = 0; i < dataMaster.length; i++) {
+            final double tmp = norm(dataMaster.get(i));
+            dataMaster.put(i, dataMaster.get(i).mul(dataSlave.get(i).conj()));
+            dataSlave.put(i, new ComplexDouble(norm(dataSlave.get(i)), tmp));
+        }
+        final DoubleMatrix cohMatrix = SarUtils.coherence2(dataMaster, dataSlave, win[0], win[1]);
+
+        final float[] coherence = new float[rect.width * rect.height];
+        for (int yy = 0; yy < rect.height; ++yy) {
+            for (int xx = 0; xx < rect.width; ++xx) {
+                final int x = rect.x + xx, y = rect.y + yy;
+                final String msg = "window " + win[0] + "x" + win[1] + " tile " + rect + " pixel " + x + "," + y +
+                        (flatEarthPhase != null ? " flat earth" : "") + (topoPhase != null ? " topo" : "");
+                final double expected = slvReal[y][x] == NO_DATA ? NO_DATA : cohMatrix.get(yy, xx);
+                coherence[yy * rect.width + xx] = coherenceRaster.getSampleFloat(x, y, 0);
+                assertEquals(msg, expected, coherence[yy * rect.width + xx], 1e-5);
+            }
+        }
+        return coherence;
+    }
+
+    private static double norm(final ComplexDouble number) {
+        return number.real() * number.real() + number.imag() * number.imag();
+    }
+
+    /**
+     * The tile extended by the window as requested by CoherenceOp.
+     */
+    private static Rectangle getExtendedRectangle(final Rectangle rect, final int[] win) {
+        return new Rectangle(rect.x - (win[1] - 1) / 2, rect.y - (win[0] - 1) / 2,
+                             rect.width + win[1] - 1, rect.height + win[0] - 1);
+    }
+
+    /**
+     * The samples of a band, zero outside the image as with the zero border extender of CoherenceOp.
+     */
+    private static WritableRaster createRaster(final float[][] data, final Rectangle rect) {
+        final WritableRaster raster = Raster.createWritableRaster(
+                new BandedSampleModel(DataBuffer.TYPE_FLOAT, rect.width, rect.height, 1), new Point(rect.x, rect.y));
+        if (data != null) {
+            for (int y = rect.y; y < rect.y + rect.height; ++y) {
+                for (int x = rect.x; x < rect.x + rect.width; ++x) {
+                    if (x >= 0 && y >= 0 && x < WIDTH && y < HEIGHT) {
+                        raster.setSample(x, y, 0, data[y][x]);
+                    }
+                }
+            }
+        }
+        return raster;
+    }
+
+    private static Tile createTile(final WritableRaster raster) {
+        final Band band = new Band("band", ProductData.TYPE_FLOAT32, WIDTH, HEIGHT);
+        band.setNoDataValue(NO_DATA);
+        return new TileImpl(band, raster);
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.insar.gpf;
+
+import org.esa.snap.core.datamodel.Band;
+import org.esa.snap.core.datamodel.ProductData;
+import org.esa.snap.core.gpf.Tile;
+import org.esa.snap.core.gpf.internal.TileImpl;
+import org.esa.snap.engine_utilities.gpf.TileIndex;
+import org.junit.Test;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BandedSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for GoldsteinFilterWorkspace, comparing the filtered patches with a direct DFT of the patch.
+ */
+public class TestGoldsteinFilterWorkspace {
+
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 36;
+    private static final double NO_DATA = 0.0;
+
+    private final float[][] iData = new float[HEIGHT][WIDTH];
+    private final float[][] qData = new float[HEIGHT][WIDTH];
+
+    public TestGoldsteinFilterWorkspace() {
+        // scattered no data pixels and a no data block larger than a patch in the lower right corner
+        final Random random = new Random(7);
+        for (int y = 0; y < HEIGHT; ++y) {
+            for (int x = 0; x < WIDTH; ++x) {
+                final boolean noData = x >= WIDTH - 10 && y >= HEIGHT - 10 || random.nextInt(12) == 0;
+                iData[y][x] = noData ? (float) NO_DATA : (float) random.nextGaussian();
+                qData[y][x] = (float) random.nextGaussian();
+            }
+        }
+    }
+
+    @Test
+    public void testSinglePatch() {
+        final int[][] params = {{8, 1}, {8, 0}, {16, 2}};
+        final double[] alphas = {1.0, 0.5};
+        for (int[] p : params) {
+            for (double alpha : alphas) {
+                final int fftSize = p[0], halfWindowSize = p[1];
+                final GoldsteinFilterWorkspace workspace = new GoldsteinFilterWorkspace(fftSize, halfWindowSize, alpha);
+                final int x = 5, y = 3;
+                final Tile[] tiles = createTiles(new Rectangle(0, 0, WIDTH, HEIGHT));
+                assertTrue(workspace.load(x, y, tiles[0].getDataBuffer(), tiles[1].getDataBuffer(),
+                                          new TileIndex(tiles[0]), NO_DATA));
+                workspace.filter(NO_DATA);
+
+                final float[] iFiltered = new float[fftSize * fftSize];
+                final float[] qFiltered = new float[fftSize * fftSize];
+                workspace.accumulate(x, y, fftSize, fftSize, x, y, iFiltered, qFiltered);
+
+                final float[] iExpected = new float[fftSize * fftSize];
+                final float[] qExpected = new float[fftSize * fftSize];
+                accumulateReference(x, y, fftSize, fftSize, x, y, fftSize, halfWindowSize, alpha,
+                                    iExpected, qExpected);
+                final String msg = "fft " + fftSize + " window " + halfWindowSize + " alpha " + alpha;
+                assertClose(msg + " i", iExpected, iFiltered);
+                assertClose(msg + " q", qExpected, qFiltered);
+            }
+        }
+    }
+
+    @Test
+    public void testTilesWithOverlappingPatches() {
+        final int fftSize = 8, halfWindowSize = 1;
+        final double alpha = 0.7;
+        final Rectangle[] tiles = {new Rectangle(12, 10, 16, 12), new Rectangle(0, 0, 13, 11),
+                new Rectangle(WIDTH - 14, HEIGHT - 9, 14, 9), new Rectangle(0, 20, WIDTH, 7)};
+
+        // the same workspace for all patches of all tiles, as for one thread of the operator
+        final GoldsteinFilterWorkspace workspace = new GoldsteinFilterWorkspace(fftSize, halfWindowSize, alpha);
+        for (Rectangle tile : tiles) {
+            final int x0 = tile.x, y0 = tile.y, w = tile.width, h = tile.height;
+            final Rectangle sourceRect = getSourceRectangle(tile, fftSize);
+            final Tile[] source = createTiles(sourceRect);
+            final TileIndex srcIndex = new TileIndex(source[0]);
+
+            final float[] iFiltered = new float[w * h];
+            final float[] qFiltered = new float[w * h];
+            final float[] iExpected = new float[w * h];
+            final float[] qExpected = new float[w * h];
+            int numPatches = 0, numSkipped = 0;
+
+            final int stepSize = fftSize / 4;
+            final int syMax = Math.min(sourceRect.y + sourceRect.height - fftSize, HEIGHT - fftSize);
+            final int sxMax = Math.min(sourceRect.x + sourceRect.width - fftSize, WIDTH - fftSize);
+            for (int y = sourceRect.y; y <= syMax; y += stepSize) {
+                for (int x = sourceRect.x; x <= sxMax; x += stepSize) {
+                    final boolean loaded = workspace.load(x, y, source[0].getDataBuffer(), source[1].getDataBuffer(),
+                                                          srcIndex, NO_DATA);
+                    assertEquals("patch " + x + "," + y, !isAllNoData(x, y, fftSize), loaded);
+                    if (!loaded) {
+                        ++numSkipped;
+                        continue;
+                    }
+                    workspace.filter(NO_DATA);
+                    workspace.accumulate(x0, y0, w, h, x, y, iFiltered, qFiltered);
+                    accumulateReference(x0, y0, w, h, x, y, fftSize, halfWindowSize, alpha, iExpected, qExpected);
+                    ++numPatches;
+                }
+            }
+            assertTrue(numPatches > 0);
+            assertClose(tile + " i", iExpected, iFiltered);
+            assertClose(tile + " q", qExpected, qFiltered);
+
+            // no data pixels receive nothing from any patch
+            for (int y = y0; y < y0 + h; ++y) {
+                for (int x = x0; x < x0 + w; ++x) {
+                    if (iData[y][x] == NO_DATA) {
+                        assertEquals(0.0, iFiltered[(y - y0) * w + x - x0], 0.0);
+                        assertEquals(0.0, qFiltered[(y - y0) * w + x - x0], 0.0);
+                    }
+                }
+            }
+            if (tile.x + tile.width == WIDTH && tile.y + tile.height == HEIGHT) {
+                assertTrue(numSkipped > 0);
+            }
+        }
+    }
+
+    @Test
+    public void testAllNoDataPatch() {
+        final GoldsteinFilterWorkspace workspace = new GoldsteinFilterWorkspace(8, 1, 1.0);
+        final Tile[] tiles = createTiles(new Rectangle(0, 0, WIDTH, HEIGHT));
+        assertFalse(workspace.load(WIDTH - 8, HEIGHT - 8, tiles[0].getDataBuffer(), tiles[1].getDataBuffer(),
+                                   new TileIndex(tiles[0]), NO_DATA));
+        assertTrue(workspace.load(WIDTH - 11, HEIGHT - 8, tiles[0].getDataBuffer(), tiles[1].getDataBuffer(),
+                                  new TileIndex(tiles[0]), NO_DATA));
+    }
+
+    /**
+     * The source rectangle of GoldsteinFilterOp, the tile extended by 3/4 of a patch and clipped to the image.
+     */
+    private static Rectangle getSourceRectangle(final Rectangle tile, final int fftSize) {
+        final int border = fftSize * 3 / 4;
+        final int sx0 = Math.max(tile.x - border, 0);
+        final int sy0 = Math.max(tile.y - border, 0);
+        final int sxMax = Math.min(tile.x + tile.width - 1 + border, WIDTH - 1);
+        final int syMax = Math.min(tile.y + tile.height - 1 + border, HEIGHT - 1);
+        return new Rectangle(sx0, sy0, sxMax - sx0 + 1, syMax - sy0 + 1);
+    }
+
+    private boolean isAllNoData(final int x, final int y, final int fftSize) {
+        for (int r = y; r < y + fftSize; ++r) {
+            for (int c = x; c < x + fftSize; ++c) {
+                if (iData[r][c] != NO_DATA) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Filter a patch with direct DFTs of Q + iI and add it to the tile with the triangular weights, following the
+     * steps of the filter: power spectrum, box smoothing without no data samples, power alpha, unscaled inverse.
+     */
+    private void accumulateReference(final int x0, final int y0, final int w, final int h, final int x, final int y,
+                                     final int n, final int halfWindowSize, final double alpha,
+                                     final float[] iFiltered, final float[] qFiltered) {
+        final double[][] re = new double[n][n];
+        final double[][] im = new double[n][n];
+        for (int r = 0; r < n; ++r) {
+            for (int c = 0; c < n; ++c) {
+                re[r][c] = qData[y + r][x + c];
+                im[r][c] = iData[y + r][x + c];
+            }
+        }
+
+        final double[][] specRe = new double[n][n];
+        final double[][] specIm = new double[n][n];
+        dft(re, im, specRe, specIm, -1);
+
+        final double[][] power = new double[n][n];
+        for (int u = 0; u < n; ++u) {
+            for (int v = 0; v < n; ++v) {
+                power[u][v] = Math.sqrt(specRe[u][v] * specRe[u][v] + specIm[u][v] * specIm[u][v]);
+            }
+        }
+        for (int u = 0; u < n; ++u) {
+            for (int v = 0; v < n; ++v) {
+                double sum = 0;
+                int count = 0;
+                for (int j = Math.max(0, u - halfWindowSize); j <= Math.min(n - 1, u + halfWindowSize); ++j) {
+                    for (int i = Math.max(0, v - halfWindowSize); i <= Math.min(n - 1, v + halfWindowSize); ++i) {
+                        if (power[j][i] != NO_DATA) {
+                            sum += power[j][i];
+                            ++count;
+                        }
+                    }
+                }
+                final double flt = count != 0 ? Math.pow(sum / count, alpha) : 0;
+                specRe[u][v] *= flt;
+                specIm[u][v] *= flt;
+            }
+        }
+        dft(specRe, specIm, re, im, 1);
+
+        final int half = n / 2;
+        for (int yy = Math.max(y, y0); yy < Math.min(y + n, y0 + h); ++yy) {
+            for (int xx = Math.max(x, x0); xx < Math.min(x + n, x0 + w); ++xx) {
+                if (iData[yy][xx] == NO_DATA) {
+                    continue;
+                }
+                final double weight = (1 - Math.abs(xx - x - half + 0.5) / half) *
+                        (1 - Math.abs(yy - y - half + 0.5) / half);
+                final int k = (yy - y0) * w + xx - x0;
+                iFiltered[k] += im[yy - y][xx - x] * weight;
+                qFiltered[k] += re[yy - y][xx - x] * weight;
+            }
+        }
+    }
+
+    /**
+     * Unscaled 2D DFT with the kernel exp(sign * 2 pi i (u r + v c) / n).
+     */
+    private static void dft(final double[][] re, final double[][] im, final double[][] outRe, final double[][] outIm,
+                            final int sign) {
+        final int n = re.length;
+        for (int u = 0; u < n; ++u) {
+            for (int v = 0; v < n; ++v) {
+                double sumRe = 0, sumIm = 0;
+                for (int r = 0; r < n; ++r) {
+                    for (int c = 0; c < n; ++c) {
+                        final double angle = sign * 2 * Math.PI * ((u * r + v * c) % n) / n;
+                        final double cos = Math.cos(angle), sin = Math.sin(angle);
+                        sumRe += re[r][c] * cos - im[r][c] * sin;
+                        sumIm += re[r][c] * sin + im[r][c] * cos;
+                    }
+                }
+                outRe[u][v] = sumRe;
+                outIm[u][v] = sumIm;
+            }
+        }
+    }
+
+    private static void assertClose(final String msg, final float[] expected, final float[] actual) {
+        double scale = 0;
+        for (float e : expected) {
+            scale = Math.max(scale, Math.abs(e));
+        }
+        assertTrue(msg + " empty", scale > 0);
+        for (int i = 0; i < expected.length; ++i) {
+            assertEquals(msg + " [" + i + "]", expected[i], actual[i], 1e-5 * scale);
+        }
+    }
+
+    /**
+     * @return the I and Q source tiles of a rectangle
+     */
+    private Tile[] createTiles(final Rectangle rect) {
+        return new Tile[]{createTile(iData, rect), createTile(qData, rect)};
+    }
+
+    private static Tile createTile(final float[][] data, final Rectangle rect) {
+        final WritableRaster raster = Raster.createWritableRaster(
+                new BandedSampleModel(DataBuffer.TYPE_FLOAT, rect.width, rect.height, 1), new Point(rect.x, rect.y));
+        for (int y = rect.y; y < rect.y + rect.height; ++y) {
+            for (int x = rect.x; x < rect.x + rect.width; ++x) {
+                raster.setSample(x, y, 0, data[y][x]);
+            }
+        }
+        final Band band = new Band("band", ProductData.TYPE_FLOAT32, WIDTH, HEIGHT);
+        band.setNoDataValue(NO_DATA);
+        return new TileImpl(band, raster);
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.insar.gpf;
+
+import org.esa.snap.core.datamodel.Product;
+import org.jblas.DoubleMatrix;
+import org.jlinda.core.utils.PolyUtils;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for ReferencePhaseGrid against the exact evaluation of the flat earth polynomial
+ */
+public class TestReferencePhaseGrid {
+
+    // the grid is refined until the error at the cell centres is below 1e-3 radians
+    private static final double TOLERANCE = 2e-3;
+
+    /**
+     * A degree 5 polynomial of the size of a flat earth phase: tens of fringes in range, a few in azimuth.
+     */
+    private static DoubleMatrix createFlatEarthPolynomial(final Random random) {
+        final double[] coeffs = new double[PolyUtils.numberOfCoefficients(5)];
+        coeffs[0] = random.nextDouble();
+        coeffs[1] = 20.0 * random.nextDouble();
+        coeffs[2] = 300.0 + 100.0 * random.nextDouble();
+        for (int i = 3; i < coeffs.length; ++i) {
+            coeffs[i] = random.nextGaussian() / (i * i);
+        }
+        return new DoubleMatrix(coeffs);
+    }
+
+    @Test
+    public void testGridPhase() {
+        final Random random = new Random(17);
+        final int maxLine = 1499, maxPixel = 5999;
+        final DoubleMatrix poly = createFlatEarthPolynomial(random);
+        final ReferencePhaseGrid grid = new ReferencePhaseGrid(poly, 0, maxLine, 0, maxPixel);
+        assertTrue(grid.getSpacing() > 0);
+
+        // windows inside the grid, on its borders and partly or completely outside
+        final int[][] windows = {
+                {0, 0, 64, 64}, {1000, 700, 257, 129}, {maxPixel - 100, maxLine - 50, 101, 51},
+                {-80, -80, 200, 200}, {maxPixel - 20, maxLine - 20, 200, 150}, {-500, 3000, 30, 40},
+                {3001, 1, 1, 1}
+        };
+        for (int[] win : windows) {
+            checkPhase(grid, poly, 0, maxLine, 0, maxPixel, win[0], win[1], win[2], win[3], TOLERANCE);
+        }
+        for (int n = 0; n < 50; ++n) {
+            final int w = 1 + random.nextInt(300), h = 1 + random.nextInt(300);
+            final int x0 = random.nextInt(maxPixel + 1 - w), y0 = random.nextInt(maxLine + 1 - h);
+            checkPhase(grid, poly, 0, maxLine, 0, maxPixel, x0, y0, w, h, TOLERANCE);
+        }
+    }
+
+    @Test
+    public void testSpacingFollowsCurvature() {
+        // a curvature of 8 radians over the pixel extent needs nodes every 4 pixels
+        final int max = 999;
+        final double[] coeffs = new double[PolyUtils.numberOfCoefficients(2)];
+        coeffs[2] = 50.0;
+        coeffs[5] = 8.0;
+        final ReferencePhaseGrid fine = new ReferencePhaseGrid(new DoubleMatrix(coeffs), 0, max, 0, max);
+        assertEquals(4, fine.getSpacing());
+        checkPhase(fine, new DoubleMatrix(coeffs), 0, max, 0, max, 100, 200, 300, 100, TOLERANCE);
+
+        // a plane is interpolated exactly on the coarsest grid
+        final double[] plane = {1.0, 10.0, 100.0};
+        final ReferencePhaseGrid coarse = new ReferencePhaseGrid(new DoubleMatrix(plane), 0, max, 0, max);
+        assertEquals(32, coarse.getSpacing());
+        checkPhase(coarse, new DoubleMatrix(plane), 0, max, 0, max, 0, 0, 500, 500, 1e-9);
+
+        // too curved for the finest grid, evaluated exactly
+        coeffs[5] = 100.0;
+        final ReferencePhaseGrid exact = new ReferencePhaseGrid(new DoubleMatrix(coeffs), 0, max, 0, max);
+        assertEquals(0, exact.getSpacing());
+        checkPhase(exact, new DoubleMatrix(coeffs), 0, max, 0, max, 10, 20, 100, 100, 0.0);
+    }
+
+    @Test
+    public void testGridSizeIsCapped() {
+        // the same curvature relative to the extent over 8000 x 8000 pixels would need 4 million nodes
+        final int max = 7999;
+        final double[] coeffs = new double[PolyUtils.numberOfCoefficients(2)];
+        coeffs[2] = 50.0;
+        coeffs[5] = 500.0;
+        final DoubleMatrix poly = new DoubleMatrix(coeffs);
+        final ReferencePhaseGrid grid = new ReferencePhaseGrid(poly, 0, max, 0, max);
+        assertEquals(0, grid.getSpacing());
+        checkPhase(grid, poly, 0, max, 0, max, 4000, 4000, 64, 64, 0.0);
+
+        // a polynomial smooth enough for a coarser grid still gets one
+        coeffs[5] = 1.0;
+        final ReferencePhaseGrid smooth = new ReferencePhaseGrid(new DoubleMatrix(coeffs), 0, max, 0, max);
+        assertTrue(smooth.getSpacing() > 0);
+        checkPhase(smooth, new DoubleMatrix(coeffs), 0, max, 0, max, 4000, 4000, 64, 64, TOLERANCE);
+    }
+
+    @Test
+    public void testBurstOffset() {
+        // burst grids are normalized over the lines of the burst
+        final Random random = new Random(3);
+        final int minLine = 1500, maxLine = 2999, maxPixel = 2499;
+        final DoubleMatrix poly = createFlatEarthPolynomial(random);
+        final ReferencePhaseGrid grid = new ReferencePhaseGrid(poly, minLine, maxLine, 0, maxPixel);
+        checkPhase(grid, poly, minLine, maxLine, 0, maxPixel, 0, minLine, 300, 200, TOLERANCE);
+        checkPhase(grid, poly, minLine, maxLine, 0, maxPixel, 2000, 2900, 500, 100, TOLERANCE);
+    }
+
+    @Test
+    public void testSharedGrid() throws Exception {
+        final Product product = new Product("pair", "type", 100, 100);
+        final AtomicInteger estimations = new AtomicInteger();
+        final ReferencePhaseGrid.PolynomialEstimator estimator = () -> {
+            estimations.incrementAndGet();
+            return new DoubleMatrix(new double[]{1.0, 2.0, 3.0});
+        };
+
+        final ReferencePhaseGrid grid = ReferencePhaseGrid.getSharedGrid(product, "slave", 0, 99, 0, 99, estimator);
+        assertSame(grid, ReferencePhaseGrid.getSharedGrid(product, "slave", 0, 99, 0, 99, estimator));
+        assertEquals(1, estimations.get());
+
+        assertNotSame(grid, ReferencePhaseGrid.getSharedGrid(product, "slave", 0, 49, 0, 99, estimator));
+        assertNotSame(grid, ReferencePhaseGrid.getSharedGrid(
+                new Product("other", "type", 100, 100), "slave", 0, 99, 0, 99, estimator));
+        assertEquals(3, estimations.get());
+    }
+
+    private static void checkPhase(final ReferencePhaseGrid grid, final DoubleMatrix poly,
+                                   final int minLine, final int maxLine, final int minPixel, final int maxPixel,
+                                   final int x0, final int y0, final int w, final int h, final double tolerance) {
+        final double[] coeffs = poly.toArray();
+        final int degree = PolyUtils.degreeFromCoefficients(coeffs.length);
+        final double[] phase = grid.getPhase(x0, y0, w, h);
+        for (int y = y0; y < y0 + h; ++y) {
+            for (int x = x0; x < x0 + w; ++x) {
+                final double exact = PolyUtils.polyval(PolyUtils.normalize2(y, minLine, maxLine),
+                        PolyUtils.normalize2(x, minPixel, maxPixel), coeffs, degree);
+                assertEquals("line " + y + " pixel " + x, exact, phase[(y - y0) * w + x - x0], tolerance);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.insar.gpf.coregistration;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for ImagetteCorrelator.
+ */
+public class TestImagetteCorrelator {
+
+    @Test
+    public void testShift() {
+        final int w = 32, h = 16, size = 64;
+        final double[] image = new double[size * size];
+        final Random random = new Random(1);
+        for (int i = 0; i < image.length; i++) {
+            image[i] = random.nextDouble();
+        }
+
+        final ImagetteCorrelator correlator = new ImagetteCorrelator(w, h, 2, 2);
+        final ImagetteCorrelator.Workspace workspace = correlator.createWorkspace();
+        final double[] shift = new double[2];
+
+        // slave imagettes cut 3 lines below and 5 pixels left of the master, then elsewhere with the same master
+        final int[][] offsets = {{3, -5}, {-2, 4}};
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                workspace.mI[y * w + x] = image[(y + 20) * size + x + 20];
+            }
+        }
+        workspace.setMaster();
+
+        for (int[] offset : offsets) {
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    workspace.sI[y * w + x] = image[(y + 20 + offset[0]) * size + x + 20 + offset[1]];
+                }
+            }
+            workspace.getShift(shift);
+            assertEquals(-offset[0], shift[0], 0.0);
+            assertEquals(-offset[1], shift[1], 0.0);
+        }
+    }
+
+    @Test
+    public void testSubPixelShiftWithUnequalFactors() {
+        final int w = 32, h = 16;
+        final Random random = new Random(2);
+
+        // a periodic band limited signal, so that shifted imagettes correlate exactly at the fractional shift
+        final int numWaves = 6;
+        final double[][] waves = new double[numWaves][];
+        for (int n = 0; n < numWaves; n++) {
+            waves[n] = new double[]{random.nextInt(h / 4), random.nextInt(w / 4), random.nextDouble(),
+                    2 * Math.PI * random.nextDouble()};
+        }
+
+        // the row factor sets the row resolution, the column factor the column resolution
+        final int[][] factors = {{4, 2}, {2, 8}, {8, 4}};
+        final double[][] offsets = {{0.75, -1.5}, {-2.5, 0.125}, {1.625, 3.25}};
+        for (int t = 0; t < factors.length; t++) {
+            final ImagetteCorrelator correlator = new ImagetteCorrelator(w, h, factors[t][0], factors[t][1]);
+            final ImagetteCorrelator.Workspace workspace = correlator.createWorkspace();
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    workspace.mI[y * w + x] = signal(waves, w, h, y, x);
+                    workspace.sI[y * w + x] = signal(waves, w, h, y + offsets[t][0], x + offsets[t][1]);
+                }
+            }
+            workspace.setMaster();
+
+            final double[] shift = new double[2];
+            workspace.getShift(shift);
+            assertEquals(-offsets[t][0], shift[0], 0.0);
+            assertEquals(-offsets[t][1], shift[1], 0.0);
+        }
+    }
+
+    private static double signal(final double[][] waves, final int w, final int h, final double y, final double x) {
+        double value = 0.0;
+        for (double[] wave : waves) {
+            value += wave[2] * Math.cos(2 * Math.PI * (wave[0] * y / h + wave[1] * x / w) + wave[3]);
+        }
+        return value;
+    }
+}
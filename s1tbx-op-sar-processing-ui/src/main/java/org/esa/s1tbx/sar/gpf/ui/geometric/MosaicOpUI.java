@@ -15,6 +15,7 @@
  */
 package org.esa.s1tbx.sar.gpf.ui.geometric;
 
+import org.esa.s1tbx.sar.gpf.geometric.MosaicOp;
 import org.esa.snap.core.datamodel.MetadataElement;
 import org.esa.snap.core.dataop.resamp.ResamplingFactory;
 import org.esa.snap.core.util.SystemUtils;
@@ -47,9 +48,12 @@ public class MosaicOpUI extends BaseOperatorUI {
     private final JTextField sceneWidth = new JTextField("");
     private final JTextField sceneHeight = new JTextField("");
     private final JTextField feather = new JTextField("");
+    private final JComboBox<String> gradientDomainSolver = new JComboBox<>(
+            new String[]{MosaicOp.SOLVER_MULTIGRID, MosaicOp.SOLVER_SOR});
     private final JTextField maxIterations = new JTextField("");
     private final JTextField convergenceThreshold = new JTextField("");
 
+    private final JLabel gradientDomainSolverLabel = new JLabel("Gradient Domain Solver");
     private final JLabel maxIterationsLabel = new JLabel("Maximum Iterations");
     private final JLabel convergenceThresholdLabel = new JLabel("Convergence Threshold");
 
@@ -82,6 +86,8 @@ public class MosaicOpUI extends BaseOperatorUI {
                 if (average) {
                     gradientDomainMosaic = false;
                     gradientDomainMosaicCheckBox.getModel().setSelected(gradientDomainMosaic);
+                    gradientDomainSolver.setVisible(false);
+                    gradientDomainSolverLabel.setVisible(false);
                     maxIterations.setVisible(false);
                     convergenceThreshold.setVisible(false);
                     maxIterationsLabel.setVisible(false);
@@ -94,6 +100,8 @@ public class MosaicOpUI extends BaseOperatorUI {
             public void itemStateChanged(ItemEvent e) {
                 normalizeByMean = (e.getStateChange() == ItemEvent.SELECTED);
                 if (normalizeByMean) {
+                    gradientDomainSolver.setVisible(gradientDomainMosaic);
+                    gradientDomainSolverLabel.setVisible(gradientDomainMosaic);
                     maxIterations.setVisible(gradientDomainMosaic);
                     convergenceThreshold.setVisible(gradientDomainMosaic);
                     maxIterationsLabel.setVisible(gradientDomainMosaic);
@@ -109,6 +117,8 @@ public class MosaicOpUI extends BaseOperatorUI {
                     average = false;
                     averageCheckBox.getModel().setSelected(average);
                 }
+                gradientDomainSolver.setVisible(gradientDomainMosaic);
+                gradientDomainSolverLabel.setVisible(gradientDomainMosaic);
                 maxIterations.setVisible(gradientDomainMosaic);
                 convergenceThreshold.setVisible(gradientDomainMosaic);
                 maxIterationsLabel.setVisible(gradientDomainMosaic);
@@ -176,6 +186,8 @@ public class MosaicOpUI extends BaseOperatorUI {
         sceneWidth.setText(String.valueOf(width));
         sceneHeight.setText(String.valueOf(height));
         feather.setText(String.valueOf(featherVal));
+        final String solver = (String) paramMap.get("gradientDomainSolver");
+        gradientDomainSolver.setSelectedItem(solver != null ? solver : MosaicOp.SOLVER_MULTIGRID);
         maxIterations.setText(String.valueOf(maxIterationsVal));
         convergenceThreshold.setText(String.valueOf(convergenceThresholdVal));
 
@@ -188,6 +200,8 @@ public class MosaicOpUI extends BaseOperatorUI {
         gradientDomainMosaic = (Boolean) paramMap.get("gradientDomainMosaic");
         gradientDomainMosaicCheckBox.getModel().setSelected(gradientDomainMosaic);
 
+        gradientDomainSolver.setVisible(gradientDomainMosaic);
+        gradientDomainSolverLabel.setVisible(gradientDomainMosaic);
         maxIterations.setVisible(gradientDomainMosaic);
         convergenceThreshold.setVisible(gradientDomainMosaic);
         maxIterationsLabel.setVisible(gradientDomainMosaic);
@@ -210,6 +224,7 @@ public class MosaicOpUI extends BaseOperatorUI {
         paramMap.put("sceneWidth", Integer.parseInt(sceneWidth.getText()));
         paramMap.put("sceneHeight", Integer.parseInt(sceneHeight.getText()));
         paramMap.put("feather", Integer.parseInt(feather.getText()));
+        paramMap.put("gradientDomainSolver", gradientDomainSolver.getSelectedItem());
         paramMap.put("maxIterations", Integer.parseInt(maxIterations.getText()));
         paramMap.put("convergenceThreshold", Double.parseDouble(convergenceThreshold.getText()));
 
@@ -242,6 +257,8 @@ public class MosaicOpUI extends BaseOperatorUI {
         gbc.gridy++;
         DialogUtils.addComponent(contentPane, gbc, "Feather (pixels)", feather);
         gbc.gridy++;
+        DialogUtils.addComponent(contentPane, gbc, gradientDomainSolverLabel, gradientDomainSolver);
+        gbc.gridy++;
         DialogUtils.addComponent(contentPane, gbc, maxIterationsLabel, maxIterations);
         gbc.gridy++;
         DialogUtils.addComponent(contentPane, gbc, convergenceThresholdLabel, convergenceThreshold);
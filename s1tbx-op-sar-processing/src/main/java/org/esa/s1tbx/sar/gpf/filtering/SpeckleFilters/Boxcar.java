@@ -120,25 +120,20 @@ public class Boxcar implements SpeckleFilter {
         final Unit.UnitType bandUnit = Unit.getUnitType(sourceBand1);
         final double noDataValue = sourceBand1.getNoDataValue();
         final TileIndex srcIndex = new TileIndex(sourceTile1);
-        final double[] neighborValues = new double[windowSizeX * windowSizeY];
         final boolean isComplex = bandUnit == Unit.UnitType.REAL || bandUnit == Unit.UnitType.IMAGINARY;
 
-        final int xMax = x0 + w;
-        final int yMax = y0 + h;
-        for (int y = y0; y < yMax; ++y) {
-            final int yy = y - y0;
-            for (int x = x0; x < xMax; ++x) {
-                final int xx = x - x0;
-
-                final int numSamples = getNeighborValues(
-                        x, y, sourceData1, sourceData2, srcIndex, noDataValue, isComplex,
-                        halfWindowSizeX, halfWindowSizeY, sourceImageWidth, sourceImageHeight, neighborValues);
-
-                if (numSamples > 0) {
-                    filteredTile[yy][xx] = getMeanValue(neighborValues, numSamples, noDataValue);
-                } else {
-                    filteredTile[yy][xx] = noDataValue;
-                }
+        final SlidingWindow window = new SlidingWindow(halfWindowSizeX, halfWindowSizeY);
+        window.load(sourceData1, sourceData2, srcIndex, isComplex, noDataValue, x0, y0, w, h,
+                sourceImageWidth, sourceImageHeight);
+
+        final int[] numSamples = new int[w * h];
+        final double[] mean = new double[w * h];
+        window.computeMeanVariance(numSamples, mean, null);
+
+        for (int yy = 0; yy < h; ++yy) {
+            final int row = yy * w;
+            for (int xx = 0; xx < w; ++xx) {
+                filteredTile[yy][xx] = numSamples[row + xx] > 0 ? mean[row + xx] : noDataValue;
             }
         }
 
@@ -16,7 +16,6 @@
 package org.esa.s1tbx.sar.gpf.filtering.SpeckleFilters;
 
 import com.bc.ceres.core.ProgressMonitor;
-import org.apache.commons.math3.util.FastMath;
 import org.esa.snap.core.datamodel.Band;
 import org.esa.snap.core.datamodel.Product;
 import org.esa.snap.core.datamodel.ProductData;
@@ -124,25 +123,23 @@ public class Frost implements SpeckleFilter {
         final Unit.UnitType bandUnit = Unit.getUnitType(sourceBand1);
         final double noDataValue = sourceBand1.getNoDataValue();
         final TileIndex srcIndex = new TileIndex(sourceTile1);
-        final double[] neighborValues = new double[windowSizeX * windowSizeY];
         final boolean isComplex = bandUnit == Unit.UnitType.REAL || bandUnit == Unit.UnitType.IMAGINARY;
-        final int xMax = x0 + w;
-        final int yMax = y0 + h;
 
-        final double[] mask = new double[windowSizeX * windowSizeY];
-        getFrostMask(mask);
-
-        for (int y = y0; y < yMax; ++y) {
-            final int yy = y - y0;
-            for (int x = x0; x < xMax; ++x) {
-                final int xx = x - x0;
-
-                final int numSamples = getNeighborValues(
-                        x, y, sourceData1, sourceData2, srcIndex, noDataValue, isComplex,
-                        halfWindowSizeX, halfWindowSizeY, sourceImageWidth, sourceImageHeight, neighborValues);
-
-                if (numSamples > 0) {
-                    filteredTile[yy][xx] = getFrostValue(neighborValues, numSamples, noDataValue, mask);
+        final SlidingWindow window = new SlidingWindow(halfWindowSizeX, halfWindowSizeY);
+        window.load(sourceData1, sourceData2, srcIndex, isComplex, noDataValue, x0, y0, w, h,
+                sourceImageWidth, sourceImageHeight);
+
+        final int[] numSamples = new int[w * h];
+        final double[] mean = new double[w * h];
+        final double[] var = new double[w * h];
+        window.computeMeanVariance(numSamples, mean, var);
+
+        for (int yy = 0; yy < h; ++yy) {
+            final int row = yy * w;
+            for (int xx = 0; xx < w; ++xx) {
+                final int i = row + xx;
+                if (numSamples[i] > 0) {
+                    filteredTile[yy][xx] = getFrostValue(window, xx, yy, mean[i], var[i]);
                 } else {
                     filteredTile[yy][xx] = noDataValue;
                 }
@@ -152,59 +149,30 @@ public class Frost implements SpeckleFilter {
         return filteredTile;
     }
 
-    /**
-     * Get Frost mask for given Frost filter size.
-     *
-     * @param mask Array holding Frost filter mask values.
-     * @throws OperatorException If an error occurs in computation of the Frost mask.
-     */
-    private void getFrostMask(final double[] mask) {
-
-        for (int i = 0; i < windowSizeX; i++) {
-
-            final int s = i * windowSizeY;
-            final int dr = Math.abs(i - halfWindowSizeX);
-
-            for (int j = 0; j < windowSizeY; j++) {
-                mask[j + s] = Math.max(dr, Math.abs(j - halfWindowSizeY));
-            }
-        }
-    }
-
     /**
      * Get the Frost filtered pixel intensity for pixels in a given rectangular region.
      *
-     * @param neighborValues Array holding the pixel values.
-     * @param numSamples     The number of samples.
-     * @param noDataValue    Place holder for no data value.
-     * @param mask           Array holding Frost filter mask values.
+     * @param window The sliding window over the tile.
+     * @param xx     X coordinate of the pixel in the tile.
+     * @param yy     Y coordinate of the pixel in the tile.
+     * @param mean   The mean of the pixel values in the region.
+     * @param var    The variance of the pixel values in the region.
      * @return val The Frost filtered value.
      * @throws OperatorException If an error occurs in computation of the Frost filtered value.
      */
     private double getFrostValue(
-            final double[] neighborValues, final int numSamples, final double noDataValue, final double[] mask) {
+            final SlidingWindow window, final int xx, final int yy, final double mean, final double var) {
 
-        final double mean = getMeanValue(neighborValues, numSamples, noDataValue);
         if (mean <= Double.MIN_VALUE) {
             return mean;
         }
 
-        final double var = getVarianceValue(neighborValues, numSamples, mean, noDataValue);
         if (var <= Double.MIN_VALUE) {
             return mean;
         }
 
         final double k = dampingFactor * var / (mean * mean);
 
-        double sum = 0.0;
-        double totalWeight = 0.0;
-        for (int i = 0; i < neighborValues.length; i++) {
-            if (neighborValues[i] != noDataValue) {
-                final double weight = FastMath.exp(-k * mask[i]);
-                sum += weight * neighborValues[i];
-                totalWeight += weight;
-            }
-        }
-        return sum / totalWeight;
+        return window.getFrostValue(xx, yy, k);
     }
 }
@@ -136,22 +136,23 @@ public class Lee implements SpeckleFilter {
         final double cu = 1.0 / Math.sqrt(n);
         final double cu2 = cu * cu;
 
-        final double[] neighborValues = new double[windowSizeX * windowSizeY];
         final boolean isComplex = bandUnit == Unit.UnitType.REAL || bandUnit == Unit.UnitType.IMAGINARY;
-        final int xMax = x0 + w;
-        final int yMax = y0 + h;
 
-        for (int y = y0; y < yMax; ++y) {
-            final int yy = y - y0;
-            for (int x = x0; x < xMax; ++x) {
-                final int xx = x - x0;
-
-                final int numSamples = getNeighborValues(
-                        x, y, sourceData1, sourceData2, srcIndex, noDataValue, isComplex,
-                        halfWindowSizeX, halfWindowSizeY, sourceImageWidth, sourceImageHeight, neighborValues);
-
-                if (numSamples > 0) {
-                    filteredTile[yy][xx] = getLeeValue(neighborValues, numSamples, noDataValue, cu, cu2);
+        final SlidingWindow window = new SlidingWindow(halfWindowSizeX, halfWindowSizeY);
+        window.load(sourceData1, sourceData2, srcIndex, isComplex, noDataValue, x0, y0, w, h,
+                sourceImageWidth, sourceImageHeight);
+
+        final int[] numSamples = new int[w * h];
+        final double[] mean = new double[w * h];
+        final double[] var = new double[w * h];
+        window.computeMeanVariance(numSamples, mean, var);
+
+        for (int yy = 0; yy < h; ++yy) {
+            final int row = yy * w;
+            for (int xx = 0; xx < w; ++xx) {
+                final int i = row + xx;
+                if (numSamples[i] > 0) {
+                    filteredTile[yy][xx] = getLeeValue(mean[i], var[i], window.getCenterValue(xx, yy), cu, cu2);
                 } else {
                     filteredTile[yy][xx] = noDataValue;
                 }
@@ -164,21 +165,19 @@ public class Lee implements SpeckleFilter {
     /**
      * Get the Lee filtered pixel intensity for pixels in a given rectangular region.
      *
-     * @param neighborValues Array holding the pixel values.
-     * @param numSamples     The number of samples.
-     * @param noDataValue    Place holder for no data value.
+     * @param mean The mean of the pixel values in the region.
+     * @param var  The variance of the pixel values in the region.
+     * @param cp   The value of the centre pixel.
      * @return val The Lee filtered value.
      * @throws OperatorException If an error occurs in computation of the Lee filtered value.
      */
-    private double getLeeValue(final double[] neighborValues, final int numSamples, final double noDataValue,
-                               final double cu, final double cu2) {
+    private static double getLeeValue(final double mean, final double var, final double cp,
+                                      final double cu, final double cu2) {
 
-        final double mean = getMeanValue(neighborValues, numSamples, noDataValue);
         if (Double.compare(mean, Double.MIN_VALUE) <= 0) {
             return mean;
         }
 
-        final double var = getVarianceValue(neighborValues, numSamples, mean, noDataValue);
         if (Double.compare(var, Double.MIN_VALUE) <= 0) {
             return mean;
         }
@@ -188,7 +187,6 @@ public class Lee implements SpeckleFilter {
             return mean;
         }
 
-        final double cp = neighborValues[neighborValues.length / 2];
         final double w = 1 - cu2 / (ci * ci);
 
         return cp * w + mean * (1 - w);
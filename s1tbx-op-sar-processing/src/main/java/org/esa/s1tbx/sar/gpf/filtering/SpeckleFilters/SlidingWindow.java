@@ -0,0 +1,388 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.sar.gpf.filtering.SpeckleFilters;
+
+import org.esa.snap.core.datamodel.ProductData;
+import org.esa.snap.engine_utilities.gpf.TileIndex;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window statistics over the pixels of a target tile for the single band speckle filters.
+ * <p>
+ * The source pixels of the tile and its border are read once into a primitive array; pixels outside the
+ * image or equal to the no data value are left out of every window. The statistics are then computed
+ * incrementally as the window slides so that the cost per pixel does not grow with the window area:
+ * <ul>
+ * <li>mean and variance from separable running sums of the count, sum and sum of squares,</li>
+ * <li>Frost weighted means from summed-area tables, one box difference per ring of equal distance,</li>
+ * <li>medians from a histogram over the ranks of the tile values, updated one window column at a time.</li>
+ * </ul>
+ */
+final class SlidingWindow {
+
+    private final int halfSizeX;
+    private final int halfSizeY;
+    private final int sizeX;
+    private final int sizeY;
+
+    private int width;
+    private int height;
+    private int paddedWidth;
+    private int paddedHeight;
+    private double noDataValue;
+
+    // pixel values of the tile and its border, row by row, and whether each is valid
+    private double[] values;
+    private boolean[] valid;
+    private int numValid;
+
+    // sums are taken relative to a pixel of the tile to limit cancellation in the variance
+    private double offset;
+
+    // summed-area tables of the valid count and sum, built on first use by the Frost filter
+    private int[] countTable;
+    private double[] sumTable;
+
+    SlidingWindow(final int halfSizeX, final int halfSizeY) {
+        this.halfSizeX = halfSizeX;
+        this.halfSizeY = halfSizeY;
+        this.sizeX = 2 * halfSizeX + 1;
+        this.sizeY = 2 * halfSizeY + 1;
+    }
+
+    /**
+     * Read the pixels of a target tile and of its border, intensities for complex data.
+     *
+     * @param srcData1          The source ProductData for 1st band.
+     * @param srcData2          The source ProductData for 2nd band.
+     * @param srcIndex          The source tile index.
+     * @param isComplex         True if it has i and q, otherwise false.
+     * @param noDataValue       Place holder for no data value.
+     * @param x0                X coordinate of the upper left corner point of the target tile rectangle.
+     * @param y0                Y coordinate of the upper left corner point of the target tile rectangle.
+     * @param w                 The width of the target tile rectangle.
+     * @param h                 The height of the target tile rectangle.
+     * @param sourceImageWidth  Source image width.
+     * @param sourceImageHeight Source image height.
+     */
+    void load(final ProductData srcData1, final ProductData srcData2, final TileIndex srcIndex,
+              final boolean isComplex, final double noDataValue, final int x0, final int y0, final int w, final int h,
+              final int sourceImageWidth, final int sourceImageHeight) {
+
+        this.width = w;
+        this.height = h;
+        this.paddedWidth = w + 2 * halfSizeX;
+        this.paddedHeight = h + 2 * halfSizeY;
+        this.noDataValue = noDataValue;
+        this.countTable = null;
+        this.sumTable = null;
+
+        final int size = paddedWidth * paddedHeight;
+        values = new double[size];
+        valid = new boolean[size];
+        Arrays.fill(values, noDataValue);
+        numValid = 0;
+        boolean hasOffset = false;
+
+        final int minX = Math.max(x0 - halfSizeX, 0);
+        final int maxX = Math.min(x0 + w + halfSizeX, sourceImageWidth);
+        final int minY = Math.max(y0 - halfSizeY, 0);
+        final int maxY = Math.min(y0 + h + halfSizeY, sourceImageHeight);
+
+        for (int y = minY; y < maxY; ++y) {
+            srcIndex.calculateStride(y);
+            final int row = (y - y0 + halfSizeY) * paddedWidth - x0 + halfSizeX;
+            for (int x = minX; x < maxX; ++x) {
+                final int idx = srcIndex.getIndex(x);
+                final double v;
+                if (isComplex) {
+                    final double i = srcData1.getElemDoubleAt(idx);
+                    final double q = srcData2.getElemDoubleAt(idx);
+                    if (i == noDataValue || q == noDataValue) {
+                        continue;
+                    }
+                    v = i * i + q * q;
+                } else {
+                    v = srcData1.getElemDoubleAt(idx);
+                }
+
+                final int k = row + x;
+                values[k] = v;
+                if (v != noDataValue && !Double.isNaN(v)) {
+                    valid[k] = true;
+                    ++numValid;
+                    if (!hasOffset) {
+                        offset = v;
+                        hasOffset = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the value of the pixel at the centre of the window, no data value included
+     */
+    double getCenterValue(final int xx, final int yy) {
+        return values[(yy + halfSizeY) * paddedWidth + xx + halfSizeX];
+    }
+
+    /**
+     * Compute the number of valid pixels, the mean and the sample variance of the window around every pixel
+     * of the tile. The outputs are row by row over the target tile.
+     *
+     * @param count    the number of valid pixels in each window
+     * @param mean     the mean of each window
+     * @param variance the variance of each window, 0 for less than two valid pixels, or null if not needed
+     */
+    void computeMeanVariance(final int[] count, final double[] mean, final double[] variance) {
+
+        // sums over the window height for each column of the padded tile
+        final int[] colCount = new int[paddedWidth];
+        final double[] colSum = new double[paddedWidth];
+        final double[] colSumSq = new double[paddedWidth];
+
+        for (int py = 0; py < sizeY - 1; ++py) {
+            addRow(py, 1, colCount, colSum, colSumSq);
+        }
+
+        for (int yy = 0; yy < height; ++yy) {
+            addRow(yy + sizeY - 1, 1, colCount, colSum, colSumSq);
+
+            int n = 0;
+            double sum = 0.0, sumSq = 0.0;
+            for (int px = 0; px < sizeX - 1; ++px) {
+                n += colCount[px];
+                sum += colSum[px];
+                sumSq += colSumSq[px];
+            }
+
+            final int row = yy * width;
+            for (int xx = 0; xx < width; ++xx) {
+                final int right = xx + sizeX - 1;
+                n += colCount[right];
+                sum += colSum[right];
+                sumSq += colSumSq[right];
+
+                final int i = row + xx;
+                count[i] = n;
+                if (n > 0) {
+                    mean[i] = offset + sum / n;
+                    if (variance != null) {
+                        variance[i] = n > 1 ? Math.max((sumSq - sum * sum / n) / (n - 1), 0.0) : 0.0;
+                    }
+                } else {
+                    mean[i] = noDataValue;
+                    if (variance != null) {
+                        variance[i] = 0.0;
+                    }
+                }
+
+                n -= colCount[xx];
+                sum -= colSum[xx];
+                sumSq -= colSumSq[xx];
+            }
+
+            addRow(yy, -1, colCount, colSum, colSumSq);
+        }
+    }
+
+    private void addRow(final int py, final int sign, final int[] colCount, final double[] colSum,
+                        final double[] colSumSq) {
+        final int row = py * paddedWidth;
+        for (int px = 0; px < paddedWidth; ++px) {
+            if (valid[row + px]) {
+                final double d = values[row + px] - offset;
+                colCount[px] += sign;
+                colSum[px] += sign * d;
+                colSumSq[px] += sign * d * d;
+            }
+        }
+    }
+
+    /**
+     * Compute the Frost weighted mean of the window around a pixel. A pixel at chessboard distance d from the
+     * centre has the weight exp(-k * d), so the weights are a table of one entry per ring and each ring sum is
+     * the difference of two boxes of the summed-area tables.
+     *
+     * @param xx x coordinate of the pixel in the tile
+     * @param yy y coordinate of the pixel in the tile
+     * @param k  the damping factor scaled by the squared coefficient of variation
+     * @return the weighted mean
+     */
+    double getFrostValue(final int xx, final int yy, final double k) {
+        if (sumTable == null) {
+            buildSummedAreaTables();
+        }
+
+        final int cx = xx + halfSizeX;
+        final int cy = yy + halfSizeY;
+        final int maxDistance = Math.max(halfSizeX, halfSizeY);
+        final double decay = Math.exp(-k);
+
+        double weight = 1.0;
+        double weightedSum = 0.0;
+        double totalWeight = 0.0;
+        int innerCount = 0;
+        double innerSum = 0.0;
+        for (int d = 0; d <= maxDistance; ++d) {
+            final int bx = Math.min(d, halfSizeX);
+            final int by = Math.min(d, halfSizeY);
+            final int x0 = cx - bx, x1 = cx + bx + 1;
+            final int y0 = cy - by, y1 = cy + by + 1;
+
+            final int boxCount = boxCount(x0, y0, x1, y1);
+            final double boxSum = boxSum(x0, y0, x1, y1);
+            final int ringCount = boxCount - innerCount;
+            if (ringCount > 0) {
+                // an empty ring would only add the rounding error of the tables
+                weightedSum += weight * (boxSum - innerSum);
+                totalWeight += weight * ringCount;
+            }
+            innerCount = boxCount;
+            innerSum = boxSum;
+            weight *= decay;
+        }
+        return offset + weightedSum / totalWeight;
+    }
+
+    private void buildSummedAreaTables() {
+        final int stride = paddedWidth + 1;
+        countTable = new int[stride * (paddedHeight + 1)];
+        sumTable = new double[stride * (paddedHeight + 1)];
+
+        for (int py = 0; py < paddedHeight; ++py) {
+            final int row = py * paddedWidth;
+            final int t = (py + 1) * stride;
+            int rowCount = 0;
+            double rowSum = 0.0;
+            for (int px = 0; px < paddedWidth; ++px) {
+                if (valid[row + px]) {
+                    ++rowCount;
+                    rowSum += values[row + px] - offset;
+                }
+                countTable[t + px + 1] = countTable[t - stride + px + 1] + rowCount;
+                sumTable[t + px + 1] = sumTable[t - stride + px + 1] + rowSum;
+            }
+        }
+    }
+
+    private int boxCount(final int x0, final int y0, final int x1, final int y1) {
+        final int stride = paddedWidth + 1;
+        final int a = y0 * stride, b = y1 * stride;
+        return countTable[b + x1] - countTable[b + x0] - countTable[a + x1] + countTable[a + x0];
+    }
+
+    private double boxSum(final int x0, final int y0, final int x1, final int y1) {
+        final int stride = paddedWidth + 1;
+        final int a = y0 * stride, b = y1 * stride;
+        return sumTable[b + x1] - sumTable[b + x0] - sumTable[a + x1] + sumTable[a + x0];
+    }
+
+    /**
+     * Compute the median of the valid pixels of the window around every pixel of the tile, the element at
+     * index n / 2 of the n sorted values. The values are replaced by their rank among the distinct values of
+     * the tile and counted in a Fenwick tree, so adding or removing a pixel and finding the median each take
+     * log time. Moving the window by one pixel adds and removes one column.
+     *
+     * @param median the medians row by row over the target tile, the no data value where no pixel is valid
+     */
+    void computeMedian(final double[] median) {
+
+        // distinct values of the tile and the rank of each valid pixel
+        final double[] sorted = new double[numValid];
+        int k = 0;
+        for (int i = 0; i < values.length; ++i) {
+            if (valid[i]) {
+                sorted[k++] = values[i];
+            }
+        }
+        Arrays.sort(sorted);
+        int numDistinct = 0;
+        for (int i = 0; i < sorted.length; ++i) {
+            if (i == 0 || sorted[i] != sorted[numDistinct - 1]) {
+                sorted[numDistinct++] = sorted[i];
+            }
+        }
+
+        final int[] rank = new int[values.length];
+        for (int i = 0; i < values.length; ++i) {
+            rank[i] = valid[i] ? Arrays.binarySearch(sorted, 0, numDistinct, values[i]) + 1 : 0;
+        }
+
+        final int[] tree = new int[numDistinct + 1];
+        int topBit = 1;
+        while (topBit * 2 <= numDistinct) {
+            topBit *= 2;
+        }
+
+        for (int yy = 0; yy < height; ++yy) {
+            int n = 0;
+            for (int px = 0; px < sizeX - 1; ++px) {
+                n += addColumn(tree, rank, px, yy, 1);
+            }
+
+            final int row = yy * width;
+            for (int xx = 0; xx < width; ++xx) {
+                n += addColumn(tree, rank, xx + sizeX - 1, yy, 1);
+
+                median[row + xx] = n > 0 ? sorted[findRank(tree, topBit, n / 2 + 1) - 1] : noDataValue;
+
+                n += addColumn(tree, rank, xx, yy, -1);
+            }
+
+            // empty the tree for the next row
+            for (int px = width; px < paddedWidth; ++px) {
+                n += addColumn(tree, rank, px, yy, -1);
+            }
+        }
+    }
+
+    /**
+     * Add or remove the valid pixels of a window column to the tree.
+     *
+     * @return the change of the number of pixels in the tree
+     */
+    private int addColumn(final int[] tree, final int[] rank, final int px, final int yy, final int delta) {
+        int n = 0;
+        for (int py = yy; py < yy + sizeY; ++py) {
+            int r = rank[py * paddedWidth + px];
+            if (r > 0) {
+                n += delta;
+                for (; r < tree.length; r += r & -r) {
+                    tree[r] += delta;
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @return the smallest rank with at least k pixels at or below it
+     */
+    private static int findRank(final int[] tree, final int topBit, int k) {
+        int pos = 0;
+        for (int bit = topBit; bit > 0; bit >>= 1) {
+            final int next = pos + bit;
+            if (next < tree.length && tree[next] < k) {
+                pos = next;
+                k -= tree[next];
+            }
+        }
+        return pos + 1;
+    }
+}
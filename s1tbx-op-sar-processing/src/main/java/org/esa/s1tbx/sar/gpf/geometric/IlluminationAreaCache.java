@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.sar.gpf.geometric;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Scene level cache of the simulated gamma0 and sigma0 reference areas of the terrain flattening.
+ * <p>
+ * The image is cut into full width strips of the preferred tile height. A strip is simulated once, by the first tile
+ * that needs it, and the tiles of the same strip copy their part out of it instead of simulating their own extended
+ * area again. A strip is dropped once all its pixels have been read, and the least recently used strips are
+ * dropped when the cache grows over its memory budget. A dropped strip is simulated again if it is needed again.
+ */
+final class IlluminationAreaCache {
+
+    /**
+     * Fills a reference area with the illuminated areas of the DEM.
+     */
+    interface Simulator {
+        /**
+         * @return false if the simulation was canceled
+         */
+        boolean simulate(ReferenceArea area) throws Exception;
+    }
+
+    private final int imageWidth;
+    private final int imageHeight;
+    private final int stripHeight;
+    private final boolean withSigma0;
+    private final long maxBytes;
+
+    private final Map<Integer, Strip> strips = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+
+    /**
+     * @param imageWidth  scene width
+     * @param imageHeight scene height
+     * @param stripHeight height of the strips, the preferred tile height
+     * @param withSigma0  true to keep the sigma0 reference area as well
+     * @param maxBytes    memory budget of the strips kept
+     */
+    IlluminationAreaCache(final int imageWidth, final int imageHeight, final int stripHeight,
+                          final boolean withSigma0, final long maxBytes) {
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+        this.stripHeight = stripHeight;
+        this.withSigma0 = withSigma0;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return true if the rectangle lies within one strip
+     */
+    boolean covers(final Rectangle rect) {
+        return rect.y / stripHeight == (rect.y + rect.height - 1) / stripHeight;
+    }
+
+    /**
+     * Copy the reference areas of a rectangle, simulating its strip first if it is not cached.
+     *
+     * @param rect                a rectangle for which covers() is true
+     * @param gamma0ReferenceArea receives the gamma0 reference area of the rectangle
+     * @param sigma0ReferenceArea receives the sigma0 reference area of the rectangle, or null
+     * @param simulator           simulates a missing strip
+     * @return false if the simulation was canceled or failed
+     */
+    boolean read(final Rectangle rect, final double[][] gamma0ReferenceArea, final double[][] sigma0ReferenceArea,
+                 final Simulator simulator) throws Exception {
+
+        final Strip strip = getStrip(rect.y / stripHeight);
+        boolean filled = false;
+        try {
+            filled = strip.fill(simulator);
+        } finally {
+            if (!filled) {
+                // the next tile of the strip simulates it again
+                remove(strip);
+            }
+        }
+        if (!filled) {
+            return false;
+        }
+
+        final ReferenceArea area = strip.area;
+        for (int y = rect.y; y < rect.y + rect.height; ++y) {
+            final int offset = (y - area.y0) * area.width + rect.x - area.x0;
+            System.arraycopy(area.gamma0, offset, gamma0ReferenceArea[y - rect.y], 0, rect.width);
+            if (sigma0ReferenceArea != null) {
+                System.arraycopy(area.sigma0, offset, sigma0ReferenceArea[y - rect.y], 0, rect.width);
+            }
+        }
+
+        if (strip.read((long) rect.width * rect.height)) {
+            remove(strip);
+        }
+        return true;
+    }
+
+    private synchronized Strip getStrip(final int index) {
+        Strip strip = strips.get(index);
+        if (strip == null) {
+            final int y0 = index * stripHeight;
+            strip = new Strip(index, new ReferenceArea(0, y0, imageWidth,
+                    Math.min(stripHeight, imageHeight - y0), withSigma0));
+            strips.put(index, strip);
+            bytes += strip.getBytes();
+
+            final Iterator<Strip> it = strips.values().iterator();
+            while (bytes > maxBytes && it.hasNext()) {
+                final Strip eldest = it.next();
+                if (eldest != strip) {
+                    it.remove();
+                    bytes -= eldest.getBytes();
+                }
+            }
+        }
+        return strip;
+    }
+
+    private synchronized void remove(final Strip strip) {
+        if (strips.get(strip.index) == strip) {
+            strips.remove(strip.index);
+            bytes -= strip.getBytes();
+        }
+    }
+
+    synchronized void clear() {
+        strips.clear();
+        bytes = 0;
+    }
+
+    private static final class Strip {
+
+        final int index;
+        final ReferenceArea area;
+        private boolean filled = false;
+        private boolean failed = false;
+        private long pixelsRead = 0;
+
+        Strip(final int index, final ReferenceArea area) {
+            this.index = index;
+            this.area = area;
+        }
+
+        long getBytes() {
+            return 8L * (area.gamma0.length + (area.sigma0 != null ? area.sigma0.length : 0));
+        }
+
+        /**
+         * Simulate the strip unless done before. Tiles of the strip arriving meanwhile wait for it, and do not
+         * read a strip whose simulation was canceled or failed.
+         *
+         * @return false if the simulation was canceled or failed
+         */
+        synchronized boolean fill(final Simulator simulator) throws Exception {
+            if (!filled && !failed) {
+                try {
+                    filled = simulator.simulate(area);
+                } finally {
+                    if (!filled) {
+                        failed = true;
+                        area.clear();
+                    }
+                }
+            }
+            return filled;
+        }
+
+        /**
+         * @return true once all pixels of the strip have been read
+         */
+        synchronized boolean read(final long pixels) {
+            pixelsRead += pixels;
+            return pixelsRead >= (long) area.width * area.height;
+        }
+    }
+
+    /**
+     * The gamma0 and sigma0 reference areas of a rectangle of the image, row by row.
+     * Illuminated areas from many threads may be added at the same time.
+     */
+    static final class ReferenceArea {
+
+        final int x0, y0, width, height;
+        final double[] gamma0;
+        final double[] sigma0;
+
+        ReferenceArea(final int x0, final int y0, final int width, final int height, final boolean withSigma0) {
+            this.x0 = x0;
+            this.y0 = y0;
+            this.width = width;
+            this.height = height;
+            this.gamma0 = new double[width * height];
+            this.sigma0 = withSigma0 ? new double[width * height] : null;
+        }
+
+        /**
+         * Distribute the local illumination areas to the 4 adjacent pixels using bi-linear distribution.
+         *
+         * @param azimuthIndex Azimuth pixel index for each illuminated area.
+         * @param rangeIndex   Range pixel index for each illuminated area.
+         * @param gamma0Area   The illuminated areas.
+         * @param sigma0Area   The illuminated areas for sigma0, used if the sigma0 reference area is kept.
+         * @param n            The number of areas.
+         */
+        synchronized void add(final double[] azimuthIndex, final double[] rangeIndex,
+                              final double[] gamma0Area, final double[] sigma0Area, final int n) {
+            for (int i = 0; i < n; ++i) {
+                final int ia0 = (int) azimuthIndex[i];
+                final int ir0 = (int) rangeIndex[i];
+                final double wr = rangeIndex[i] - ir0;
+                final double wa = azimuthIndex[i] - ia0;
+                final double wac = 1 - wa;
+                final double wrc = 1 - wr;
+
+                add(ia0, ir0, wrc * wac, gamma0Area[i], sigma0Area, i);
+                add(ia0 + 1, ir0, wrc * wa, gamma0Area[i], sigma0Area, i);
+                add(ia0, ir0 + 1, wr * wac, gamma0Area[i], sigma0Area, i);
+                add(ia0 + 1, ir0 + 1, wr * wa, gamma0Area[i], sigma0Area, i);
+            }
+        }
+
+        private void add(final int ia, final int ir, final double weight, final double gamma0Area,
+                         final double[] sigma0Area, final int i) {
+            if (ia < y0 || ia >= y0 + height || ir < x0 || ir >= x0 + width) {
+                return;
+            }
+            final int idx = (ia - y0) * width + ir - x0;
+            gamma0[idx] += weight * gamma0Area;
+            if (sigma0 != null) {
+                sigma0[idx] += weight * sigma0Area[i];
+            }
+        }
+
+        void copyTo(final double[][] gamma0ReferenceArea, final double[][] sigma0ReferenceArea) {
+            for (int y = 0; y < height; ++y) {
+                System.arraycopy(gamma0, y * width, gamma0ReferenceArea[y], 0, width);
+                if (sigma0ReferenceArea != null) {
+                    System.arraycopy(sigma0, y * width, sigma0ReferenceArea[y], 0, width);
+                }
+            }
+        }
+
+        void clear() {
+            Arrays.fill(gamma0, 0.0);
+            if (sigma0 != null) {
+                Arrays.fill(sigma0, 0.0);
+            }
+        }
+    }
+}
@@ -60,6 +60,9 @@ import java.util.List;
         description = "Mosaics two or more products based on their geo-codings.")
 public class MosaicOp extends Operator {
 
+    public static final String SOLVER_SOR = "Successive Over-Relaxation";
+    public static final String SOLVER_MULTIGRID = "Multigrid Conjugate Gradient";
+
     @SourceProducts
     private Product[] sourceProduct;
     @TargetProduct
@@ -91,9 +94,12 @@ public class MosaicOp extends Operator {
     private int sceneHeight = 0;
     @Parameter(defaultValue = "0", description = "Feather amount around source image", label = "Feature (pixels)")
     private int feather = 0;
+    @Parameter(valueSet = {SOLVER_MULTIGRID, SOLVER_SOR}, defaultValue = SOLVER_MULTIGRID,
+            description = "Poisson solver used by the gradient domain mosaic", label = "Gradient Domain Solver")
+    private String gradientDomainSolver = SOLVER_MULTIGRID;
     @Parameter(defaultValue = "5000", description = "Maximum number of iterations", label = "Maximum Iterations")
     private int maxIterations = 5000;
-    @Parameter(defaultValue = "1e-4", description = "Convergence threshold for Relaxed Gauss-Seidel method",
+    @Parameter(defaultValue = "1e-4", description = "Convergence threshold of the gradient domain solver",
             label = "Convergence Threshold")
     private double convergenceThreshold = 1e-4;
 
@@ -923,6 +929,11 @@ public class MosaicOp extends Operator {
 
     private void performMosaic(final byte[][] mask, final double[][] gradientTile, double[][] mosaicedTile) {
 
+        if (SOLVER_MULTIGRID.equals(gradientDomainSolver)) {
+            performMultigridMosaic(mask, gradientTile, mosaicedTile);
+            return;
+        }
+
         final double w = 1.5;
         final int rows = mask.length;
         final int cols = mask[0].length;
@@ -954,6 +965,42 @@ public class MosaicOp extends Operator {
         //    System.out.println("it = " + it + ", error = " + error);
     }
 
+    private void performMultigridMosaic(final byte[][] mask, final double[][] gradientTile,
+                                        double[][] mosaicedTile) {
+
+        final int rows = mask.length;
+        final int cols = mask[0].length;
+        final boolean[] unknown = new boolean[rows * cols];
+        final double[] laplacian = new double[rows * cols];
+        final double[] mosaiced = new double[rows * cols];
+
+        boolean hasUnknown = false;
+        for (int r = 0, i = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++, i++) {
+                if (mask[r][c] == 2) {
+                    unknown[i] = true;
+                    hasUnknown = true;
+                }
+                laplacian[i] = gradientTile[r][c];
+                mosaiced[i] = mosaicedTile[r][c];
+            }
+        }
+        if (!hasUnknown) {
+            return;
+        }
+
+        final MultigridPoissonSolver solver = new MultigridPoissonSolver(unknown, cols, rows);
+        solver.solve(mosaiced, laplacian, convergenceThreshold, maxIterations);
+
+        for (int r = 0, i = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++, i++) {
+                if (unknown[i]) {
+                    mosaicedTile[r][c] = mosaiced[i];
+                }
+            }
+        }
+    }
+
     private static void cleanUpMask(byte[][] mask) {
 
         final int rows = mask.length;
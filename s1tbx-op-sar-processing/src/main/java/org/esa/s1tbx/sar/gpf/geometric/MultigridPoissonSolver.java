@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.sar.gpf.geometric;
+
+import java.util.Arrays;
+
+/**
+ * Solves the Poisson equation of the gradient domain mosaic on a masked region of a tile with conjugate
+ * gradients preconditioned by one geometric multigrid V-cycle.
+ * <p>
+ * The unknowns are the masked pixels. For each of them the 5-point Laplacian of the solution must equal the
+ * given value, the pixels outside the mask being fixed boundary values. The grids are flat row-major arrays.
+ * Each coarser level merges 2x2 blocks of cells; a coarse cell is unknown if any of its fine cells is.
+ * Residuals are restricted by summing the block and corrections are prolonged by injection, with forward
+ * Gauss-Seidel before and backward Gauss-Seidel after the coarse correction, so that the preconditioner is
+ * symmetric. The solver typically converges in a few tens of iterations regardless of the size of the region.
+ */
+final class MultigridPoissonSolver {
+
+    private static final int SMOOTHING_SWEEPS = 2;
+    private static final int COARSEST_SWEEPS = 16;
+    private static final int COARSEST_SIZE = 4;
+
+    private final Level[] levels;
+
+    /**
+     * @param unknown true for the pixels to solve for, row by row
+     * @param width   grid width
+     * @param height  grid height
+     */
+    MultigridPoissonSolver(final boolean[] unknown, final int width, final int height) {
+        int numLevels = 1;
+        for (int w = width, h = height; Math.max(w, h) > COARSEST_SIZE; w = (w + 1) / 2, h = (h + 1) / 2) {
+            ++numLevels;
+        }
+
+        levels = new Level[numLevels];
+        levels[0] = new Level(width, height, unknown);
+        for (int l = 1; l < numLevels; ++l) {
+            levels[l] = levels[l - 1].coarsen();
+        }
+    }
+
+    /**
+     * Solve for the unknown pixels.
+     *
+     * @param u             the boundary values and the initial guess, replaced by the solution at the unknowns
+     * @param laplacian     the Laplacian to be reached at each unknown
+     * @param threshold     stop once no Gauss-Seidel update would change an unknown by more than this
+     * @param maxIterations maximum number of conjugate gradient iterations
+     * @return the number of iterations done
+     */
+    int solve(final double[] u, final double[] laplacian, final double threshold, final int maxIterations) {
+        final Level fine = levels[0];
+        final int n = fine.width * fine.height;
+        final boolean[] mask = fine.unknown;
+
+        // residual of the equations 4 u - sum(u of unknown neighbours) = sum(u of fixed neighbours) - laplacian
+        final double[] r = new double[n];
+        for (int i = 0; i < n; ++i) {
+            if (mask[i]) {
+                r[i] = neighbourSum(u, i, fine.width, fine.height) - 4.0 * u[i] - laplacian[i];
+            }
+        }
+
+        final double[] z = new double[n];
+        final double[] p = new double[n];
+        final double[] q = new double[n];
+
+        precondition(r, z);
+        System.arraycopy(z, 0, p, 0, n);
+        double rz = dot(r, z, mask);
+
+        int it = 0;
+        while (it < maxIterations && maxAbs(r, mask) / 4.0 >= threshold) {
+            fine.apply(p, q);
+            final double pq = dot(p, q, mask);
+            if (pq <= 0.0) {
+                break;
+            }
+            final double alpha = rz / pq;
+            for (int i = 0; i < n; ++i) {
+                if (mask[i]) {
+                    u[i] += alpha * p[i];
+                    r[i] -= alpha * q[i];
+                }
+            }
+
+            precondition(r, z);
+            final double rzNew = dot(r, z, mask);
+            final double beta = rzNew / rz;
+            rz = rzNew;
+            for (int i = 0; i < n; ++i) {
+                if (mask[i]) {
+                    p[i] = z[i] + beta * p[i];
+                }
+            }
+            ++it;
+        }
+        return it;
+    }
+
+    /**
+     * Approximate z = A^-1 r with one V-cycle from a zero initial guess.
+     */
+    private void precondition(final double[] r, final double[] z) {
+        final Level fine = levels[0];
+        System.arraycopy(r, 0, fine.b, 0, r.length);
+        vCycle(0);
+        System.arraycopy(fine.x, 0, z, 0, z.length);
+    }
+
+    private void vCycle(final int l) {
+        final Level level = levels[l];
+        Arrays.fill(level.x, 0.0);
+
+        if (l == levels.length - 1) {
+            for (int s = 0; s < COARSEST_SWEEPS; ++s) {
+                level.smoothForward();
+                level.smoothBackward();
+            }
+            return;
+        }
+
+        for (int s = 0; s < SMOOTHING_SWEEPS; ++s) {
+            level.smoothForward();
+        }
+
+        level.residual();
+        final Level coarse = levels[l + 1];
+        coarse.restrictFrom(level);
+        vCycle(l + 1);
+        coarse.prolongTo(level);
+
+        for (int s = 0; s < SMOOTHING_SWEEPS; ++s) {
+            level.smoothBackward();
+        }
+    }
+
+    private static double neighbourSum(final double[] v, final int i, final int width, final int height) {
+        final int x = i % width;
+        double sum = 0.0;
+        if (x > 0) {
+            sum += v[i - 1];
+        }
+        if (x < width - 1) {
+            sum += v[i + 1];
+        }
+        if (i >= width) {
+            sum += v[i - width];
+        }
+        if (i < (height - 1) * width) {
+            sum += v[i + width];
+        }
+        return sum;
+    }
+
+    private static double dot(final double[] a, final double[] b, final boolean[] mask) {
+        double sum = 0.0;
+        for (int i = 0; i < a.length; ++i) {
+            if (mask[i]) {
+                sum += a[i] * b[i];
+            }
+        }
+        return sum;
+    }
+
+    private static double maxAbs(final double[] a, final boolean[] mask) {
+        double max = 0.0;
+        for (int i = 0; i < a.length; ++i) {
+            if (mask[i]) {
+                max = Math.max(max, Math.abs(a[i]));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * One grid of the hierarchy with the operator 4 x - sum(x of unknown neighbours) on its unknown cells.
+     */
+    private static final class Level {
+
+        final int width;
+        final int height;
+        final boolean[] unknown;
+        final double[] x;
+        final double[] b;
+        final double[] r;
+
+        Level(final int width, final int height, final boolean[] unknown) {
+            this.width = width;
+            this.height = height;
+            this.unknown = unknown;
+            this.x = new double[width * height];
+            this.b = new double[width * height];
+            this.r = new double[width * height];
+        }
+
+        Level coarsen() {
+            final int cw = (width + 1) / 2;
+            final int ch = (height + 1) / 2;
+            final boolean[] coarseUnknown = new boolean[cw * ch];
+            for (int y = 0; y < height; ++y) {
+                final int row = y * width;
+                final int coarseRow = (y / 2) * cw;
+                for (int xx = 0; xx < width; ++xx) {
+                    if (unknown[row + xx]) {
+                        coarseUnknown[coarseRow + xx / 2] = true;
+                    }
+                }
+            }
+            return new Level(cw, ch, coarseUnknown);
+        }
+
+        /**
+         * out = A v on the unknown cells, v being zero outside them.
+         */
+        void apply(final double[] v, final double[] out) {
+            for (int i = 0; i < v.length; ++i) {
+                if (unknown[i]) {
+                    out[i] = 4.0 * v[i] - unknownNeighbourSum(v, i);
+                }
+            }
+        }
+
+        private double unknownNeighbourSum(final double[] v, final int i) {
+            final int xx = i % width;
+            double sum = 0.0;
+            if (xx > 0 && unknown[i - 1]) {
+                sum += v[i - 1];
+            }
+            if (xx < width - 1 && unknown[i + 1]) {
+                sum += v[i + 1];
+            }
+            if (i >= width && unknown[i - width]) {
+                sum += v[i - width];
+            }
+            if (i < (height - 1) * width && unknown[i + width]) {
+                sum += v[i + width];
+            }
+            return sum;
+        }
+
+        void smoothForward() {
+            for (int i = 0; i < x.length; ++i) {
+                if (unknown[i]) {
+                    x[i] = (b[i] + unknownNeighbourSum(x, i)) * 0.25;
+                }
+            }
+        }
+
+        void smoothBackward() {
+            for (int i = x.length - 1; i >= 0; --i) {
+                if (unknown[i]) {
+                    x[i] = (b[i] + unknownNeighbourSum(x, i)) * 0.25;
+                }
+            }
+        }
+
+        void residual() {
+            for (int i = 0; i < x.length; ++i) {
+                r[i] = unknown[i] ? b[i] - 4.0 * x[i] + unknownNeighbourSum(x, i) : 0.0;
+            }
+        }
+
+        /**
+         * Sum the fine residuals of each block. The coarse operator then stands for half the Galerkin operator
+         * of injection, hence the factor 1/2.
+         */
+        void restrictFrom(final Level fine) {
+            Arrays.fill(b, 0.0);
+            for (int y = 0; y < fine.height; ++y) {
+                final int row = y * fine.width;
+                final int coarseRow = (y / 2) * width;
+                for (int xx = 0; xx < fine.width; ++xx) {
+                    b[coarseRow + xx / 2] += 0.5 * fine.r[row + xx];
+                }
+            }
+        }
+
+        void prolongTo(final Level fine) {
+            for (int y = 0; y < fine.height; ++y) {
+                final int row = y * fine.width;
+                final int coarseRow = (y / 2) * width;
+                for (int xx = 0; xx < fine.width; ++xx) {
+                    if (fine.unknown[row + xx]) {
+                        fine.x[row + xx] += x[coarseRow + xx / 2];
+                    }
+                }
+            }
+        }
+    }
+}
@@ -47,7 +47,6 @@ import org.esa.snap.engine_utilities.datamodel.PosVector;
 import org.esa.snap.engine_utilities.datamodel.Unit;
 import org.esa.snap.engine_utilities.eo.Constants;
 import org.esa.snap.engine_utilities.eo.GeoUtils;
-import org.esa.snap.engine_utilities.eo.LocalGeometry;
 import org.esa.snap.engine_utilities.gpf.InputProductValidator;
 import org.esa.snap.engine_utilities.gpf.OperatorUtils;
 import org.esa.snap.engine_utilities.gpf.ReaderUtils;
@@ -216,6 +215,11 @@ public class RangeDopplerGeocodingOp extends Operator {
     private MetadataElement absRoot = null;
     private ElevationModel dem = null;
     private Band elevationBand = null;
+    private Band latitudeBand = null;
+    private Band longitudeBand = null;
+    private Band localIncidenceAngleBand = null;
+    private Band projectedLocalIncidenceAngleBand = null;
+    private Band incidenceAngleFromEllipsoidBand = null;
     private double demNoDataValue = 0.0f; // no data value for DEM
     private GeoCoding targetGeoCoding = null;
 
@@ -262,6 +266,8 @@ public class RangeDopplerGeocodingOp extends Operator {
     private String mission = null;
     private boolean skipBistaticCorrection = false;
 
+    private final ThreadLocal<TileWorkspace> tileWorkspace = ThreadLocal.withInitial(TileWorkspace::new);
+
     public static final String externalDEMStr = "External DEM";
     private static final String PRODUCT_SUFFIX = "_TC";
 
@@ -715,20 +721,20 @@ public class RangeDopplerGeocodingOp extends Operator {
         }
 
         if (saveLatLon) {
-            addTargetBand("latitude", Unit.DEGREES, null);
-            addTargetBand("longitude", Unit.DEGREES, null);
+            latitudeBand = addTargetBand("latitude", Unit.DEGREES, null);
+            longitudeBand = addTargetBand("longitude", Unit.DEGREES, null);
         }
 
         if (saveLocalIncidenceAngle) {
-            addTargetBand("localIncidenceAngle", Unit.DEGREES, null);
+            localIncidenceAngleBand = addTargetBand("localIncidenceAngle", Unit.DEGREES, null);
         }
 
         if (saveProjectedLocalIncidenceAngle) {
-            addTargetBand("projectedLocalIncidenceAngle", Unit.DEGREES, null);
+            projectedLocalIncidenceAngleBand = addTargetBand("projectedLocalIncidenceAngle", Unit.DEGREES, null);
         }
 
         if (saveIncidenceAngleFromEllipsoid) {
-            addTargetBand("incidenceAngleFromEllipsoid", Unit.DEGREES, null);
+            incidenceAngleFromEllipsoidBand = addTargetBand("incidenceAngleFromEllipsoid", Unit.DEGREES, null);
         }
 
         if (saveSigmaNought && !incidenceAngleForSigma0.contains(SARGeocoding.USE_PROJECTED_INCIDENCE_ANGLE_FROM_DEM)) {
@@ -877,8 +883,12 @@ public class RangeDopplerGeocodingOp extends Operator {
                 }
             }
 
-            final GeoPos geoPos = new GeoPos();
-            final PositionData posData = new PositionData();
+            final TileWorkspace ws = tileWorkspace.get();
+            ws.ensureCapacity(w);
+            final GeoPos geoPos = ws.geoPos;
+            final PositionData posData = ws.posData;
+            final double[] localIncidenceAngles = ws.localIncidenceAngles;
+            final int[] subSwathIndex = ws.subSwathIndex;
             final int srcMaxRange = sourceImageWidth - 1;
             final int srcMaxAzimuth = sourceImageHeight - 1;
             ProductData demBuffer = null, latBuffer = null, lonBuffer = null, localIncidenceAngleBuffer = null,
@@ -888,32 +898,32 @@ public class RangeDopplerGeocodingOp extends Operator {
             final Set<Band> keySet = targetTiles.keySet();
             for (Band targetBand : keySet) {
 
-                if (targetBand.getName().equals("elevation")) {
+                if (targetBand == elevationBand) {
                     demBuffer = targetTiles.get(targetBand).getDataBuffer();
                     continue;
                 }
 
-                if (targetBand.getName().equals("latitude")) {
+                if (targetBand == latitudeBand) {
                     latBuffer = targetTiles.get(targetBand).getDataBuffer();
                     continue;
                 }
 
-                if (targetBand.getName().equals("longitude")) {
+                if (targetBand == longitudeBand) {
                     lonBuffer = targetTiles.get(targetBand).getDataBuffer();
                     continue;
                 }
 
-                if (targetBand.getName().equals("localIncidenceAngle")) {
+                if (targetBand == localIncidenceAngleBand) {
                     localIncidenceAngleBuffer = targetTiles.get(targetBand).getDataBuffer();
                     continue;
                 }
 
-                if (targetBand.getName().equals("projectedLocalIncidenceAngle")) {
+                if (targetBand == projectedLocalIncidenceAngleBand) {
                     projectedLocalIncidenceAngleBuffer = targetTiles.get(targetBand).getDataBuffer();
                     continue;
                 }
 
-                if (targetBand.getName().equals("incidenceAngleFromEllipsoid")) {
+                if (targetBand == incidenceAngleFromEllipsoidBand) {
                     incidenceAngleFromEllipsoidBuffer = targetTiles.get(targetBand).getDataBuffer();
                     continue;
                 }
@@ -953,15 +963,27 @@ public class RangeDopplerGeocodingOp extends Operator {
             final GeoPos posLast = targetProduct.getSceneGeoCoding().getGeoPos(new PixelPos(0,targetImageHeight), null);
             int diffLat = (int)Math.abs(posFirst.lat - posLast.lat);
 
+            final double[] rowLat = ws.rowLat;
+            final double[] rowLon = ws.rowLon;
+            final double[] rowAlt = ws.rowAlt;
+            final double[] rowEarthX = ws.rowEarthX;
+            final double[] rowEarthY = ws.rowEarthY;
+            final double[] rowEarthZ = ws.rowEarthZ;
+            final double[] rowZeroDopplerTime = ws.rowZeroDopplerTime;
+            final double[] rowSlantRange = ws.rowSlantRange;
+
             for (int y = y0; y < maxY; y++) {
                 final int yy = y - y0 + 1;
+
+                // compute the earth points of the row and solve their zero Doppler times in one batch
                 for (int x = x0; x < maxX; x++) {
-                    final int index = tgtTiles[0].targetTile.getDataBufferIndex(x, y);
+                    final int xx = x - x0;
 
-                    Double alt = localDEM[yy][x - x0 + 1];
-                    if (alt.equals(demNoDataValue) && !useAvgSceneHeight) {
+                    double alt = localDEM[yy][xx + 1];
+                    final boolean isNoDataAlt = Double.compare(alt, demNoDataValue) == 0;
+                    if (isNoDataAlt && !useAvgSceneHeight) {
                         if (nodataValueAtSea) {
-                            saveNoDataValueToTarget(index, tgtTiles, demBuffer);
+                            rowEarthX[xx] = Double.NaN;
                             continue;
                         }
                     }
@@ -973,31 +995,58 @@ public class RangeDopplerGeocodingOp extends Operator {
                         lon -= 360.0;
                     }
 
-                    if (alt.equals(demNoDataValue) && !nodataValueAtSea) { // get corrected elevation for 0
-                        alt = (double) egm.getEGM(lat, lon);
+                    if (isNoDataAlt && !nodataValueAtSea) { // get corrected elevation for 0
+                        alt = egm.getEGM(lat, lon);
                     }
 
-                    if (!getPosition(lat, lon, alt, posData)) {
+                    GeoUtils.geo2xyzWGS84(lat, lon, alt, posData.earthPoint);
+                    rowLat[xx] = lat;
+                    rowLon[xx] = lon;
+                    rowAlt[xx] = alt;
+                    rowEarthX[xx] = posData.earthPoint.x;
+                    rowEarthY[xx] = posData.earthPoint.y;
+                    rowEarthZ[xx] = posData.earthPoint.z;
+                }
+
+                SARGeocoding.computeZeroDopplerTimes(lineTimeInterval, orbit, rowEarthX, rowEarthY, rowEarthZ, w,
+                                                     rowZeroDopplerTime, rowSlantRange);
+
+                for (int x = x0; x < maxX; x++) {
+                    final int xx = x - x0;
+                    final int index = tgtTiles[0].targetTile.getDataBufferIndex(x, y);
+
+                    if (Double.isNaN(rowEarthX[xx])) {
+                        saveNoDataValueToTarget(index, tgtTiles, demBuffer);
+                        continue;
+                    }
+
+                    final double lat = rowLat[xx];
+                    final double lon = rowLon[xx];
+                    final double alt = rowAlt[xx];
+                    posData.earthPoint.x = rowEarthX[xx];
+                    posData.earthPoint.y = rowEarthY[xx];
+                    posData.earthPoint.z = rowEarthZ[xx];
+
+                    if (!getPosition(rowZeroDopplerTime[xx], rowSlantRange[xx], posData)) {
                         saveNoDataValueToTarget(index, tgtTiles, demBuffer);
                         continue;
                     }
 
                     if (!SARGeocoding.isValidCell(posData.rangeIndex, posData.azimuthIndex, lat, lon, diffLat,
-                            sourceProduct.getSceneGeoCoding(), srcMaxRange, srcMaxAzimuth, posData.sensorPos)) {
+                            sourceProduct.getSceneGeoCoding(), srcMaxRange, srcMaxAzimuth, posData.sensorPos,
+                            ws.validCell)) {
                         saveNoDataValueToTarget(index, tgtTiles, demBuffer);
                     } else {
 
-                        final double[] localIncidenceAngles = {SARGeocoding.NonValidIncidenceAngle,
-                                SARGeocoding.NonValidIncidenceAngle};
+                        localIncidenceAngles[0] = SARGeocoding.NonValidIncidenceAngle;
+                        localIncidenceAngles[1] = SARGeocoding.NonValidIncidenceAngle;
 
                         if (saveLocalIncidenceAngle || saveProjectedLocalIncidenceAngle || saveSigmaNought) {
 
-                            final LocalGeometry localGeometry = new LocalGeometry(
-                                    x, y, tileGeoRef, posData.earthPoint, posData.sensorPos);
-
                             SARGeocoding.computeLocalIncidenceAngle(
-                                    localGeometry, demNoDataValue, saveLocalIncidenceAngle, saveProjectedLocalIncidenceAngle,
-                                    saveSigmaNought, x0, y0, x, y, localDEM, localIncidenceAngles); // in degrees
+                                    tileGeoRef, posData.earthPoint, posData.sensorPos, demNoDataValue,
+                                    saveLocalIncidenceAngle, saveProjectedLocalIncidenceAngle, saveSigmaNought,
+                                    x0, y0, x, y, localDEM, localIncidenceAngles, ws.localGeometry); // in degrees
 
                             if (saveLocalIncidenceAngle && localIncidenceAngles[0] != SARGeocoding.NonValidIncidenceAngle) {
                                 localIncidenceAngleBuffer.setElemDoubleAt(index, localIncidenceAngles[0]);
@@ -1033,7 +1082,7 @@ public class RangeDopplerGeocodingOp extends Operator {
                         }
 
                         for (TileData tileData : tgtTiles) {
-                            int[] subSwathIndex = {INVALID_SUB_SWATH_INDEX};
+                            subSwathIndex[0] = INVALID_SUB_SWATH_INDEX;
                             double v = getPixelValue(posData.azimuthIndex, posData.rangeIndex, tileData, subSwathIndex);
 
                             if (v != tileData.noDataValue && tileData.applyRadiometricNormalization) {
@@ -1091,8 +1140,8 @@ public class RangeDopplerGeocodingOp extends Operator {
         for (int i = 0; i < 4; i++) {
 
             tileGeoRef.getGeoPos(tgtCorners[i], geoPos);
-            final Double alt = tgtCornerElevations[i];
-            if (alt.equals(demNoDataValue)) {
+            final double alt = tgtCornerElevations[i];
+            if (Double.compare(alt, demNoDataValue) == 0) {
                 return null;
             }
 
@@ -1163,6 +1212,33 @@ public class RangeDopplerGeocodingOp extends Operator {
             data.slantRange = SARGeocoding.computeSlantRange(zeroDopplerTime, orbit, data.earthPoint, data.sensorPos);
         }
 
+        return computeImageIndices(zeroDopplerTime, data);
+    }
+
+    /**
+     * Compute the source image indices for the earth point in data from an already solved zero Doppler time.
+     *
+     * @param zeroDopplerTime The zero Doppler time in days.
+     * @param slantRange      The slant range in meters at the zero Doppler time.
+     * @param data            The position data holding the earth point.
+     * @return true if the earth point falls inside the source image.
+     */
+    private boolean getPosition(double zeroDopplerTime, final double slantRange, final PositionData data) {
+
+        if (Double.compare(zeroDopplerTime, SARGeocoding.NonValidZeroDopplerTime) == 0) {
+            return false;
+        }
+
+        if (!skipBistaticCorrection) { // skip bistatic correction for COSMO, TerraSAR-X and RadarSAT-2
+            zeroDopplerTime += slantRange / Constants.lightSpeedInMetersPerDay;
+        }
+        data.slantRange = SARGeocoding.computeSlantRange(zeroDopplerTime, orbit, data.earthPoint, data.sensorPos);
+
+        return computeImageIndices(zeroDopplerTime, data);
+    }
+
+    private boolean computeImageIndices(final double zeroDopplerTime, final PositionData data) {
+
         data.rangeIndex = SARGeocoding.computeRangeIndex(srgrFlag, sourceImageWidth, firstLineUTC, lastLineUTC,
                                                          rangeSpacing, zeroDopplerTime, data.slantRange, nearEdgeSlantRange, srgrConvParams);
 
@@ -1309,6 +1385,8 @@ public class RangeDopplerGeocodingOp extends Operator {
         private ProductData dataBufferI = null;
         private ProductData dataBufferQ = null;
         private int subSwathIndex = -1;
+        private int[][] subSwathIndices = null;
+        private final int[] sampleSubSwathIndex = new int[1];
 
         ResamplingRaster(final TileData tileData) {
             this.tileData = tileData;
@@ -1343,7 +1421,13 @@ public class RangeDopplerGeocodingOp extends Operator {
 
         public boolean getSamples(final int[] x, final int[] y, final double[][] samples) {
 
-            final int[][] subSwathIndices = new int[y.length][x.length];
+            if (subSwathIndices == null || subSwathIndices.length != y.length || subSwathIndices[0].length != x.length) {
+                subSwathIndices = new int[y.length][x.length];
+            } else {
+                for (int[] row : subSwathIndices) {
+                    Arrays.fill(row, 0);
+                }
+            }
             boolean allPixelsFromSameSubSwath = true;
             boolean allValid = true;
 
@@ -1372,7 +1456,8 @@ public class RangeDopplerGeocodingOp extends Operator {
                         samples[i][j] = v * v + vq * vq;
                     }
 
-                    final int[] subSwathIndex = {-1};
+                    final int[] subSwathIndex = sampleSubSwathIndex;
+                    subSwathIndex[0] = -1;
                     if (tileData.applyRetroCalibration) {
                         samples[i][j] = tileData.calibrator.applyRetroCalibration(
                                 x[j], y[i], samples[i][j], tileData.bandPolar, tileData.bandUnit, subSwathIndex);
@@ -1481,6 +1566,40 @@ public class RangeDopplerGeocodingOp extends Operator {
         double slantRange;
     }
 
+    /**
+     * Per thread scratch buffers for computeTileStack, reused across tiles.
+     */
+    private static class TileWorkspace {
+        final GeoPos geoPos = new GeoPos();
+        final PositionData posData = new PositionData();
+        final double[] localIncidenceAngles = new double[2];
+        final int[] subSwathIndex = new int[1];
+        final SARGeocoding.LocalGeometryWorkspace localGeometry = new SARGeocoding.LocalGeometryWorkspace();
+        final SARGeocoding.ValidCellWorkspace validCell = new SARGeocoding.ValidCellWorkspace();
+
+        double[] rowLat = new double[0];
+        double[] rowLon = new double[0];
+        double[] rowAlt = new double[0];
+        double[] rowEarthX = new double[0];
+        double[] rowEarthY = new double[0];
+        double[] rowEarthZ = new double[0];
+        double[] rowZeroDopplerTime = new double[0];
+        double[] rowSlantRange = new double[0];
+
+        void ensureCapacity(final int width) {
+            if (rowLat.length < width) {
+                rowLat = new double[width];
+                rowLon = new double[width];
+                rowAlt = new double[width];
+                rowEarthX = new double[width];
+                rowEarthY = new double[width];
+                rowEarthZ = new double[width];
+                rowZeroDopplerTime = new double[width];
+                rowSlantRange = new double[width];
+            }
+        }
+    }
+
     /**
      * The SPI is used to register this operator in the graph processing framework
      * via the SPI configuration file
@@ -21,6 +21,7 @@ import org.esa.s1tbx.commons.OrbitStateVectors;
 import org.esa.s1tbx.commons.polsar.PolBandUtils;
 import org.esa.s1tbx.commons.SARGeocoding;
 import org.esa.s1tbx.commons.SARUtils;
+import org.esa.s1tbx.commons.utils.ThreadExecutor;
 import org.esa.snap.core.datamodel.*;
 import org.esa.snap.core.dataop.dem.ElevationModel;
 import org.esa.snap.core.dataop.resamp.ResamplingFactory;
@@ -46,6 +47,7 @@ import org.esa.snap.engine_utilities.util.Maths;
 
 import java.awt.*;
 import java.io.File;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -135,8 +137,11 @@ public final class TerrainFlatteningOp extends Operator {
     private boolean detectShadow = true;
     private double threshold = 0.05;
     private boolean invalidSource = false;
+    private IlluminationAreaCache illuminationAreaCache = null;
 
     private static final String PRODUCT_SUFFIX = "_TF";
+    private static final int ROWS_PER_TASK = 32;
+    private static final int DEFAULT_STRIP_HEIGHT = 512;
 
     enum UnitType {AMPLITUDE, INTENSITY, COMPLEX, RATIO}
 
@@ -207,6 +212,10 @@ public final class TerrainFlatteningOp extends Operator {
         if (fileElevationModel != null) {
             fileElevationModel.dispose();
         }
+        if (illuminationAreaCache != null) {
+            illuminationAreaCache.clear();
+            illuminationAreaCache = null;
+        }
     }
 
     /**
@@ -458,19 +467,23 @@ public final class TerrainFlatteningOp extends Operator {
             final int h = targetRectangle.height;
             //System.out.println("x0 = " + x0 + ", y0 = " + y0 + ", w = " + w + ", h = " + h);
 
-            final OverlapPercentage tileOverlapPercentage = computeTileOverlapPercentage(x0, y0, w, h, pm);
-            if(tileOverlapPercentage == null) {
-                return;
-            }
-
             final double[][] gamma0ReferenceArea = new double[h][w];
             double[][] sigma0ReferenceArea = null;
             if (outputSigma0) {
                 sigma0ReferenceArea = new double[h][w];
             }
 
-            final boolean validSimulation = generateSimulatedImage(
-                    x0, y0, w, h, tileOverlapPercentage, gamma0ReferenceArea, sigma0ReferenceArea, pm);
+            final boolean validSimulation;
+            final IlluminationAreaCache cache = getIlluminationAreaCache();
+            if (cache.covers(targetRectangle)) {
+                validSimulation = cache.read(targetRectangle, gamma0ReferenceArea, sigma0ReferenceArea,
+                        area -> generateSimulatedImage(area, pm));
+            } else {
+                final IlluminationAreaCache.ReferenceArea area =
+                        new IlluminationAreaCache.ReferenceArea(x0, y0, w, h, outputSigma0);
+                validSimulation = generateSimulatedImage(area, pm);
+                area.copyTo(gamma0ReferenceArea, sigma0ReferenceArea);
+            }
 
             if (!validSimulation) {
                 return;
@@ -488,28 +501,50 @@ public final class TerrainFlatteningOp extends Operator {
     }
 
     /**
-     * Generate simulated image for normalization.
+     * The cache of simulated reference areas, cut into strips of the preferred tile height of the products.
+     * The strip height is never taken from a tile, which may be a shorter tile at the bottom of the image.
+     */
+    private synchronized IlluminationAreaCache getIlluminationAreaCache() {
+        if (illuminationAreaCache == null) {
+            Dimension tileSize = targetProduct.getPreferredTileSize();
+            if (tileSize == null) {
+                tileSize = sourceProduct.getPreferredTileSize();
+            }
+            final int stripHeight = tileSize != null ? tileSize.height : DEFAULT_STRIP_HEIGHT;
+            illuminationAreaCache = new IlluminationAreaCache(sourceImageWidth, sourceImageHeight, stripHeight,
+                    outputSigma0, Runtime.getRuntime().maxMemory() / 4);
+        }
+        return illuminationAreaCache;
+    }
+
+    /**
+     * Generate simulated image for normalization. The DEM rows are simulated in parallel, and the simulation
+     * fails as a whole if the DEM is not available for any block of rows.
      *
-     * @param x0                  X coordinate of the upper left corner pixel of given tile.
-     * @param y0                  Y coordinate of the upper left corner pixel of given tile.
-     * @param w                   Width of given tile.
-     * @param h                   Height of given tile.
-     * @param gamma0ReferenceArea The simulated image for flattened gamma0 generation.
-     * @param sigma0ReferenceArea The simulated image for flattened sigma0 generation.
+     * @param area The simulated images to fill for a tile or a strip of tiles.
+     * @param pm   A progress monitor which should be used to determine computation cancelation requests.
      * @return Boolean flag indicating if the simulation is successful.
      */
-    private boolean generateSimulatedImage(final int x0, final int y0, final int w, final int h,
-                                           final OverlapPercentage tileOverlapPercentage,
-                                           final double[][] gamma0ReferenceArea,
-                                           final double[][] sigma0ReferenceArea,
+    private boolean generateSimulatedImage(final IlluminationAreaCache.ReferenceArea area,
                                            final ProgressMonitor pm) {
 
         try {
+            final int x0 = area.x0;
+            final int y0 = area.y0;
+            final int w = area.width;
+            final int h = area.height;
+
+            final OverlapPercentage tileOverlapPercentage = computeTileOverlapPercentage(x0, y0, w, h, pm);
+            if (tileOverlapPercentage == null) {
+                return false;
+            }
+
             final int ymin = Math.max(y0 - (int) (h * tileOverlapPercentage.tileOverlapUp), 0);
             final int ymax = Math.min(y0 + h + (int) (h * tileOverlapPercentage.tileOverlapDown), sourceImageHeight);
             final int xmin = Math.max(x0 - (int) (w * tileOverlapPercentage.tileOverlapLeft), 0);
             final int xmax = Math.min(x0 + w + (int) (w * tileOverlapPercentage.tileOverlapRight), sourceImageWidth);
 
+            final ThreadExecutor executor = new ThreadExecutor("TerrainFlatteningOp", pm);
             if (reGridMethod) {
                 final double[] latLonMinMax = new double[4];
                 computeImageGeoBoundary(xmin, xmax, ymin, ymax, latLonMinMax);
@@ -544,182 +579,182 @@ public final class TerrainFlatteningOp extends Operator {
                 final int nLat = (int)Math.round((latMax - latMin) / delta);
                 final int nLon = (int)Math.round((lonMax - lonMin) / delta);
 
-                final PositionData posData = new PositionData();
-                final GeoPos demGeoPos = new GeoPos();
-                for (int i = 0; i < nLat; i++) {
-                    if(pm.isCanceled()) {
-                        return false;
-                    }
-                    final double lat = latMax - i*delta;
-                    final double[] azimuthIndex = new double[nLon];
-                    final double[] rangeIndex = new double[nLon];
-                    final double[] gamma0Area = new double[nLon];
-                    final double[] elevationAngle = new double[nLon];
-                    final boolean[] savePixel = new boolean[nLon];
-                    double[] sigma0Area = null;
-                    if (outputSigma0) {
-                        sigma0Area = new double[nLon];
-                    }
-                    final GeoUtils.Geo2xyzWGS84 geo2xyzWGS84 = new GeoUtils.Geo2xyzWGS84(lat);
-                    final LocalGeometry localGeometry = new LocalGeometry(lat, delta);
+                final double gridLatMax = latMax;
+                final double gridLonMin = lonMin;
+                final double gridDelta = delta;
+                for (int i0 = 0; i0 < nLat; i0 += ROWS_PER_TASK) {
+                    final int iStart = i0;
+                    final int iEnd = Math.min(i0 + ROWS_PER_TASK, nLat);
+                    executor.submit(() -> {
+                        simulateDEMRows(area, iStart, iEnd, gridLatMax, gridLonMin, gridDelta, nLon, pm);
+                        return null;
+                    });
+                }
 
-                    for (int j = 0; j < nLon; j++) {
-                        final double lon = lonMin + j*delta;
-                        demGeoPos.setLocation(lat, lon);
-                        final Double alt = dem.getElevation(demGeoPos);
-                        if (Double.isNaN(alt) || alt.equals(demNoDataValue))
-                            continue;
+            } else {
 
-                        posData.earthPoint = geo2xyzWGS84.getXYZ(lon, alt);
-                        if (!getPosition(x0, y0, w, h, posData))
-                            continue;
+                for (int y = ymin; y < ymax; y += ROWS_PER_TASK) {
+                    final int yStart = y;
+                    final int yEnd = Math.min(y + ROWS_PER_TASK, ymax);
+                    executor.submit(() -> {
+                        simulateImageRows(area, xmin, xmax, yStart, yEnd, pm);
+                        return null;
+                    });
+                }
+            }
+            executor.complete();
 
-                        localGeometry.setLon(lon, alt, dem, posData);
+        } catch (DEMNotAvailableException e) {
+            return false;
+        } catch (Throwable e) {
+            OperatorUtils.catchOperatorException(getId(), e);
+        }
+        return !pm.isCanceled();
+    }
 
-                        if(!computeIlluminatedArea(localGeometry, demNoDataValue, noDataValue, j, gamma0Area, sigma0Area)) {
-                            continue;
-                        }
+    /**
+     * Simulate the rows of the re-gridded DEM from iStart to iEnd.
+     */
+    private void simulateDEMRows(final IlluminationAreaCache.ReferenceArea area, final int iStart, final int iEnd,
+                                 final double latMax, final double lonMin, final double delta, final int nLon,
+                                 final ProgressMonitor pm) throws Exception {
+
+        final RowBuffers row = new RowBuffers(nLon, outputSigma0);
+        final PositionData posData = new PositionData();
+        final GeoPos demGeoPos = new GeoPos();
+        for (int i = iStart; i < iEnd; i++) {
+            if(pm.isCanceled()) {
+                return;
+            }
+            final double lat = latMax - i*delta;
+            row.reset();
+            final GeoUtils.Geo2xyzWGS84 geo2xyzWGS84 = new GeoUtils.Geo2xyzWGS84(lat);
+            final LocalGeometry localGeometry = new LocalGeometry(lat, delta);
+
+            for (int j = 0; j < nLon; j++) {
+                final double lon = lonMin + j*delta;
+                demGeoPos.setLocation(lat, lon);
+                final Double alt = dem.getElevation(demGeoPos);
+                if (Double.isNaN(alt) || alt.equals(demNoDataValue))
+                    continue;
 
-                        elevationAngle[j] = computeElevationAngle(posData.earthPoint, posData.sensorPos);
-                        rangeIndex[j] = posData.rangeIndex;
-                        azimuthIndex[j] = posData.azimuthIndex;
-                        savePixel[j] = rangeIndex[j] > x0 - 1 && rangeIndex[j] < x0 + w &&
-                                azimuthIndex[j] > y0 - 1 && azimuthIndex[j] < y0 + h;
-                    }
+                posData.earthPoint = geo2xyzWGS84.getXYZ(lon, alt);
+                if (!getPosition(area.x0, area.y0, area.width, area.height, posData))
+                    continue;
 
-                    if (orbitOnWest) {
-                        // traverse from near range to far range to detect shadowing area
-                        double maxElevAngle = 0.0;
-                        for (int jj = 0; jj < nLon; jj++) {
-                            if (savePixel[jj] && (!detectShadow || elevationAngle[jj] >= maxElevAngle)) {
-                                maxElevAngle = elevationAngle[jj];
-                                double sigma0AreaVal = outputSigma0 ? sigma0Area[jj] : noDataValue;
-                                saveIlluminationArea(x0, y0, w, h, azimuthIndex[jj], rangeIndex[jj],
-                                        gamma0Area[jj], gamma0ReferenceArea,
-                                        sigma0AreaVal, sigma0ReferenceArea);
-                            }
-                        }
+                localGeometry.setLon(lon, alt, dem, posData);
 
-                    } else {
-                        // traverse from near range to far range to detect shadowing area
-                        double maxElevAngle = 0.0;
-                        for (int jj = nLon - 1; jj >= 0; --jj) {
-                            if (savePixel[jj] && (!detectShadow || elevationAngle[jj] >= maxElevAngle)) {
-                                maxElevAngle = elevationAngle[jj];
-                                double sigma0AreaVal = outputSigma0 ? sigma0Area[jj] : noDataValue;
-                                saveIlluminationArea(x0, y0, w, h, azimuthIndex[jj], rangeIndex[jj],
-                                        gamma0Area[jj], gamma0ReferenceArea,
-                                        sigma0AreaVal, sigma0ReferenceArea);
-                            }
-                        }
-                    }
+                if(!computeIlluminatedArea(localGeometry, demNoDataValue, noDataValue, j, row.gamma0Area, row.sigma0Area)) {
+                    continue;
                 }
 
-            } else {
+                row.save(j, area, computeElevationAngle(posData.earthPoint, posData.sensorPos), posData);
+            }
 
-                final int widthExt = xmax - xmin;
-                final int heightExt = ymax - ymin;
+            saveIlluminationArea(area, row, nLon, orbitOnWest, true);
+        }
+    }
 
-                final double[][] localDEM = new double[heightExt + 2][widthExt + 2];
-                final TileGeoreferencing tileGeoRef = new TileGeoreferencing(
-                        targetProduct, xmin, ymin, widthExt, heightExt);
+    /**
+     * Simulate the image rows from yStart to yEnd on the DEM resampled to the image.
+     */
+    private void simulateImageRows(final IlluminationAreaCache.ReferenceArea area, final int xmin, final int xmax,
+                                   final int yStart, final int yEnd, final ProgressMonitor pm) throws Exception {
 
-                final boolean valid = DEMFactory.getLocalDEM(
-                        dem, demNoDataValue, demResamplingMethod, tileGeoRef, xmin, ymin, widthExt, heightExt,
-                        sourceProduct, true, localDEM);
+        final int widthExt = xmax - xmin;
+        final int heightExt = yEnd - yStart;
 
-                if (!valid) {
-                    return false;
-                }
+        final double[][] localDEM = new double[heightExt + 2][widthExt + 2];
+        final TileGeoreferencing tileGeoRef = new TileGeoreferencing(
+                targetProduct, xmin, yStart, widthExt, heightExt);
 
-                final PositionData posData = new PositionData();
-                final GeoPos geoPos = new GeoPos();
-                for (int y = ymin; y < ymax; y++) {
-                    if(pm.isCanceled()) {
-                        return false;
-                    }
-                    final int yy = y - ymin;
-
-                    final double[] azimuthIndex = new double[widthExt];
-                    final double[] rangeIndex = new double[widthExt];
-                    final double[] gamma0Area = new double[widthExt];
-                    final double[] elevationAngle = new double[widthExt];
-                    final boolean[] savePixel = new boolean[widthExt];
-                    double[] sigma0Area = null;
-                    if (outputSigma0) {
-                        sigma0Area = new double[widthExt];
-                    }
+        final boolean valid = DEMFactory.getLocalDEM(
+                dem, demNoDataValue, demResamplingMethod, tileGeoRef, xmin, yStart, widthExt, heightExt,
+                sourceProduct, true, localDEM);
 
-                    for (int x = xmin; x < xmax; x++) {
-                        final int xx = x - xmin;
+        if (!valid) {
+            throw new DEMNotAvailableException();
+        }
 
-                        Double alt = localDEM[yy + 1][xx + 1];
-                        if (alt.equals(demNoDataValue))
-                            continue;
+        final RowBuffers row = new RowBuffers(widthExt, outputSigma0);
+        final PositionData posData = new PositionData();
+        final GeoPos geoPos = new GeoPos();
+        for (int y = yStart; y < yEnd; y++) {
+            if(pm.isCanceled()) {
+                return;
+            }
+            final int yy = y - yStart;
+            row.reset();
 
-                        tileGeoRef.getGeoPos(x, y, geoPos);
-                        if (!geoPos.isValid())
-                            continue;
+            for (int x = xmin; x < xmax; x++) {
+                final int xx = x - xmin;
 
-                        double lat = geoPos.lat;
-                        double lon = geoPos.lon;
-                        if (lon >= 180.0) {
-                            lon -= 360.0;
-                        }
+                Double alt = localDEM[yy + 1][xx + 1];
+                if (alt.equals(demNoDataValue))
+                    continue;
 
-                        GeoUtils.geo2xyzWGS84(lat, lon, alt, posData.earthPoint);
-                        if (!getPosition(x0, y0, w, h, posData))
-                            continue;
+                tileGeoRef.getGeoPos(x, y, geoPos);
+                if (!geoPos.isValid())
+                    continue;
 
-                        final LocalGeometry localGeometry = new LocalGeometry(
-                                xmin, ymin, x, y, tileGeoRef, localDEM, posData);
+                double lat = geoPos.lat;
+                double lon = geoPos.lon;
+                if (lon >= 180.0) {
+                    lon -= 360.0;
+                }
 
-                        if(!computeIlluminatedArea(localGeometry, demNoDataValue, noDataValue, xx, gamma0Area, sigma0Area)) {
-                            continue;
-                        }
+                GeoUtils.geo2xyzWGS84(lat, lon, alt, posData.earthPoint);
+                if (!getPosition(area.x0, area.y0, area.width, area.height, posData))
+                    continue;
 
-                        elevationAngle[xx] = computeElevationAngle(posData.earthPoint, posData.sensorPos);
+                final LocalGeometry localGeometry = new LocalGeometry(
+                        xmin, yStart, x, y, tileGeoRef, localDEM, posData);
 
-                        rangeIndex[xx] = posData.rangeIndex;
-                        azimuthIndex[xx] = posData.azimuthIndex;
+                if(!computeIlluminatedArea(localGeometry, demNoDataValue, noDataValue, xx, row.gamma0Area, row.sigma0Area)) {
+                    continue;
+                }
 
-                        savePixel[xx] = rangeIndex[xx] > x0 - 1 && rangeIndex[xx] < x0 + w &&
-                                azimuthIndex[xx] > y0 - 1 && azimuthIndex[xx] < y0 + h;
-                    }
+                row.save(xx, area, computeElevationAngle(posData.earthPoint, posData.sensorPos), posData);
+            }
 
-                    if (nearRangeOnLeft) {
-                        // traverse from near range to far range to detect shadowing area
-                        double maxElevAngle = 0.0;
-                        for (int i = 0; i < widthExt; i++) {
-                            if (savePixel[i] && (!detectShadow || elevationAngle[i] > maxElevAngle)) {
-                                maxElevAngle = elevationAngle[i];
-                                double sigma0AreaVal = outputSigma0 ? sigma0Area[i] : noDataValue;
-                                saveIlluminationArea(x0, y0, w, h, azimuthIndex[i], rangeIndex[i],
-                                        gamma0Area[i], gamma0ReferenceArea,
-                                        sigma0AreaVal, sigma0ReferenceArea);
-                            }
-                        }
+            saveIlluminationArea(area, row, widthExt, nearRangeOnLeft, false);
+        }
+    }
 
-                    } else {
-                        // traverse from near range to far range to detect shadowing area
-                        double maxElevAngle = 0.0;
-                        for (int i = widthExt - 1; i >= 0; --i) {
-                            if (savePixel[i] && (!detectShadow || elevationAngle[i] > maxElevAngle)) {
-                                maxElevAngle = elevationAngle[i];
-                                double sigma0AreaVal = outputSigma0 ? sigma0Area[i] : noDataValue;
-                                saveIlluminationArea(x0, y0, w, h, azimuthIndex[i], rangeIndex[i],
-                                        gamma0Area[i], gamma0ReferenceArea,
-                                        sigma0AreaVal, sigma0ReferenceArea);
-                            }
-                        }
-                    }
+    /**
+     * Add the illuminated areas of a row that are not in shadow to the simulated images.
+     *
+     * @param area              The simulated images.
+     * @param row               The illuminated areas of the row.
+     * @param n                 The row length.
+     * @param nearRangeFirst    True if the row starts at near range.
+     * @param includeEqualAngle True if a pixel at the same elevation angle as the maximum so far is not in shadow.
+     */
+    private void saveIlluminationArea(final IlluminationAreaCache.ReferenceArea area, final RowBuffers row,
+                                      final int n, final boolean nearRangeFirst, final boolean includeEqualAngle) {
+
+        // traverse from near range to far range to detect shadowing area
+        double maxElevAngle = 0.0;
+        int count = 0;
+        for (int k = 0; k < n; k++) {
+            final int i = nearRangeFirst ? k : n - 1 - k;
+            if (!row.savePixel[i]) {
+                continue;
+            }
+            final double elevationAngle = row.elevationAngle[i];
+            if (!detectShadow || elevationAngle > maxElevAngle ||
+                    (includeEqualAngle && elevationAngle == maxElevAngle)) {
+                maxElevAngle = elevationAngle;
+                row.savedAzimuthIndex[count] = row.azimuthIndex[i];
+                row.savedRangeIndex[count] = row.rangeIndex[i];
+                row.savedGamma0Area[count] = row.gamma0Area[i];
+                if (outputSigma0) {
+                    row.savedSigma0Area[count] = row.sigma0Area[i];
                 }
+                ++count;
             }
-
-        } catch (Throwable e) {
-            OperatorUtils.catchOperatorException(getId(), e);
         }
-        return true;
+        area.add(row.savedAzimuthIndex, row.savedRangeIndex, row.savedGamma0Area, row.savedSigma0Area, count);
     }
 
     private void computeImageGeoBoundary(final int xmin, final int xmax, final int ymin, final int ymax,
@@ -1161,64 +1196,6 @@ public final class TerrainFlatteningOp extends Operator {
         return errX*errX + errY*errY;
     }
 
-    /**
-     * Distribute the local illumination area to the 4 adjacent pixels using bi-linear distribution.
-     *
-     * @param x0                  The x coordinate of the pixel at the upper left corner of current tile.
-     * @param y0                  The y coordinate of the pixel at the upper left corner of current tile.
-     * @param w                   The tile width.
-     * @param h                   The tile height.
-     * @param gamma0Area          The illuminated area.
-     * @param azimuthIndex        Azimuth pixel index for the illuminated area.
-     * @param rangeIndex          Range pixel index for the illuminated area.
-     * @param gamma0ReferenceArea Buffer for the simulated image.
-     */
-    private void saveIlluminationArea(final int x0, final int y0, final int w, final int h,
-                                       final double azimuthIndex, final double rangeIndex,
-                                             final double gamma0Area, final double[][] gamma0ReferenceArea,
-                                             final double sigma0Area, final double[][] sigma0ReferenceArea) {
-
-        final int ia0 = (int) azimuthIndex;
-        final int ia1 = ia0 + 1;
-        final int ir0 = (int) rangeIndex;
-        final int ir1 = ir0 + 1;
-
-        final double wr = rangeIndex - ir0;
-        final double wa = azimuthIndex - ia0;
-        final double wac = 1 - wa;
-
-        if (ir0 >= x0 && ir0 < x0 + w) {
-            final double wrc = 1 - wr;
-            if (ia0 >= y0 && ia0 < y0 + h) {
-                gamma0ReferenceArea[ia0 - y0][ir0 - x0] += wrc * wac * gamma0Area;
-                if(outputSigma0) {
-                    sigma0ReferenceArea[ia0 - y0][ir0 - x0] += wrc * wac * sigma0Area;
-                }
-            }
-            if (ia1 >= y0 && ia1 < y0 + h) {
-                gamma0ReferenceArea[ia1 - y0][ir0 - x0] += wrc * wa * gamma0Area;
-                if(outputSigma0) {
-                    sigma0ReferenceArea[ia1 - y0][ir0 - x0] += wrc * wa * sigma0Area;
-                }
-            }
-        }
-
-        if (ir1 >= x0 && ir1 < x0 + w) {
-            if (ia0 >= y0 && ia0 < y0 + h) {
-                gamma0ReferenceArea[ia0 - y0][ir1 - x0] += wr * wac * gamma0Area;
-                if(outputSigma0) {
-                    sigma0ReferenceArea[ia0 - y0][ir1 - x0] += wr * wac * sigma0Area;
-                }
-            }
-            if (ia1 >= y0 && ia1 < y0 + h) {
-                gamma0ReferenceArea[ia1 - y0][ir1 - x0] += wr * wa * gamma0Area;
-                if(outputSigma0) {
-                    sigma0ReferenceArea[ia1 - y0][ir1 - x0] += wr * wa * sigma0Area;
-                }
-            }
-        }
-    }
-
     /**
      * Compute elevation angle (in degree).
      *
@@ -1422,6 +1399,61 @@ public final class TerrainFlatteningOp extends Operator {
         double slantRange;
     }
 
+    /**
+     * Work arrays for the illuminated areas of one row, reused for all rows simulated by a task.
+     */
+    private static class RowBuffers {
+        final double[] azimuthIndex;
+        final double[] rangeIndex;
+        final double[] gamma0Area;
+        final double[] sigma0Area;
+        final double[] elevationAngle;
+        final boolean[] savePixel;
+        final double[] savedAzimuthIndex;
+        final double[] savedRangeIndex;
+        final double[] savedGamma0Area;
+        final double[] savedSigma0Area;
+
+        RowBuffers(final int n, final boolean withSigma0) {
+            azimuthIndex = new double[n];
+            rangeIndex = new double[n];
+            gamma0Area = new double[n];
+            elevationAngle = new double[n];
+            savePixel = new boolean[n];
+            savedAzimuthIndex = new double[n];
+            savedRangeIndex = new double[n];
+            savedGamma0Area = new double[n];
+            sigma0Area = withSigma0 ? new double[n] : null;
+            savedSigma0Area = withSigma0 ? new double[n] : null;
+        }
+
+        void reset() {
+            Arrays.fill(savePixel, false);
+        }
+
+        /**
+         * Keep the position of an illuminated area, which is saved if it falls within the simulated images.
+         */
+        void save(final int i, final IlluminationAreaCache.ReferenceArea area, final double elevAngle,
+                  final PositionData posData) {
+            elevationAngle[i] = elevAngle;
+            rangeIndex[i] = posData.rangeIndex;
+            azimuthIndex[i] = posData.azimuthIndex;
+            savePixel[i] = rangeIndex[i] > area.x0 - 1 && rangeIndex[i] < area.x0 + area.width &&
+                    azimuthIndex[i] > area.y0 - 1 && azimuthIndex[i] < area.y0 + area.height;
+        }
+    }
+
+    /**
+     * Thrown by the simulation of a block of rows without DEM. ThreadExecutor.complete() rethrows it, which cancels
+     * the other blocks, and the whole area is left unsimulated as a tile without DEM was before.
+     */
+    private static final class DEMNotAvailableException extends RuntimeException {
+        DEMNotAvailableException() {
+            super("DEM not available");
+        }
+    }
+
     private static class OverlapPercentage {
         final double tileOverlapUp;
         final double tileOverlapDown;
@@ -336,11 +336,16 @@ public final class ApplyOrbitFileOp extends Operator {
 
         OrbitStateVector[] orbitStateVectors = new OrbitStateVector[numVectors];
 
+        final double[] times = new double[numVectors];
+        for (int i = 0; i < numVectors; ++i) {
+            times[i] = firstVectorTime + i*delta;
+        }
+
         // compute new orbit state vectors
+        final Orbits.OrbitVector[] orbitDataList = orbitProvider.getOrbitData(times);
         for (int i = 0; i < numVectors; ++i) {
-            final double time = firstVectorTime + i*delta;
-            final Orbits.OrbitVector orbitData = orbitProvider.getOrbitData(time);
-            final ProductData.UTC utc = new ProductData.UTC(time);
+            final Orbits.OrbitVector orbitData = orbitDataList[i];
+            final ProductData.UTC utc = new ProductData.UTC(times[i]);
 
             orbitStateVectors[i] = new OrbitStateVector(utc, orbitData.xPos, orbitData.yPos, orbitData.zPos,
                     orbitData.xVel, orbitData.yVel, orbitData.zVel);
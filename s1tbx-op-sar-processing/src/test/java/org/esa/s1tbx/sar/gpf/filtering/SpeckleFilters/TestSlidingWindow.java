@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.sar.gpf.filtering.SpeckleFilters;
+
+import org.esa.snap.core.datamodel.Band;
+import org.esa.snap.core.datamodel.ProductData;
+import org.esa.snap.core.gpf.Tile;
+import org.esa.snap.core.gpf.internal.TileImpl;
+import org.esa.snap.engine_utilities.gpf.TileIndex;
+import org.junit.Test;
+
+import java.awt.Point;
+import java.awt.image.BandedSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for SlidingWindow, comparing the incremental window statistics with sums over each window.
+ */
+public class TestSlidingWindow {
+
+    private static final int WIDTH = 23;
+    private static final int HEIGHT = 17;
+    private static final double NO_DATA = 0.0;
+
+    // windows as {halfSizeX, halfSizeY}: square, rectangular both ways and a single column
+    private static final int[][] WINDOWS = {{1, 1}, {2, 1}, {1, 3}, {3, 2}, {0, 2}};
+
+    // target tiles as {x0, y0, w, h}: the whole image, the interior and every edge and corner
+    private static final int[][] TILES = {{0, 0, WIDTH, HEIGHT}, {5, 4, 9, 7}, {0, 0, 6, 5},
+            {WIDTH - 7, HEIGHT - 4, 7, 4}, {0, 6, 4, 8}, {WIDTH - 3, 0, 3, HEIGHT}, {8, HEIGHT - 1, 11, 1}};
+
+    private final float[][] image = createImage();
+
+    @Test
+    public void testMedian() {
+        for (int[] win : WINDOWS) {
+            for (int[] t : TILES) {
+                final SlidingWindow window = load(win, t);
+                final double[] median = new double[t[2] * t[3]];
+                window.computeMedian(median);
+
+                for (int yy = 0; yy < t[3]; ++yy) {
+                    for (int xx = 0; xx < t[2]; ++xx) {
+                        final double[] v = windowValues(win, t[0] + xx, t[1] + yy);
+                        Arrays.sort(v);
+                        final double expected = v.length > 0 ? v[v.length / 2] : NO_DATA;
+                        assertEquals(message(win, t, xx, yy), expected, median[yy * t[2] + xx], 0.0);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMeanVariance() {
+        for (int[] win : WINDOWS) {
+            for (int[] t : TILES) {
+                final SlidingWindow window = load(win, t);
+                final int n = t[2] * t[3];
+                final int[] count = new int[n];
+                final double[] mean = new double[n];
+                final double[] variance = new double[n];
+                window.computeMeanVariance(count, mean, variance);
+
+                final int[] countOnly = new int[n];
+                final double[] meanOnly = new double[n];
+                window.computeMeanVariance(countOnly, meanOnly, null);
+
+                for (int yy = 0; yy < t[3]; ++yy) {
+                    for (int xx = 0; xx < t[2]; ++xx) {
+                        final String msg = message(win, t, xx, yy);
+                        final int i = yy * t[2] + xx;
+                        final double[] v = windowValues(win, t[0] + xx, t[1] + yy);
+
+                        double sum = 0.0;
+                        for (double d : v) {
+                            sum += d;
+                        }
+                        final double expectedMean = v.length > 0 ? sum / v.length : NO_DATA;
+                        double sumSq = 0.0;
+                        for (double d : v) {
+                            sumSq += (d - expectedMean) * (d - expectedMean);
+                        }
+                        final double expectedVariance = v.length > 1 ? sumSq / (v.length - 1) : 0.0;
+
+                        assertEquals(msg, v.length, count[i]);
+                        assertEquals(msg, expectedMean, mean[i], 1e-12);
+                        assertEquals(msg, expectedVariance, variance[i], 1e-9);
+                        assertEquals(msg, v.length, countOnly[i]);
+                        assertEquals(msg, mean[i], meanOnly[i], 0.0);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFrostValue() {
+        final double[] dampings = {0.0, 0.35, 2.0};
+        for (int[] win : WINDOWS) {
+            for (int[] t : TILES) {
+                final SlidingWindow window = load(win, t);
+                for (double k : dampings) {
+                    for (int yy = 0; yy < t[3]; ++yy) {
+                        for (int xx = 0; xx < t[2]; ++xx) {
+                            final int x = t[0] + xx, y = t[1] + yy;
+                            if (windowValues(win, x, y).length == 0) {
+                                continue;
+                            }
+
+                            // weight exp(-k * d) for the chessboard distance d of each valid pixel
+                            double weightedSum = 0.0, totalWeight = 0.0;
+                            for (int j = y - win[1]; j <= y + win[1]; ++j) {
+                                for (int i = x - win[0]; i <= x + win[0]; ++i) {
+                                    if (isValid(i, j)) {
+                                        final double w = Math.exp(-k * Math.max(Math.abs(i - x), Math.abs(j - y)));
+                                        weightedSum += w * image[j][i];
+                                        totalWeight += w;
+                                    }
+                                }
+                            }
+                            assertEquals(message(win, t, xx, yy) + " k " + k,
+                                         weightedSum / totalWeight, window.getFrostValue(xx, yy, k), 1e-9);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCenterValue() {
+        for (int[] t : TILES) {
+            final SlidingWindow window = load(WINDOWS[3], t);
+            for (int yy = 0; yy < t[3]; ++yy) {
+                for (int xx = 0; xx < t[2]; ++xx) {
+                    assertEquals(message(WINDOWS[3], t, xx, yy), image[t[1] + yy][t[0] + xx],
+                                 window.getCenterValue(xx, yy), 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testComplexIntensity() {
+        // i and q give the window the intensity i * i + q * q; a no data i or q leaves the pixel out
+        final int[] win = WINDOWS[1];
+        final int[] t = TILES[1];
+        final float[][] q = new float[HEIGHT][WIDTH];
+        for (int y = 0; y < HEIGHT; ++y) {
+            for (int x = 0; x < WIDTH; ++x) {
+                q[y][x] = (x + y) % 5 == 0 ? (float) NO_DATA : 0.5f * (x - y);
+            }
+        }
+
+        final int minX = Math.max(t[0] - win[0], 0), minY = Math.max(t[1] - win[1], 0);
+        final int maxX = Math.min(t[0] + t[2] + win[0], WIDTH), maxY = Math.min(t[1] + t[3] + win[1], HEIGHT);
+        final Tile iTile = createTile(image, minX, minY, maxX - minX, maxY - minY);
+        final Tile qTile = createTile(q, minX, minY, maxX - minX, maxY - minY);
+
+        final SlidingWindow window = new SlidingWindow(win[0], win[1]);
+        window.load(iTile.getDataBuffer(), qTile.getDataBuffer(), new TileIndex(iTile), true, NO_DATA,
+                    t[0], t[1], t[2], t[3], WIDTH, HEIGHT);
+        final int n = t[2] * t[3];
+        final int[] count = new int[n];
+        final double[] mean = new double[n];
+        window.computeMeanVariance(count, mean, null);
+
+        for (int yy = 0; yy < t[3]; ++yy) {
+            for (int xx = 0; xx < t[2]; ++xx) {
+                final int x = t[0] + xx, y = t[1] + yy;
+                int expectedCount = 0;
+                double sum = 0.0;
+                for (int j = Math.max(y - win[1], 0); j <= Math.min(y + win[1], HEIGHT - 1); ++j) {
+                    for (int i = Math.max(x - win[0], 0); i <= Math.min(x + win[0], WIDTH - 1); ++i) {
+                        final double iv = image[j][i], qv = q[j][i];
+                        if (iv != NO_DATA && qv != NO_DATA && !Double.isNaN(iv) && !Double.isNaN(qv)) {
+                            ++expectedCount;
+                            sum += iv * iv + qv * qv;
+                        }
+                    }
+                }
+                final String msg = message(win, t, xx, yy);
+                assertEquals(msg, expectedCount, count[yy * t[2] + xx]);
+                assertEquals(msg, expectedCount > 0 ? sum / expectedCount : NO_DATA, mean[yy * t[2] + xx], 1e-9);
+            }
+        }
+    }
+
+    /**
+     * Small integers so that windows hold repeated values, with scattered no data and NaN pixels and a
+     * no data block larger than the windows in the upper left corner.
+     */
+    private static float[][] createImage() {
+        final Random random = new Random(42);
+        final float[][] data = new float[HEIGHT][WIDTH];
+        for (int y = 0; y < HEIGHT; ++y) {
+            for (int x = 0; x < WIDTH; ++x) {
+                final int r = random.nextInt(20);
+                if (x < 4 && y < 4 || r == 0) {
+                    data[y][x] = (float) NO_DATA;
+                } else if (r == 1) {
+                    data[y][x] = Float.NaN;
+                } else {
+                    data[y][x] = 1 + random.nextInt(6);
+                }
+            }
+        }
+        return data;
+    }
+
+    private boolean isValid(final int x, final int y) {
+        return x >= 0 && y >= 0 && x < WIDTH && y < HEIGHT && image[y][x] != NO_DATA && !Float.isNaN(image[y][x]);
+    }
+
+    /**
+     * @return the valid pixels of the window around a pixel
+     */
+    private double[] windowValues(final int[] win, final int x, final int y) {
+        final double[] v = new double[(2 * win[0] + 1) * (2 * win[1] + 1)];
+        int n = 0;
+        for (int j = y - win[1]; j <= y + win[1]; ++j) {
+            for (int i = x - win[0]; i <= x + win[0]; ++i) {
+                if (isValid(i, j)) {
+                    v[n++] = image[j][i];
+                }
+            }
+        }
+        return Arrays.copyOf(v, n);
+    }
+
+    /**
+     * Load a target tile with the source tile rectangle the filters request, its border clipped to the image.
+     */
+    private SlidingWindow load(final int[] win, final int[] t) {
+        final int minX = Math.max(t[0] - win[0], 0), minY = Math.max(t[1] - win[1], 0);
+        final int maxX = Math.min(t[0] + t[2] + win[0], WIDTH), maxY = Math.min(t[1] + t[3] + win[1], HEIGHT);
+        final Tile tile = createTile(image, minX, minY, maxX - minX, maxY - minY);
+
+        final SlidingWindow window = new SlidingWindow(win[0], win[1]);
+        window.load(tile.getDataBuffer(), null, new TileIndex(tile), false, NO_DATA,
+                    t[0], t[1], t[2], t[3], WIDTH, HEIGHT);
+        return window;
+    }
+
+    private static Tile createTile(final float[][] data, final int x0, final int y0, final int w, final int h) {
+        final WritableRaster raster = Raster.createWritableRaster(
+                new BandedSampleModel(DataBuffer.TYPE_FLOAT, w, h, 1), new Point(x0, y0));
+        for (int y = y0; y < y0 + h; ++y) {
+            for (int x = x0; x < x0 + w; ++x) {
+                raster.setSample(x, y, 0, data[y][x]);
+            }
+        }
+        final Band band = new Band("band", ProductData.TYPE_FLOAT32, WIDTH, HEIGHT);
+        band.setNoDataValue(NO_DATA);
+        return new TileImpl(band, raster);
+    }
+
+    private static String message(final int[] win, final int[] t, final int xx, final int yy) {
+        return "window " + (2 * win[0] + 1) + "x" + (2 * win[1] + 1) + " tile " + Arrays.toString(t) +
+                " pixel " + xx + "," + yy;
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.sar.gpf.geometric;
+
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit test for IlluminationAreaCache, counting the strip simulations behind the reads.
+ */
+public class TestIlluminationAreaCache {
+
+    private static final int WIDTH = 20;
+    private static final int HEIGHT = 25;
+    private static final int STRIP_HEIGHT = 10;
+    private static final long STRIP_BYTES = 2L * 8 * WIDTH * STRIP_HEIGHT;
+
+    private final AtomicInteger simulations = new AtomicInteger();
+
+    @Test
+    public void testCovers() {
+        final IlluminationAreaCache cache = createCache(Long.MAX_VALUE);
+        assertTrue(cache.covers(new Rectangle(0, 0, WIDTH, STRIP_HEIGHT)));
+        assertTrue(cache.covers(new Rectangle(3, 2, 5, 8)));
+        assertTrue(cache.covers(new Rectangle(0, STRIP_HEIGHT - 1, WIDTH, 1)));
+        assertTrue(cache.covers(new Rectangle(0, STRIP_HEIGHT, WIDTH, 1)));
+        assertTrue(cache.covers(new Rectangle(0, STRIP_HEIGHT, WIDTH, STRIP_HEIGHT)));
+        assertFalse(cache.covers(new Rectangle(0, STRIP_HEIGHT - 1, WIDTH, 2)));
+        assertFalse(cache.covers(new Rectangle(0, 5, WIDTH, STRIP_HEIGHT)));
+        assertFalse(cache.covers(new Rectangle(0, 0, WIDTH, STRIP_HEIGHT + 1)));
+
+        // the last strip is shorter than the others
+        assertTrue(cache.covers(new Rectangle(0, 2 * STRIP_HEIGHT, WIDTH, HEIGHT - 2 * STRIP_HEIGHT)));
+        assertTrue(cache.covers(new Rectangle(4, HEIGHT - 1, 1, 1)));
+    }
+
+    @Test
+    public void testReadWindows() throws Exception {
+        final IlluminationAreaCache cache = createCache(Long.MAX_VALUE);
+        read(cache, new Rectangle(3, 12, 7, 6));
+        read(cache, new Rectangle(0, 2 * STRIP_HEIGHT, WIDTH, HEIGHT - 2 * STRIP_HEIGHT));
+        read(cache, new Rectangle(WIDTH - 1, STRIP_HEIGHT, 1, STRIP_HEIGHT));
+        assertEquals(2, simulations.get());
+    }
+
+    @Test
+    public void testStripRemovedOnceFullyRead() throws Exception {
+        final IlluminationAreaCache cache = createCache(Long.MAX_VALUE);
+        read(cache, new Rectangle(0, 0, WIDTH / 2, STRIP_HEIGHT));
+        assertEquals(1, simulations.get());
+        read(cache, new Rectangle(WIDTH / 2, 0, WIDTH / 2, STRIP_HEIGHT));
+        assertEquals(1, simulations.get());
+
+        // all pixels have been read, so the strip is simulated again
+        read(cache, new Rectangle(0, 0, WIDTH / 2, STRIP_HEIGHT));
+        assertEquals(2, simulations.get());
+
+        // the short last strip is removed after its own pixel count
+        read(cache, new Rectangle(0, 2 * STRIP_HEIGHT, WIDTH, HEIGHT - 2 * STRIP_HEIGHT));
+        read(cache, new Rectangle(0, 2 * STRIP_HEIGHT, WIDTH, 1));
+        assertEquals(4, simulations.get());
+    }
+
+    @Test
+    public void testEvictionOverBudget() throws Exception {
+        // room for two full strips
+        final IlluminationAreaCache cache = createCache(2 * STRIP_BYTES);
+        final int w = WIDTH / 4;
+
+        read(cache, new Rectangle(0, 0, w, STRIP_HEIGHT));
+        read(cache, new Rectangle(0, STRIP_HEIGHT, w, STRIP_HEIGHT));
+        read(cache, new Rectangle(w, 0, w, STRIP_HEIGHT));
+        assertEquals(2, simulations.get());
+
+        // a third strip evicts the least recently used one, strip 1
+        read(cache, new Rectangle(0, 2 * STRIP_HEIGHT, w, HEIGHT - 2 * STRIP_HEIGHT));
+        assertEquals(3, simulations.get());
+        read(cache, new Rectangle(2 * w, 0, w, STRIP_HEIGHT));
+        assertEquals(3, simulations.get());
+        read(cache, new Rectangle(w, STRIP_HEIGHT, w, STRIP_HEIGHT));
+        assertEquals(4, simulations.get());
+
+        // strip 1 in turn evicted strip 2, which was used less recently than strip 0
+        read(cache, new Rectangle(3 * w, 0, w, STRIP_HEIGHT));
+        assertEquals(4, simulations.get());
+        read(cache, new Rectangle(w, 2 * STRIP_HEIGHT, w, HEIGHT - 2 * STRIP_HEIGHT));
+        assertEquals(5, simulations.get());
+    }
+
+    @Test
+    public void testStripLargerThanBudget() throws Exception {
+        // a strip over the budget is still kept until it is read
+        final IlluminationAreaCache cache = createCache(STRIP_BYTES / 2);
+        read(cache, new Rectangle(0, 0, WIDTH / 2, STRIP_HEIGHT));
+        read(cache, new Rectangle(WIDTH / 2, 0, WIDTH / 2, STRIP_HEIGHT));
+        assertEquals(1, simulations.get());
+    }
+
+    @Test
+    public void testWaitingReaders() throws Exception {
+        final IlluminationAreaCache cache = createCache(Long.MAX_VALUE);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final IlluminationAreaCache.Simulator slow = area -> {
+            started.countDown();
+            release.await();
+            return simulate(area);
+        };
+
+        final AtomicBoolean firstRead = new AtomicBoolean();
+        final Thread first = new Thread(() -> firstRead.set(readQuietly(cache, new Rectangle(0, 0, 5, 4), slow)));
+        first.start();
+        started.await();
+
+        final AtomicBoolean secondRead = new AtomicBoolean();
+        final Thread second = new Thread(() -> secondRead.set(readQuietly(cache, new Rectangle(6, 3, 9, 7), slow)));
+        second.start();
+        waitUntilBlocked(second);
+        assertEquals(0, simulations.get());
+
+        release.countDown();
+        first.join();
+        second.join();
+        assertTrue(firstRead.get());
+        assertTrue(secondRead.get());
+        assertEquals(1, simulations.get());
+    }
+
+    @Test
+    public void testCanceledSimulation() throws Exception {
+        final IlluminationAreaCache cache = createCache(Long.MAX_VALUE);
+        final Rectangle rect = new Rectangle(2, 0, 6, 5);
+        final double[][] gamma0 = new double[rect.height][rect.width];
+        final double[][] sigma0 = new double[rect.height][rect.width];
+        assertFalse(cache.read(rect, gamma0, sigma0, area -> {
+            simulate(area);
+            return false;
+        }));
+
+        // the strip is dropped with its partial areas and simulated again
+        read(cache, rect);
+        assertEquals(2, simulations.get());
+    }
+
+    @Test
+    public void testFailedSimulation() throws Exception {
+        final IlluminationAreaCache cache = createCache(Long.MAX_VALUE);
+        final Rectangle rect = new Rectangle(0, STRIP_HEIGHT, WIDTH, 3);
+        try {
+            cache.read(rect, new double[rect.height][rect.width], new double[rect.height][rect.width], area -> {
+                simulate(area);
+                throw new IOException("DEM tile not readable");
+            });
+            fail("IOException expected");
+        } catch (IOException e) {
+            // expected
+        }
+
+        read(cache, rect);
+        assertEquals(2, simulations.get());
+    }
+
+    @Test
+    public void testWaitingReadersOfCanceledSimulation() throws Exception {
+        final IlluminationAreaCache cache = createCache(Long.MAX_VALUE);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final IlluminationAreaCache.Simulator canceled = area -> {
+            started.countDown();
+            release.await();
+            simulate(area);
+            return false;
+        };
+
+        final AtomicBoolean firstRead = new AtomicBoolean(true);
+        final Thread first = new Thread(() -> firstRead.set(readQuietly(cache, new Rectangle(0, 0, 5, 4), canceled)));
+        first.start();
+        started.await();
+
+        // a tile waiting for the canceled strip gives up without simulating it again
+        final AtomicBoolean secondRead = new AtomicBoolean(true);
+        final Thread second = new Thread(() -> secondRead.set(readQuietly(cache, new Rectangle(5, 0, 5, 4),
+                                                                           this::simulate)));
+        second.start();
+        waitUntilBlocked(second);
+
+        release.countDown();
+        first.join();
+        second.join();
+        assertFalse(firstRead.get());
+        assertFalse(secondRead.get());
+        assertEquals(1, simulations.get());
+
+        // a later tile simulates the strip again
+        read(cache, new Rectangle(0, 0, 5, 4));
+        assertEquals(2, simulations.get());
+    }
+
+    private IlluminationAreaCache createCache(final long maxBytes) {
+        return new IlluminationAreaCache(WIDTH, HEIGHT, STRIP_HEIGHT, true, maxBytes);
+    }
+
+    /**
+     * Add a value depending on the pixel to each reference area, so that a reused partial area would show.
+     */
+    private boolean simulate(final IlluminationAreaCache.ReferenceArea area) {
+        simulations.incrementAndGet();
+        for (int y = 0; y < area.height; ++y) {
+            for (int x = 0; x < area.width; ++x) {
+                area.gamma0[y * area.width + x] += expected(area.x0 + x, area.y0 + y);
+                area.sigma0[y * area.width + x] -= expected(area.x0 + x, area.y0 + y);
+            }
+        }
+        return true;
+    }
+
+    private static double expected(final int x, final int y) {
+        return y * 100 + x + 0.5;
+    }
+
+    private void read(final IlluminationAreaCache cache, final Rectangle rect) throws Exception {
+        assertTrue(read(cache, rect, this::simulate));
+    }
+
+    private static boolean read(final IlluminationAreaCache cache, final Rectangle rect,
+                                final IlluminationAreaCache.Simulator simulator) throws Exception {
+        final double[][] gamma0 = new double[rect.height][rect.width];
+        final double[][] sigma0 = new double[rect.height][rect.width];
+        if (!cache.read(rect, gamma0, sigma0, simulator)) {
+            return false;
+        }
+        for (int y = 0; y < rect.height; ++y) {
+            for (int x = 0; x < rect.width; ++x) {
+                final String msg = "x " + (rect.x + x) + " y " + (rect.y + y);
+                assertEquals(msg, expected(rect.x + x, rect.y + y), gamma0[y][x], 0.0);
+                assertEquals(msg, -expected(rect.x + x, rect.y + y), sigma0[y][x], 0.0);
+            }
+        }
+        return true;
+    }
+
+    private static boolean readQuietly(final IlluminationAreaCache cache, final Rectangle rect,
+                                       final IlluminationAreaCache.Simulator simulator) {
+        try {
+            return read(cache, rect, simulator);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Wait until a thread blocks on the strip filled by another thread.
+     */
+    private static void waitUntilBlocked(final Thread thread) throws InterruptedException {
+        final long end = System.currentTimeMillis() + 10000;
+        while (thread.getState() != Thread.State.BLOCKED) {
+            assertTrue("thread not blocked", System.currentTimeMillis() < end);
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2019 Skywatch. https://www.skywatch.co
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.sar.gpf.geometric;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Solves masked Poisson problems whose exact solution is known.
+ */
+public class TestMultigridPoissonSolver {
+
+    @Test
+    public void testIrregularRegion() {
+        final int width = 200;
+        final int height = 120;
+        final Random random = new Random(42);
+
+        final double[] truth = new double[width * height];
+        for (int i = 0; i < truth.length; ++i) {
+            truth[i] = Math.sin((i % width) * 0.05) + Math.cos((i / width) * 0.03) + 0.1 * random.nextGaussian();
+        }
+
+        // an ellipse joined to a vertical strip, away from the grid border
+        final boolean[] unknown = new boolean[width * height];
+        final double[] laplacian = new double[width * height];
+        final double[] u = truth.clone();
+        for (int y = 1; y < height - 1; ++y) {
+            for (int x = 1; x < width - 1; ++x) {
+                final double dx = (x - width / 2.0) / (width / 3.0);
+                final double dy = (y - height / 2.0) / (height / 3.0);
+                final int i = y * width + x;
+                if (dx * dx + dy * dy < 1 || (x > 20 && x < 30)) {
+                    unknown[i] = true;
+                    u[i] = 0;
+                }
+                laplacian[i] = truth[i - 1] + truth[i + 1] + truth[i - width] + truth[i + width] - 4 * truth[i];
+            }
+        }
+
+        final MultigridPoissonSolver solver = new MultigridPoissonSolver(unknown, width, height);
+        final int iterations = solver.solve(u, laplacian, 1e-8, 500);
+        assertTrue("iterations " + iterations, iterations < 50);
+
+        for (int i = 0; i < u.length; ++i) {
+            assertEquals(truth[i], u[i], 1e-5);
+        }
+    }
+
+    @Test
+    public void testNoUnknowns() {
+        final double[] u = {1, 2, 3, 4};
+        final MultigridPoissonSolver solver = new MultigridPoissonSolver(new boolean[4], 2, 2);
+        assertEquals(0, solver.solve(u, new double[4], 1e-4, 100));
+        assertEquals(3, u[2], 0);
+    }
+}
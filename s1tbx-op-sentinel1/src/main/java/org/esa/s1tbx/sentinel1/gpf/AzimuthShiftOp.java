@@ -19,6 +19,7 @@ import com.bc.ceres.core.ProgressMonitor;
 import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
 import org.apache.commons.math3.util.FastMath;
 import org.esa.s1tbx.commons.Sentinel1Utils;
+import org.esa.s1tbx.commons.utils.ThreadExecutor;
 import org.esa.snap.core.datamodel.*;
 import org.esa.snap.core.dataop.downloadable.StatusProgressMonitor;
 import org.esa.snap.core.gpf.Operator;
@@ -406,7 +407,7 @@ public class AzimuthShiftOp extends Operator {
         final StatusProgressMonitor status = new StatusProgressMonitor(StatusProgressMonitor.TYPE.SUBTASK);
         status.beginTask("Estimating azimuth offset... ", numShifts);
 
-        final ThreadManager threadManager = new ThreadManager();
+        final ThreadExecutor executor = new ThreadExecutor("AzimuthShiftOp", status);
         try {
             final Band mBandI = getBand(StackUtils.MST, "i_", swathIndexStr, polarizations[0]);
             final Band mBandQ = getBand(StackUtils.MST, "q_", swathIndexStr, polarizations[0]);
@@ -439,7 +440,7 @@ public class AzimuthShiftOp extends Operator {
                     final int x0 = x0BurstOne + j * w;
                     final int blockIndex = j;
 
-                    final Thread worker = new Thread() {
+                    final Runnable worker = new Runnable() {
                         @Override
                         public void run() {
                             try {
@@ -459,13 +460,13 @@ public class AzimuthShiftOp extends Operator {
                             }
                         }
                     };
-                    threadManager.add(worker);
+                    executor.execute(worker);
                     status.worked(1);
                 }
             }
 
+            executor.complete();
             status.done();
-            threadManager.finish();
 
             // todo The following simple average should be replaced by weighted average using coherence as weight
             final double[] averagedAzShiftArray = new double[numOverlaps];
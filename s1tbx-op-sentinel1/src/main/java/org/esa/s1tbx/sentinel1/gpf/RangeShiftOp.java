@@ -19,6 +19,7 @@ import com.bc.ceres.core.ProgressMonitor;
 import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
 import org.apache.commons.math3.util.FastMath;
 import org.esa.s1tbx.commons.Sentinel1Utils;
+import org.esa.s1tbx.commons.utils.ThreadExecutor;
 import org.esa.snap.core.datamodel.*;
 import org.esa.snap.core.dataop.downloadable.StatusProgressMonitor;
 import org.esa.snap.core.gpf.Operator;
@@ -371,13 +372,13 @@ public class RangeShiftOp extends Operator {
         final StatusProgressMonitor status = new StatusProgressMonitor(StatusProgressMonitor.TYPE.SUBTASK);
         status.beginTask("Estimating range offsets... ", numBursts);
 
-        final ThreadManager threadManager = new ThreadManager();
+        final ThreadExecutor executor = new ThreadExecutor("RangeShiftOp", status);
         try {
             for (int i = 0; i < numBursts; i++) {
                 checkForCancellation();
                 final int burstIndex = i;
 
-                final Thread worker = new Thread() {
+                final Runnable worker = new Runnable() {
                     @Override
                     public void run() {
                         try {
@@ -399,11 +400,11 @@ public class RangeShiftOp extends Operator {
                         }
                     }
                 };
-                threadManager.add(worker);
+                executor.execute(worker);
                 status.worked(1);
             }
+            executor.complete();
             status.done();
-            threadManager.finish();
 
             double sumAzOffset = 0.0;
             double sumRgOffset = 0.0;
@@ -19,6 +19,7 @@ import com.bc.ceres.core.ProgressMonitor;
 import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
 import org.apache.commons.math3.util.FastMath;
 import org.esa.s1tbx.commons.Sentinel1Utils;
+import org.esa.s1tbx.commons.utils.ThreadExecutor;
 import org.esa.snap.core.datamodel.*;
 import org.esa.snap.core.dataop.downloadable.StatusProgressMonitor;
 import org.esa.snap.core.gpf.Operator;
@@ -479,7 +480,7 @@ public class SpectralDiversityOp extends Operator {
         final StatusProgressMonitor status = new StatusProgressMonitor(StatusProgressMonitor.TYPE.SUBTASK);
         status.beginTask("Estimating range offsets... ", numBursts);
 
-        final ThreadManager threadManager = new ThreadManager();
+        final ThreadExecutor executor = new ThreadExecutor("SpectralDiversityOp", status);
         try {
             // for each slave and pol combination
             for (String key : targetMap.keySet()) {
@@ -495,7 +496,7 @@ public class SpectralDiversityOp extends Operator {
                     checkForCancellation();
                     final int burstIndex = i;
 
-                    final Thread worker = new Thread() {
+                    final Runnable worker = new Runnable() {
                         @Override
                         public void run() {
                             try {
@@ -514,11 +515,11 @@ public class SpectralDiversityOp extends Operator {
                             }
                         }
                     };
-                    threadManager.add(worker);
+                    executor.execute(worker);
                     status.worked(1);
                 }
+                executor.complete();
                 status.done();
-                threadManager.finish();
 
                 double sumAzOffset = 0.0;
                 double sumRgOffset = 0.0;
@@ -649,7 +650,7 @@ public class SpectralDiversityOp extends Operator {
         final StatusProgressMonitor status = new StatusProgressMonitor(StatusProgressMonitor.TYPE.SUBTASK);
         status.beginTask("Estimating azimuth offset... ", numShifts);
 
-        final ThreadManager threadManager = new ThreadManager();
+        final ThreadExecutor executor = new ThreadExecutor("SpectralDiversityOp", status);
         try {
             for (String key : targetMap.keySet()) {
 
@@ -690,7 +691,7 @@ public class SpectralDiversityOp extends Operator {
                         final int x0 = x0BurstOne + j * w;
                         final int blockIndex = j;
 
-                        final Thread worker = new Thread() {
+                        final Runnable worker = new Runnable() {
                             @Override
                             public void run() {
                                 try {
@@ -711,13 +712,13 @@ public class SpectralDiversityOp extends Operator {
                                 }
                             }
                         };
-                        threadManager.add(worker);
+                        executor.execute(worker);
                         status.worked(1);
                     }
                 }
 
+                executor.complete();
                 status.done();
-                threadManager.finish();
 
                 // todo The following simple average should be replaced by weighted average using coherence as weight
                 final double[] averagedAzShiftArray = new double[numOverlaps];
@@ -16,7 +16,7 @@
 package org.esa.s1tbx.io.generic;
 
 import com.bc.ceres.core.ProgressMonitor;
-import org.esa.s1tbx.commons.io.FileImageInputStreamExtImpl;
+import org.esa.s1tbx.commons.io.FlatRasterFile;
 import org.esa.s1tbx.dat.dialogs.GenericBinaryDialog;
 import org.esa.s1tbx.io.binary.ArrayCopy;
 import org.esa.s1tbx.io.binary.BinaryFileReader;
@@ -53,9 +53,7 @@ public class GenericReader extends AbstractProductReader {
     private int imageRecordLength = rasterWidth;
     private final int _startPosImageRecords = 0;
     private int _imageHeaderLength = 0;
-    private ImageInputStream imageInputStream = null;
-
-    private BinaryFileReader binaryReader = null;
+    private FlatRasterFile rasterFile = null;
 
     /**
      * Constructs a new abstract product reader.
@@ -113,9 +111,8 @@ public class GenericReader extends AbstractProductReader {
         product.setModified(false);
         product.setFileLocation(inputFile);
 
-        imageInputStream = FileImageInputStreamExtImpl.createInputStream(inputFile);
-        imageInputStream.setByteOrder(byteOrder);
-        binaryReader = new BinaryFileReader(imageInputStream);
+        rasterFile = new FlatRasterFile(inputFile, _startPosImageRecords + _imageHeaderLength,
+                rasterWidth, rasterHeight, numBands, dataType, FlatRasterFile.Interleave.BSQ, byteOrder);
 
         return product;
     }
@@ -129,7 +126,9 @@ public class GenericReader extends AbstractProductReader {
     public void close() throws IOException {
         super.close();
 
-        binaryReader.close();
+        if (rasterFile != null) {
+            rasterFile.close();
+        }
     }
 
     static DecodeQualification checkProductQualification(File file) {
@@ -157,55 +156,9 @@ public class GenericReader extends AbstractProductReader {
                                           int destOffsetY, int destWidth, int destHeight, ProductData destBuffer,
                                           ProgressMonitor pm) throws IOException {
 
-        readBandRasterData(sourceOffsetX, sourceOffsetY,
-                sourceWidth, sourceHeight,
-                sourceStepX, sourceStepY,
-                _startPosImageRecords + _imageHeaderLength, imageInputStream,
-                destBand, destWidth, destBuffer, pm);
-    }
-
-    private static void readBandRasterData(final int sourceOffsetX, final int sourceOffsetY,
-                                           final int sourceWidth, final int sourceHeight,
-                                           final int sourceStepX, final int sourceStepY,
-                                           final long bandOffset, final ImageInputStream imageInputStream,
-                                           final Band destBand, final int destWidth, final ProductData destBuffer,
-                                           final ProgressMonitor pm) throws IOException {
-
-        final int sourceMinX = sourceOffsetX;
-        final int sourceMinY = sourceOffsetY;
-        final int sourceMaxX = sourceOffsetX + sourceWidth - 1;
-        final int sourceMaxY = sourceOffsetY + sourceHeight - 1;
-
-        final int sourceRasterWidth = destBand.getProduct().getSceneRasterWidth();
-
-        final int elemSize = destBuffer.getElemSize();
-        int destPos = 0;
-
-        pm.beginTask("Reading band '" + destBand.getName() + "'...", sourceMaxY - sourceMinY);
-        try {
-            for (int sourceY = sourceMinY; sourceY <= sourceMaxY; sourceY += sourceStepY) {
-                if (pm.isCanceled()) {
-                    break;
-                }
-                final long sourcePosY = sourceY * sourceRasterWidth;
-                synchronized (imageInputStream) {
-                    if (sourceStepX == 1) {
-                        imageInputStream.seek(bandOffset + elemSize * (sourcePosY + sourceMinX));
-                        destBuffer.readFrom(destPos, destWidth, imageInputStream);
-                        destPos += destWidth;
-                    } else {
-                        for (int sourceX = sourceMinX; sourceX <= sourceMaxX; sourceX += sourceStepX) {
-                            imageInputStream.seek(bandOffset + elemSize * (sourcePosY + sourceX));
-                            destBuffer.readFrom(destPos, 1, imageInputStream);
-                            destPos++;
-                        }
-                    }
-                }
-                pm.worked(1);
-            }
-        } finally {
-            pm.done();
-        }
+        final int bandIndex = destBand.getProduct().getBandIndex(destBand.getName());
+        rasterFile.readBandRasterData(bandIndex, sourceOffsetX, sourceOffsetY, sourceWidth, sourceHeight,
+                sourceStepX, sourceStepY, destBuffer, pm);
     }
 
     public static void readBandRasterDataIntSLC(final int sourceOffsetX, final int sourceOffsetY,